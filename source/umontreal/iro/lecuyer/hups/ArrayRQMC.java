@@ -0,0 +1,278 @@
+/*
+ * Class:        ArrayRQMC
+ * Description:  Array-RQMC simulation of Markov chains
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Université de Montréal
+ * Organization: DIRO, Université de Montréal
+ * @author
+ * @since
+
+ * SSJ is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License (GPL) as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * any later version.
+
+ * SSJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * A copy of the GNU General Public License is available at
+   <a href="http://www.gnu.org/licenses">GPL licence site</a>.
+ */
+
+package umontreal.iro.lecuyer.hups;
+
+import umontreal.iro.lecuyer.util.Misc;
+import umontreal.iro.lecuyer.rng.RandomStream;
+import umontreal.iro.lecuyer.stat.Tally;
+
+
+/**
+ * This class simulates <SPAN CLASS="MATH"><I>n</I></SPAN> copies of a Markov chain, represented by
+ * {@link ArrayRQMCChain} objects, with the array-RQMC method of L'Ecuyer,
+ * L'ecot and Tuffin.  The <SPAN CLASS="MATH"><I>n</I></SPAN> chains advance in parallel, one step at a
+ * time.  Before each step, the chains are sorted by their states with a
+ * {@link ChainSort}, the point set <SPAN CLASS="MATH"><I>P</I><SUB>n</SUB></SPAN> is randomized, and the chain of rank
+ * <SPAN CLASS="MATH"><I>k</I></SPAN> in the sorted order makes its transition with the uniforms given by
+ * the coordinates of point <SPAN CLASS="MATH"><I>k</I></SPAN>.
+ * <P>
+ * If the points are not already in an order that matches the order of the
+ * chains, their first <SPAN CLASS="MATH"><I>c</I></SPAN> coordinates can be used to sort them with the same
+ * {@link ChainSort}, at each step, after the randomization;
+ * the chain of rank <SPAN CLASS="MATH"><I>k</I></SPAN> then uses the coordinates <SPAN CLASS="MATH"><I>c</I>, <I>c</I> + 1, ...</SPAN> of the point
+ * of rank <SPAN CLASS="MATH"><I>k</I></SPAN>.  For example, for one-dimensional states, <SPAN CLASS="MATH"><I>c</I> = 1</SPAN> and the
+ * chains and the points are both sorted by their first coordinate.
+ * With <SPAN CLASS="MATH"><I>c</I> = 0</SPAN>, the chain of rank <SPAN CLASS="MATH"><I>k</I></SPAN> uses point <SPAN CLASS="MATH"><I>k</I></SPAN>, starting from its first
+ * coordinate.
+ * <P>
+ * After a given number of steps, the average of the performances of the <SPAN CLASS="MATH"><I>n</I></SPAN>
+ * chains is an estimator of the expected performance, with a variance that
+ * often converges faster than <SPAN CLASS="MATH"><I>O</I>(1/<I>n</I>)</SPAN>.  Independent replications of this
+ * estimator are added to a {@link umontreal.iro.lecuyer.stat.Tally Tally}
+ * to compute a confidence interval.
+ * <P>
+ * The sorts and the transitions of the chains may be performed by several
+ * threads, the transitions of the chains of each rank range being made by
+ * one thread.  Since the sorts do not depend on the number of threads and
+ * the chains do not share data, neither do the results.  The randomizations
+ * are made in the calling thread.  The replication <SPAN CLASS="MATH"><I>r</I></SPAN> uses the <SPAN CLASS="MATH">(<I>r</I> + 1)</SPAN>-th
+ * substream following the current substream of the stream of the
+ * randomization, which must support substreams.
+ * 
+ */
+public class ArrayRQMC {
+   private ArrayRQMCChain[] chains;
+   private ChainSort sort;
+   private int numThreads = 1;
+
+   private double[][] keys;       // states of the chains
+   private double[][] pointKeys;  // first coordinates of the points
+   private int[] chainIndex;      // chain of each rank
+   private int[] pointIndex;      // point of each rank
+
+
+   /**
+    * Constructs an array-RQMC simulator for the <SPAN CLASS="MATH"><I>n</I></SPAN> chains <TT>chains</TT>,
+    * sorted by <TT>sort</TT>.  The chains must be distinct objects.
+    * 
+    * @param chains the chains to simulate
+    * 
+    * @param sort the sort of the states of the chains
+    * 
+    * @exception IllegalArgumentException if <TT>chains</TT> is empty
+    * 
+    */
+   public ArrayRQMC (ArrayRQMCChain[] chains, ChainSort sort) {
+      if (chains.length < 1)
+         throw new IllegalArgumentException ("No chain");
+      this.chains = chains;
+      this.sort = sort;
+      int n = chains.length;
+      keys = new double[n][];
+      chainIndex = new int[n];
+      pointIndex = new int[n];
+   }
+
+
+   /**
+    * Sets the number of threads used to sort and advance the chains to
+    * <TT>numThreads</TT>.  The default is 1.
+    * 
+    * @param numThreads the number of threads
+    * 
+    * @exception IllegalArgumentException if <TT>numThreads</TT> <SPAN CLASS="MATH">&lt; 1</SPAN>
+    * 
+    */
+   public void setNumThreads (int numThreads) {
+      if (numThreads < 1)
+         throw new IllegalArgumentException ("numThreads < 1");
+      this.numThreads = numThreads;
+   }
+
+
+   /**
+    * Returns the array of chains.
+    * 
+    * @return the chains
+    * 
+    */
+   public ArrayRQMCChain[] getChains() {
+      return chains;
+   }
+
+
+   /**
+    * Puts the <SPAN CLASS="MATH"><I>n</I></SPAN> chains in their initial state, then performs
+    * <TT>numSteps</TT> steps of array-RQMC, or fewer if all the chains have
+    * stopped, and returns the average of the performances of the chains.
+    * At each step, the point set <TT>P</TT> is randomized by <TT>rand</TT>,
+    * which uses the current state of its stream, and, if <SPAN CLASS="MATH"><I>c</I> =</SPAN>
+    * <TT>sortCoordPts</TT> is positive, its first <SPAN CLASS="MATH"><I>n</I></SPAN> points are sorted by
+    * their first <SPAN CLASS="MATH"><I>c</I></SPAN> coordinates.  The chains use the coordinates of the
+    * points from coordinate <SPAN CLASS="MATH"><I>c</I></SPAN>.
+    * 
+    * @param P the point set
+    * 
+    * @param rand the randomization of the point set
+    * 
+    * @param sortCoordPts the number of coordinates used to sort the points
+    * 
+    * @param numSteps the number of steps
+    * 
+    * @return the average performance of the chains
+    * 
+    * @exception IllegalArgumentException if <TT>P</TT> has fewer than <SPAN CLASS="MATH"><I>n</I></SPAN>
+    * points, if <SPAN CLASS="MATH"><I>c</I></SPAN> is not smaller than the dimension of <TT>P</TT>,
+    * if <SPAN CLASS="MATH"><I>c</I></SPAN> is positive but smaller than the dimension of the sort,
+    * or if a parameter is negative
+    * 
+    */
+   public double simulOnce (PointSet P, PointSetRandomization rand,
+                            int sortCoordPts, int numSteps) {
+      int n = chains.length;
+      if (n > P.getNumPoints())
+         throw new IllegalArgumentException (
+            "the point set has fewer points than there are chains");
+      if (sortCoordPts < 0 || sortCoordPts >= P.getDimension())
+         throw new IllegalArgumentException (
+            "sortCoordPts must be in [0, dimension of P)");
+      if (sortCoordPts > 0 && sortCoordPts < sort.getDimension())
+         throw new IllegalArgumentException (
+            "sortCoordPts is smaller than the dimension of the sort");
+      if (numSteps < 0)
+         throw new IllegalArgumentException ("numSteps < 0");
+      for (int i = 0; i < n; i++)
+         chains[i].initialState();
+      for (int step = 0; step < numSteps; step++) {
+         int numActive = 0;
+         for (int i = 0; i < n; i++) {
+            keys[i] = chains[i].getState();
+            chainIndex[i] = i;
+            if (!chains[i].hasStopped())
+               numActive++;
+         }
+         if (numActive == 0)
+            break;
+         sort.sort (keys, chainIndex, numThreads);
+         rand.randomize (P);
+         sortPoints (P, sortCoordPts);
+         advance (P, sortCoordPts);
+      }
+      double sum = 0.0;
+      for (int i = 0; i < n; i++)
+         sum += chains[i].getPerformance();
+      return sum / n;
+   }
+
+
+   /**
+    * Performs <SPAN CLASS="MATH"><I>m</I></SPAN> independent replications of
+    * {@link #simulOnce(PointSet,PointSetRandomization,int,int) simulOnce}
+    * and adds the <SPAN CLASS="MATH"><I>m</I></SPAN> averages to <TT>statReps</TT>.
+    * Each replication starts from the next substream of the stream of
+    * <TT>rand</TT>.
+    * 
+    * @param P the point set
+    * 
+    * @param rand the randomization of the point set
+    * 
+    * @param sortCoordPts the number of coordinates used to sort the points
+    * 
+    * @param numSteps the number of steps
+    * 
+    * @param m the number of replications
+    * 
+    * @param statReps collects the <SPAN CLASS="MATH"><I>m</I></SPAN> averages
+    * 
+    * @exception IllegalArgumentException if <SPAN CLASS="MATH"><I>m</I> &lt; 0</SPAN>
+    * 
+    */
+   public void simulReplicates (PointSet P, PointSetRandomization rand,
+                                int sortCoordPts, int numSteps, int m,
+                                Tally statReps) {
+      if (m < 0)
+         throw new IllegalArgumentException ("m < 0");
+      RandomStream stream = rand.getStream();
+      for (int r = 0; r < m; r++) {
+         stream.resetNextSubstream();
+         statReps.add (simulOnce (P, rand, sortCoordPts, numSteps));
+      }
+   }
+
+
+   public String toString() {
+      return "ArrayRQMC: " + chains.length + " chains, " + sort;
+   }
+
+   // Sets pointIndex to the points in the order matching the chains.
+   private void sortPoints (PointSet P, int c) {
+      int n = chains.length;
+      for (int i = 0; i < n; i++)
+         pointIndex[i] = i;
+      if (c == 0)
+         return;
+      // The rows are permuted by the sort, but they are all overwritten
+      if (pointKeys == null || pointKeys[0].length != c)
+         pointKeys = new double[n][c];
+      PointSet.nextPoints (P.iterator(), pointKeys, n, c);
+      sort.sort (pointKeys, pointIndex, numThreads);
+   }
+
+   // Advances the active chains, each rank range in a thread.
+   private void advance (final PointSet P, final int c) {
+      final int n = chains.length;
+      int nt = Math.min (numThreads, n);
+      Runnable[] tasks = new Runnable[nt];
+      for (int t = 0; t < nt; t++) {
+         final int k0 = (int) ((long) n * t / nt);
+         final int k1 = (int) ((long) n * (t + 1) / nt);
+         final PointSetIterator it = P.iterator();
+         tasks[t] = new Runnable() {
+            public void run() {
+               if (c == 0) {
+                  // The points are used in their order
+                  it.setCurPointIndex (k0);
+                  for (int k = k0; k < k1; k++) {
+                     ArrayRQMCChain chain = chains[chainIndex[k]];
+                     if (!chain.hasStopped())
+                        chain.nextStep (it);
+                     it.resetToNextPoint();
+                  }
+                  return;
+               }
+               for (int k = k0; k < k1; k++) {
+                  ArrayRQMCChain chain = chains[chainIndex[k]];
+                  if (chain.hasStopped())
+                     continue;
+                  it.setCurPointIndex (pointIndex[k]);
+                  it.setCurCoordIndex (c);
+                  chain.nextStep (it);
+               }
+            }
+         };
+      }
+      Misc.runInParallel (tasks);
+   }
+}
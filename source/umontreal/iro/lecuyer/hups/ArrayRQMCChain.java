@@ -0,0 +1,101 @@
+/*
+ * Class:        ArrayRQMCChain
+ * Description:  Markov chain simulated by array-RQMC
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Université de Montréal
+ * Organization: DIRO, Université de Montréal
+ * @author
+ * @since
+
+ * SSJ is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License (GPL) as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * any later version.
+
+ * SSJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * A copy of the GNU General Public License is available at
+   <a href="http://www.gnu.org/licenses">GPL licence site</a>.
+ */
+
+package umontreal.iro.lecuyer.hups;
+
+import umontreal.iro.lecuyer.rng.RandomStream;
+
+
+/**
+ * This abstract class represents a Markov chain simulated by
+ * {@link ArrayRQMC}.  The chain starts in a fixed initial state,
+ * and at each step, its state is changed by a transition that uses uniform
+ * random numbers obtained from a {@link umontreal.iro.lecuyer.rng.RandomStream RandomStream}.
+ * To be sorted, the state must be represented by a vector of real numbers,
+ * returned by {@link #getState getState}.
+ * When the simulation ends, the chain gives its performance, for example
+ * a cost or the payoff of an option, whose expectation is estimated.
+ * <P>
+ * With array-RQMC, the stream passed to {@link #nextStep(RandomStream) nextStep} is a
+ * {@link PointSetIterator}, which returns the coordinates of a point
+ * of a randomized point set.  The steps of different chains are performed
+ * concurrently if {@link ArrayRQMC} uses several threads, so the methods of
+ * a chain must not modify data shared with other chains.
+ * 
+ */
+public abstract class ArrayRQMCChain {
+
+
+   /**
+    * Puts the chain in its initial state.
+    * 
+    */
+   public abstract void initialState();
+
+
+   /**
+    * Performs one transition of the chain, using the uniforms given by
+    * <TT>stream</TT>.  This method is not called after
+    * {@link #hasStopped hasStopped} returns <TT>true</TT>.
+    * 
+    * @param stream gives the uniforms of the transition
+    * 
+    */
+   public abstract void nextStep (RandomStream stream);
+
+
+   /**
+    * Returns the current state of the chain, as a vector of real numbers
+    * used to sort the chains.  The returned array may be the one where the
+    * chain keeps its state; it is not modified by the caller, but it is
+    * read only until the next call to {@link #nextStep(RandomStream) nextStep}.
+    * 
+    * @return the state of the chain
+    * 
+    */
+   public abstract double[] getState();
+
+
+   /**
+    * Returns the performance of the chain, such as the total cost
+    * accumulated since the initial state.
+    * 
+    * @return the performance of the chain
+    * 
+    */
+   public abstract double getPerformance();
+
+
+   /**
+    * Returns <TT>true</TT> if the chain has reached a final state, after
+    * which it makes no more transitions.  The default implementation always
+    * returns <TT>false</TT>.
+    * 
+    * @return <TT>true</TT> if the chain has stopped
+    * 
+    */
+   public boolean hasStopped() {
+      return false;
+   }
+}
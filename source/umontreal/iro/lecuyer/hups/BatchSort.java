@@ -0,0 +1,203 @@
+/*
+ * Class:        BatchSort
+ * Description:  Sorts multidimensional states by batches
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Université de Montréal
+ * Organization: DIRO, Université de Montréal
+ * @author
+ * @since
+
+ * SSJ is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License (GPL) as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * any later version.
+
+ * SSJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * A copy of the GNU General Public License is available at
+   <a href="http://www.gnu.org/licenses">GPL licence site</a>.
+ */
+
+package umontreal.iro.lecuyer.hups;
+
+import umontreal.iro.lecuyer.util.Misc;
+
+
+/**
+ * Sorts states of dimension <SPAN CLASS="MATH"><I>l</I></SPAN> by batches, one coordinate at a time.
+ * The <SPAN CLASS="MATH"><I>n</I></SPAN> states are first sorted by their first coordinate and split into
+ * <SPAN CLASS="MATH"><I>n</I><SUB>1</SUB></SPAN> batches of (nearly) equal size; the states of each batch are then
+ * sorted by their second coordinate and split into <SPAN CLASS="MATH"><I>n</I><SUB>2</SUB></SPAN> batches, and so on,
+ * until the last coordinate, which is only used to sort the states within
+ * their batch.  The number of batches at each level is chosen so that
+ * <SPAN CLASS="MATH"><I>n</I><SUB>1</SUB> &#8776; <I>n</I><SUB>2</SUB> &#8776; ... &#8776; <I>n</I><SUB>l</SUB> &#8776; <I>n</I><SUP>1/l</SUP></SPAN>:
+ * a batch of <SPAN CLASS="MATH"><I>m</I></SPAN> states sorted by coordinate <SPAN CLASS="MATH"><I>j</I></SPAN> is split into
+ * <SPAN CLASS="MATH">round(<I>m</I><SUP>1/(l-j)</SUP>)</SPAN> batches, for <SPAN CLASS="MATH"><I>j</I> = 1,...,<I>l</I> - 1</SPAN>.
+ * When <SPAN CLASS="MATH"><I>l</I> = 1</SPAN>, this is an ordinary sort on the first coordinate.
+ * <P>
+ * The sorts are stable merge sorts.  With several threads, the sort on the
+ * first coordinate is done by merging parts of the array sorted concurrently,
+ * and the batches are then sorted concurrently.
+ * 
+ */
+public class BatchSort implements ChainSort {
+   private int dim;
+
+
+   /**
+    * Constructs a sort on the first <SPAN CLASS="MATH"><I>l</I> =</SPAN> <TT>dim</TT> coordinates of
+    * the states.
+    * 
+    * @param dim the number of coordinates used by the sort
+    * 
+    * @exception IllegalArgumentException if <SPAN CLASS="MATH"><I>l</I> &lt; 1</SPAN>
+    * 
+    */
+   public BatchSort (int dim) {
+      if (dim < 1)
+         throw new IllegalArgumentException ("dim < 1");
+      this.dim = dim;
+   }
+
+
+   public int getDimension() {
+      return dim;
+   }
+
+   public void sort (final double[][] keys, int[] index, int numThreads) {
+      if (numThreads < 1)
+         throw new IllegalArgumentException ("numThreads < 1");
+      final int n = keys.length;
+      final int[] perm = new int[n];
+      final int[] tmp = new int[n];
+      for (int i = 0; i < n; i++)
+         perm[i] = i;
+
+      // Sort on the first coordinate: parts sorted concurrently, then merged
+      int numParts = Math.max (1, Math.min (numThreads, n / 2));
+      final int[] bound = new int[numParts + 1];
+      for (int t = 0; t <= numParts; t++)
+         bound[t] = (int) ((long) n * t / numParts);
+      Runnable[] tasks = new Runnable[numParts];
+      for (int t = 0; t < numParts; t++) {
+         final int t0 = t;
+         tasks[t] = new Runnable() {
+            public void run() {
+               mergeSort (keys, 0, perm, tmp, bound[t0], bound[t0 + 1]);
+            }
+         };
+      }
+      Misc.runInParallel (tasks);
+      for (int width = 1; width < numParts; width *= 2) {
+         tasks = new Runnable[(numParts + 2*width - 1) / (2*width)];
+         for (int t = 0; t < tasks.length; t++) {
+            final int from = bound[2*t*width];
+            final int mid = bound[Math.min ((2*t + 1)*width, numParts)];
+            final int to = bound[Math.min ((2*t + 2)*width, numParts)];
+            tasks[t] = new Runnable() {
+               public void run() {
+                  merge (keys, 0, perm, tmp, from, mid, to);
+               }
+            };
+         }
+         Misc.runInParallel (tasks);
+      }
+
+      // The batches are then sorted concurrently
+      if (dim > 1) {
+         final int numBatches = numBatches (n, dim);
+         numThreads = Math.min (numThreads, numBatches);
+         tasks = new Runnable[numThreads];
+         for (int t = 0; t < numThreads; t++) {
+            final int t0 = t;
+            final int step = numThreads;
+            tasks[t] = new Runnable() {
+               public void run() {
+                  for (int b = t0; b < numBatches; b += step)
+                     sortBatch (keys, 1, perm, tmp,
+                                (int) ((long) n * b / numBatches),
+                                (int) ((long) n * (b + 1) / numBatches));
+               }
+            };
+         }
+         Misc.runInParallel (tasks);
+      }
+      permute (keys, index, perm);
+   }
+
+   public String toString() {
+      return "BatchSort: dimension = " + dim;
+   }
+
+   // Sorts perm[from..to-1] on coordinate j, then its batches on the
+   // following coordinates.
+   private void sortBatch (double[][] keys, int j, int[] perm, int[] tmp,
+                           int from, int to) {
+      mergeSort (keys, j, perm, tmp, from, to);
+      if (j + 1 < dim) {
+         int m = to - from;
+         int numBatches = numBatches (m, dim - j);
+         for (int b = 0; b < numBatches; b++)
+            sortBatch (keys, j + 1, perm, tmp,
+                       from + (int) ((long) m * b / numBatches),
+                       from + (int) ((long) m * (b + 1) / numBatches));
+      }
+   }
+
+   // Number of batches of m states, sorted by the first of r coordinates.
+   private static int numBatches (int m, int r) {
+      return Math.max (1, (int) Math.round (Math.pow (m, 1.0 / r)));
+   }
+
+   // Stable sort of perm[from..to-1] by the coordinate j of the keys.
+   private static void mergeSort (double[][] keys, int j, int[] perm,
+                                  int[] tmp, int from, int to) {
+      if (to - from < 16) {
+         // Insertion sort for small parts
+         for (int i = from + 1; i < to; i++) {
+            int p = perm[i];
+            double v = keys[p][j];
+            int k = i - 1;
+            while (k >= from && keys[perm[k]][j] > v) {
+               perm[k + 1] = perm[k];
+               k--;
+            }
+            perm[k + 1] = p;
+         }
+         return;
+      }
+      int mid = (from + to) >>> 1;
+      mergeSort (keys, j, perm, tmp, from, mid);
+      mergeSort (keys, j, perm, tmp, mid, to);
+      merge (keys, j, perm, tmp, from, mid, to);
+   }
+
+   // Merges the sorted parts perm[from..mid-1] and perm[mid..to-1].
+   private static void merge (double[][] keys, int j, int[] perm, int[] tmp,
+                              int from, int mid, int to) {
+      if (mid == from || mid == to
+          || keys[perm[mid - 1]][j] <= keys[perm[mid]][j])
+         return;
+      System.arraycopy (perm, from, tmp, from, mid - from);
+      int a = from, b = mid, k = from;
+      while (a < mid && b < to)
+         perm[k++] = keys[perm[b]][j] < keys[tmp[a]][j] ? perm[b++] : tmp[a++];
+      while (a < mid)
+         perm[k++] = tmp[a++];
+   }
+
+   // Replaces keys[i] by keys[perm[i]] and index[i] by index[perm[i]].
+   static void permute (double[][] keys, int[] index, int[] perm) {
+      int n = perm.length;
+      double[][] k = keys.clone();
+      int[] x = index.clone();
+      for (int i = 0; i < n; i++) {
+         keys[i] = k[perm[i]];
+         index[i] = x[perm[i]];
+      }
+   }
+}
@@ -0,0 +1,496 @@
+/*
+ * Class:        CBCLatticeBuilder
+ * Description:  Fast component-by-component construction of rank-1 lattices
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Université de Montréal
+ * Organization: DIRO, Université de Montréal
+ * @author
+ * @since
+
+ * SSJ is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License (GPL) as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * any later version.
+
+ * SSJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * A copy of the GNU General Public License is available at
+   <a href="http://www.gnu.org/licenses">GPL licence site</a>.
+ */
+
+package umontreal.iro.lecuyer.hups;
+
+import umontreal.iro.lecuyer.util.Misc;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+
+
+/**
+ * This class constructs the generating vector <SPAN CLASS="MATH"><B><I>a</I></B> = (<I>a</I><SUB>1</SUB>,...,<I>a</I><SUB>s</SUB>)</SPAN>
+ * of a rank-1 lattice with <SPAN CLASS="MATH"><I>n</I></SPAN> points, where <SPAN CLASS="MATH"><I>n</I></SPAN> is a prime number, by the
+ * <SPAN  CLASS="textit">component-by-component</SPAN> (CBC) method, for the weighted
+ * <SPAN CLASS="MATH"><I>P</I><SUB>&#945;</SUB></SPAN> criterion with product weights <SPAN CLASS="MATH"><I>&#947;</I><SUB>1</SUB>,...,<I>&#947;</I><SUB>s</SUB></SPAN>:
+ * 
+ * <P></P>
+ * <DIV ALIGN="CENTER" CLASS="mathdisplay">
+ * <I>P</I><SUB>&#945;</SUB> = - 1 + (1/<I>n</I>)&sum;<SUB>k=0</SUB><SUP>n-1</SUP>&prod;<SUB>j=1</SUB><SUP>s</SUP>
+ * (1 + <I>&#947;</I><SUB>j</SUB>&nbsp; <I>&#969;</I><SUB>&#945;</SUB>({<I>k</I> <I>a</I><SUB>j</SUB>/<I>n</I>})),
+ * </DIV><P></P>
+ * 
+ * where <SPAN CLASS="MATH"><I>&#969;</I><SUB>&#945;</SUB>(<I>x</I>) = - ( - 1)<SUP>&#945;/2</SUP>(2<I>&#960;</I>)<SUP>&#945;</SUP> <I>B</I><SUB>&#945;</SUB>(<I>x</I>)/<I>&#945;</I>!</SPAN>,
+ * <SPAN CLASS="MATH"><I>B</I><SUB>&#945;</SUB></SPAN> is the Bernoulli polynomial of degree <SPAN CLASS="MATH"><I>&#945;</I></SPAN>,
+ * and <SPAN CLASS="MATH"><I>&#945;</I> = 2</SPAN>, 4 or 6.  The component <SPAN CLASS="MATH"><I>a</I><SUB>1</SUB></SPAN> is 1, and each
+ * <SPAN CLASS="MATH"><I>a</I><SUB>j</SUB></SPAN>, for <SPAN CLASS="MATH"><I>j</I> = 2,...,<I>s</I></SPAN>, is the value in <SPAN CLASS="MATH">{1,...,(<I>n</I> - 1)/2}</SPAN> that
+ * minimizes <SPAN CLASS="MATH"><I>P</I><SUB>&#945;</SUB></SPAN> for the first <SPAN CLASS="MATH"><I>j</I></SPAN> coordinates, the previous
+ * components being fixed.  The constructed lattice can be used by
+ * {@link Rank1Lattice}.
+ * 
+ * <P>
+ * For each component, the values of <SPAN CLASS="MATH"><I>P</I><SUB>&#945;</SUB></SPAN> for all the <SPAN CLASS="MATH">(<I>n</I> - 1)/2</SPAN>
+ * candidates are computed together by the fast CBC algorithm of Nuyens and
+ * Cools: by ordering the candidates and the points according to the powers
+ * of a primitive root modulo <SPAN CLASS="MATH"><I>n</I></SPAN>, this computation becomes a circular
+ * convolution of length <SPAN CLASS="MATH">(<I>n</I> - 1)/2</SPAN>, which is computed with a fast Fourier
+ * transform (FFT) of length <SPAN CLASS="MATH"><I>M</I></SPAN>, the smallest power of 2 larger than <SPAN CLASS="MATH"><I>n</I> - 3</SPAN>.
+ * The construction of <SPAN CLASS="MATH"><I>s</I></SPAN> components thus takes <SPAN CLASS="MATH"><I>O</I>(<I>sM</I>log <I>M</I>)</SPAN> operations,
+ * instead of <SPAN CLASS="MATH"><I>O</I>(<I>sn</I><SUP>2</SUP>)</SPAN> for a direct search, and it needs about <SPAN CLASS="MATH">5<I>M</I></SPAN>
+ * <TT>double</TT>s of memory.  The FFT and the other operations on vectors of
+ * length <SPAN CLASS="MATH"><I>n</I></SPAN> can be divided among several threads; the constructed vector
+ * does not depend on the number of threads.
+ * 
+ * <P>
+ * The vector can be written to a text file by {@link #write(File) write}, and
+ * a lattice can be constructed from such a file by
+ * {@link #readLattice(File) readLattice}.  The file contains any number of comment
+ * lines starting with <TT>//</TT>, then the number of points <SPAN CLASS="MATH"><I>n</I></SPAN>, the
+ * dimension <SPAN CLASS="MATH"><I>s</I></SPAN>, and the components <SPAN CLASS="MATH"><I>a</I><SUB>1</SUB>,...,<I>a</I><SUB>s</SUB></SPAN>, one number per line;
+ * the rest of a line after a number is ignored.
+ * The construction can also be run from the command line:
+ * <PRE>
+ *    java umontreal.iro.lecuyer.hups.CBCLatticeBuilder n s alpha gamma file [threads]
+ * </PRE>
+ * which uses the weights <SPAN CLASS="MATH"><I>&#947;</I><SUB>j</SUB> = <I>&#947;</I></SPAN> for all <SPAN CLASS="MATH"><I>j</I></SPAN>.
+ * 
+ */
+public class CBCLatticeBuilder {
+   private int n;             // Prime number of points
+   private int m;             // (n - 1)/2, number of pairs {k, n - k}
+   private long g;            // Primitive root modulo n
+   private long gInv;         // Inverse of g modulo n
+   private int alpha;
+   private int logM;          // FFT length M = 2^logM >= 2m - 1
+   private double[] cosT;     // cos (2 pi t/M), for t < M/2
+   private double[] sinT;     // sin (2 pi t/M), for t < M/2
+   private double[] hre;      // FFT of omega(g^c/n), c = 0,...,m-1
+   private double[] him;
+   private int[] a;           // Last constructed vector
+   private double[] crit;     // P_alpha of its first j + 1 coordinates
+
+
+   /**
+    * Constructs a builder of lattices with <SPAN CLASS="MATH"><I>n</I></SPAN> points for the criterion
+    * <SPAN CLASS="MATH"><I>P</I><SUB>&#945;</SUB></SPAN>.
+    * 
+    * @param n number of points, a prime number
+    * 
+    * @param alpha the parameter <SPAN CLASS="MATH"><I>&#945;</I></SPAN> of the criterion, 2, 4 or 6
+    * 
+    * @exception IllegalArgumentException if <SPAN CLASS="MATH"><I>n</I></SPAN> is not a prime number
+    * larger than 2, if <SPAN CLASS="MATH"><I>n</I> &gt; 2<SUP>30</SUP></SPAN>, for which the FFT length would not be
+    * a valid array size, or if <SPAN CLASS="MATH"><I>&#945;</I></SPAN> is not 2, 4 or 6
+    * 
+    */
+   public CBCLatticeBuilder (int n, int alpha) {
+      if (n < 3 || !isPrime (n))
+         throw new IllegalArgumentException ("n must be a prime number >= 3");
+      if (n > 1 << 30)
+         throw new IllegalArgumentException ("n must be at most 2^30");
+      if (alpha != 2 && alpha != 4 && alpha != 6)
+         throw new IllegalArgumentException ("alpha must be 2, 4 or 6");
+      this.n = n;
+      this.alpha = alpha;
+      m = (n - 1)/2;
+      g = primitiveRoot (n);
+      gInv = modPow (g, n - 2, n);
+      logM = 0;
+      while ((1 << logM) < 2*m - 1)
+         logM++;
+   }
+
+
+   /**
+    * Constructs by the fast CBC method a generating vector of dimension
+    * <SPAN CLASS="MATH"><I>s</I></SPAN>, where <SPAN CLASS="MATH"><I>s</I></SPAN> is the length of <TT>gamma</TT>, for the weights
+    * <SPAN CLASS="MATH"><I>&#947;</I><SUB>j</SUB> =</SPAN> <TT>gamma[j-1]</TT>, and returns it.
+    * The operations on vectors of length <SPAN CLASS="MATH"><I>n</I></SPAN> are divided among
+    * <TT>numThreads</TT> threads.
+    * 
+    * @param gamma the weights of the coordinates
+    * 
+    * @param numThreads the number of threads
+    * 
+    * @return the generating vector <SPAN CLASS="MATH"><B><I>a</I></B></SPAN>
+    * 
+    * @exception IllegalArgumentException if <TT>gamma</TT> is empty or
+    * contains a negative weight, or if <TT>numThreads</TT> <SPAN CLASS="MATH">&lt; 1</SPAN>
+    * 
+    */
+   public int[] search (double[] gamma, int numThreads) {
+      int s = gamma.length;
+      if (s < 1)
+         throw new IllegalArgumentException ("s < 1");
+      for (int j = 0; j < s; j++)
+         if (!(gamma[j] >= 0.0))
+            throw new IllegalArgumentException ("negative weight");
+      if (numThreads < 1)
+         throw new IllegalArgumentException ("numThreads < 1");
+      final int M = 1 << logM;
+      if (hre == null)
+         initTransform (numThreads);
+      // The products minus 1 are kept, to avoid the cancellation in
+      // P_alpha = -1 + (average of the products) when P_alpha is small;
+      // subtracting 1 adds the same constant to all the candidates.
+      double[] x = new double[m];  // Product - 1 for the point k = g^(-b)
+      double x0 = 0.0;             // Product - 1 for the point k = 0
+      double[] yre = new double[M];
+      double[] yim = new double[M];
+      a = new int[s];
+      crit = new double[s];
+      for (int j = 0; j < s; j++) {
+         int best = 0;   // The candidate g^best; a_1 = 1 = g^0
+         if (j > 0 && m > 1) {
+            // y = x * h, circular convolution of length m by FFT
+            System.arraycopy (x, 0, yre, 0, m);
+            java.util.Arrays.fill (yre, m, M, 0.0);
+            java.util.Arrays.fill (yim, 0.0);
+            fft (yre, yim, false, cosT, sinT, numThreads);
+            for (int i = 0; i < M; i++) {
+               double re = yre[i]*hre[i] - yim[i]*him[i];
+               yim[i] = yre[i]*him[i] + yim[i]*hre[i];
+               yre[i] = re;
+            }
+            fft (yre, yim, true, cosT, sinT, numThreads);
+            double min = Double.POSITIVE_INFINITY;
+            for (int c = 0; c < m; c++) {
+               double y = yre[c];
+               if (c < m - 1)
+                  y += yre[c + m];
+               if (y < min) {
+                  min = y;
+                  best = c;
+               }
+            }
+         }
+         int z = (int) modPow (g, best, n);
+         a[j] = Math.min (z, n - z);
+         // Multiply the products by 1 + gamma_j omega(k a_j / n)
+         update (x, best, gamma[j], numThreads);
+         x0 += gamma[j]*omega (alpha, 0.0) * (1.0 + x0);
+         double sum = x0;
+         for (int b = 0; b < m; b++)
+            sum += 2.0*x[b];
+         crit[j] = sum / n;
+      }
+      return a.clone();
+   }
+
+   // Computes the FFT of omega(g^c/n), for c = 0,...,m-1.
+   private void initTransform (int numThreads) {
+      final int M = 1 << logM;
+      cosT = new double[M/2];
+      sinT = new double[M/2];
+      for (int t = 0; t < M/2; t++) {
+         cosT[t] = Math.cos (2.0*Math.PI*t/M);
+         sinT[t] = Math.sin (2.0*Math.PI*t/M);
+      }
+      double[] re = new double[M];
+      double[] im = new double[M];
+      long v = 1;
+      for (int c = 0; c < m; c++) {
+         re[c] = omega (alpha, (double) v / n);
+         v = v*g % n;
+      }
+      fft (re, im, false, cosT, sinT, numThreads);
+      hre = re;
+      him = im;
+   }
+
+   // Multiplies 1 + x[b] by 1 + gamma omega(g^(c - b)/n), which is the
+   // factor of coordinate j for the candidate a_j = g^c and the point
+   // k = g^(-b).
+   private void update (final double[] x, final int c, final double gamma,
+                        int numThreads) {
+      if (numThreads > m)
+         numThreads = m;
+      Runnable[] tasks = new Runnable[numThreads];
+      for (int t = 0; t < numThreads; t++) {
+         final int b0 = (int) ((long) m * t / numThreads);
+         final int b1 = (int) ((long) m * (t + 1) / numThreads);
+         tasks[t] = new Runnable() {
+            public void run() {
+               long v = modPow (g, c, n) * modPow (gInv, b0, n) % n;
+               for (int b = b0; b < b1; b++) {
+                  x[b] += gamma*omega (alpha, (double) v / n) * (1.0 + x[b]);
+                  v = v*gInv % n;
+               }
+            }
+         };
+      }
+      Misc.runInParallel (tasks);
+   }
+
+   // omega_alpha(x), for 0 <= x < 1.
+   static double omega (int alpha, double x) {
+      final double twoPi = 2.0*Math.PI;
+      double x2 = x*x;
+      switch (alpha) {
+      case 2:
+         return twoPi*Math.PI * (x2 - x + 1.0/6.0);
+      case 4:
+         return -Math.pow (twoPi, 4)/24.0 *
+                (x2*(x2 - 2.0*x + 1.0) - 1.0/30.0);
+      default:
+         return Math.pow (twoPi, 6)/720.0 *
+                (x2*x2*(x2 - 3.0*x + 2.5) - 0.5*x2 + 1.0/42.0);
+      }
+   }
+
+   // In-place FFT of (re, im) of length M = 2^logM by numThreads threads,
+   // or inverse FFT, without the factor 1/M, if inverse is true, where
+   // cosT[t] = cos (2 pi t/M) and sinT[t] = sin (2 pi t/M) for t < M/2.
+   // Each thread computes the same butterflies whatever the number of
+   // threads, so the result does not depend on this number.
+   static void fft (final double[] re, final double[] im,
+                    final boolean inverse, final double[] cosT,
+                    final double[] sinT, int numThreads) {
+      final int M = re.length;
+      if (M < 2)
+         return;
+      final int logM = Integer.numberOfTrailingZeros (M);
+      if (numThreads > M/2)
+         numThreads = M/2;
+      final CyclicBarrier barrier = new CyclicBarrier (numThreads);
+      Runnable[] tasks = new Runnable[numThreads];
+      for (int t = 0; t < numThreads; t++) {
+         // Each thread performs the butterflies lo to hi - 1 of each stage,
+         // and the bit reversal of the indices 2 lo to 2 hi - 1
+         final int lo = (int) ((long) (M/2) * t / numThreads);
+         final int hi = (int) ((long) (M/2) * (t + 1) / numThreads);
+         tasks[t] = new Runnable() {
+            public void run() {
+               for (int i = 2*lo; i < 2*hi; i++) {
+                  int r = Integer.reverse (i) >>> (32 - logM);
+                  if (i < r) {
+                     double tmp = re[i];  re[i] = re[r];  re[r] = tmp;
+                     tmp = im[i];  im[i] = im[r];  im[r] = tmp;
+                  }
+               }
+               await (barrier);
+               for (int e = 0; e < logM; e++) {
+                  int half = 1 << e;
+                  for (int u = lo; u < hi; u++) {
+                     int k = u & (half - 1);
+                     int i1 = ((u >> e) << (e + 1)) + k;
+                     int i2 = i1 + half;
+                     int w = k << (logM - 1 - e);
+                     double wr = cosT[w];
+                     double wi = inverse ? sinT[w] : -sinT[w];
+                     double tr = wr*re[i2] - wi*im[i2];
+                     double ti = wr*im[i2] + wi*re[i2];
+                     re[i2] = re[i1] - tr;
+                     im[i2] = im[i1] - ti;
+                     re[i1] += tr;
+                     im[i1] += ti;
+                  }
+                  await (barrier);
+               }
+            }
+         };
+      }
+      Misc.runInParallel (tasks);
+   }
+
+   private static void await (CyclicBarrier barrier) {
+      try {
+         barrier.await();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new IllegalStateException ("interrupted");
+      } catch (BrokenBarrierException e) {
+         throw new IllegalStateException ("FFT thread failed");
+      }
+   }
+
+   private static boolean isPrime (int n) {
+      if (n % 2 == 0)
+         return n == 2;
+      for (int d = 3; (long) d*d <= n; d += 2)
+         if (n % d == 0)
+            return false;
+      return true;
+   }
+
+   private static long primitiveRoot (int n) {
+      // Prime factors of n - 1
+      ArrayList<Integer> factors = new ArrayList<Integer>();
+      int r = n - 1;
+      for (int d = 2; (long) d*d <= r; d++)
+         if (r % d == 0) {
+            factors.add (d);
+            while (r % d == 0)
+               r /= d;
+         }
+      if (r > 1)
+         factors.add (r);
+      for (long g = 2; ; g++) {
+         boolean root = true;
+         for (int q : factors)
+            if (modPow (g, (n - 1)/q, n) == 1) {
+               root = false;
+               break;
+            }
+         if (root)
+            return g;
+      }
+   }
+
+   private static long modPow (long a, long e, long n) {
+      long r = 1;
+      a %= n;
+      while (e > 0) {
+         if ((e & 1) != 0)
+            r = r*a % n;
+         a = a*a % n;
+         e >>= 1;
+      }
+      return r;
+   }
+
+
+   /**
+    * Returns an array whose element <SPAN CLASS="MATH"><I>j</I> - 1</SPAN> is the value of <SPAN CLASS="MATH"><I>P</I><SUB>&#945;</SUB></SPAN> for the
+    * first <SPAN CLASS="MATH"><I>j</I></SPAN> coordinates of the vector constructed by the last call to
+    * {@link #search(double[],int) search}, for <SPAN CLASS="MATH"><I>j</I> = 1,...,<I>s</I></SPAN>.
+    * 
+    * @return the criterion for the first <SPAN CLASS="MATH"><I>j</I></SPAN> coordinates
+    * 
+    * @exception IllegalStateException if no vector has been constructed
+    * 
+    */
+   public double[] getCriteria() {
+      if (crit == null)
+         throw new IllegalStateException ("No lattice has been constructed");
+      return crit.clone();
+   }
+
+
+   /**
+    * Writes the number of points and the vector constructed by the last
+    * call to {@link #search(double[],int) search} to <TT>file</TT>, in the format
+    * read by {@link #readLattice(File) readLattice}.
+    * 
+    * @param file the file to write
+    * 
+    * @exception IOException if an I/O error occurs
+    * 
+    * @exception IllegalStateException if no vector has been constructed
+    * 
+    */
+   public void write (File file) throws IOException {
+      if (a == null)
+         throw new IllegalStateException ("No lattice has been constructed");
+      PrintWriter out = new PrintWriter (new BufferedWriter
+                                         (new FileWriter (file)));
+      try {
+         out.println ("// Rank-1 lattice constructed by CBC for P_" + alpha
+                      + ", P_" + alpha + " = " + crit[a.length - 1]);
+         out.println (n + "   // Number of points");
+         out.println (a.length + "   // Dimension");
+         for (int j = 0; j < a.length; j++)
+            out.println (a[j]);
+      } finally {
+         out.close();
+      }
+      if (out.checkError())
+         throw new IOException ("cannot write " + file);
+   }
+
+
+   /**
+    * Reads the number of points <SPAN CLASS="MATH"><I>n</I></SPAN>, the dimension <SPAN CLASS="MATH"><I>s</I></SPAN> and the generating
+    * vector of a rank-1 lattice from <TT>file</TT>, in the format described
+    * above, and returns the lattice.
+    * 
+    * @param file the file to read
+    * 
+    * @return the lattice defined in the file
+    * 
+    * @exception IOException if an I/O error occurs or if the file is not
+    * in the correct format
+    * 
+    */
+   public static Rank1Lattice readLattice (File file) throws IOException {
+      BufferedReader in = new BufferedReader (new FileReader (file));
+      ArrayList<Integer> values = new ArrayList<Integer>();
+      try {
+         String line;
+         while ((line = in.readLine()) != null) {
+            line = line.trim();
+            if (line.length() == 0 || line.startsWith ("//"))
+               continue;
+            String token = line.split ("[\t /]+")[0];
+            try {
+               values.add (Integer.parseInt (token));
+            } catch (NumberFormatException e) {
+               throw new IOException ("bad number in " + file + ": " + line);
+            }
+            if (values.size() > 2 && values.size() == values.get (1) + 2)
+               break;
+         }
+      } finally {
+         in.close();
+      }
+      if (values.size() < 2 || values.get (1) < 1
+          || values.size() != values.get (1) + 2)
+         throw new IOException ("incomplete lattice in " + file);
+      int s = values.get (1);
+      int[] v = new int[s];
+      for (int j = 0; j < s; j++)
+         v[j] = values.get (j + 2);
+      return new Rank1Lattice (values.get (0), v, s);
+   }
+
+
+   /**
+    * Constructs a lattice with <SPAN CLASS="MATH"><I>n</I> =</SPAN> <TT>args[0]</TT> points in dimension
+    * <SPAN CLASS="MATH"><I>s</I> =</SPAN> <TT>args[1]</TT> for <SPAN CLASS="MATH"><I>&#945;</I> =</SPAN> <TT>args[2]</TT> and
+    * <SPAN CLASS="MATH"><I>&#947;</I><SUB>j</SUB> =</SPAN> <TT>args[3]</TT>, and writes it to the file
+    * <TT>args[4]</TT>.  The optional <TT>args[5]</TT> gives the number of
+    * threads; by default, it is the number of available processors.
+    * 
+    */
+   public static void main (String[] args) throws IOException {
+      if (args.length != 5 && args.length != 6) {
+         System.err.println ("usage: java umontreal.iro.lecuyer.hups."
+            + "CBCLatticeBuilder n s alpha gamma file [threads]");
+         System.exit (1);
+      }
+      int n = Integer.parseInt (args[0]);
+      int s = Integer.parseInt (args[1]);
+      int alpha = Integer.parseInt (args[2]);
+      double[] gamma = new double[s];
+      java.util.Arrays.fill (gamma, Double.parseDouble (args[3]));
+      int numThreads = args.length == 6 ? Integer.parseInt (args[5])
+                       : Runtime.getRuntime().availableProcessors();
+      CBCLatticeBuilder builder = new CBCLatticeBuilder (n, alpha);
+      builder.search (gamma, numThreads);
+      builder.write (new File (args[4]));
+      System.out.println ("P_" + alpha + " = " + builder.crit[s - 1]);
+   }
+}
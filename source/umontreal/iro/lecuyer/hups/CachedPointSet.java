@@ -36,6 +36,8 @@ import umontreal.iro.lecuyer.util.PrintfFormat;
  * and storing its points locally in an array.
  * This can be used to speed up computations when using
  * a small low-dimensional point set more than once.
+ * For large point sets, {@link MappedPointSet} stores the points in a
+ * memory-mapped file instead of the heap.
  * 
  */
 public class CachedPointSet extends PointSet  {
@@ -74,8 +76,7 @@ public class CachedPointSet extends PointSet  {
    protected void init () {
       PointSetIterator itr = P.iterator();
       x = new double[numPoints][dim];
-      for (int i = 0; i < numPoints; i++)
-         itr.nextPoint (x[i], dim);
+      PointSet.nextPoints (itr, x, numPoints, dim);
    }
 
 
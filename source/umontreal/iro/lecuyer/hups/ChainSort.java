@@ -0,0 +1,70 @@
+/*
+ * Class:        ChainSort
+ * Description:  Sorts the states of Markov chains for array-RQMC
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Université de Montréal
+ * Organization: DIRO, Université de Montréal
+ * @author
+ * @since
+
+ * SSJ is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License (GPL) as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * any later version.
+
+ * SSJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * A copy of the GNU General Public License is available at
+   <a href="http://www.gnu.org/licenses">GPL licence site</a>.
+ */
+
+package umontreal.iro.lecuyer.hups;
+
+
+/**
+ * This interface represents a method of sorting the states of Markov chains,
+ * or points, for {@link ArrayRQMC}.  The states are vectors of real numbers,
+ * and a sort orders them so that states close to each other in the order are
+ * also close in space.  For one-dimensional states, it is the usual order;
+ * for multidimensional states, the implementations are {@link BatchSort},
+ * which sorts successively on each coordinate, and
+ * {@link HilbertCurveSort}, which follows a space-filling curve.
+ * 
+ */
+public interface ChainSort {
+
+
+   /**
+    * Returns the number of coordinates of the states used by the sort.
+    * 
+    * @return the dimension of the sorted states
+    * 
+    */
+   public int getDimension();
+
+
+   /**
+    * Sorts the states <TT>keys[0..n-1]</TT>, where <SPAN CLASS="MATH"><I>n</I></SPAN> is the length of
+    * <TT>keys</TT>, by rearranging the rows of <TT>keys</TT>, and applies the
+    * same permutation to <TT>index</TT>, which has the same length.
+    * The contents of the rows are not modified.  Each row must have at least
+    * {@link #getDimension getDimension} elements, and only the first
+    * {@link #getDimension getDimension} are used.  The sort uses up to
+    * <TT>numThreads</TT> threads, and its result does not depend on the
+    * number of threads.
+    * 
+    * @param keys the states to sort
+    * 
+    * @param index array permuted in the same way as <TT>keys</TT>
+    * 
+    * @param numThreads the number of threads
+    * 
+    */
+   public void sort (double[][] keys, int[] index, int numThreads);
+
+
+}
@@ -0,0 +1,535 @@
+/*
+ * Class:        DigitalNetArchive
+ * Description:  Memory-mapped binary file of digital net parameters
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Université de Montréal
+ * Organization: DIRO, Université de Montréal
+ * @author
+ * @since
+
+ * SSJ is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License (GPL) as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * any later version.
+
+ * SSJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * A copy of the GNU General Public License is available at
+   <a href="http://www.gnu.org/licenses">GPL licence site</a>.
+ */
+
+package umontreal.iro.lecuyer.hups;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+
+
+/**
+ * This class gives access to the generator matrices of many digital nets
+ * stored in a single binary file, which is mapped in memory.  The file is
+ * created once from parameter files in the text formats described in
+ * {@link DigitalNetFromFile} and {@link DigitalNetBase2FromFile},
+ * by the method {@link #convert(String[],File) convert}, which can also be run from
+ * the command line:
+ * <PRE>
+ *    java umontreal.iro.lecuyer.hups.DigitalNetArchive output file1 file2 ...
+ * </PRE>
+ * The nets are then constructed by
+ * {@link DigitalNetFromFile#DigitalNetFromFile(DigitalNetArchive,int,int,int,int) DigitalNetFromFile}
+ * and
+ * {@link DigitalNetBase2FromFile#DigitalNetBase2FromFile(DigitalNetArchive,int,int,int,int) DigitalNetBase2FromFile}
+ * without parsing any text: only the index of the file and the columns of
+ * the generator matrices of the requested dimensions are read.
+ * <P>
+ * Each net in the archive has a name, which is the name of its parameter
+ * file, for example <TT>Edel/OOA2/B3S13R9C9St6</TT>, and a criterion, which
+ * is the directory part of the name, for example <TT>Edel/OOA2</TT>, that
+ * identifies the search criterion or construction of the net.  The nets are
+ * indexed by criterion, number of points and dimension, and the method
+ * {@link #find(String,int,int) find} looks up a net by these keys with a binary
+ * search.
+ * <P>
+ * The binary file contains, in big-endian order, the integer
+ * <TT>0x444E4554</TT>, a version number, the number of nets <SPAN CLASS="MATH"><I>N</I></SPAN>,
+ * then <SPAN CLASS="MATH"><I>N</I></SPAN> index entries of 8 integers each, sorted by criterion, number of
+ * points, dimension and name: the positions of the criterion and of the name,
+ * the base <SPAN CLASS="MATH"><I>b</I></SPAN>, the number of columns <SPAN CLASS="MATH"><I>k</I></SPAN>, the number of rows <SPAN CLASS="MATH"><I>r</I></SPAN>,
+ * the number of points <SPAN CLASS="MATH"><I>n</I></SPAN>, the dimension <SPAN CLASS="MATH"><I>s</I></SPAN>, and the position of the
+ * generator matrices.  The strings are stored in the format of
+ * <TT>DataOutput.writeUTF</TT>.  For <SPAN CLASS="MATH"><I>b</I> = 2</SPAN>, the matrices are stored as
+ * <SPAN CLASS="MATH"><I>sk</I></SPAN> integers, the columns of <SPAN CLASS="MATH"><B><I>C</I></B><SUB>1</SUB></SPAN>, then those of
+ * <SPAN CLASS="MATH"><B><I>C</I></B><SUB>2</SUB></SPAN>, and so on, each column encoded as in
+ * {@link DigitalNetBase2FromFile}.  For <SPAN CLASS="MATH"><I>b</I> &gt; 2</SPAN>, they are stored as <SPAN CLASS="MATH"><I>skr</I></SPAN>
+ * bytes, the <SPAN CLASS="MATH"><I>r</I></SPAN> digits of each column in order, so the base must not
+ * exceed 256.
+ * <P>
+ * The methods of this class may be called from several threads.
+ * 
+ */
+public class DigitalNetArchive {
+   private static final int MAGIC = 0x444E4554;   // "DNET"
+   private static final int VERSION = 1;
+   private static final int HEADER = 12;          // magic, version, N
+   private static final int ENTRY = 32;           // 8 integers
+
+   // Fields of an index entry
+   private static final int CRITERION = 0;
+   private static final int NAME = 4;
+   private static final int BASE = 8;
+   private static final int COLS = 12;
+   private static final int ROWS = 16;
+   private static final int POINTS = 20;
+   private static final int DIM = 24;
+   private static final int DATA = 28;
+
+   private final ByteBuffer buf;
+   private final int numNets;
+   private final String file;
+
+
+   /**
+    * Maps in memory the archive <TT>file</TT>, created by
+    * {@link #convert(String[],File) convert}.
+    * 
+    * @param file the archive
+    * 
+    * @exception IOException if the file cannot be read or is not in the
+    * correct format
+    * 
+    */
+   public DigitalNetArchive (File file) throws IOException {
+      RandomAccessFile raf = new RandomAccessFile (file, "r");
+      try {
+         FileChannel ch = raf.getChannel();
+         long size = ch.size();
+         if (size < HEADER || size > Integer.MAX_VALUE)
+            throw new IOException ("invalid size for " + file);
+         buf = ch.map (FileChannel.MapMode.READ_ONLY, 0, size)
+                 .order (ByteOrder.BIG_ENDIAN);
+      } finally {
+         // The mapping remains valid after the channel is closed
+         raf.close();
+      }
+      if (buf.getInt (0) != MAGIC)
+         throw new IOException (file + " is not a digital net archive");
+      if (buf.getInt (4) != VERSION)
+         throw new IOException ("unsupported version " + buf.getInt (4)
+                                + " in " + file);
+      numNets = buf.getInt (8);
+      if (numNets < 0 || HEADER + (long) ENTRY*numNets > buf.capacity())
+         throw new IOException ("invalid number of nets in " + file);
+      this.file = file.getPath();
+   }
+
+
+   /**
+    * Returns the number of nets <SPAN CLASS="MATH"><I>N</I></SPAN> in the archive.  The nets are numbered
+    * from 0 to <SPAN CLASS="MATH"><I>N</I> - 1</SPAN>, in the order of their criterion, number of points,
+    * dimension and name.
+    * 
+    * @return the number of nets
+    * 
+    */
+   public int getNumNets() {
+      return numNets;
+   }
+
+
+   /**
+    * Returns the name of net <TT>e</TT>, that is, the name of the file it was
+    * read from.
+    * 
+    * @param e the number of the net
+    * 
+    * @return the name of the net
+    * 
+    * @exception IndexOutOfBoundsException if <TT>e</TT> is not in
+    * <SPAN CLASS="MATH">{0,...,<I>N</I> - 1}</SPAN>
+    * 
+    */
+   public String getName (int e) {
+      return string (field (e, NAME));
+   }
+
+
+   /**
+    * Returns the criterion of net <TT>e</TT>: the directory part of its name,
+    * or the empty string if the name has no directory part.
+    * 
+    * @param e the number of the net
+    * 
+    * @return the criterion of the net
+    * 
+    */
+   public String getCriterion (int e) {
+      return string (field (e, CRITERION));
+   }
+
+
+   /**
+    * Returns the base <SPAN CLASS="MATH"><I>b</I></SPAN> of net <TT>e</TT>.
+    * 
+    * @param e the number of the net
+    * 
+    * @return the base of the net
+    * 
+    */
+   public int getBase (int e) {
+      return field (e, BASE);
+   }
+
+
+   /**
+    * Returns the number of columns <SPAN CLASS="MATH"><I>k</I></SPAN> of the generator matrices of
+    * net <TT>e</TT>.
+    * 
+    * @param e the number of the net
+    * 
+    * @return the number of columns
+    * 
+    */
+   public int getNumCols (int e) {
+      return field (e, COLS);
+   }
+
+
+   /**
+    * Returns the number of rows <SPAN CLASS="MATH"><I>r</I></SPAN> of the generator matrices of
+    * net <TT>e</TT>.
+    * 
+    * @param e the number of the net
+    * 
+    * @return the number of rows
+    * 
+    */
+   public int getNumRows (int e) {
+      return field (e, ROWS);
+   }
+
+
+   /**
+    * Returns the number of points <SPAN CLASS="MATH"><I>n</I> = <I>b</I><SUP>k</SUP></SPAN> of net <TT>e</TT>.
+    * 
+    * @param e the number of the net
+    * 
+    * @return the number of points
+    * 
+    */
+   public int getNumPoints (int e) {
+      return field (e, POINTS);
+   }
+
+
+   /**
+    * Returns the dimension <SPAN CLASS="MATH"><I>s</I></SPAN> of net <TT>e</TT>.
+    * 
+    * @param e the number of the net
+    * 
+    * @return the dimension
+    * 
+    */
+   public int getDimension (int e) {
+      return field (e, DIM);
+   }
+
+
+   /**
+    * Returns the number of the net of criterion <TT>criterion</TT> with
+    * <SPAN CLASS="MATH"><I>n</I></SPAN> points and the smallest dimension larger than or equal to <SPAN CLASS="MATH"><I>s</I></SPAN>,
+    * or <SPAN CLASS="MATH">- 1</SPAN> if there is no such net.  If several nets have this dimension,
+    * the first one in the order of the names is returned.
+    * 
+    * @param criterion the criterion of the net
+    * 
+    * @param n the number of points
+    * 
+    * @param s the minimal dimension
+    * 
+    * @return the number of the net, or <SPAN CLASS="MATH">- 1</SPAN>
+    * 
+    */
+   public int find (String criterion, int n, int s) {
+      // Binary search of the first entry >= (criterion, n, s)
+      int lo = 0, hi = numNets;
+      while (lo < hi) {
+         int mid = (lo + hi) >>> 1;
+         if (compare (mid, criterion, n, s) < 0)
+            lo = mid + 1;
+         else
+            hi = mid;
+      }
+      if (lo < numNets && getCriterion (lo).equals (criterion)
+          && getNumPoints (lo) == n)
+         return lo;
+      return -1;
+   }
+
+
+   /**
+    * Reads the columns of the generator matrices <SPAN CLASS="MATH"><B><I>C</I></B><SUB>1</SUB>,...,<B><I>C</I></B><SUB>s</SUB></SPAN>
+    * of net <TT>e</TT>, which must be in base 2, in <TT>genMat</TT>: column
+    * <SPAN CLASS="MATH"><I>c</I></SPAN> of <SPAN CLASS="MATH"><B><I>C</I></B><SUB>j</SUB></SPAN> is stored in <TT>genMat[<SPAN CLASS="MATH">(<I>j</I> - 1)<I>k</I> + <I>c</I></SPAN>]</TT>, encoded
+    * as in the parameter files of {@link DigitalNetBase2FromFile}.
+    * Only these columns are read from the file.
+    * 
+    * @param e the number of the net
+    * 
+    * @param s the number of dimensions
+    * 
+    * @param genMat array of at least <SPAN CLASS="MATH"><I>sk</I></SPAN> elements, filled with the columns
+    * 
+    * @exception IllegalArgumentException if the base is not 2, or if <SPAN CLASS="MATH"><I>s</I></SPAN> is
+    * not in <SPAN CLASS="MATH">{1,...,</SPAN> {@link #getDimension(int) getDimension}<TT>(e)</TT><SPAN CLASS="MATH">}</SPAN>
+    * 
+    */
+   public void readColumns (int e, int s, int[] genMat) {
+      if (getBase (e) != 2)
+         throw new IllegalArgumentException ("only base 2 allowed");
+      checkDimension (e, s);
+      int pos = field (e, DATA);
+      int len = s * getNumCols (e);
+      for (int i = 0; i < len; i++, pos += 4)
+         genMat[i] = buf.getInt (pos);
+   }
+
+
+   /**
+    * Reads the first <SPAN CLASS="MATH"><I>r</I></SPAN> rows of the generator matrices
+    * <SPAN CLASS="MATH"><B><I>C</I></B><SUB>1</SUB>,...,<B><I>C</I></B><SUB>s</SUB></SPAN> of net <TT>e</TT>, which must be in a
+    * base <SPAN CLASS="MATH"><I>b</I>&gt;2</SPAN>, in <TT>genMat</TT>: the element in row <SPAN CLASS="MATH"><I>l</I></SPAN> of column <SPAN CLASS="MATH"><I>c</I></SPAN> of
+    * <SPAN CLASS="MATH"><B><I>C</I></B><SUB>j</SUB></SPAN> is stored in <TT>genMat[<SPAN CLASS="MATH">(<I>j</I> - 1)<I>k</I> + <I>c</I></SPAN>][<SPAN CLASS="MATH"><I>l</I></SPAN>]</TT>, as in
+    * {@link DigitalNet}.  Only these digits are read from the file.
+    * 
+    * @param e the number of the net
+    * 
+    * @param r the number of rows
+    * 
+    * @param s the number of dimensions
+    * 
+    * @param genMat array of at least <SPAN CLASS="MATH"><I>sk</I></SPAN> arrays of at least <SPAN CLASS="MATH"><I>r</I></SPAN> elements
+    * 
+    * @exception IllegalArgumentException if the base is 2, if <SPAN CLASS="MATH"><I>r</I></SPAN> is larger
+    * than the number of rows, or if <SPAN CLASS="MATH"><I>s</I></SPAN> is not in
+    * <SPAN CLASS="MATH">{1,...,</SPAN> {@link #getDimension(int) getDimension}<TT>(e)</TT><SPAN CLASS="MATH">}</SPAN>
+    * 
+    */
+   public void readDigits (int e, int r, int s, int[][] genMat) {
+      int b = getBase (e);
+      if (b == 2)
+         throw new IllegalArgumentException ("base 2, use readColumns");
+      checkDimension (e, s);
+      int R = getNumRows (e);
+      if (r < 0 || r > R)
+         throw new IllegalArgumentException ("r must be in [0, " + R + "]");
+      int pos = field (e, DATA);
+      int len = s * getNumCols (e);
+      for (int i = 0; i < len; i++, pos += R)
+         for (int l = 0; l < r; l++)
+            genMat[i][l] = buf.get (pos + l) & 0xff;
+   }
+
+
+   public String toString() {
+      return "DigitalNetArchive: " + file + ", " + numNets + " nets";
+   }
+
+   private int field (int e, int f) {
+      if (e < 0 || e >= numNets)
+         throw new IndexOutOfBoundsException ("e = " + e);
+      return buf.getInt (HEADER + ENTRY*e + f);
+   }
+
+   private void checkDimension (int e, int s) {
+      if (s < 1 || s > getDimension (e))
+         throw new IllegalArgumentException ("s must be in [1, "
+                                             + getDimension (e) + "]");
+   }
+
+   // Reads a string written by DataOutput.writeUTF at position pos.
+   private String string (int pos) {
+      byte[] b = new byte[2 + (buf.getShort (pos) & 0xffff)];
+      for (int i = 0; i < b.length; i++)
+         b[i] = buf.get (pos + i);
+      try {
+         return new DataInputStream (new ByteArrayInputStream (b)).readUTF();
+      } catch (IOException ex) {
+         throw new IllegalStateException ("invalid string in " + file);
+      }
+   }
+
+   private int compare (int e, String criterion, int n, int s) {
+      int c = getCriterion (e).compareTo (criterion);
+      if (c != 0)
+         return c;
+      if (getNumPoints (e) != n)
+         return getNumPoints (e) < n ? -1 : 1;
+      return getDimension (e) < s ? -1 : (getDimension (e) == s ? 0 : 1);
+   }
+
+   // A net read from a text file, before it is written to the archive.
+   private static class Net {
+      String name, criterion;
+      int b, k, r, n, s;
+      byte[] data;
+   }
+
+
+   /**
+    * Reads the parameter files <TT>filenames</TT>, in the text formats of
+    * {@link DigitalNetFromFile} for <SPAN CLASS="MATH"><I>b</I>&gt;2</SPAN> and of
+    * {@link DigitalNetBase2FromFile} for <SPAN CLASS="MATH"><I>b</I> = 2</SPAN>, writes them to the archive
+    * <TT>out</TT>, and returns the number of nets.  The files are found as
+    * in the constructors of {@link DigitalNetFromFile}: relative to the
+    * current directory, or else in the <TT>ssj.jar</TT> archive.
+    * The names of the nets are the names given in <TT>filenames</TT>, with
+    * <TT>/</TT> as separator.
+    * 
+    * @param filenames the parameter files
+    * 
+    * @param out the archive to create
+    * 
+    * @return the number of nets in the archive
+    * 
+    * @exception IOException if an I/O error occurs, or if a file is not
+    * in the correct format
+    * 
+    */
+   public static int convert (String[] filenames, File out)
+          throws IOException {
+      ArrayList<Net> nets = new ArrayList<Net>();
+      for (int f = 0; f < filenames.length; f++) {
+         BufferedReader input = DigitalNetFromFile.openFile (filenames[f]);
+         try {
+            nets.add (readNet (input, filenames[f]));
+         } finally {
+            input.close();
+         }
+      }
+      Collections.sort (nets, new Comparator<Net>() {
+         public int compare (Net a, Net b) {
+            int c = a.criterion.compareTo (b.criterion);
+            if (c != 0)
+               return c;
+            if (a.n != b.n)
+               return a.n < b.n ? -1 : 1;
+            if (a.s != b.s)
+               return a.s < b.s ? -1 : 1;
+            return a.name.compareTo (b.name);
+         }
+      });
+      // Strings, then matrices, follow the index
+      ByteArrayOutputStream strings = new ByteArrayOutputStream();
+      DataOutputStream st = new DataOutputStream (strings);
+      int start = HEADER + ENTRY*nets.size();
+      int[] critPos = new int[nets.size()];
+      int[] namePos = new int[nets.size()];
+      for (int e = 0; e < nets.size(); e++) {
+         critPos[e] = start + st.size();
+         st.writeUTF (nets.get (e).criterion);
+         namePos[e] = start + st.size();
+         st.writeUTF (nets.get (e).name);
+      }
+      st.flush();
+      long pos = start + st.size();
+      DataOutputStream os = new DataOutputStream (new BufferedOutputStream
+                                                  (new FileOutputStream (out)));
+      try {
+         os.writeInt (MAGIC);
+         os.writeInt (VERSION);
+         os.writeInt (nets.size());
+         for (int e = 0; e < nets.size(); e++) {
+            Net net = nets.get (e);
+            if (pos > Integer.MAX_VALUE)
+               throw new IOException ("archive too large");
+            os.writeInt (critPos[e]);
+            os.writeInt (namePos[e]);
+            os.writeInt (net.b);
+            os.writeInt (net.k);
+            os.writeInt (net.r);
+            os.writeInt (net.n);
+            os.writeInt (net.s);
+            os.writeInt ((int) pos);
+            pos += net.data.length;
+         }
+         strings.writeTo (os);
+         for (int e = 0; e < nets.size(); e++)
+            os.write (nets.get (e).data);
+      } finally {
+         os.close();
+      }
+      return nets.size();
+   }
+
+   private static Net readNet (Reader re, String name) throws IOException {
+      StreamTokenizer st = new StreamTokenizer (re);
+      st.eolIsSignificant (false);
+      st.slashSlashComments (true);
+      Net net = new Net();
+      net.name = name.replace (File.separatorChar, '/');
+      int slash = net.name.lastIndexOf ('/');
+      net.criterion = slash < 0 ? "" : net.name.substring (0, slash);
+      net.b = nextInt (st, name);
+      net.k = nextInt (st, name);
+      net.r = nextInt (st, name);
+      net.n = nextInt (st, name);
+      net.s = nextInt (st, name);
+      if (net.b < 2 || net.b > 256 || net.k < 1 || net.r < 1 || net.s < 1)
+         throw new IOException ("invalid parameters in " + name);
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream data = new DataOutputStream (bytes);
+      for (int i = 0; i < net.s * net.k; i++)
+         if (net.b == 2)
+            data.writeInt ((int) nextLong (st, name));
+         else
+            for (int l = 0; l < net.r; l++) {
+               int d = nextInt (st, name);
+               if (d < 0 || d >= net.b)
+                  throw new IOException ("invalid digit " + d + " in " + name);
+               data.writeByte (d);
+            }
+      data.flush();
+      net.data = bytes.toByteArray();
+      return net;
+   }
+
+   private static long nextLong (StreamTokenizer st, String name)
+         throws IOException {
+      if (st.nextToken() != StreamTokenizer.TT_NUMBER)
+         throw new IOException ("number expected in " + name + ", line "
+                                + st.lineno());
+      return (long) st.nval;
+   }
+
+   private static int nextInt (StreamTokenizer st, String name)
+         throws IOException {
+      return (int) nextLong (st, name);
+   }
+
+
+   /**
+    * Writes the nets of the parameter files <TT>args[1]</TT>,
+    * <TT>args[2]</TT>, ..., to the archive <TT>args[0]</TT>, by calling
+    * {@link #convert(String[],File) convert}.
+    * 
+    */
+   public static void main (String[] args) throws IOException {
+      if (args.length < 2) {
+         System.err.println ("usage: java umontreal.iro.lecuyer.hups."
+                             + "DigitalNetArchive output file1 file2 ...");
+         System.exit (1);
+      }
+      String[] files = new String[args.length - 1];
+      System.arraycopy (args, 1, files, 0, files.length);
+      int n = convert (files, new File (args[0]));
+      System.out.println (n + " nets written to " + args[0]);
+   }
+}
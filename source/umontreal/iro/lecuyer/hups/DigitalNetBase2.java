@@ -52,11 +52,21 @@ import umontreal.iro.lecuyer.util.*;
  * The random digital shift in base 2 corresponds to a random XOR.
  * It can be applied via the method {@link #addRandomShift addRandomShift}.
  * 
+ * <P>
+ * The left matrix scrambles multiply each <SPAN CLASS="MATH"><B><I>C</I></B><SUB>j</SUB></SPAN> by a
+ * lower-triangular <SPAN CLASS="MATH"><I>w</I>&#215; <I>w</I></SPAN> matrix stored as its <SPAN CLASS="MATH"><I>w</I></SPAN> subdiagonals, each
+ * packed in a 32-bit integer, so that a column of the product is obtained
+ * with <SPAN CLASS="MATH"><I>w</I></SPAN> word operations.  Re-scrambling a net of dimension <SPAN CLASS="MATH"><I>s</I></SPAN> thus costs
+ * <SPAN CLASS="MATH"><I>O</I>(<I>skw</I>)</SPAN> word operations, plus the <SPAN CLASS="MATH"><I>O</I>(<I>sw</I>)</SPAN> random numbers needed for the
+ * scrambling matrices, which is small compared with the cost of
+ * enumerating the <SPAN CLASS="MATH">2<SUP>k</SUP></SPAN> points.
+ * 
  */
 public class DigitalNetBase2 extends DigitalNet  {
    private int[] originalMat;    // Original matrices, without randomization.
    protected int[] genMat;       // The current generator matrix.
    protected int[] digitalShift;   // Stores the digital shift vector.
+   private long[] owenSeed;      // Seeds of the nested uniform scramble.
 
 
    /**
@@ -124,6 +134,8 @@ public class DigitalNetBase2 extends DigitalNet  {
             res ^= genMat[j*numCols + pos];
          pos++;
       }
+      if (owenSeed != null)
+         return nestedScramble (res, owenSeed[j]) * normFactor + EpsilonHalf;
       if (digitalShift != null)
          return res * normFactor + EpsilonHalf;
       else
@@ -142,6 +154,8 @@ public class DigitalNetBase2 extends DigitalNet  {
             res ^= genMat[j*numCols + pos];
          pos++;
       }
+      if (owenSeed != null)
+         return nestedScramble (res, owenSeed[j]) * normFactor + EpsilonHalf;
       if (digitalShift != null)
          return res * normFactor + EpsilonHalf;
       else
@@ -163,6 +177,44 @@ public class DigitalNetBase2 extends DigitalNet  {
    }
 
 
+   /**
+    * Applies a nested uniform scramble of Owen to the
+    * points, in addition to the current matrix scrambles and digital shift.
+    * Each digit <SPAN CLASS="MATH"><I>l</I></SPAN> of coordinate <SPAN CLASS="MATH"><I>j</I></SPAN> of a point is flipped or not according
+    * to a random bit that depends only on <SPAN CLASS="MATH"><I>j</I></SPAN>, <SPAN CLASS="MATH"><I>l</I></SPAN> and the <SPAN CLASS="MATH"><I>l</I></SPAN> digits that
+    * precede it, as in the random permutations of Owen's scramble.
+    * These random bits are not stored: they are obtained by hashing the
+    * preceding digits with a 64-bit seed drawn from <TT>stream</TT> for each
+    * coordinate.  Thus, the memory required is <SPAN CLASS="MATH"><I>O</I>(<I>s</I>)</SPAN>, whatever the number of
+    * points, the coordinates of any point can be computed directly, for
+    * example by {@link #getCoordinate(int,int) getCoordinate} or by an iterator
+    * positioned at an arbitrary point, and several iterators can be used
+    * concurrently.  Scrambling each coordinate costs <SPAN CLASS="MATH"><I>O</I>(<I>w</I>)</SPAN> operations.
+    * A new scramble replaces the previous one.
+    * 
+    * @param stream random number stream used to generate the seeds
+    * 
+    */
+   public void nestedUniformScramble (RandomStream stream) {
+      // One more seed for the iterators of DigitalSequenceBase2 that
+      // shift the generators, whose points have dim + 1 coordinates
+      long[] seed = new long[dim + 1];
+      for (int j = 0; j <= dim; j++)
+         seed[j] = (long) (stream.nextDouble() * 4294967296.0) << 32
+                   ^ (long) (stream.nextDouble() * 4294967296.0);
+      owenSeed = seed;
+   }
+
+
+   /**
+    * Removes the nested uniform scramble of the points.
+    * 
+    */
+   public void clearNestedUniformScramble() {
+      owenSeed = null;
+   }
+
+
    public String toString() {
       StringBuffer sb = new StringBuffer ("DigitalNetBase2:" +
                               PrintfFormat.NEWLINE);
@@ -175,6 +227,32 @@ public class DigitalNetBase2 extends DigitalNet  {
       digitalShift = null;
    }
 
+   public void unrandomize() {
+      super.unrandomize();
+      if (originalMat != null) {
+         genMat = originalMat;
+         originalMat = null;
+      }
+      clearRandomShift();
+      owenSeed = null;
+   }
+
+   // Applies the nested uniform scramble with the given seed to the
+   // outDigits digits of x.  Digit l (bit outDigits - 1 - l) is flipped
+   // according to a hash of l and of the l digits that precede it; the
+   // key (1 << l) | prefix is different for each node of the tree.
+   private int nestedScramble (int x, long seed) {
+      final int w = outDigits;
+      int y = x;
+      for (int l = 0; l < w; l++) {
+         long h = seed ^ (((1L << l) | (x >>> (w - l))) * 0x9E3779B97F4A7C15L);
+         h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+         h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+         y ^= (int) ((h ^ (h >>> 31)) >>> 63) << (w - 1 - l);
+      }
+      return y;
+   }
+
    public void addRandomShift (RandomStream stream) {
       addRandomShift (0, dim, stream);
    }
@@ -219,6 +297,9 @@ public class DigitalNetBase2 extends DigitalNet  {
    // diagonal. For example, for d=w-3, the subdiagonal has 3 bits,
    // say b1, b2, b3, and is represented by the integer
    // Mj[w-3] = b1 * 2^{w-1} + b2 * 2^{w-2} + b3 * b^{w-3}.
+   // Since k <= 31, lookup tables of the products of M_j by groups of
+   // bits (method of Four Russians) would cost more to build than they
+   // save on the k columns.
    //
    private void leftMultiplyMat (int j, int[] Mj) {
       int c, d, col;       // Dimension j, column c for new C_j.
@@ -549,6 +630,11 @@ public class DigitalNetBase2 extends DigitalNet  {
       public double nextCoordinate() {
          if (curPointIndex >= numPoints || curCoordIndex >= dimS)
             outOfBounds();
+         if (owenSeed != null) {
+            int j = curCoordIndex++;
+            return nestedScramble (cachedCurPoint[j], owenSeed[j])
+                   * normFactor + EpsilonHalf;
+         }
          if (digitalShift == null)
             return cachedCurPoint[curCoordIndex++] * normFactor;
          else
@@ -610,7 +696,11 @@ public class DigitalNetBase2 extends DigitalNet  {
       public int nextPoint (double p[], int d){
          if (curPointIndex >= numPoints || d > dimS)
             outOfBounds();
-         if (digitalShift == null) {
+         if (owenSeed != null) {
+            for (int j=0; j < d; j++)
+               p[j] = nestedScramble (cachedCurPoint[j], owenSeed[j])
+                      * normFactor + EpsilonHalf;
+         } else if (digitalShift == null) {
             for (int j=0; j < d; j++)
                p[j] = cachedCurPoint[j] * normFactor;
          } else {
@@ -619,6 +709,52 @@ public class DigitalNetBase2 extends DigitalNet  {
          }
          return resetToNextPoint();
       }
+
+      public int nextPoints (double p[], int n, int d) {
+         checkPoints (n);
+         if (d > dimS)
+            outOfBounds();
+         // Adding 0.0 does not change the coordinates when there is no shift
+         final double eps = digitalShift == null && owenSeed == null ?
+                            0.0 : EpsilonHalf;
+         final double norm = normFactor;
+         final int[] x = cachedCurPoint;
+         final long[] seed = owenSeed;
+         int k = 0;
+         for (int i = 0; i < n; i++) {
+            if (seed == null)
+               for (int j = 0; j < d; j++)
+                  p[k + j] = x[j] * norm + eps;
+            else
+               for (int j = 0; j < d; j++)
+                  p[k + j] = nestedScramble (x[j], seed[j]) * norm + eps;
+            k += d;
+            resetToNextPoint();
+         }
+         return curPointIndex;
+      }
+
+      public int nextPoints (double p[][], int n, int d) {
+         checkPoints (n);
+         if (d > dimS)
+            outOfBounds();
+         final double eps = digitalShift == null && owenSeed == null ?
+                            0.0 : EpsilonHalf;
+         final double norm = normFactor;
+         final int[] x = cachedCurPoint;
+         final long[] seed = owenSeed;
+         for (int i = 0; i < n; i++) {
+            double[] u = p[i];
+            if (seed == null)
+               for (int j = 0; j < d; j++)
+                  u[j] = x[j] * norm + eps;
+            else
+               for (int j = 0; j < d; j++)
+                  u[j] = nestedScramble (x[j], seed[j]) * norm + eps;
+            resetToNextPoint();
+         }
+         return curPointIndex;
+      }
    }
 
 
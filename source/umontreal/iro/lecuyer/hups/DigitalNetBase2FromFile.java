@@ -214,6 +214,56 @@ public class DigitalNetBase2FromFile extends DigitalNetBase2  {
    {
        this (filename, -1, 31, s1);
    }
+
+
+   /**
+    * Constructs the digital net in base 2 number <TT>e</TT> of the archive
+    * <TT>archive</TT>, with the parameters <TT>r1</TT>, <TT>w</TT> and
+    * <TT>s1</TT> as in the first constructor.  Only the columns of the first
+    * <TT>s1</TT> generator matrices are read from the archive.
+    * 
+    * @param archive the archive containing the net
+    * 
+    * @param e the number of the net in the archive
+    * 
+    * @param r1 Number of rows for the generating matrices
+    * 
+    * @param w Number of bits of resolution
+    * 
+    * @param s1 Number of dimensions
+    * 
+    */
+   public DigitalNetBase2FromFile (DigitalNetArchive archive, int e,
+                                   int r1, int w, int s1) {
+      super ();
+      if (w < r1 || w > MAXBITS)
+         throw new IllegalArgumentException (" Must have numRows <= w <= 31");
+      if (archive.getBase (e) != 2)
+         throw new IllegalArgumentException ("only base 2 allowed");
+      numCols = archive.getNumCols (e);
+      numRows = archive.getNumRows (e);
+      numPoints = archive.getNumPoints (e);
+      dim = archive.getDimension (e);
+      if (r1 > numRows)
+         throw new IllegalArgumentException (
+         "DigitalNetBase2FromFile:   One must have   r1 <= Max num rows");
+      if (s1 > dim)
+         throw new IllegalArgumentException ("s1 is too large");
+      if (s1 > 0)
+         dim = s1;
+      if (r1 > 0)
+         numRows = r1;
+      if (numCols >= MAXBITS)
+         throw new IllegalArgumentException (" Must have numCols < 31");
+      if ((1 << numCols) != numPoints)
+         throw new IllegalArgumentException ("numPoints != 2^k");
+      genMat = new int[dim * numCols];
+      archive.readColumns (e, dim, genMat);
+      maskRows (numRows, w);
+      outDigits = w;
+      filename = archive.getName (e);
+      normFactor = 1.0 / ((double) (1L << (outDigits)));
+   }
  
 
    public String toString() {
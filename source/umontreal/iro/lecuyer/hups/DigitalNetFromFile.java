@@ -329,6 +329,75 @@ public class DigitalNetFromFile extends DigitalNet  {
    }
 
 
+   /**
+    * Constructs the digital net number <TT>e</TT> of the archive
+    * <TT>archive</TT>, with the parameters <TT>r1</TT>, <TT>w</TT> and
+    * <TT>s1</TT> as in the first constructor.  If <TT>w</TT> is negative,
+    * all the rows are used, and if <TT>s1</TT> is not positive, all the
+    * dimensions are used.  Only the first <TT>r1</TT> rows of the first
+    * <TT>s1</TT> generator matrices are read from the archive.
+    * 
+    * @param archive the archive containing the net
+    * 
+    * @param e the number of the net in the archive
+    * 
+    * @param r1 Number of rows for the generating matrices
+    * 
+    * @param w Number of digits of resolution
+    * 
+    * @param s1 Number of dimensions
+    * 
+    */
+   public DigitalNetFromFile (DigitalNetArchive archive, int e,
+                              int r1, int w, int s1) {
+      super ();
+      b = archive.getBase (e);
+      numCols = archive.getNumCols (e);
+      numRows = archive.getNumRows (e);
+      numPoints = archive.getNumPoints (e);
+      dim = archive.getDimension (e);
+      if (b == 2)
+         throw new IllegalArgumentException
+             ("base = 2, use DigitalNetBase2FromFile");
+      if ((double)numCols * Math.log ((double)b) > (31.0 * Math.log (2.0)))
+         throw new IllegalArgumentException
+            ("DigitalNetFromFile:   too many points" + PrintfFormat.NEWLINE);
+      if (r1 > numRows)
+         throw new IllegalArgumentException
+            ("DigitalNetFromFile:   One must have   r1 <= Max num rows" +
+                PrintfFormat.NEWLINE);
+      if (s1 > dim)
+         throw new IllegalArgumentException
+            ("DigitalNetFromFile:   One must have   s1 <= Max dimension" +
+                 PrintfFormat.NEWLINE);
+      if (w < 0)
+         r1 = w = numRows;
+      if (s1 <= 0)
+         s1 = dim;
+      if (w < numRows)
+         throw new IllegalArgumentException
+            ("DigitalNetFromFile:   One must have   w >= numRows" +
+              PrintfFormat.NEWLINE);
+      int x = b;
+      for (int i=1; i<numCols; i++) x *= b;
+      if (x != numPoints)
+         throw new IllegalArgumentException (" numPoints != b^k");
+
+      genMat = new int[s1 * numCols][r1];
+      archive.readDigits (e, r1, s1, genMat);
+      filename = archive.getName (e);
+      numRows = r1;
+      dim = s1;
+      outDigits = w;
+      normFactor = 1.0 / Math.pow ((double) b, (double) outDigits);
+      double invb = 1.0 / b;
+      factor = new double[outDigits];
+      factor[0] = invb;
+      for (int j = 1; j < outDigits; j++)
+         factor[j] = factor[j-1] * invb;
+   }
+
+
    public String toString() {
       StringBuffer sb = new StringBuffer ("File:   " + filename +
          PrintfFormat.NEWLINE);
@@ -55,12 +55,19 @@ package umontreal.iro.lecuyer.hups;
  * digits of <SPAN CLASS="MATH"><I>i</I></SPAN> before computing each coordinate, in the same way as for the class
  * {@link HammersleyPointSet}, for all coordinates <SPAN CLASS="MATH"><I>j</I>&nbsp;&gt;=&nbsp; 0</SPAN>.
  * 
+ * <P>
+ * The iterators compute each coordinate with a {@link RadicalInverseCounter},
+ * which updates the radical inverse from the previous point in amortized
+ * constant time when the points are enumerated in order, so the cost of a
+ * point does not grow with <SPAN CLASS="MATH">log<SUB>b</SUB> <I>i</I></SPAN>.
+ * 
  */
 public class HaltonSequence extends PointSet { 
    private int[] base;           // Vector of prime bases.
    private int[][] permutation;  // Digits permutation, for each dimension.
    private boolean permuted;     // Permute digits?
    private RadicalInverse[] radinv; // Vector of RadicalInverse's.
+   private RadicalInverseCounter[] radical; // For getCoordinate
    private int[] start;          // starting indices
    private final static int positiveBitMask = ~Integer.reverse(1);
 
@@ -81,6 +88,7 @@ public class HaltonSequence extends PointSet {
       base = RadicalInverse.getPrimes (dim);
       start = new int[dim];
       java.util.Arrays.fill(start, 0);
+      initRadical();
    }
 
 
@@ -138,6 +146,7 @@ public class HaltonSequence extends PointSet {
          RadicalInverse.getFaureLemieuxPermutation (i, permutation[i]);
       }
       permuted = true;
+      initRadical();
    }
 
 
@@ -163,6 +172,7 @@ public class HaltonSequence extends PointSet {
          RadicalInverse.getFaurePermutation (base[i], permutation[i]);
       }
       permuted = true;
+      initRadical();
    }
 
 
@@ -175,6 +185,7 @@ public class HaltonSequence extends PointSet {
    public void ErasePermutations() {
       permuted = false;
       permutation = null;
+      initRadical();
    }
 
 
@@ -198,11 +209,104 @@ public class HaltonSequence extends PointSet {
          // (Struckmeier restarts at zero)
          if (k < 0)
             k = (k & positiveBitMask) + 1;
-         if (permuted)
-            return RadicalInverse.permutedRadicalInverse 
-            (base[j], permutation[j], k);
-         else 
-            return RadicalInverse.radicalInverse (base[j], k);
+         return radical[j].valueOf (k);
+      }
+   }
+
+   private void initRadical() {
+      radical = new RadicalInverseCounter[dim];
+      for (int j = 0; j < dim; j++)
+         radical[j] = new RadicalInverseCounter
+            (base[j], permuted ? permutation[j] : null);
+   }
+
+   public PointSetIterator iterator() {
+      return new HaltonIterator();
+   }
+
+// ************************************************************************
+
+   // The coordinates are computed by a RadicalInverseCounter for each
+   // coordinate, in amortized constant time, when the points are
+   // enumerated in order.
+   private class HaltonIterator extends DefaultPointSetIterator {
+      private RadicalInverseCounter[] counter =
+         new RadicalInverseCounter[dim];
+      private int[][] counterPi = new int[dim][];   // permutations used
+
+      public double nextCoordinate() {
+         if (radinv != null)
+            return super.nextCoordinate();
+         if (curPointIndex >= numPoints || curCoordIndex >= dim)
+            outOfBounds();
+         int j = curCoordIndex++;
+         return counter (j, curPointIndex).getValue();
+      }
+
+      public int nextPoints (double p[], int n, int d) {
+         if (radinv != null)
+            return super.nextPoints (p, n, d);
+         checkPoints (n);
+         if (d > dim)
+            outOfBounds();
+         // The coordinates are filled one at a time, for all the points
+         for (int j = 0; j < d; j++) {
+            RadicalInverseCounter c = counter (j, curPointIndex);
+            int k = j;
+            int m = n;
+            while (m > 0) {
+               // The index start[j] + i restarts at 1 after Integer.MAX_VALUE
+               int m1 = (int) Math.min (m, (long) Integer.MAX_VALUE + 1
+                                           - c.getIndex());
+               c.fill (p, k, m1, d);
+               k += m1*d;
+               m -= m1;
+               if (m > 0)
+                  c.setIndex (1);
+            }
+         }
+         curPointIndex += n;
+         curCoordIndex = 0;
+         return curPointIndex;
+      }
+
+      public int nextPoints (double p[][], int n, int d) {
+         if (radinv != null)
+            return super.nextPoints (p, n, d);
+         checkPoints (n);
+         if (d > dim)
+            outOfBounds();
+         for (int i = 0; i < n; i++)
+            nextRow (p[i], 0, d);
+         curCoordIndex = 0;
+         return curPointIndex;
+      }
+
+      // Stores the current point in p[k..k+d-1], as computed by
+      // getCoordinate, and advances to the next point.
+      private void nextRow (double[] p, int k, int d) {
+         final int i = curPointIndex++;
+         for (int j = 0; j < d; j++)
+            p[k + j] = counter (j, i).getValue();
+      }
+
+      // Returns the counter of coordinate j, set to the index of point i.
+      private RadicalInverseCounter counter (int j, int i) {
+         RadicalInverseCounter c = counter[j];
+         int[] pi = permuted ? permutation[j] : null;
+         if (c == null || counterPi[j] != pi) {
+            c = counter[j] = new RadicalInverseCounter (base[j], pi);
+            counterPi[j] = pi;
+         }
+         int m = start[j] + i;
+         if (m < 0)
+            m = (m & positiveBitMask) + 1;
+         long index = c.getIndex();
+         if (index == m - 1)
+            c.increment();
+         else if (index != m)
+            c.setIndex (m);
+         return c;
       }
    }
 }
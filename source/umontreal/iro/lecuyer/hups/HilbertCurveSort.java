@@ -0,0 +1,169 @@
+/*
+ * Class:        HilbertCurveSort
+ * Description:  Sorts multidimensional states along a Hilbert curve
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Université de Montréal
+ * Organization: DIRO, Université de Montréal
+ * @author
+ * @since
+
+ * SSJ is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License (GPL) as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * any later version.
+
+ * SSJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * A copy of the GNU General Public License is available at
+   <a href="http://www.gnu.org/licenses">GPL licence site</a>.
+ */
+
+package umontreal.iro.lecuyer.hups;
+
+import umontreal.iro.lecuyer.util.Misc;
+
+
+/**
+ * Sorts states of dimension <SPAN CLASS="MATH"><I>l</I></SPAN> in the order in which they are visited
+ * by a Hilbert space-filling curve.  The states are first scaled,
+ * coordinate by coordinate, to the smallest box that contains all of them,
+ * and this box is partitioned into <SPAN CLASS="MATH">2<SUP>lm</SUP></SPAN> subcubes, with
+ * <SPAN CLASS="MATH"><I>m</I> = min(30, &#8970; 52/<I>l</I>&#8971;)</SPAN> bits per coordinate.  Each state is mapped to
+ * the index of its subcube along the Hilbert curve, computed by the
+ * algorithm of Skilling, and the states are sorted by these indices with a
+ * {@link BatchSort} of dimension 1.  States in the same subcube keep their
+ * original relative order.  Successive states in the order are close to
+ * each other in space, whatever the dimension.
+ * 
+ */
+public class HilbertCurveSort implements ChainSort {
+   private int dim;
+   private int bits;     // bits per coordinate
+   private BatchSort sort1 = new BatchSort (1);
+
+
+   /**
+    * Constructs a sort on the first <SPAN CLASS="MATH"><I>l</I> =</SPAN> <TT>dim</TT> coordinates of
+    * the states.
+    * 
+    * @param dim the number of coordinates used by the sort
+    * 
+    * @exception IllegalArgumentException if <SPAN CLASS="MATH"><I>l</I></SPAN> is not in
+    * <SPAN CLASS="MATH">{1,...,52}</SPAN>
+    * 
+    */
+   public HilbertCurveSort (int dim) {
+      if (dim < 1 || dim > 52)
+         throw new IllegalArgumentException ("dim must be in [1, 52]");
+      this.dim = dim;
+      bits = Math.min (30, 52 / dim);
+   }
+
+
+   /**
+    * Returns the index along the Hilbert curve of the subcube with
+    * integer coordinates <TT>x[0..<SPAN CLASS="MATH"><I>l</I></SPAN>-1]</TT>, each in
+    * <SPAN CLASS="MATH">{0,...,2<SUP>m</SUP> - 1}</SPAN>.
+    * 
+    * @param x the coordinates of the subcube
+    * 
+    * @return the index of the subcube on the Hilbert curve
+    * 
+    * @exception IllegalArgumentException if <TT>x</TT> does not have
+    * <SPAN CLASS="MATH"><I>l</I></SPAN> elements
+    * 
+    */
+   public long hilbertIndex (int[] x) {
+      if (x.length != dim)
+         throw new IllegalArgumentException ("x must have length dim");
+      return index (x.clone());
+   }
+
+
+   // Same as hilbertIndex, but overwrites X.
+   private long index (int[] X) {
+      // Skilling's algorithm: from axes to the transposed Hilbert index
+      int M = 1 << (bits - 1);
+      for (int Q = M; Q > 1; Q >>= 1) {
+         int P = Q - 1;
+         for (int i = 0; i < dim; i++)
+            if ((X[i] & Q) != 0)
+               X[0] ^= P;
+            else {
+               int t = (X[0] ^ X[i]) & P;
+               X[0] ^= t;
+               X[i] ^= t;
+            }
+      }
+      for (int i = 1; i < dim; i++)
+         X[i] ^= X[i - 1];
+      int t = 0;
+      for (int Q = M; Q > 1; Q >>= 1)
+         if ((X[dim - 1] & Q) != 0)
+            t ^= Q - 1;
+      for (int i = 0; i < dim; i++)
+         X[i] ^= t;
+      // The bits of the index are interleaved in the X[i]
+      long h = 0;
+      for (int b = bits - 1; b >= 0; b--)
+         for (int i = 0; i < dim; i++)
+            h = (h << 1) | ((X[i] >> b) & 1);
+      return h;
+   }
+
+   public int getDimension() {
+      return dim;
+   }
+
+   public void sort (final double[][] keys, int[] index, int numThreads) {
+      if (numThreads < 1)
+         throw new IllegalArgumentException ("numThreads < 1");
+      final int n = keys.length;
+      final double[] min = new double[dim];
+      final double[] scale = new double[dim];
+      for (int j = 0; j < dim; j++) {
+         double a = Double.POSITIVE_INFINITY;
+         double b = Double.NEGATIVE_INFINITY;
+         for (int i = 0; i < n; i++) {
+            a = Math.min (a, keys[i][j]);
+            b = Math.max (b, keys[i][j]);
+         }
+         min[j] = a;
+         scale[j] = b > a ? (1 << bits) / (b - a) : 0.0;
+      }
+      // The Hilbert indices, below 2^52, are exact as doubles
+      final double[][] h = new double[n][1];
+      numThreads = Math.max (1, Math.min (numThreads, n));
+      Runnable[] tasks = new Runnable[numThreads];
+      for (int t = 0; t < numThreads; t++) {
+         final int i0 = (int) ((long) n * t / numThreads);
+         final int i1 = (int) ((long) n * (t + 1) / numThreads);
+         tasks[t] = new Runnable() {
+            public void run() {
+               int[] x = new int[dim];
+               int max = (1 << bits) - 1;
+               for (int i = i0; i < i1; i++) {
+                  for (int j = 0; j < dim; j++)
+                     x[j] = Math.min (max,
+                                      (int) ((keys[i][j] - min[j]) * scale[j]));
+                  h[i][0] = index (x);
+               }
+            }
+         };
+      }
+      Misc.runInParallel (tasks);
+      int[] perm = new int[n];
+      for (int i = 0; i < n; i++)
+         perm[i] = i;
+      sort1.sort (h, perm, numThreads);
+      BatchSort.permute (keys, index, perm);
+   }
+
+   public String toString() {
+      return "HilbertCurveSort: dimension = " + dim;
+   }
+}
@@ -0,0 +1,126 @@
+/*
+ * Class:        InterlacedDigitalNetBase2
+ * Description:  Higher order digital nets in base 2 by interlacing
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Université de Montréal
+ * Organization: DIRO, Université de Montréal
+ * @author
+ * @since
+
+ * SSJ is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License (GPL) as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * any later version.
+
+ * SSJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * A copy of the GNU General Public License is available at
+   <a href="http://www.gnu.org/licenses">GPL licence site</a>.
+ */
+
+package umontreal.iro.lecuyer.hups;
+
+import umontreal.iro.lecuyer.util.PrintfFormat;
+
+
+/**
+ * This class implements the digital net of order <SPAN CLASS="MATH"><I>d</I></SPAN> obtained from a digital
+ * net in base 2 of dimension <SPAN CLASS="MATH"><I>ds</I></SPAN> by interlacing its digits, as proposed by
+ * Dick.  Coordinate <SPAN CLASS="MATH"><I>j</I></SPAN> of point <SPAN CLASS="MATH"><I>i</I></SPAN> of the interlaced net is
+ * 
+ * <P></P>
+ * <DIV ALIGN="CENTER" CLASS="mathdisplay">
+ * <I>u</I><SUB>i,j</SUB> = &sum;<SUB>l=1</SUB><SUP>&#8734;</SUP> &sum;<SUB>r=1</SUB><SUP>d</SUP> <I>x</I><SUB>i,(j-1)d+r,l</SUB>&nbsp;
+ * 2<SUP>-(l-1)d-r</SUP>,
+ * </DIV><P></P>
+ * where <SPAN CLASS="MATH"><I>x</I><SUB>i,c,l</SUB></SPAN> is digit <SPAN CLASS="MATH"><I>l</I></SPAN> of coordinate <SPAN CLASS="MATH"><I>c</I></SPAN> of point <SPAN CLASS="MATH"><I>i</I></SPAN> of the
+ * original net, so the <SPAN CLASS="MATH"><I>d</I></SPAN> coordinates <SPAN CLASS="MATH">(<I>j</I> - 1)<I>d</I> + 1,...,<I>jd</I></SPAN> of the original
+ * net are merged into coordinate <SPAN CLASS="MATH"><I>j</I></SPAN>, digit by digit.  For integrands with
+ * square-integrable mixed partial derivatives of order <SPAN CLASS="MATH"><I>&#945;</I></SPAN>, the
+ * integration error of an interlaced net of order <SPAN CLASS="MATH"><I>d</I> &nbsp;&gt;=&nbsp; <I>&#945;</I></SPAN> built from
+ * a good net can converge as <SPAN CLASS="MATH"><I>O</I>(<I>n</I><SUP>-&#945;</SUP>(log <I>n</I>)<SUP>s&#945;</SUP>)</SPAN>, instead of
+ * <SPAN CLASS="MATH"><I>O</I>(<I>n</I><SUP>-1</SUP>(log <I>n</I>)<SUP>s</SUP>)</SPAN> for the classical nets.  Good nets to interlace
+ * are constructed by {@link PolynomialLatticeBuilder}.
+ * <P>
+ * The interlaced net is itself a digital net in base 2 with <SPAN CLASS="MATH"><I>n</I> = 2<SUP>k</SUP></SPAN> points:
+ * row <SPAN CLASS="MATH">(<I>l</I> - 1)<I>d</I> + <I>r</I></SPAN> of its generator matrix <SPAN CLASS="MATH"><B><I>C</I></B><SUB>j</SUB></SPAN> is row <SPAN CLASS="MATH"><I>l</I></SPAN> of the
+ * generator matrix <SPAN CLASS="MATH"><B><I>C</I></B><SUB>(j-1)d+r</SUB></SPAN> of the original net.  Since the
+ * matrices have at most 31 rows, the digits beyond the 31st are dropped, so
+ * the order is kept only up to this resolution.  The points are enumerated
+ * as for any {@link DigitalNetBase2}.  A random digital shift preserves the
+ * order of the net; the scramblings that mix the rows, such as the left
+ * matrix scramble, do not in general.
+ * 
+ */
+public class InterlacedDigitalNetBase2 extends DigitalNetBase2 {
+   private int order;
+   private String netName;   // Description of the original net
+
+
+   /**
+    * Constructs the interlaced net of order <SPAN CLASS="MATH"><I>d</I></SPAN> from the current generator
+    * matrices of <TT>net</TT>.  If the dimension of <TT>net</TT> is not a
+    * multiple of <SPAN CLASS="MATH"><I>d</I></SPAN>, its last coordinates are not used.  Later changes to
+    * <TT>net</TT> do not affect this object.
+    * 
+    * @param net the net to interlace
+    * 
+    * @param d the order of interlacing
+    * 
+    * @exception IllegalArgumentException if <SPAN CLASS="MATH"><I>d</I> &lt; 1</SPAN> or if the dimension
+    * of <TT>net</TT> is smaller than <SPAN CLASS="MATH"><I>d</I></SPAN>
+    * 
+    */
+   public InterlacedDigitalNetBase2 (DigitalNetBase2 net, int d) {
+      if (d < 1)
+         throw new IllegalArgumentException ("d < 1");
+      if (net.dim < d)
+         throw new IllegalArgumentException
+            ("the dimension of net must be at least d");
+      order = d;
+      netName = net.getClass().getSimpleName();
+      b = 2;
+      dim = net.dim / d;
+      numCols = net.numCols;
+      numPoints = net.numPoints;
+      numRows = Math.min (MAXBITS, d*net.numRows);
+      outDigits = MAXBITS;
+      normFactor = 1.0 / ((double) (1L << (outDigits)));
+      genMat = new int[dim * numCols];
+      for (int j = 0; j < dim; j++)
+         for (int c = 0; c < numCols; c++) {
+            int col = 0;
+            for (int r = 0; r < d; r++) {
+               int v = net.genMat[(j*d + r)*numCols + c];
+               // Row l of the original is row l d + r of the interlaced net
+               for (int l = 0; l < net.outDigits && l*d + r < MAXBITS; l++)
+                  if (((v >> (net.outDigits - 1 - l)) & 1) != 0)
+                     col |= 1 << (outDigits - 1 - l*d - r);
+            }
+            genMat[j*numCols + c] = col;
+         }
+   }
+
+
+   /**
+    * Returns the order of interlacing <SPAN CLASS="MATH"><I>d</I></SPAN>.
+    * 
+    * @return the order of interlacing
+    * 
+    */
+   public int getOrder() {
+      return order;
+   }
+
+
+   public String toString() {
+      StringBuffer sb = new StringBuffer ("InterlacedDigitalNetBase2: order "
+         + order + " of " + netName + PrintfFormat.NEWLINE);
+      sb.append (super.toString());
+      return sb.toString();
+   }
+}
@@ -76,12 +76,15 @@ public class KorobovLattice extends Rank1Lattice  {
       genA = a;
       dim = s;
       v = new double[s];
+      genAs = new int[s];
       long[] B = new long[dim];
       B[0] = 1;
       v[0] = normFactor;
+      genAs[0] = 1;
       for (int j = 1; j < dim; j++) {
          B[j] = (a * B[j - 1]) % n;
          v[j] = normFactor * B[j];
+         genAs[j] = (int) B[j];
       }
    }
 
@@ -104,15 +107,16 @@ public class KorobovLattice extends Rank1Lattice  {
       dim = s;
       genA = a;
       v = new double[s];
+      genAs = new int[s];
       long[] B = new long[dim];
       int j;
-      B[0] = a;
-      for (j = 1; j < t; j++)
-         B[0] *= a;
+      B[0] = modPower (a, t, n);
       v[0] = B[0] * normFactor;
+      genAs[0] = (int) B[0];
       for (j = 1; j < dim; j++) {
          B[j] = (a * B[j - 1]) % n;
          v[j] = normFactor * B[j];
+         genAs[j] = (int) B[j];
       }
    }
 
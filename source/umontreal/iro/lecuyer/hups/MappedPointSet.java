@@ -0,0 +1,360 @@
+/*
+ * Class:        MappedPointSet
+ * Description:  Point set stored in a memory-mapped file
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Université de Montréal
+ * Organization: DIRO, Université de Montréal
+ * @author
+ * @since
+
+ * SSJ is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License (GPL) as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * any later version.
+
+ * SSJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * A copy of the GNU General Public License is available at
+   <a href="http://www.gnu.org/licenses">GPL licence site</a>.
+ */
+
+package umontreal.iro.lecuyer.hups;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import umontreal.iro.lecuyer.rng.RandomStream;
+import umontreal.iro.lecuyer.util.PrintfFormat;
+
+
+/**
+ * This class stores the points of a point set in a binary file, which is
+ * mapped in memory, instead of an array on the heap as in
+ * {@link CachedPointSet}.  The first <TT>dim</TT> coordinates of the first
+ * <SPAN CLASS="MATH"><I>n</I></SPAN> points are written once, in row-major order: coordinate <SPAN CLASS="MATH"><I>j</I></SPAN> of point
+ * <SPAN CLASS="MATH"><I>i</I></SPAN> is the double number at position <TT>i*dim + j</TT>.
+ * The operating system then loads the pages of the file as they are needed
+ * and can evict them when memory is scarce, so point sets much larger than
+ * the heap can be cached without slowing down the garbage collector.
+ * Since the mapping is read-only, the same file can be mapped by several
+ * {@link MappedPointSet} objects, in different threads or different
+ * Java virtual machines, which then share the same physical memory.
+ * 
+ * <P>
+ * The stored points are never modified.  A random shift modulo 1, added by
+ * {@link #addRandomShift(int,int,RandomStream) addRandomShift} or by
+ * {@link PointSet#randomize(PointSetRandomization) randomize} with a
+ * {@link RandomShift}, is kept in a small array and added to the
+ * coordinates when they are read.  Randomizations that need the structure
+ * of the original point set, such as the scrambles of digital nets, must be
+ * applied to that point set before it is written.
+ * 
+ * <P>
+ * Each iterator reads the file through its own views of the mapping, so
+ * several iterators can be used concurrently in different threads, provided
+ * the random shift is not changed meanwhile.
+ * The method
+ * {@link PointSetBlockIterator#nextPoints(double[],int,int) nextPoints} of the
+ * iterators copies
+ * the coordinates in bulk from the mapped file.
+ * 
+ */
+public class MappedPointSet extends PointSet {
+   private static final int MAGIC = 0x53534A50;    // "SSJP"
+   private static final int VERSION = 1;
+   private static final int HEADER = 16;           // magic, version, n, dim
+   private static final int SEGMENT = 1 << 27;     // doubles per segment
+
+   private File file;
+   private DoubleBuffer[] seg;    // rowsPerSeg points per segment
+   private int rowsPerSeg;
+   private double[] shift;        // random shift, or null
+
+
+   /**
+    * Maps in memory the point set stored in <TT>file</TT>, which must have
+    * been created by {@link #write(PointSet,int,int,File) write}.
+    * 
+    * @param file the file containing the points
+    * 
+    * @exception IOException if the file cannot be read or is not in the
+    * correct format
+    * 
+    */
+   public MappedPointSet (File file) throws IOException {
+      this.file = file;
+      RandomAccessFile raf = new RandomAccessFile (file, "r");
+      try {
+         FileChannel ch = raf.getChannel();
+         ByteBuffer h = ch.map (FileChannel.MapMode.READ_ONLY, 0,
+                                Math.min (HEADER, ch.size()));
+         if (h.capacity() < HEADER || h.getInt (0) != MAGIC)
+            throw new IOException (file + " is not a point set file");
+         if (h.getInt (4) != VERSION)
+            throw new IOException ("unsupported version " + h.getInt (4)
+                                   + " in " + file);
+         numPoints = h.getInt (8);
+         dim = h.getInt (12);
+         if (numPoints < 0 || dim < 1 ||
+             ch.size() != HEADER + 8L*numPoints*dim)
+            throw new IOException ("invalid size for " + file);
+         rowsPerSeg = Math.max (1, SEGMENT / dim);
+         int nseg = (numPoints + rowsPerSeg - 1) / rowsPerSeg;
+         seg = new DoubleBuffer[nseg];
+         for (int s = 0; s < nseg; s++) {
+            long start = (long) s * rowsPerSeg;
+            long len = Math.min (numPoints - start, rowsPerSeg);
+            seg[s] = ch.map (FileChannel.MapMode.READ_ONLY,
+                             HEADER + 8*start*dim, 8*len*dim)
+                       .order (ByteOrder.BIG_ENDIAN).asDoubleBuffer();
+         }
+      } finally {
+         // The mappings remain valid after the channel is closed
+         raf.close();
+      }
+   }
+
+
+   /**
+    * Writes the first <TT>dim</TT> coordinates of the first <TT>n</TT>
+    * points of <TT>P</TT> in <TT>file</TT>, by calling
+    * {@link #write(PointSet,int,int,File) write}, and maps it in memory.
+    * The point set <TT>P</TT> itself is not modified.
+    * 
+    * @param P point set to be cached
+    * 
+    * @param n number of points
+    * 
+    * @param dim number of dimensions of the points
+    * 
+    * @param file the file in which the points are stored
+    * 
+    * @exception IOException if the file cannot be written or read
+    * 
+    */
+   public MappedPointSet (PointSet P, int n, int dim, File file)
+          throws IOException {
+      this (write (P, n, dim, file));
+   }
+
+
+   /**
+    * Writes the first <TT>dim</TT> coordinates of the first <TT>n</TT> points
+    * of <TT>P</TT> in <TT>file</TT>, in the format read by
+    * {@link #MappedPointSet(File) MappedPointSet}, and returns <TT>file</TT>.
+    * The points are enumerated by an iterator of <TT>P</TT>, so they
+    * include its current randomization.
+    * 
+    * @param P point set to be stored
+    * 
+    * @param n number of points
+    * 
+    * @param dim number of dimensions of the points
+    * 
+    * @param file the file to create
+    * 
+    * @return the file
+    * 
+    * @exception IOException if the file cannot be written
+    * 
+    */
+   public static File write (PointSet P, int n, int dim, File file)
+          throws IOException {
+      if (P.getNumPoints() < n)
+         throw new IllegalArgumentException(
+            "Cannot cache more points than in point set P.");
+      if (P.getDimension() < dim || dim < 1)
+         throw new IllegalArgumentException(
+            "Cannot cache points with more coordinates than the dimension.");
+      // Points are written in blocks of about 1 MB
+      int m = Math.max (1, (1 << 17) / dim);
+      double[] p = new double[m*dim];
+      ByteBuffer bb = ByteBuffer.allocate (8*m*dim).order (ByteOrder.BIG_ENDIAN);
+      FileOutputStream os = new FileOutputStream (file);
+      try {
+         FileChannel ch = os.getChannel();
+         bb.putInt (MAGIC).putInt (VERSION).putInt (n).putInt (dim);
+         bb.flip();
+         while (bb.hasRemaining())
+            ch.write (bb);
+         PointSetIterator itr = P.iterator();
+         for (int i = 0; i < n; i += m) {
+            int k = Math.min (m, n - i);
+            PointSet.nextPoints (itr, p, k, dim);
+            bb.clear();
+            bb.asDoubleBuffer().put (p, 0, k*dim);
+            bb.limit (8*k*dim);
+            while (bb.hasRemaining())
+               ch.write (bb);
+         }
+      } finally {
+         os.close();
+      }
+      return file;
+   }
+
+
+   /**
+    * Returns the file in which the points are stored.
+    * 
+    */
+   public File getFile() {
+      return file;
+   }
+
+
+   /**
+    * Adds a random shift modulo 1 to all the points, using
+    * <TT>stream</TT> to generate the random numbers, for coordinates
+    * <TT>d1</TT> to <TT>d2-1</TT>.  The shift of the coordinates after
+    * <TT>d2-1</TT> is 0.
+    * If <TT>d2</TT> is 0, the shift is generated for all coordinates
+    * from <TT>d1</TT>.
+    * The stored points are not modified: the shift is added when
+    * the coordinates are read.
+    * 
+    * @param d1 lower dimension of shift
+    * 
+    * @param d2 upper dimension of shift is d2 - 1
+    * 
+    * @param stream random number stream used to generate uniforms
+    * 
+    */
+   public void addRandomShift (int d1, int d2, RandomStream stream) {
+      if (null == stream)
+         throw new IllegalArgumentException (
+              PrintfFormat.NEWLINE +
+                  "   Calling addRandomShift with null stream");
+      if (0 == d2)
+         d2 = dim;
+      if (d1 < 0 || d1 > d2 || d2 > dim)
+         throw new IllegalArgumentException ("illegal parameter d1 or d2");
+      double[] s = new double[dim];
+      if (shift != null)
+         System.arraycopy (shift, 0, s, 0, d1);
+      for (int j = d1; j < d2; j++)
+         s[j] = stream.nextDouble();
+      shift = s;
+      dimShift = capacityShift = d2;
+      shiftStream = stream;
+   }
+
+
+   /**
+    * Erases the current random shift.
+    * 
+    */
+   public void clearRandomShift() {
+      super.clearRandomShift();
+      shift = null;
+   }
+
+
+   public String toString() {
+     StringBuffer sb = new StringBuffer ("Mapped point set" +
+          PrintfFormat.NEWLINE);
+     sb.append (super.toString());
+     sb.append (PrintfFormat.NEWLINE + "File: " + file);
+     return sb.toString();
+   }
+
+   public double getCoordinate (int i, int j) {
+      if (i < 0 || i >= numPoints || j < 0 || j >= dim)
+         throw new IndexOutOfBoundsException ("(" + i + ", " + j + ")");
+      double u = seg[i / rowsPerSeg].get ((i % rowsPerSeg)*dim + j);
+      return shift == null ? u : shifted (u, shift[j]);
+   }
+
+   private double shifted (double u, double s) {
+      u += s;
+      if (u >= 1.0)
+         u -= 1.0;
+      if (u > 0.0)
+         return u;
+      return EpsilonHalf;  // avoid u = 0
+   }
+
+   public PointSetIterator iterator() {
+      return new MappedPointSetIterator();
+   }
+
+   // ***************************************************************
+
+   private class MappedPointSetIterator extends DefaultPointSetIterator {
+      // Views of the segments with their own positions.
+      private DoubleBuffer[] view = new DoubleBuffer[seg.length];
+
+      private DoubleBuffer row (int i) {
+         int s = i / rowsPerSeg;
+         if (view[s] == null)
+            view[s] = seg[s].duplicate();
+         view[s].position ((i % rowsPerSeg)*dim);
+         return view[s];
+      }
+
+      public double nextCoordinate() {
+         if (curPointIndex >= numPoints || curCoordIndex >= dim)
+            outOfBounds();
+         return getCoordinate (curPointIndex, curCoordIndex++);
+      }
+
+      public int nextPoint (double p[], int d) {
+         if (curPointIndex >= numPoints || d > dim)
+            outOfBounds();
+         row (curPointIndex).get (p, 0, d);
+         addShift (p, 0, 1, d);
+         return resetToNextPoint();
+      }
+
+      public int nextPoints (double p[], int n, int d) {
+         checkPoints (n);
+         if (d > dim)
+            outOfBounds();
+         int k = 0;
+         while (n > 0) {
+            DoubleBuffer b = row (curPointIndex);
+            // Number of points remaining in this segment
+            int m = Math.min (n, rowsPerSeg - curPointIndex % rowsPerSeg);
+            if (d == dim)
+               b.get (p, k, m*d);
+            else
+               for (int i = 0; i < m; i++) {
+                  b.get (p, k + i*d, d);
+                  b.position (b.position() + dim - d);
+               }
+            addShift (p, k, m, d);
+            k += m*d;
+            n -= m;
+            curPointIndex += m;
+         }
+         curCoordIndex = 0;
+         return curPointIndex;
+      }
+
+      public int nextPoints (double p[][], int n, int d) {
+         checkPoints (n);
+         for (int i = 0; i < n; i++)
+            nextPoint (p[i], d);
+         return curPointIndex;
+      }
+
+      // Adds the shift to the m points of dimension d stored from p[k].
+      private void addShift (double[] p, int k, int m, int d) {
+         final double[] s = shift;
+         if (s == null)
+            return;
+         for (int i = 0; i < m; i++, k += d)
+            for (int j = 0; j < d; j++)
+               p[k + j] = shifted (p[k + j], s[j]);
+      }
+   }
+}
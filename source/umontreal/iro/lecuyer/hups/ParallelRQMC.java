@@ -0,0 +1,170 @@
+/*
+ * Class:        ParallelRQMC
+ * Description:  Independent replications of an RQMC estimator in parallel
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Université de Montréal
+ * Organization: DIRO, Université de Montréal
+ * @author
+ * @since
+
+ * SSJ is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License (GPL) as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * any later version.
+
+ * SSJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * A copy of the GNU General Public License is available at
+   <a href="http://www.gnu.org/licenses">GPL licence site</a>.
+ */
+
+package umontreal.iro.lecuyer.hups;
+
+import umontreal.iro.lecuyer.util.Misc;
+import umontreal.iro.lecuyer.rng.RandomStream;
+import umontreal.iro.lecuyer.stat.Tally;
+import umontreal.iro.lecuyer.util.MultivariateFunction;
+
+
+/**
+ * This class performs <SPAN CLASS="MATH"><I>m</I></SPAN> independent replications of a randomized
+ * quasi-Monte Carlo (RQMC) estimator, possibly in several threads.
+ * For each replication, a point set is randomized by a
+ * {@link PointSetRandomization}, such as {@link RandomShift},
+ * {@link LMScrambleShift}, {@link SMScrambleShift} or {@link RandomStart},
+ * the average of a function <SPAN CLASS="MATH"><I>f</I></SPAN> over the first <SPAN CLASS="MATH"><I>n</I></SPAN> points of the
+ * randomized point set is computed, and this average is added to a
+ * {@link umontreal.iro.lecuyer.stat.Tally Tally}.  The empirical mean,
+ * variance and confidence interval of the <SPAN CLASS="MATH"><I>m</I></SPAN> averages are then available
+ * from the <TT>Tally</TT>.
+ * 
+ * <P>
+ * A point set is randomized in place, so the replications performed
+ * concurrently cannot share the same point set.  For this reason,
+ * {@link #simulate(PointSet[],PointSetRandomization,MultivariateFunction,int,int,Tally) simulate}
+ * takes an array of identical point sets, one for each thread.
+ * Since the randomizations cannot copy their internal state, the
+ * randomizations themselves are performed one at a time, with the same
+ * {@link PointSetRandomization} object, and only the evaluations of <SPAN CLASS="MATH"><I>f</I></SPAN>
+ * are done concurrently.  The randomization of replication <SPAN CLASS="MATH"><I>r</I></SPAN> always uses
+ * the <SPAN CLASS="MATH">(<I>r</I> + 1)</SPAN>-th substream following the current substream of the stream of
+ * the randomization, whatever the thread that performs it, and the averages
+ * are added to the <TT>Tally</TT> in the order of the replications.
+ * Thus, the results do not depend on the number of threads, and
+ * they are the same as those obtained by
+ * {@link #simulate(PointSet,PointSetRandomization,MultivariateFunction,int,int,Tally) simulate}
+ * with a single point set.
+ * The stream of the randomization must support substreams, as
+ * {@link umontreal.iro.lecuyer.rng.MRG32k3a MRG32k3a} does.
+ * The function <SPAN CLASS="MATH"><I>f</I></SPAN> is evaluated concurrently by several threads;
+ * it must be safe to call its <TT>evaluate</TT> method from several threads.
+ * 
+ */
+public class ParallelRQMC {
+   private ParallelRQMC() {}
+
+
+   /**
+    * Performs <SPAN CLASS="MATH"><I>m</I></SPAN> independent replications with the point set <TT>P</TT>,
+    * in the calling thread.  For each replication, <TT>P</TT> is randomized
+    * by <TT>rand</TT>, using the next substream of its stream, and the average
+    * of <TT>f</TT> over the first <TT>n</TT> points of <TT>P</TT> is added to
+    * <TT>statRQMC</TT>.  The points have <SPAN CLASS="MATH"><I>d</I></SPAN> coordinates, where <SPAN CLASS="MATH"><I>d</I></SPAN> is the
+    * dimension of <TT>f</TT>, or the dimension of <TT>P</TT> if <TT>f</TT>
+    * has no fixed dimension.
+    * 
+    * @param P the point set
+    * 
+    * @param rand the randomization of the point set
+    * 
+    * @param f the function to integrate
+    * 
+    * @param n number of points used for each replication
+    * 
+    * @param m number of replications
+    * 
+    * @param statRQMC collects the <SPAN CLASS="MATH"><I>m</I></SPAN> averages
+    * 
+    * @exception IllegalArgumentException if <SPAN CLASS="MATH"><I>n</I></SPAN> is not in
+    * <SPAN CLASS="MATH">{1,...,</SPAN> <TT>P.getNumPoints()</TT><SPAN CLASS="MATH">}</SPAN> or <SPAN CLASS="MATH"><I>m</I> &lt; 0</SPAN>
+    * 
+    */
+   public static void simulate (PointSet P, PointSetRandomization rand,
+                                MultivariateFunction f, int n, int m,
+                                Tally statRQMC) {
+      simulate (new PointSet[] { P }, rand, f, n, m, statRQMC);
+   }
+
+
+   /**
+    * Same as
+    * {@link #simulate(PointSet,PointSetRandomization,MultivariateFunction,int,int,Tally) simulate},
+    * but the replications are performed by <TT>P.length</TT> threads,
+    * the thread <SPAN CLASS="MATH"><I>t</I></SPAN> using the point set <TT>P[t]</TT>.
+    * The point sets must be distinct objects, constructed in the same way,
+    * and they must not be used elsewhere while this method runs.
+    * The averages added to <TT>statRQMC</TT> do not depend on the number
+    * of threads.
+    * 
+    * @param P identical point sets, one for each thread
+    * 
+    * @param rand the randomization of the point sets
+    * 
+    * @param f the function to integrate
+    * 
+    * @param n number of points used for each replication
+    * 
+    * @param m number of replications
+    * 
+    * @param statRQMC collects the <SPAN CLASS="MATH"><I>m</I></SPAN> averages
+    * 
+    * @exception IllegalArgumentException if <TT>P</TT> is empty, if <SPAN CLASS="MATH"><I>n</I></SPAN> is
+    * not in <SPAN CLASS="MATH">{1,...,</SPAN> <TT>P[t].getNumPoints()</TT><SPAN CLASS="MATH">}</SPAN> or <SPAN CLASS="MATH"><I>m</I> &lt; 0</SPAN>
+    * 
+    */
+   public static void simulate (final PointSet[] P,
+                                final PointSetRandomization rand,
+                                final MultivariateFunction f,
+                                final int n, final int m,
+                                Tally statRQMC) {
+      if (P.length < 1)
+         throw new IllegalArgumentException ("No point set");
+      for (int t = 0; t < P.length; t++)
+         if (n < 1 || n > P[t].getNumPoints())
+            throw new IllegalArgumentException (
+               "n must be between 1 and the number of points");
+      if (m < 0)
+         throw new IllegalArgumentException ("m < 0");
+      final RandomStream stream = rand.getStream();
+      final double[] average = new double[m];
+      final int[] next = new int[1];    // next replication to perform
+      Runnable[] tasks = new Runnable[Math.min (P.length, Math.max (m, 1))];
+      for (int t = 0; t < tasks.length; t++) {
+         final PointSet p = P[t];
+         tasks[t] = new Runnable() {
+            public void run() {
+               while (true) {
+                  int r;
+                  // The randomizations are made in the order of r, one at a
+                  // time, since they all use the same object and stream
+                  synchronized (next) {
+                     if (next[0] >= m)
+                        return;
+                     r = next[0]++;
+                     stream.resetNextSubstream();
+                     rand.randomize (p);
+                  }
+                  average[r] = new PointSetRange (p, 0, n).sum (f) / n;
+               }
+            }
+         };
+      }
+      Misc.runInParallel (tasks);
+      for (int r = 0; r < m; r++)
+         statRQMC.add (average[r]);
+   }
+}
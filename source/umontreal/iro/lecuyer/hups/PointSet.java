@@ -156,6 +156,24 @@ public abstract class PointSet  {
    }
 
 
+   /**
+    * Returns the range of the points numbered from <TT>from</TT> to
+    * <TT>to - 1</TT> of this point set, which can be split and traversed
+    * in several threads, each with its own iterator.
+    * See {@link PointSetRange}.
+    * 
+    * @param from index of the first point of the range
+    * 
+    * @param to index following the last point of the range
+    * 
+    * @return the range of points
+    * 
+    */
+   public PointSetRange range (int from, int to) {
+      return new PointSetRange (this, from, to);
+   }
+
+
    /**
     * Sets the random stream used to generate random shifts to <TT>stream</TT>.
     *  
@@ -593,6 +611,31 @@ public abstract class PointSet  {
 
 
 
+   // Same as it.nextPoints (p, n, d), also for iterators that do not
+   // implement PointSetBlockIterator.
+   static int nextPoints (PointSetIterator it, double[] p, int n, int d) {
+      if (it instanceof PointSetBlockIterator)
+         return ((PointSetBlockIterator) it).nextPoints (p, n, d);
+      int k = 0;
+      for (int i = 0; i < n; i++) {
+         it.resetCurCoordIndex();
+         for (int j = 0; j < d; j++)
+            p[k++] = it.nextCoordinate();
+         it.resetToNextPoint();
+      }
+      return it.getCurPointIndex();
+   }
+
+   // Same as it.nextPoints (p, n, d) for the rows of p.
+   static int nextPoints (PointSetIterator it, double[][] p, int n, int d) {
+      if (it instanceof PointSetBlockIterator)
+         return ((PointSetBlockIterator) it).nextPoints (p, n, d);
+      for (int i = 0; i < n; i++)
+         it.nextPoint (p[i], d);
+      return it.getCurPointIndex();
+   }
+
+
 // %%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
 // This class implements a default point set iterator.
 // Since it is inherited by subclasses, it can be used as a base class
@@ -602,7 +645,7 @@ public abstract class PointSet  {
 // cumbersome to access those variables if it was implemented as a
 // separate class.
 
-   protected class DefaultPointSetIterator implements PointSetIterator {
+   protected class DefaultPointSetIterator implements PointSetBlockIterator {
 
       protected int curPointIndex = 0;      // Index of the current point.
       protected int curCoordIndex = 0;      // Index of the current coordinate.
@@ -676,6 +719,34 @@ public abstract class PointSet  {
          return resetToNextPoint();
       }
 
+      public int nextPoints (double p[], int n, int d) {
+         checkPoints (n);
+         int k = 0;
+         for (int i = 0; i < n; i++) {
+            resetCurCoordIndex();
+            if (getCurCoordIndex() + d > getDimension()) outOfBounds();
+            for (int j = 0; j < d; j++)
+               p[k++] = nextCoordinate();
+            resetToNextPoint();
+         }
+         return getCurPointIndex();
+      }
+
+      public int nextPoints (double p[][], int n, int d) {
+         checkPoints (n);
+         for (int i = 0; i < n; i++)
+            nextPoint (p[i], d);
+         return getCurPointIndex();
+      }
+
+      // Checks that n points remain, for nextPoints.
+      protected void checkPoints (int n) {
+         if (n < 0)
+            throw new IllegalArgumentException ("n must be positive.");
+         if (n > getNumPoints() - getCurPointIndex())
+            throw new NoSuchElementException ("Not enough points available");
+      }
+
 
       public void resetStartStream() {     // Same as resetCurPointIndex();
          resetCurPointIndex();
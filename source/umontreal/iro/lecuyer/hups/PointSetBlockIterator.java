@@ -0,0 +1,84 @@
+/*
+ * Interface:    PointSetBlockIterator
+ * Description:  Iterator over point sets returning blocks of points
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Université de Montréal
+ * Organization: DIRO, Université de Montréal
+ * @author
+ * @since
+
+ * SSJ is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License (GPL) as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * any later version.
+
+ * SSJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * A copy of the GNU General Public License is available at
+   <a href="http://www.gnu.org/licenses">GPL licence site</a>.
+ */
+
+package umontreal.iro.lecuyer.hups;
+
+/**
+ * This interface extends {@link PointSetIterator} with methods that return
+ * several successive points at once.  Specialized implementations generate
+ * a whole block of points in a single loop, without calling
+ * {@link PointSetIterator#nextCoordinate nextCoordinate} for each coordinate.
+ * The iterators returned by the point sets of this package, which extend
+ * {@link umontreal.iro.lecuyer.hups.PointSet.DefaultPointSetIterator PointSet.DefaultPointSetIterator},
+ * all implement this interface.  Code that accepts any
+ * {@link PointSetIterator} can test whether it implements this interface,
+ * and otherwise enumerate the points with
+ * {@link PointSetIterator#nextPoint(double[],int) nextPoint}.
+ * 
+ */
+public interface PointSetBlockIterator extends PointSetIterator {
+
+   /**
+    * Returns the first <TT>d</TT> coordinates of the <TT>n</TT> points
+    *    starting from the current point, stored one after the other in
+    *    <TT>p</TT>: coordinate <SPAN CLASS="MATH"><I>j</I></SPAN> of the <SPAN CLASS="MATH"><I>i</I></SPAN>-th returned point is
+    *    <TT>p[i*d + j]</TT>.  The current point then becomes the one following
+    *    them, and its index is returned.
+    *    This is equivalent to calling
+    *    {@link PointSetIterator#nextPoint(double[],int) nextPoint}
+    *    <TT>n</TT> times.
+    * 
+    * @param p array to be filled with the <TT>n*d</TT> coordinates
+    * 
+    * @param n number of points to return
+    * 
+    * @param d number of coordinates of each point
+    * 
+    * @return index of the new current point
+    * 
+    * @exception NoSuchElementException if there are less than <TT>n</TT>
+    * points remaining, or less than <TT>d</TT> coordinates per point
+    * 
+    */
+   public int nextPoints (double[] p, int n, int d);
+
+
+   /**
+    * Same as {@link #nextPoints(double[],int,int) nextPoints}, except that the
+    * <SPAN CLASS="MATH"><I>i</I></SPAN>-th point is returned in <TT>p[i]</TT>.
+    * 
+    * @param p array whose first <TT>n</TT> rows are filled with the points
+    * 
+    * @param n number of points to return
+    * 
+    * @param d number of coordinates of each point
+    * 
+    * @return index of the new current point
+    * 
+    * @exception NoSuchElementException if there are less than <TT>n</TT>
+    * points remaining, or less than <TT>d</TT> coordinates per point
+    * 
+    */
+   public int nextPoints (double[][] p, int n, int d);
+}
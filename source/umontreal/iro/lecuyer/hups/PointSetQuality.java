@@ -0,0 +1,541 @@
+/*
+ * Class:        PointSetQuality
+ * Description:  Figures of merit and discrepancies of point sets
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Université de Montréal
+ * Organization: DIRO, Université de Montréal
+ * @author
+ * @since
+
+ * SSJ is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License (GPL) as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * any later version.
+
+ * SSJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * A copy of the GNU General Public License is available at
+   <a href="http://www.gnu.org/licenses">GPL licence site</a>.
+ */
+
+package umontreal.iro.lecuyer.hups;
+
+import umontreal.iro.lecuyer.util.Misc;
+
+
+/**
+ * This class provides static methods that compute measures of the
+ * uniformity of a point set <SPAN CLASS="MATH"><I>P</I><SUB>n</SUB> = {<B><I>u</I></B><SUB>0</SUB>,...,<B><I>u</I></B><SUB>n-1</SUB>}</SPAN>:
+ * the weighted <SPAN CLASS="MATH"><I>P</I><SUB>&#945;</SUB></SPAN> criterion, the <SPAN CLASS="MATH"><I>L</I><SUB>2</SUB></SPAN>-star and centered
+ * <SPAN CLASS="MATH"><I>L</I><SUB>2</SUB></SPAN> discrepancies, and the <SPAN CLASS="MATH"><I>t</I></SPAN>-value of a digital net in
+ * base 2.  Each method returns the measure for the projections of <SPAN CLASS="MATH"><I>P</I><SUB>n</SUB></SPAN> over
+ * its first <SPAN CLASS="MATH"><I>d</I></SPAN> coordinates, for <SPAN CLASS="MATH"><I>d</I> = 1,...,<I>s</I></SPAN>, in a single pass, so
+ * adding coordinates to a point set, one at a time, does not require
+ * recomputing the measures from scratch.
+ * <P>
+ * The points are obtained by blocks from iterators, as in
+ * {@link PointSetRange}, and not one coordinate at a time by
+ * {@link PointSet#getCoordinate(int,int) getCoordinate}.
+ * The computations are divided among <TT>numThreads</TT> threads, each
+ * working on a different group of points, and the partial sums are added
+ * in an order that does not depend on the number of threads, so the
+ * returned values do not depend on it either.
+ * <P>
+ * The measures defined by a double sum over the points, that is, <SPAN CLASS="MATH"><I>P</I><SUB>&#945;</SUB></SPAN>
+ * for an arbitrary point set and the discrepancies, require <SPAN CLASS="MATH"><I>O</I>(<I>n</I><SUP>2</SUP> <I>s</I>)</SPAN>
+ * operations, and the <SPAN CLASS="MATH"><I>n</I></SPAN> points are kept in memory as an array of <SPAN CLASS="MATH"><I>ns</I></SPAN>
+ * <TT>double</TT>s.  For a rank-1 lattice, <SPAN CLASS="MATH"><I>P</I><SUB>&#945;</SUB></SPAN> reduces to a single
+ * sum, computed in <SPAN CLASS="MATH"><I>O</I>(<I>ns</I>)</SPAN> operations by
+ * {@link #pAlphaLattice(PointSet,int,double[],int) pAlphaLattice} without storing the
+ * points.
+ * 
+ */
+public class PointSetQuality {
+   private static final int CHUNK = 128;  // points per call to nextPoints
+   private static final int ROWS = 64;    // points per block of the double sums
+
+   // Kernels of the double sums
+   private static final int PALPHA = 0;
+   private static final int L2STAR = 1;
+   private static final int CENTERED = 2;
+
+   private PointSetQuality() {}
+
+
+   /**
+    * Returns the weighted <SPAN CLASS="MATH"><I>P</I><SUB>&#945;</SUB></SPAN> criterion with product weights
+    * <SPAN CLASS="MATH"><I>&#947;</I><SUB>j</SUB> =</SPAN> <TT>gamma[j-1]</TT> of the projections of <TT>P</TT>
+    * over its first <SPAN CLASS="MATH"><I>d</I></SPAN> coordinates, for <SPAN CLASS="MATH"><I>d</I> = 1,...,<I>s</I></SPAN>, where <SPAN CLASS="MATH"><I>s</I></SPAN> is the
+    * length of <TT>gamma</TT>:
+    * 
+    * <P></P>
+    * <DIV ALIGN="CENTER" CLASS="mathdisplay">
+    * <I>P</I><SUB>&#945;</SUB> = - 1 + (1)/(<I>n</I>) &sum;<SUB>i=0</SUB><SUP>n-1</SUP>&prod;<SUB>j=1</SUB><SUP>d</SUP>
+    * (1 + <I>&#947;</I><SUB>j</SUB>&nbsp; <I>&#969;</I><SUB>&#945;</SUB>(<I>u</I><SUB>i,j</SUB>)),
+    * </DIV><P></P>
+    * 
+    * where <SPAN CLASS="MATH"><I>&#969;</I><SUB>&#945;</SUB></SPAN> is defined in {@link CBCLatticeBuilder}.
+    * This formula is valid only if <TT>P</TT> is a rank-1 lattice, without
+    * any randomization; for other point sets, use
+    * {@link #pAlpha(PointSet,int,double[],int) pAlpha}.
+    * 
+    * @param P the lattice
+    * 
+    * @param alpha the parameter <SPAN CLASS="MATH"><I>&#945;</I></SPAN> of the criterion, 2, 4 or 6
+    * 
+    * @param gamma the weights of the coordinates
+    * 
+    * @param numThreads the number of threads
+    * 
+    * @return the criterion for the first <SPAN CLASS="MATH"><I>d</I></SPAN> coordinates, at index <SPAN CLASS="MATH"><I>d</I> - 1</SPAN>
+    * 
+    * @exception IllegalArgumentException if <SPAN CLASS="MATH"><I>&#945;</I></SPAN> is not 2, 4 or 6,
+    * if <TT>gamma</TT> is longer than the dimension of <TT>P</TT>,
+    * or if <TT>numThreads</TT> <SPAN CLASS="MATH">&lt; 1</SPAN>
+    * 
+    */
+   public static double[] pAlphaLattice (PointSet P, final int alpha,
+                                         final double[] gamma,
+                                         int numThreads) {
+      checkAlpha (alpha);
+      final int n = numPoints (P);
+      final int s = checkDim (P, gamma.length);
+      if (numThreads < 1)
+         throw new IllegalArgumentException ("numThreads < 1");
+      final int numBlocks = (n + PointSetRange.BLOCK_SIZE - 1)
+                            / PointSetRange.BLOCK_SIZE;
+      if (numThreads > numBlocks)
+         numThreads = numBlocks;
+      final double[][] blockSum = new double[numBlocks][s];
+      Runnable[] tasks = new Runnable[numThreads];
+      for (int t = 0; t < numThreads; t++) {
+         final int b0 = (int) ((long) numBlocks * t / numThreads);
+         final int b1 = (int) ((long) numBlocks * (t + 1) / numThreads);
+         final PointSetIterator it = P.iterator();
+         if (b0 > 0)
+            it.setCurPointIndex (b0 * PointSetRange.BLOCK_SIZE);
+         tasks[t] = new Runnable() {
+            public void run() {
+               double[] u = new double[CHUNK*s];
+               for (int b = b0; b < b1; b++) {
+                  int i1 = Math.min (n, (b + 1) * PointSetRange.BLOCK_SIZE);
+                  double[] sum = blockSum[b];
+                  for (int i = b * PointSetRange.BLOCK_SIZE; i < i1;
+                       i += CHUNK) {
+                     int c = Math.min (CHUNK, i1 - i);
+                     PointSet.nextPoints (it, u, c, s);
+                     for (int k = 0; k < c; k++) {
+                        // x is the product minus 1, to avoid cancellation
+                        double x = 0.0;
+                        for (int j = 0; j < s; j++) {
+                           x += gamma[j] * CBCLatticeBuilder.omega
+                                   (alpha, u[k*s + j]) * (1.0 + x);
+                           sum[j] += x;
+                        }
+                     }
+                  }
+               }
+            }
+         };
+      }
+      Misc.runInParallel (tasks);
+      double[] res = total (blockSum, s);
+      for (int j = 0; j < s; j++)
+         res[j] /= n;
+      return res;
+   }
+
+
+   /**
+    * Returns the weighted <SPAN CLASS="MATH"><I>P</I><SUB>&#945;</SUB></SPAN> criterion of the projections of
+    * <TT>P</TT> over its first <SPAN CLASS="MATH"><I>d</I></SPAN> coordinates, for <SPAN CLASS="MATH"><I>d</I> = 1,...,<I>s</I></SPAN>,
+    * for any point set:
+    * 
+    * <P></P>
+    * <DIV ALIGN="CENTER" CLASS="mathdisplay">
+    * <I>P</I><SUB>&#945;</SUB> = - 1 + (1)/(<I>n</I><SUP>2</SUP>) &sum;<SUB>i=0</SUB><SUP>n-1</SUP>&sum;<SUB>k=0</SUB><SUP>n-1</SUP>
+    * &prod;<SUB>j=1</SUB><SUP>d</SUP> (1 + <I>&#947;</I><SUB>j</SUB>&nbsp;
+    * <I>&#969;</I><SUB>&#945;</SUB>({<I>u</I><SUB>i,j</SUB> - <I>u</I><SUB>k,j</SUB>})).
+    * </DIV><P></P>
+    * 
+    * For a rank-1 lattice, it gives the same value as
+    * {@link #pAlphaLattice(PointSet,int,double[],int) pAlphaLattice}, which is much faster.
+    * 
+    * @param P the point set
+    * 
+    * @param alpha the parameter <SPAN CLASS="MATH"><I>&#945;</I></SPAN> of the criterion, 2, 4 or 6
+    * 
+    * @param gamma the weights of the coordinates
+    * 
+    * @param numThreads the number of threads
+    * 
+    * @return the criterion for the first <SPAN CLASS="MATH"><I>d</I></SPAN> coordinates, at index <SPAN CLASS="MATH"><I>d</I> - 1</SPAN>
+    * 
+    * @exception IllegalArgumentException if <SPAN CLASS="MATH"><I>&#945;</I></SPAN> is not 2, 4 or 6,
+    * if <TT>gamma</TT> is longer than the dimension of <TT>P</TT>,
+    * or if <TT>numThreads</TT> <SPAN CLASS="MATH">&lt; 1</SPAN>
+    * 
+    */
+   public static double[] pAlpha (PointSet P, int alpha, double[] gamma,
+                                  int numThreads) {
+      checkAlpha (alpha);
+      int s = checkDim (P, gamma.length);
+      int n = numPoints (P);
+      double[] res = doubleSum (points (P, n, s, numThreads), n, s,
+                                PALPHA, alpha, gamma, numThreads);
+      for (int j = 0; j < s; j++)
+         res[j] /= (double) n * n;
+      return res;
+   }
+
+
+   /**
+    * Returns the <SPAN CLASS="MATH"><I>L</I><SUB>2</SUB></SPAN>-star discrepancy <SPAN CLASS="MATH"><I>D</I><SUB>2</SUB><SUP>*</SUP></SPAN> of the projections of
+    * <TT>P</TT> over its first <SPAN CLASS="MATH"><I>d</I></SPAN> coordinates, for <SPAN CLASS="MATH"><I>d</I> = 1,...,<I>s</I></SPAN>,
+    * computed by the formula of Warnock:
+    * 
+    * <P></P>
+    * <DIV ALIGN="CENTER" CLASS="mathdisplay">
+    * (<I>D</I><SUB>2</SUB><SUP>*</SUP>)<SUP>2</SUP> = 3<SUP>-d</SUP> - (2)/(<I>n</I>) &sum;<SUB>i=0</SUB><SUP>n-1</SUP>&prod;<SUB>j=1</SUB><SUP>d</SUP>
+    * (1 - <I>u</I><SUB>i,j</SUB><SUP>2</SUP>)/(2) + (1)/(<I>n</I><SUP>2</SUP>)&sum;<SUB>i=0</SUB><SUP>n-1</SUP>&sum;<SUB>k=0</SUB><SUP>n-1</SUP>
+    * &prod;<SUB>j=1</SUB><SUP>d</SUP> (1 - max(<I>u</I><SUB>i,j</SUB>, <I>u</I><SUB>k,j</SUB>)).
+    * </DIV><P></P>
+    * 
+    * @param P the point set
+    * 
+    * @param s the largest dimension of the projections
+    * 
+    * @param numThreads the number of threads
+    * 
+    * @return the discrepancy for the first <SPAN CLASS="MATH"><I>d</I></SPAN> coordinates, at index <SPAN CLASS="MATH"><I>d</I> - 1</SPAN>
+    * 
+    * @exception IllegalArgumentException if <SPAN CLASS="MATH"><I>s</I></SPAN> is not in
+    * <SPAN CLASS="MATH">{1,...,</SPAN> <TT>P.getDimension()</TT><SPAN CLASS="MATH">}</SPAN>, or if
+    * <TT>numThreads</TT> <SPAN CLASS="MATH">&lt; 1</SPAN>
+    * 
+    */
+   public static double[] l2StarDiscrepancy (PointSet P, int s,
+                                             int numThreads) {
+      s = checkDim (P, s);
+      int n = numPoints (P);
+      double[] u = points (P, n, s, numThreads);
+      double[] res = doubleSum (u, n, s, L2STAR, 0, null, numThreads);
+      double[] single = new double[s];
+      for (int i = 0; i < n; i++) {
+         double x = 1.0;
+         for (int j = 0; j < s; j++) {
+            double v = u[i*s + j];
+            x *= (1.0 - v*v) / 2.0;
+            single[j] += x;
+         }
+      }
+      double c = 1.0;
+      for (int j = 0; j < s; j++) {
+         c /= 3.0;
+         res[j] = c - 2.0 * single[j] / n + res[j] / ((double) n * n);
+         res[j] = Math.sqrt (Math.max (res[j], 0.0));
+      }
+      return res;
+   }
+
+
+   /**
+    * Returns the centered <SPAN CLASS="MATH"><I>L</I><SUB>2</SUB></SPAN> discrepancy of Hickernell of the
+    * projections of <TT>P</TT> over its first <SPAN CLASS="MATH"><I>d</I></SPAN> coordinates, for
+    * <SPAN CLASS="MATH"><I>d</I> = 1,...,<I>s</I></SPAN>:
+    * 
+    * <P></P>
+    * <DIV ALIGN="CENTER" CLASS="mathdisplay">
+    * <I>D</I><SUB>c</SUB><SUP>2</SUP> = ((13)/(12))<SUP>d</SUP> - (2)/(<I>n</I>) &sum;<SUB>i=0</SUB><SUP>n-1</SUP>
+    * &prod;<SUB>j=1</SUB><SUP>d</SUP> (1 + (<I>h</I><SUB>i,j</SUB> - <I>h</I><SUB>i,j</SUB><SUP>2</SUP>)/(2))
+    * + (1)/(<I>n</I><SUP>2</SUP>)&sum;<SUB>i=0</SUB><SUP>n-1</SUP>&sum;<SUB>k=0</SUB><SUP>n-1</SUP>
+    * &prod;<SUB>j=1</SUB><SUP>d</SUP> (1 + (<I>h</I><SUB>i,j</SUB> + <I>h</I><SUB>k,j</SUB>
+    * - |<I>u</I><SUB>i,j</SUB> - <I>u</I><SUB>k,j</SUB>|)/(2)),
+    * </DIV><P></P>
+    * 
+    * where <SPAN CLASS="MATH"><I>h</I><SUB>i,j</SUB> = |<I>u</I><SUB>i,j</SUB> - 1/2|</SPAN>.
+    * 
+    * @param P the point set
+    * 
+    * @param s the largest dimension of the projections
+    * 
+    * @param numThreads the number of threads
+    * 
+    * @return the discrepancy for the first <SPAN CLASS="MATH"><I>d</I></SPAN> coordinates, at index <SPAN CLASS="MATH"><I>d</I> - 1</SPAN>
+    * 
+    * @exception IllegalArgumentException if <SPAN CLASS="MATH"><I>s</I></SPAN> is not in
+    * <SPAN CLASS="MATH">{1,...,</SPAN> <TT>P.getDimension()</TT><SPAN CLASS="MATH">}</SPAN>, or if
+    * <TT>numThreads</TT> <SPAN CLASS="MATH">&lt; 1</SPAN>
+    * 
+    */
+   public static double[] centeredDiscrepancy (PointSet P, int s,
+                                               int numThreads) {
+      s = checkDim (P, s);
+      int n = numPoints (P);
+      double[] u = points (P, n, s, numThreads);
+      double[] res = doubleSum (u, n, s, CENTERED, 0, null, numThreads);
+      double[] single = new double[s];
+      for (int i = 0; i < n; i++) {
+         double x = 1.0;
+         for (int j = 0; j < s; j++) {
+            double v = Math.abs (u[i*s + j] - 0.5);
+            x *= 1.0 + 0.5*v - 0.5*v*v;
+            single[j] += x;
+         }
+      }
+      double c = 1.0;
+      for (int j = 0; j < s; j++) {
+         c *= 13.0 / 12.0;
+         res[j] = c - 2.0 * single[j] / n + res[j] / ((double) n * n);
+         res[j] = Math.sqrt (Math.max (res[j], 0.0));
+      }
+      return res;
+   }
+
+
+   /**
+    * Returns the <SPAN CLASS="MATH"><I>t</I></SPAN>-values of the projections of the digital net
+    * <TT>net</TT> over its first <SPAN CLASS="MATH"><I>d</I></SPAN> coordinates, for <SPAN CLASS="MATH"><I>d</I> = 1,...,<I>s</I></SPAN>.
+    * The projection over the first <SPAN CLASS="MATH"><I>d</I></SPAN> coordinates of a net with <SPAN CLASS="MATH">2<SUP>k</SUP></SPAN>
+    * points is a <SPAN CLASS="MATH">(<I>t</I>, <I>k</I>, <I>d</I>)</SPAN>-net if, for all nonnegative integers
+    * <SPAN CLASS="MATH"><I>q</I><SUB>1</SUB>,...,<I>q</I><SUB>d</SUB></SPAN> such that <SPAN CLASS="MATH"><I>q</I><SUB>1</SUB> + ... + <I>q</I><SUB>d</SUB> = <I>k</I> - <I>t</I></SPAN>, the first <SPAN CLASS="MATH"><I>q</I><SUB>j</SUB></SPAN>
+    * rows of the generator matrices <SPAN CLASS="MATH"><B><I>C</I></B><SUB>j</SUB></SPAN>, for <SPAN CLASS="MATH"><I>j</I> = 1,...,<I>d</I></SPAN>,
+    * are linearly independent; the <SPAN CLASS="MATH"><I>t</I></SPAN>-value is the smallest such <SPAN CLASS="MATH"><I>t</I></SPAN>.
+    * It is computed from the generator matrices of <TT>net</TT>, including
+    * the current matrix scrambles, by starting from the <SPAN CLASS="MATH"><I>t</I></SPAN>-value for <SPAN CLASS="MATH"><I>d</I> - 1</SPAN>
+    * coordinates, so that only the choices with <SPAN CLASS="MATH"><I>q</I><SUB>d</SUB> &nbsp;&gt;=&nbsp; 1</SPAN> are examined.
+    * The number of such choices grows quickly with <SPAN CLASS="MATH"><I>d</I></SPAN> and <SPAN CLASS="MATH"><I>k</I> - <I>t</I></SPAN>.
+    * 
+    * @param net the digital net
+    * 
+    * @param s the largest dimension of the projections
+    * 
+    * @param numThreads the number of threads
+    * 
+    * @return the <SPAN CLASS="MATH"><I>t</I></SPAN>-value for the first <SPAN CLASS="MATH"><I>d</I></SPAN> coordinates, at index <SPAN CLASS="MATH"><I>d</I> - 1</SPAN>
+    * 
+    * @exception IllegalArgumentException if <SPAN CLASS="MATH"><I>s</I></SPAN> is not in
+    * <SPAN CLASS="MATH">{1,...,</SPAN> <TT>net.getDimension()</TT><SPAN CLASS="MATH">}</SPAN>, or if
+    * <TT>numThreads</TT> <SPAN CLASS="MATH">&lt; 1</SPAN>
+    * 
+    */
+   public static int[] tValues (DigitalNetBase2 net, int s, int numThreads) {
+      s = checkDim (net, s);
+      if (numThreads < 1)
+         throw new IllegalArgumentException ("numThreads < 1");
+      int k = net.numCols;
+      int r = Math.min (k, net.numRows);
+      // rows[j][l] = row l of C_j, with bit c for column c
+      int[][] rows = new int[s][k];
+      for (int j = 0; j < s; j++)
+         for (int l = 0; l < r; l++)
+            for (int c = 0; c < k; c++)
+               rows[j][l] |= ((net.genMat[j*k + c] >> (net.outDigits - 1 - l))
+                              & 1) << c;
+      int[] t = new int[s];
+      int tt = 0;
+      for (int d = 1; d <= s; d++) {
+         // The first d - 1 coordinates have strength k - tt, so only the
+         // choices of rows that include rows of coordinate d are checked
+         while (tt < k && !hasStrength (rows, d, k - tt, numThreads))
+            tt++;
+         t[d - 1] = tt;
+      }
+      return t;
+   }
+
+   // Returns true if, for all q_1 + ... + q_d = m with q_d >= 1, the first
+   // q_j rows of C_j, j = 1,...,d, are linearly independent.
+   private static boolean hasStrength (final int[][] rows, final int d,
+                                       final int m, int numThreads) {
+      if (m > rows[d - 1].length)
+         return false;
+      // The values of q_d are divided among the threads
+      if (numThreads > m)
+         numThreads = m;
+      final boolean[] fail = new boolean[1];
+      Runnable[] tasks = new Runnable[numThreads];
+      for (int t = 0; t < numThreads; t++) {
+         final int t0 = t;
+         final int step = numThreads;
+         tasks[t] = new Runnable() {
+            public void run() {
+               int[][] basis = new int[d][32];
+               for (int q = 1 + t0; q <= m; q += step) {
+                  java.util.Arrays.fill (basis[0], 0);
+                  boolean ok = true;
+                  for (int l = 0; ok && l < q; l++)
+                     ok = insert (basis[0], rows[d - 1][l]);
+                  if (ok)
+                     ok = independent (rows, basis, 0, d - 1, m - q, fail);
+                  if (!ok) {
+                     synchronized (fail) {
+                        fail[0] = true;
+                     }
+                     return;
+                  }
+               }
+            }
+         };
+      }
+      Misc.runInParallel (tasks);
+      return !fail[0];
+   }
+
+   // Returns true if the rows in basis[level], together with the first
+   // q_j rows of C_j for j < numDims, with q_0 + ... = rem, are linearly
+   // independent for all the choices of the q_j.
+   private static boolean independent (int[][] rows, int[][] basis,
+                                       int level, int numDims, int rem,
+                                       boolean[] fail) {
+      if (rem == 0 || numDims == 0)
+         return true;   // numDims == 0: the q_j do not add up to m
+      synchronized (fail) {
+         if (fail[0])
+            return false;   // another thread found a dependence
+      }
+      int j = numDims - 1;
+      int[] b = basis[level + 1];
+      System.arraycopy (basis[level], 0, b, 0, 32);
+      // Coordinate j takes q rows, q = 0,...,rem
+      for (int q = 0; q <= rem; q++) {
+         if (q > 0 && (q > rows[j].length || !insert (b, rows[j][q - 1])))
+            return false;
+         if (!independent (rows, basis, level + 1, j, rem - q, fail))
+            return false;
+      }
+      return true;
+   }
+
+   // Adds v to the basis indexed by the leading bit; returns false if v is
+   // a linear combination of the vectors of the basis.
+   private static boolean insert (int[] basis, int v) {
+      while (v != 0) {
+         int h = 31 - Integer.numberOfLeadingZeros (v);
+         if (basis[h] == 0) {
+            basis[h] = v;
+            return true;
+         }
+         v ^= basis[h];
+      }
+      return false;
+   }
+
+   // Sums over all the pairs of points i, k of the products of the kernel
+   // over the first d coordinates, for d = 1,...,s.  The pairs are summed
+   // by blocks of ROWS values of i, assigned cyclically to the threads.
+   private static double[] doubleSum (final double[] u, final int n,
+                                      final int s, final int kernel,
+                                      final int alpha, final double[] gamma,
+                                      int numThreads) {
+      final int numBlocks = (n + ROWS - 1) / ROWS;
+      if (numThreads > numBlocks)
+         numThreads = numBlocks;
+      final double[][] blockSum = new double[numBlocks][s];
+      Runnable[] tasks = new Runnable[numThreads];
+      for (int t = 0; t < numThreads; t++) {
+         final int t0 = t;
+         final int step = numThreads;
+         tasks[t] = new Runnable() {
+            public void run() {
+               for (int b = t0; b < numBlocks; b += step) {
+                  double[] sum = blockSum[b];
+                  int i1 = Math.min (n, (b + 1) * ROWS);
+                  for (int i = b * ROWS; i < i1; i++)
+                     for (int k = i; k < n; k++) {
+                        // The pair (k, i) has the same value as (i, k)
+                        double w = k == i ? 1.0 : 2.0;
+                        double x = kernel == PALPHA ? 0.0 : 1.0;
+                        for (int j = 0; j < s; j++) {
+                           double a = u[i*s + j];
+                           double c = u[k*s + j];
+                           switch (kernel) {
+                           case PALPHA:
+                              // x is the product minus 1
+                              double v = a - c;
+                              if (v < 0.0)
+                                 v += 1.0;
+                              x += gamma[j] * CBCLatticeBuilder.omega
+                                      (alpha, v) * (1.0 + x);
+                              break;
+                           case L2STAR:
+                              x *= 1.0 - Math.max (a, c);
+                              break;
+                           default:
+                              x *= 1.0 + 0.5*Math.abs (a - 0.5)
+                                   + 0.5*Math.abs (c - 0.5)
+                                   - 0.5*Math.abs (a - c);
+                           }
+                           sum[j] += w * x;
+                        }
+                     }
+               }
+            }
+         };
+      }
+      Misc.runInParallel (tasks);
+      return total (blockSum, s);
+   }
+
+   // Returns the first s coordinates of the n points, point by point.
+   private static double[] points (PointSet P, final int n, final int s,
+                                   int numThreads) {
+      if (numThreads < 1)
+         throw new IllegalArgumentException ("numThreads < 1");
+      final double[] u = new double[n*s];
+      if (numThreads > n)
+         numThreads = n;
+      Runnable[] tasks = new Runnable[numThreads];
+      for (int t = 0; t < numThreads; t++) {
+         final int i0 = (int) ((long) n * t / numThreads);
+         final int i1 = (int) ((long) n * (t + 1) / numThreads);
+         final PointSetIterator it = P.iterator();
+         if (i0 > 0)
+            it.setCurPointIndex (i0);
+         tasks[t] = new Runnable() {
+            public void run() {
+               double[] p = new double[CHUNK*s];
+               for (int i = i0; i < i1; i += CHUNK) {
+                  int c = Math.min (CHUNK, i1 - i);
+                  PointSet.nextPoints (it, p, c, s);
+                  System.arraycopy (p, 0, u, i*s, c*s);
+               }
+            }
+         };
+      }
+      Misc.runInParallel (tasks);
+      return u;
+   }
+
+   private static double[] total (double[][] blockSum, int s) {
+      double[] res = new double[s];
+      for (int b = 0; b < blockSum.length; b++)
+         for (int j = 0; j < s; j++)
+            res[j] += blockSum[b][j];
+      return res;
+   }
+
+   private static void checkAlpha (int alpha) {
+      if (alpha != 2 && alpha != 4 && alpha != 6)
+         throw new IllegalArgumentException ("alpha must be 2, 4 or 6");
+   }
+
+   private static int checkDim (PointSet P, int s) {
+      if (s < 1 || s > P.getDimension())
+         throw new IllegalArgumentException (
+            "s must be between 1 and the dimension of the point set");
+      return s;
+   }
+
+   private static int numPoints (PointSet P) {
+      int n = P.getNumPoints();
+      if (n == Integer.MAX_VALUE)
+         throw new UnsupportedOperationException (
+            "Number of points is infinite");
+      return n;
+   }
+}
@@ -0,0 +1,310 @@
+/*
+ * Class:        PointSetRange
+ * Description:  Range of points of a point set, for parallel traversal
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Université de Montréal
+ * Organization: DIRO, Université de Montréal
+ * @author
+ * @since
+
+ * SSJ is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License (GPL) as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * any later version.
+
+ * SSJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * A copy of the GNU General Public License is available at
+   <a href="http://www.gnu.org/licenses">GPL licence site</a>.
+ */
+
+package umontreal.iro.lecuyer.hups;
+
+import umontreal.iro.lecuyer.util.Misc;
+import umontreal.iro.lecuyer.util.MultivariateFunction;
+
+
+/**
+ * A {@link PointSetRange} represents the contiguous range of points
+ * <SPAN CLASS="MATH"><B><I>u</I></B><SUB>i</SUB></SPAN>, for <SPAN CLASS="MATH"><I>i</I></SPAN> from <TT>from</TT> to <TT>to - 1</TT>, of a
+ * {@link PointSet}, and permits one to traverse these points in several
+ * threads.  A range can be split in two by {@link #trySplit trySplit}, each part
+ * can be enumerated by its own iterator, obtained from
+ * {@link #iterator iterator}, and the sum of a function over all the points of the
+ * range can be computed in parallel by
+ * {@link #sumParallel(MultivariateFunction,int) sumParallel}.
+ * 
+ * <P>
+ * The iterator of a range is an ordinary iterator of the point set,
+ * positioned once at point <TT>from</TT> by
+ * {@link PointSetIterator#setCurPointIndex(int) setCurPointIndex}, and then
+ * advanced with
+ * {@link PointSetIterator#resetToNextPoint resetToNextPoint}.
+ * For digital nets in base 2, this costs <SPAN CLASS="MATH"><I>O</I>(<I>dk</I>)</SPAN> operations for a
+ * point set of dimension <SPAN CLASS="MATH"><I>d</I></SPAN> with <SPAN CLASS="MATH">2<SUP>k</SUP></SPAN> points, instead of restarting
+ * from point 0, and the Gray code enumeration is continued from that point.
+ * Thus, the points of the range are exactly those that a single iterator
+ * of the point set would enumerate, in the same order.
+ * 
+ * <P>
+ * To make the results reproducible, the points are grouped in blocks of
+ * <TT>BLOCK_SIZE</TT> successive points, aligned on multiples of
+ * <TT>BLOCK_SIZE</TT>.  A sum over the range is computed by summing the
+ * function over each block in natural order, and then the block sums in
+ * natural order.  Different threads compute the sums of different blocks, so
+ * the result does not depend on the number of threads: it is the same, to
+ * the last bit, as the one returned by the sequential method
+ * {@link #sum(MultivariateFunction) sum}.
+ * The function is evaluated concurrently by several threads, so
+ * it must be safe to call its <TT>evaluate</TT> method from several threads;
+ * this is the case if it does not modify any state.
+ * 
+ */
+public class PointSetRange {
+   private static final int CHUNK = 128;   // divides BLOCK_SIZE
+   private PointSet P;
+   private int from;
+   private int to;
+
+
+   /**
+    * Number of points in a block.  Ranges are split only at multiples of
+    * this value.
+    * 
+    */
+   public static final int BLOCK_SIZE = 1 << 12;
+
+
+   /**
+    * Constructs the range of the points numbered from <TT>from</TT> to
+    * <TT>to - 1</TT> of the point set <TT>P</TT>.
+    * 
+    * @param P the point set
+    * 
+    * @param from index of the first point of the range
+    * 
+    * @param to index following the last point of the range
+    * 
+    * @exception IllegalArgumentException if the range is not included in
+    * the point set
+    * 
+    */
+   public PointSetRange (PointSet P, int from, int to) {
+      if (from < 0 || from > to || to > P.getNumPoints())
+         throw new IllegalArgumentException ("Invalid range for points");
+      this.P = P;
+      this.from = from;
+      this.to = to;
+   }
+
+
+   /**
+    * Constructs the range of all the points of <TT>P</TT>.
+    * 
+    * @param P the point set
+    * 
+    * @exception UnsupportedOperationException if the number of points
+    * of the point set is infinite
+    * 
+    */
+   public PointSetRange (PointSet P) {
+      this (P, 0, P.getNumPoints());
+      if (to == Integer.MAX_VALUE)
+         throw new UnsupportedOperationException (
+            "Number of points is infinite");
+   }
+
+
+   /**
+    * Returns the point set of this range.
+    * 
+    */
+   public PointSet getPointSet() {
+      return P;
+   }
+
+
+   /**
+    * Returns the index of the first point of this range.
+    * 
+    */
+   public int getFrom() {
+      return from;
+   }
+
+
+   /**
+    * Returns the index following the last point of this range.
+    * 
+    */
+   public int getTo() {
+      return to;
+   }
+
+
+   /**
+    * Returns the number of points in this range.
+    * 
+    */
+   public int size() {
+      return to - from;
+   }
+
+
+   /**
+    * Splits this range in two parts, near its middle, at a multiple of
+    * <TT>BLOCK_SIZE</TT>.  This range is reduced to the second part,
+    * and a new range containing the first part is returned.
+    * If the range cannot be split, this method returns <TT>null</TT>
+    * and the range is unchanged.
+    * 
+    * @return the first part of this range, or <TT>null</TT>
+    * 
+    */
+   public PointSetRange trySplit() {
+      // Middle of the range, rounded to a multiple of BLOCK_SIZE
+      int mid = (int)(((long) from + to) / 2 / BLOCK_SIZE * BLOCK_SIZE);
+      if (mid <= from)
+         mid += BLOCK_SIZE;
+      if (mid >= to)
+         return null;
+      PointSetRange prefix = new PointSetRange (P, from, mid);
+      from = mid;
+      return prefix;
+   }
+
+
+   /**
+    * Returns a new iterator of the point set, whose current point is
+    * the first point of this range.  The caller must stop after the
+    * {@link #size size}<TT>()</TT> points of the range, since the iterator
+    * itself can continue beyond the range.
+    * Creating an iterator may randomize the point set if its random shift
+    * does not yet cover all the dimensions; the iterators that are to be
+    * used in different threads should thus be created in a single thread.
+    * 
+    * @return an iterator positioned at the first point of the range
+    * 
+    */
+   public PointSetIterator iterator() {
+      PointSetIterator it = P.iterator();
+      if (from > 0)
+         it.setCurPointIndex (from);
+      return it;
+   }
+
+
+   /**
+    * Returns the sum of <SPAN CLASS="MATH"><I>f</I>(<B><I>u</I></B><SUB>i</SUB>)</SPAN> over all the points
+    * <SPAN CLASS="MATH"><B><I>u</I></B><SUB>i</SUB></SPAN> of this range, where each point has <SPAN CLASS="MATH"><I>d</I></SPAN> coordinates,
+    * <SPAN CLASS="MATH"><I>d</I></SPAN> being the dimension of <TT>f</TT>.  If <TT>f</TT> has no fixed
+    * dimension, the dimension of the point set is used.
+    * The average of <SPAN CLASS="MATH"><I>f</I></SPAN> over the range is obtained by dividing this sum by
+    * {@link #size size}<TT>()</TT>.
+    * 
+    * @param f the function to sum
+    * 
+    * @return the sum of <TT>f</TT> over the points of the range
+    * 
+    */
+   public double sum (MultivariateFunction f) {
+      int d = dimension (f);
+      double[] blockSum = new double[numBlocks()];
+      sumBlocks (f, d, iterator(), blockSum, 0, blockSum.length);
+      return total (blockSum);
+   }
+
+
+   /**
+    * Same as {@link #sum(MultivariateFunction) sum}, but the blocks of the range
+    * are divided in <TT>numThreads</TT> contiguous groups, which are summed
+    * in different threads, each with its own iterator.  The returned value
+    * is the same as the one returned by {@link #sum(MultivariateFunction) sum}.
+    * 
+    * @param f the function to sum
+    * 
+    * @param numThreads the number of threads
+    * 
+    * @return the sum of <TT>f</TT> over the points of the range
+    * 
+    */
+   public double sumParallel (final MultivariateFunction f, int numThreads) {
+      if (numThreads < 1)
+         throw new IllegalArgumentException ("numThreads < 1");
+      final int d = dimension (f);
+      final double[] blockSum = new double[numBlocks()];
+      if (numThreads > blockSum.length)
+         numThreads = Math.max (1, blockSum.length);
+      Runnable[] tasks = new Runnable[numThreads];
+      for (int t = 0; t < numThreads; t++) {
+         final int b0 = (int)((long) blockSum.length * t / numThreads);
+         final int b1 = (int)((long) blockSum.length * (t + 1) / numThreads);
+         final PointSetIterator it = P.iterator();
+         int i = blockStart (b0);
+         if (i > 0)
+            it.setCurPointIndex (i);
+         tasks[t] = new Runnable() {
+            public void run() {
+               sumBlocks (f, d, it, blockSum, b0, b1);
+            }
+         };
+      }
+      Misc.runInParallel (tasks);
+      return total (blockSum);
+   }
+
+   private int dimension (MultivariateFunction f) {
+      int d = f.getDimension();
+      if (d < 0)
+         d = P.getDimension();
+      if (d == Integer.MAX_VALUE)
+         throw new UnsupportedOperationException ("Dimension is infinite");
+      return d;
+   }
+
+   private int numBlocks() {
+      if (from == to)
+         return 0;
+      return (to - 1) / BLOCK_SIZE - from / BLOCK_SIZE + 1;
+   }
+
+   // Index of the first point of block b of this range.
+   private int blockStart (int b) {
+      if (b == 0)
+         return from;
+      return (from / BLOCK_SIZE + b) * BLOCK_SIZE;
+   }
+
+   // Sums f over the blocks b0 to b1 - 1; it is at the first point of b0.
+   private void sumBlocks (MultivariateFunction f, int d, PointSetIterator it,
+                           double[] blockSum, int b0, int b1) {
+      // The points are generated CHUNK at a time by nextPoints
+      double[] buf = new double[CHUNK*d];
+      double[] u = new double[d];
+      for (int b = b0; b < b1; b++) {
+         int n = Math.min (to, blockStart (b + 1)) - blockStart (b);
+         double s = 0.0;
+         for (int i = 0; i < n; i += CHUNK) {
+            int m = Math.min (CHUNK, n - i);
+            PointSet.nextPoints (it, buf, m, d);
+            for (int k = 0; k < m; k++) {
+               System.arraycopy (buf, k*d, u, 0, d);
+               s += f.evaluate (u);
+            }
+         }
+         blockSum[b] = s;
+      }
+   }
+
+   private static double total (double[] blockSum) {
+      double s = 0.0;
+      for (int b = 0; b < blockSum.length; b++)
+         s += blockSum[b];
+      return s;
+   }
+
+}
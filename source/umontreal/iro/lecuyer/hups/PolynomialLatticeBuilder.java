@@ -0,0 +1,396 @@
+/*
+ * Class:        PolynomialLatticeBuilder
+ * Description:  Fast component-by-component construction of polynomial
+                 lattice rules
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Université de Montréal
+ * Organization: DIRO, Université de Montréal
+ * @author
+ * @since
+
+ * SSJ is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License (GPL) as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * any later version.
+
+ * SSJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * A copy of the GNU General Public License is available at
+   <a href="http://www.gnu.org/licenses">GPL licence site</a>.
+ */
+
+package umontreal.iro.lecuyer.hups;
+
+import umontreal.iro.lecuyer.util.Misc;
+import java.util.ArrayList;
+
+
+/**
+ * This class constructs the generating vector of a
+ * {@link PolynomialLatticeRule} with <SPAN CLASS="MATH"><I>n</I> = 2<SUP>k</SUP></SPAN> points by the fast
+ * component-by-component (CBC) method, for a weighted criterion with product
+ * weights <SPAN CLASS="MATH"><I>&#947;</I><SUB>1</SUB>,...,<I>&#947;</I><SUB>s</SUB></SPAN>, possibly for an interlaced net
+ * (see {@link InterlacedDigitalNetBase2}) of order <SPAN CLASS="MATH"><I>d</I> &nbsp;&gt;=&nbsp; 1</SPAN>.
+ * The modulus <SPAN CLASS="MATH"><I>p</I>(<I>z</I>)</SPAN> is the first primitive polynomial of degree <SPAN CLASS="MATH"><I>k</I></SPAN> in the
+ * numerical order of its representation, so the polynomial <SPAN CLASS="MATH"><I>z</I></SPAN> generates the
+ * multiplicative group of the nonzero polynomials modulo <SPAN CLASS="MATH"><I>p</I>(<I>z</I>)</SPAN>.
+ * <P>
+ * Let <SPAN CLASS="MATH"><I>&#966;</I><SUB>&#945;</SUB>(<I>x</I>) = &sum;<SUB>h=1</SUB><SUP>&#8734;</SUP> 2<SUP>-&#945;&#8970;log<SUB>2</SUB>h&#8971;</SUP>
+ * wal<SUB>h</SUB>(<I>x</I>)</SPAN>, where <SPAN CLASS="MATH">wal<SUB>h</SUB></SPAN> is the <SPAN CLASS="MATH"><I>h</I></SPAN>th Walsh function in
+ * base 2 and <SPAN CLASS="MATH"><I>&#945;</I> &gt; 1</SPAN>.  With <SPAN CLASS="MATH"><I>&#946;</I> = 2<SUP>1-&#945;</SUP></SPAN>, this is
+ * <SPAN CLASS="MATH"><I>&#966;</I><SUB>&#945;</SUB>(0) = 1/(1 - <I>&#946;</I>)</SPAN> and
+ * <SPAN CLASS="MATH"><I>&#966;</I><SUB>&#945;</SUB>(<I>x</I>) = (1 - <I>&#946;</I><SUP>t</SUP>)/(1 - <I>&#946;</I>) - <I>&#946;</I><SUP>t</SUP></SPAN> for
+ * <SPAN CLASS="MATH">2<SUP>-t-1</SUP> &nbsp;&lt;=&nbsp; <I>x</I> &lt; 2<SUP>-t</SUP></SPAN>.
+ * For a rule of dimension <SPAN CLASS="MATH"><I>ds</I></SPAN>, with points <SPAN CLASS="MATH"><B><I>u</I></B><SUB>0</SUB>,...,<B><I>u</I></B><SUB>n-1</SUB></SPAN>,
+ * the criterion is
+ * 
+ * <P></P>
+ * <DIV ALIGN="CENTER" CLASS="mathdisplay">
+ * <I>B</I><SUB>&#945;,d</SUB> = - 1 + (1)/(<I>n</I>) &sum;<SUB>i=0</SUB><SUP>n-1</SUP> &prod;<SUB>j=1</SUB><SUP>s</SUP>
+ * (1 + <I>&#947;</I><SUB>j</SUB> [&prod;<SUB>l=1</SUB><SUP>d</SUP>
+ * (1 + <I>&#966;</I><SUB>&#945;</SUB>(<I>u</I><SUB>i,(j-1)d+l</SUB>)) - 1]).
+ * </DIV><P></P>
+ * For <SPAN CLASS="MATH"><I>d</I> = 1</SPAN>, it is the sum, over the nonzero vectors <SPAN CLASS="MATH"><B><I>h</I></B></SPAN> of the
+ * dual net, of <SPAN CLASS="MATH">&prod;<SUB>j:h<SUB>j</SUB>!=0</SUB> <I>&#947;</I><SUB>j</SUB> 2<SUP>-&#945;&#8970;log<SUB>2</SUB>h<SUB>j</SUB>&#8971;</SUP></SPAN>,
+ * the analogue for digital nets of the criterion <SPAN CLASS="MATH"><I>P</I><SUB>&#945;</SUB></SPAN> of
+ * {@link CBCLatticeBuilder}, and it measures the quality of the rule for
+ * integrands of smoothness <SPAN CLASS="MATH"><I>&#945;</I>/2</SPAN> in a weighted Walsh space.
+ * For <SPAN CLASS="MATH"><I>d</I>&gt;1</SPAN>, the inner product runs over the <SPAN CLASS="MATH"><I>d</I></SPAN> coordinates of the rule
+ * that are interlaced into coordinate <SPAN CLASS="MATH"><I>j</I></SPAN> of the interlaced net, with the
+ * weight <SPAN CLASS="MATH"><I>&#947;</I><SUB>j</SUB></SPAN> of this coordinate, as in the construction of higher
+ * order polynomial lattice rules by Goda and Dick; one typically takes
+ * <SPAN CLASS="MATH"><I>&#945;</I> = <I>d</I></SPAN> for an interlaced net of order <SPAN CLASS="MATH"><I>d</I></SPAN>.
+ * <P>
+ * The component <SPAN CLASS="MATH"><I>q</I><SUB>1</SUB>(<I>z</I>)</SPAN> is 1, and each <SPAN CLASS="MATH"><I>q</I><SUB>c</SUB>(<I>z</I>)</SPAN>, for <SPAN CLASS="MATH"><I>c</I> = 2,...,<I>ds</I></SPAN>, is
+ * the nonzero polynomial of degree smaller than <SPAN CLASS="MATH"><I>k</I></SPAN> that minimizes the
+ * criterion for the first <SPAN CLASS="MATH"><I>c</I></SPAN> coordinates of the rule, the previous
+ * components being fixed.  As in {@link CBCLatticeBuilder}, the values of the
+ * criterion for the <SPAN CLASS="MATH">2<SUP>k</SUP> - 1</SPAN> candidates are computed together as a circular
+ * convolution, since <SPAN CLASS="MATH"><I>&#966;</I><SUB>&#945;</SUB>(<I>&#957;</I>(<I>i</I>(<I>z</I>) <I>q</I>(<I>z</I>)/<I>p</I>(<I>z</I>)))</SPAN> depends only on
+ * the product <SPAN CLASS="MATH"><I>i</I>(<I>z</I>) <I>q</I>(<I>z</I>)</SPAN> modulo <SPAN CLASS="MATH"><I>p</I>(<I>z</I>)</SPAN>, and the candidates and the points
+ * are ordered by the powers of <SPAN CLASS="MATH"><I>z</I></SPAN>.  The construction thus takes
+ * <SPAN CLASS="MATH"><I>O</I>(<I>dsM</I>log <I>M</I>)</SPAN> operations, where <SPAN CLASS="MATH"><I>M</I> &nbsp;&lt;=&nbsp; 2<SUP>k+2</SUP></SPAN> is the smallest power of
+ * 2 larger than <SPAN CLASS="MATH">2<SUP>k+1</SUP> - 4</SPAN>, and about <SPAN CLASS="MATH">6<I>M</I></SPAN> <TT>double</TT>s of memory.
+ * The FFT and the other operations on vectors of length <SPAN CLASS="MATH"><I>n</I></SPAN> can be divided
+ * among several threads; the constructed vector does not depend on the
+ * number of threads.
+ * <P>
+ * For example, an interlaced net of order 2 with <SPAN CLASS="MATH">2<SUP>16</SUP></SPAN> points in
+ * dimension 10 can be constructed as follows:
+ * <PRE>
+ *    PolynomialLatticeBuilder builder = new PolynomialLatticeBuilder (16, 2.0, 2);
+ *    double[] gamma = new double[10];
+ *    java.util.Arrays.fill (gamma, 0.5);
+ *    int[] q = builder.search (gamma, 4);
+ *    DigitalNetBase2 net = new InterlacedDigitalNetBase2
+ *       (new PolynomialLatticeRule (builder.getModulus(), q, q.length), 2);
+ * </PRE>
+ * 
+ */
+public class PolynomialLatticeBuilder {
+   private static final int MAXK = 29;   // 2^(MAXK+1) = largest FFT length
+
+   private int k;             // Degree of the modulus
+   private int p;             // Primitive modulus p(z)
+   private int N;             // 2^k - 1, number of candidates
+   private double alpha;
+   private int d;             // Order of interlacing
+   private double[] phi;      // phi[t] = phi_alpha(x) for 2^(-t-1) <= x < 2^(-t)
+   private double phi0;       // phi_alpha(0)
+   private double[] h;        // h[t] = phi_alpha(nu(z^t / p(z)))
+   private double[] cosT;     // cos (2 pi t/M), for t < M/2
+   private double[] sinT;     // sin (2 pi t/M), for t < M/2
+   private double[] hre;      // FFT of h
+   private double[] him;
+   private int[] q;           // Last constructed vector
+   private double[] crit;     // Criterion of its first j + 1 coordinates
+
+
+   /**
+    * Constructs a builder of polynomial lattice rules with <SPAN CLASS="MATH">2<SUP>k</SUP></SPAN> points for
+    * the criterion <SPAN CLASS="MATH"><I>B</I><SUB>&#945;,d</SUB></SPAN>.  Since the FFT has length <SPAN CLASS="MATH">2<SUP>k+1</SUP></SPAN>, which
+    * must be a valid array size, <SPAN CLASS="MATH"><I>k</I></SPAN> is at most 29.  The search uses about
+    * <SPAN CLASS="MATH">104&#183; 2<SUP>k</SUP></SPAN> bytes of memory, for example 109&nbsp;MB for <SPAN CLASS="MATH"><I>k</I> = 20</SPAN>.
+    * 
+    * @param k the degree of the modulus, with <SPAN CLASS="MATH">2<SUP>k</SUP></SPAN> points
+    * 
+    * @param alpha the parameter <SPAN CLASS="MATH"><I>&#945;</I></SPAN> of the criterion
+    * 
+    * @param d the order of interlacing
+    * 
+    * @exception IllegalArgumentException if <SPAN CLASS="MATH"><I>k</I></SPAN> is not in
+    * <SPAN CLASS="MATH">{1,...,29}</SPAN>, if <SPAN CLASS="MATH"><I>&#945;</I> &nbsp;&lt;=&nbsp; 1</SPAN>, or if <SPAN CLASS="MATH"><I>d</I> &lt; 1</SPAN>
+    * 
+    */
+   public PolynomialLatticeBuilder (int k, double alpha, int d) {
+      if (k < 1 || k > MAXK)
+         throw new IllegalArgumentException ("k must be in [1, " + MAXK + "]");
+      if (!(alpha > 1.0))
+         throw new IllegalArgumentException ("alpha must be > 1");
+      if (d < 1)
+         throw new IllegalArgumentException ("d < 1");
+      this.k = k;
+      this.alpha = alpha;
+      this.d = d;
+      N = (1 << k) - 1;
+      p = primitivePolynomial (k);
+      double beta = Math.pow (2.0, 1.0 - alpha);
+      phi0 = 1.0 / (1.0 - beta);
+      phi = new double[k];
+      double bt = 1.0;   // beta^t
+      for (int t = 0; t < k; t++) {
+         phi[t] = (1.0 - bt) / (1.0 - beta) - bt;
+         bt *= beta;
+      }
+   }
+
+
+   /**
+    * Same as {@link #PolynomialLatticeBuilder(int,double,int) PolynomialLatticeBuilder}<TT>(k, alpha, 1)</TT>,
+    * for rules that are not interlaced.
+    * 
+    * @param k the degree of the modulus, with <SPAN CLASS="MATH">2<SUP>k</SUP></SPAN> points
+    * 
+    * @param alpha the parameter <SPAN CLASS="MATH"><I>&#945;</I></SPAN> of the criterion
+    * 
+    */
+   public PolynomialLatticeBuilder (int k, double alpha) {
+      this (k, alpha, 1);
+   }
+
+
+   /**
+    * Returns the modulus <SPAN CLASS="MATH"><I>p</I>(<I>z</I>)</SPAN>, represented as in
+    * {@link PolynomialLatticeRule}.
+    * 
+    * @return the modulus
+    * 
+    */
+   public int getModulus() {
+      return p;
+   }
+
+
+   /**
+    * Constructs by the fast CBC method a generating vector of dimension
+    * <SPAN CLASS="MATH"><I>ds</I></SPAN>, where <SPAN CLASS="MATH"><I>s</I></SPAN> is the length of <TT>gamma</TT>, for the weights
+    * <SPAN CLASS="MATH"><I>&#947;</I><SUB>j</SUB> =</SPAN> <TT>gamma[j-1]</TT>, and returns it.
+    * The operations on vectors of length <SPAN CLASS="MATH"><I>n</I></SPAN> are divided among
+    * <TT>numThreads</TT> threads.
+    * 
+    * @param gamma the weights of the coordinates
+    * 
+    * @param numThreads the number of threads
+    * 
+    * @return the generating vector <SPAN CLASS="MATH">(<I>q</I><SUB>1</SUB>(<I>z</I>),...,<I>q</I><SUB>ds</SUB>(<I>z</I>))</SPAN>
+    * 
+    * @exception IllegalArgumentException if <TT>gamma</TT> is empty or
+    * contains a negative weight, or if <TT>numThreads</TT> <SPAN CLASS="MATH">&lt; 1</SPAN>
+    * 
+    */
+   public int[] search (double[] gamma, int numThreads) {
+      int s = gamma.length;
+      if (s < 1)
+         throw new IllegalArgumentException ("s < 1");
+      for (int j = 0; j < s; j++)
+         if (!(gamma[j] >= 0.0))
+            throw new IllegalArgumentException ("negative weight");
+      if (numThreads < 1)
+         throw new IllegalArgumentException ("numThreads < 1");
+      if (hre == null)
+         initTransform (numThreads);
+      final int M = hre.length;
+      // As in CBCLatticeBuilder, the products minus 1 are kept.
+      double[] x = new double[N];  // Outer product - 1 for i(z) = z^(-b)
+      double[] y = new double[N];  // Inner product - 1 for i(z) = z^(-b)
+      double x0 = 0.0;             // Same for i(z) = 0
+      double y0 = 0.0;
+      double[] yre = new double[M];
+      double[] yim = new double[M];
+      q = new int[d*s];
+      crit = new double[s];
+      for (int j = 0; j < s; j++) {
+         java.util.Arrays.fill (y, 0.0);
+         y0 = 0.0;
+         for (int l = 0; l < d; l++) {
+            int best = 0;   // The candidate z^best; q_1 = 1 = z^0
+            if ((j > 0 || l > 0) && N > 1) {
+               // The criterion is, up to a constant, the sum of
+               // (1 + x)(1 + y) phi over the points; by FFT as in
+               // CBCLatticeBuilder
+               for (int b = 0; b < N; b++)
+                  yre[b] = (1.0 + x[b]) * (1.0 + y[b]);
+               java.util.Arrays.fill (yre, N, M, 0.0);
+               java.util.Arrays.fill (yim, 0.0);
+               CBCLatticeBuilder.fft (yre, yim, false, cosT, sinT, numThreads);
+               for (int i = 0; i < M; i++) {
+                  double re = yre[i]*hre[i] - yim[i]*him[i];
+                  yim[i] = yre[i]*him[i] + yim[i]*hre[i];
+                  yre[i] = re;
+               }
+               CBCLatticeBuilder.fft (yre, yim, true, cosT, sinT, numThreads);
+               double min = Double.POSITIVE_INFINITY;
+               for (int c = 0; c < N; c++) {
+                  double v = yre[c];
+                  if (c < N - 1)
+                     v += yre[c + N];
+                  if (v < min) {
+                     min = v;
+                     best = c;
+                  }
+               }
+            }
+            q[j*d + l] = power (best);
+            update (y, best, numThreads);
+            y0 += phi0 * (1.0 + y0);
+         }
+         for (int b = 0; b < N; b++)
+            x[b] += gamma[j] * y[b] * (1.0 + x[b]);
+         x0 += gamma[j] * y0 * (1.0 + x0);
+         double sum = x0;
+         for (int b = 0; b < N; b++)
+            sum += x[b];
+         crit[j] = sum / (N + 1.0);
+      }
+      return q.clone();
+   }
+
+   // Computes h and its FFT.
+   private void initTransform (int numThreads) {
+      int M = 1;
+      while (M < 2*N - 1)
+         M <<= 1;
+      cosT = new double[M/2];
+      sinT = new double[M/2];
+      for (int t = 0; t < M/2; t++) {
+         cosT[t] = Math.cos (2.0*Math.PI*t/M);
+         sinT[t] = Math.sin (2.0*Math.PI*t/M);
+      }
+      // The first nonzero digit of nu(v(z)/p(z)) is that of z^(deg v - k)
+      h = new double[N];
+      int v = 1;
+      for (int t = 0; t < N; t++) {
+         h[t] = phi[k - 1 - PolynomialLatticeRule.degree (v)];
+         v <<= 1;
+         if ((v >> k) != 0)
+            v ^= p;
+      }
+      double[] re = new double[M];
+      double[] im = new double[M];
+      System.arraycopy (h, 0, re, 0, N);
+      CBCLatticeBuilder.fft (re, im, false, cosT, sinT, numThreads);
+      hre = re;
+      him = im;
+   }
+
+   // Multiplies 1 + y[b] by 1 + phi_alpha(nu(z^(c - b) / p(z))), which is the
+   // factor of the candidate q(z) = z^c for the point i(z) = z^(-b).
+   private void update (final double[] y, final int c, int numThreads) {
+      if (numThreads > N)
+         numThreads = N;
+      Runnable[] tasks = new Runnable[numThreads];
+      for (int t = 0; t < numThreads; t++) {
+         final int b0 = (int) ((long) N * t / numThreads);
+         final int b1 = (int) ((long) N * (t + 1) / numThreads);
+         tasks[t] = new Runnable() {
+            public void run() {
+               int e = ((c - b0) % N + N) % N;
+               for (int b = b0; b < b1; b++) {
+                  y[b] += h[e] * (1.0 + y[b]);
+                  if (--e < 0)
+                     e = N - 1;
+               }
+            }
+         };
+      }
+      Misc.runInParallel (tasks);
+   }
+
+   // z^e modulo p(z).
+   private int power (int e) {
+      return (int) powMod (2, e, p);
+   }
+
+   private static long mulMod (long a, long b, long p) {
+      int k = PolynomialLatticeRule.degree (p);
+      long r = 0;
+      for (int i = PolynomialLatticeRule.degree (b); i >= 0; i--) {
+         r <<= 1;
+         if ((r >> k) != 0)
+            r ^= p;
+         if (((b >> i) & 1) != 0)
+            r ^= a;
+      }
+      return r;
+   }
+
+   // a^e modulo p, for a of degree at most that of p.
+   private static long powMod (long a, long e, long p) {
+      if ((a >> PolynomialLatticeRule.degree (p)) != 0)
+         a ^= p;
+      long r = 1;
+      while (e > 0) {
+         if ((e & 1) != 0)
+            r = mulMod (r, a, p);
+         a = mulMod (a, a, p);
+         e >>= 1;
+      }
+      return r;
+   }
+
+   // The first polynomial of degree k for which z has order 2^k - 1.
+   private static int primitivePolynomial (int k) {
+      long N = (1L << k) - 1;
+      // Prime factors of 2^k - 1
+      ArrayList<Long> factors = new ArrayList<Long>();
+      long r = N;
+      for (long f = 3; f*f <= r; f += 2)
+         if (r % f == 0) {
+            factors.add (f);
+            while (r % f == 0)
+               r /= f;
+         }
+      if (r > 1)
+         factors.add (r);
+      for (int p = (1 << k) | 1; ; p += 2) {
+         if (powMod (2, N, p) != 1)
+            continue;
+         boolean primitive = true;
+         for (long f : factors)
+            if (powMod (2, N / f, p) == 1) {
+               primitive = false;
+               break;
+            }
+         if (primitive)
+            return p;
+      }
+   }
+
+
+   /**
+    * Returns an array whose element <SPAN CLASS="MATH"><I>j</I> - 1</SPAN> is the value of <SPAN CLASS="MATH"><I>B</I><SUB>&#945;,d</SUB></SPAN> for
+    * the first <SPAN CLASS="MATH"><I>j</I></SPAN> coordinates of the interlaced net, that is, the first
+    * <SPAN CLASS="MATH"><I>dj</I></SPAN> coordinates of the vector constructed by the last call to
+    * {@link #search(double[],int) search}, for <SPAN CLASS="MATH"><I>j</I> = 1,...,<I>s</I></SPAN>.
+    * 
+    * @return the criterion for the first <SPAN CLASS="MATH"><I>j</I></SPAN> coordinates
+    * 
+    * @exception IllegalStateException if no vector has been constructed
+    * 
+    */
+   public double[] getCriteria() {
+      if (crit == null)
+         throw new IllegalStateException ("No rule has been constructed");
+      return crit.clone();
+   }
+
+
+   public String toString() {
+      return "PolynomialLatticeBuilder: n = 2^" + k + ", modulus = " + p
+             + ", alpha = " + alpha + ", d = " + d;
+   }
+}
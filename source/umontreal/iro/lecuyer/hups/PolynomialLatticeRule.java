@@ -0,0 +1,159 @@
+/*
+ * Class:        PolynomialLatticeRule
+ * Description:  Polynomial lattice rules in base 2
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Université de Montréal
+ * Organization: DIRO, Université de Montréal
+ * @author
+ * @since
+
+ * SSJ is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License (GPL) as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * any later version.
+
+ * SSJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * A copy of the GNU General Public License is available at
+   <a href="http://www.gnu.org/licenses">GPL licence site</a>.
+ */
+
+package umontreal.iro.lecuyer.hups;
+
+import umontreal.iro.lecuyer.util.PrintfFormat;
+
+
+/**
+ * This class implements polynomial lattice rules in base 2,
+ * the analogue of rank-1 lattices in which integers are replaced by
+ * polynomials over <SPAN CLASS="MATH"><B>F</B><SUB>2</SUB></SPAN>.  One selects a polynomial <SPAN CLASS="MATH"><I>p</I>(<I>z</I>)</SPAN> of
+ * degree <SPAN CLASS="MATH"><I>k</I></SPAN> over <SPAN CLASS="MATH"><B>F</B><SUB>2</SUB></SPAN>, the modulus, and a vector of polynomials
+ * <SPAN CLASS="MATH">(<I>q</I><SUB>1</SUB>(<I>z</I>),...,<I>q</I><SUB>s</SUB>(<I>z</I>))</SPAN> of degree smaller than <SPAN CLASS="MATH"><I>k</I></SPAN>, usually with
+ * <SPAN CLASS="MATH"><I>q</I><SUB>1</SUB>(<I>z</I>) = 1</SPAN>.  To each <SPAN CLASS="MATH"><I>i</I> = &sum;<SUB>c=0</SUB><SUP>k-1</SUP> <I>i</I><SUB>c</SUB> 2<SUP>c</SUP></SPAN> in
+ * <SPAN CLASS="MATH">{0,...,2<SUP>k</SUP> - 1}</SPAN> corresponds the polynomial
+ * <SPAN CLASS="MATH"><I>i</I>(<I>z</I>) = &sum;<SUB>c=0</SUB><SUP>k-1</SUP> <I>i</I><SUB>c</SUB> <I>z</I><SUP>c</SUP></SPAN>, and the <SPAN CLASS="MATH"><I>i</I></SPAN>th point is
+ * 
+ * <P></P>
+ * <DIV ALIGN="CENTER" CLASS="mathdisplay">
+ * <B><I>u</I></B><SUB>i</SUB> = (<I>&#957;</I>((<I>i</I>(<I>z</I>) <I>q</I><SUB>1</SUB>(<I>z</I>))/(<I>p</I>(<I>z</I>))), ...,
+ * <I>&#957;</I>((<I>i</I>(<I>z</I>) <I>q</I><SUB>s</SUB>(<I>z</I>))/(<I>p</I>(<I>z</I>)))),
+ * </DIV><P></P>
+ * where <SPAN CLASS="MATH"><I>&#957;</I>(&sum;<SUB>l=w</SUB><SUP>&#8734;</SUP> <I>u</I><SUB>l</SUB> <I>z</I><SUP>-l</SUP>) = &sum;<SUB>l=1</SUB><SUP>k</SUP> <I>u</I><SUB>l</SUB> 2<SUP>-l</SUP></SPAN>
+ * keeps the first <SPAN CLASS="MATH"><I>k</I></SPAN> digits of the Laurent series.  These <SPAN CLASS="MATH">2<SUP>k</SUP></SPAN> points form
+ * a digital net in base 2 whose generator matrix <SPAN CLASS="MATH"><B><I>C</I></B><SUB>j</SUB></SPAN> is the
+ * <SPAN CLASS="MATH"><I>k</I>&#215; <I>k</I></SPAN> Hankel matrix with element <SPAN CLASS="MATH"><I>u</I><SUB>l+c+1</SUB></SPAN> in row <SPAN CLASS="MATH"><I>l</I></SPAN> and
+ * column <SPAN CLASS="MATH"><I>c</I></SPAN>, for <SPAN CLASS="MATH"><I>l</I>,<I>c</I> = 0,...,<I>k</I> - 1</SPAN>, where the <SPAN CLASS="MATH"><I>u</I><SUB>l</SUB></SPAN> are the digits of the
+ * Laurent series <SPAN CLASS="MATH"><I>q</I><SUB>j</SUB>(<I>z</I>)/<I>p</I>(<I>z</I>) = &sum;<SUB>l=1</SUB><SUP>&#8734;</SUP> <I>u</I><SUB>l</SUB> <I>z</I><SUP>-l</SUP></SPAN>.
+ * The points are enumerated, and can be randomized, as for any
+ * {@link DigitalNetBase2}.
+ * <P>
+ * The polynomials are represented by integers whose bit <SPAN CLASS="MATH"><I>c</I></SPAN> is the
+ * coefficient of <SPAN CLASS="MATH"><I>z</I><SUP>c</SUP></SPAN>; for example, <SPAN CLASS="MATH"><I>p</I>(<I>z</I>) = <I>z</I><SUP>3</SUP> + <I>z</I> + 1</SPAN> is represented
+ * by 11.  Good generating vectors can be constructed by
+ * {@link PolynomialLatticeBuilder}.
+ * 
+ */
+public class PolynomialLatticeRule extends DigitalNetBase2 {
+   private int modulus;      // p(z)
+   private int[] genVector;  // q_1(z),...,q_s(z)
+
+
+   /**
+    * Constructs the polynomial lattice rule with <SPAN CLASS="MATH">2<SUP>k</SUP></SPAN> points in dimension <SPAN CLASS="MATH"><I>s</I></SPAN>,
+    * with modulus <SPAN CLASS="MATH"><I>p</I>(<I>z</I>)</SPAN> of degree <SPAN CLASS="MATH"><I>k</I></SPAN> and generating vector
+    * <SPAN CLASS="MATH">(<I>q</I><SUB>1</SUB>(<I>z</I>),...,<I>q</I><SUB>s</SUB>(<I>z</I>))</SPAN> given by <TT>q[0..s-1]</TT>.  The vector is
+    * copied.
+    * 
+    * @param p the modulus <SPAN CLASS="MATH"><I>p</I>(<I>z</I>)</SPAN>
+    * 
+    * @param q the generating vector
+    * 
+    * @param s the dimension
+    * 
+    * @exception IllegalArgumentException if the degree <SPAN CLASS="MATH"><I>k</I></SPAN> of <SPAN CLASS="MATH"><I>p</I>(<I>z</I>)</SPAN> is not
+    * in <SPAN CLASS="MATH">{1,...,30}</SPAN>, if <SPAN CLASS="MATH"><I>s</I></SPAN> is not in
+    * <SPAN CLASS="MATH">{1,...,</SPAN> <TT>q.length</TT><SPAN CLASS="MATH">}</SPAN>, or if one of the <SPAN CLASS="MATH"><I>q</I><SUB>j</SUB>(<I>z</I>)</SPAN> has
+    * a degree larger than or equal to <SPAN CLASS="MATH"><I>k</I></SPAN>
+    * 
+    */
+   public PolynomialLatticeRule (int p, int[] q, int s) {
+      int k = degree (p);
+      if (k < 1 || k >= MAXBITS)
+         throw new IllegalArgumentException ("p must have degree in [1, 30]");
+      if (s < 1 || s > q.length)
+         throw new IllegalArgumentException ("s must be in [1, q.length]");
+      for (int j = 0; j < s; j++)
+         if (q[j] < 0 || degree (q[j]) >= k)
+            throw new IllegalArgumentException
+               ("q[j] must have degree smaller than the degree of p");
+      modulus = p;
+      genVector = new int[s];
+      System.arraycopy (q, 0, genVector, 0, s);
+      b = 2;
+      dim = s;
+      numCols = k;
+      numRows = k;
+      numPoints = 1 << k;
+      outDigits = MAXBITS;
+      normFactor = 1.0 / ((double) (1L << (outDigits)));
+      genMat = new int[dim * numCols];
+      for (int j = 0; j < dim; j++) {
+         // Digits u_1,...,u_{2k-1} of q_j(z)/p(z), by long division
+         int[] u = new int[2*k];
+         int r = genVector[j];
+         for (int l = 1; l < 2*k; l++) {
+            r <<= 1;
+            if ((r >> k) != 0) {
+               u[l] = 1;
+               r ^= p;
+            }
+         }
+         for (int c = 0; c < k; c++) {
+            int col = 0;
+            for (int l = 0; l < k; l++)
+               col |= u[l + c + 1] << (outDigits - 1 - l);
+            genMat[j*numCols + c] = col;
+         }
+      }
+   }
+
+
+   /**
+    * Returns the modulus <SPAN CLASS="MATH"><I>p</I>(<I>z</I>)</SPAN>.
+    * 
+    * @return the modulus
+    * 
+    */
+   public int getModulus() {
+      return modulus;
+   }
+
+
+   /**
+    * Returns a copy of the generating vector <SPAN CLASS="MATH">(<I>q</I><SUB>1</SUB>(<I>z</I>),...,<I>q</I><SUB>s</SUB>(<I>z</I>))</SPAN>.
+    * 
+    * @return the generating vector
+    * 
+    */
+   public int[] getGeneratingVector() {
+      return genVector.clone();
+   }
+
+
+   public String toString() {
+      StringBuffer sb = new StringBuffer ("PolynomialLatticeRule:" +
+                                          PrintfFormat.NEWLINE);
+      sb.append ("Modulus: " + modulus + PrintfFormat.NEWLINE);
+      sb.append (super.toString());
+      return sb.toString();
+   }
+
+   // Degree of the polynomial p, -1 if p = 0.
+   static int degree (long p) {
+      return 63 - Long.numberOfLeadingZeros (p);
+   }
+}
@@ -0,0 +1,277 @@
+/*
+ * Class:        RadicalInverseCounter
+ * Description:  Incremental computation of permuted radical inverses
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Université de Montréal
+ * Organization: DIRO, Université de Montréal
+ * @author
+ * @since
+
+ * SSJ is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License (GPL) as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * any later version.
+
+ * SSJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * A copy of the GNU General Public License is available at
+   <a href="http://www.gnu.org/licenses">GPL licence site</a>.
+ */
+
+package umontreal.iro.lecuyer.hups;
+
+
+/**
+ * This class computes the radical inverses in base <SPAN CLASS="MATH"><I>b</I></SPAN> of successive
+ * integers <SPAN CLASS="MATH"><I>i</I></SPAN>, with the digits possibly permuted, in amortized constant
+ * time.  If <SPAN CLASS="MATH"><I>i</I> = &sum;<SUB>r=0</SUB><SUP>k-1</SUP> <I>a</I><SUB>r</SUB> <I>b</I><SUP>r</SUP></SPAN>, the permuted radical inverse of
+ * <SPAN CLASS="MATH"><I>i</I></SPAN> is
+ * <P>
+ * <P></P>
+ * <DIV ALIGN="CENTER" CLASS="mathdisplay">
+ * <I>x</I> = &sum;<SUB>r=0</SUB><SUP>k-1</SUP> <I>&#960;</I>[<I>a</I><SUB>r</SUB>] <I>b</I><SUP>-r-1</SUP>,
+ * </DIV><P></P>
+ * <P>
+ * where <SPAN CLASS="MATH"><I>&#960;</I></SPAN> is a permutation of <SPAN CLASS="MATH">{0,...,<I>b</I> - 1}</SPAN>, as in
+ * {@link RadicalInverse#permutedRadicalInverse(int,int[],long) permutedRadicalInverse}.
+ * A counter keeps the digits <SPAN CLASS="MATH"><I>a</I><SUB>r</SUB></SPAN> of the current integer <SPAN CLASS="MATH"><I>i</I></SPAN> and the
+ * partial sums <SPAN CLASS="MATH"><I>s</I><SUB>r</SUB> = &sum;<SUB>q=r</SUB><SUP>k-1</SUP> <I>&#960;</I>[<I>a</I><SUB>q</SUB>] <I>b</I><SUP>-q-1</SUP></SPAN>, so <SPAN CLASS="MATH"><I>x</I> = <I>s</I><SUB>0</SUB></SPAN>.
+ * When <SPAN CLASS="MATH"><I>i</I></SPAN> is incremented, only the digits changed by the carry, and the
+ * partial sums for these digits, are recomputed.  The average number of
+ * digits changed is <SPAN CLASS="MATH"><I>b</I>/(<I>b</I> - 1)</SPAN>, whatever <SPAN CLASS="MATH"><I>i</I></SPAN>, while computing <SPAN CLASS="MATH"><I>x</I></SPAN> from scratch
+ * takes <SPAN CLASS="MATH"><I>O</I>(log<SUB>b</SUB> <I>i</I>)</SPAN> time.
+ * <P>
+ * Since the partial sums are added from the last digit to the first, the
+ * values may differ in the last bits from those returned by the methods of
+ * {@link RadicalInverse}, which add the terms in the opposite order.
+ * The method {@link #valueOf(long) valueOf} computes them in the same way as the
+ * counter.  A counter is not thread-safe, but {@link #valueOf(long) valueOf} does not
+ * modify it.
+ * 
+ */
+public class RadicalInverseCounter {
+   private int b;
+   private int[] pi;          // permutation of the digits
+   private long[] power;      // power[r] = b^r
+   private double[] weight;   // weight[r] = b^(-r-1), as in RadicalInverse
+   private int[] digits;      // digits of i, least significant first
+   private double[] sum;      // sum[r] = partial sum s_r; sum[r] = 0 for r >= k
+   private int k;             // number of digits of i
+   private long i;
+
+
+   /**
+    * Constructs a counter in base <SPAN CLASS="MATH"><I>b</I></SPAN> with the permutation <TT>pi</TT> of the
+    * digits, initially at <SPAN CLASS="MATH"><I>i</I> = 0</SPAN>.  If <TT>pi</TT> is <TT>null</TT>, the
+    * digits are not permuted.  The array <TT>pi</TT> is not copied.
+    * 
+    * @param b the base
+    * 
+    * @param pi the permutation of the digits, or <TT>null</TT>
+    * 
+    * @exception IllegalArgumentException if <SPAN CLASS="MATH"><I>b</I> &lt; 2</SPAN> or <TT>pi</TT> has
+    * fewer than <SPAN CLASS="MATH"><I>b</I></SPAN> elements
+    * 
+    */
+   public RadicalInverseCounter (int b, int[] pi) {
+      if (b < 2)
+         throw new IllegalArgumentException ("b < 2");
+      if (pi != null && pi.length < b)
+         throw new IllegalArgumentException ("pi must have at least b elements");
+      this.b = b;
+      if (pi == null) {
+         pi = new int[b];
+         for (int a = 0; a < b; a++)
+            pi[a] = a;
+      }
+      this.pi = pi;
+      // Number of digits of Long.MAX_VALUE in base b
+      int K = 1;
+      for (long m = Long.MAX_VALUE / b; m > 0; m /= b)
+         K++;
+      power = new long[K];
+      weight = new double[K];
+      power[0] = 1;
+      double radical = 1.0 / (double) b;
+      weight[0] = radical;
+      for (int r = 1; r < K; r++) {
+         power[r] = power[r - 1] * b;
+         weight[r] = weight[r - 1] * radical;
+      }
+      digits = new int[K + 1];
+      sum = new double[K + 1];
+   }
+
+
+   /**
+    * Constructs a counter for coordinate <TT>coordinate</TT> of a Halton
+    * sequence with the Faure-Lemieux permutations: the base is the
+    * <SPAN CLASS="MATH">(\texttt{coordinate} + 1)</SPAN>-th prime, and the permutation is
+    * given by
+    * {@link RadicalInverse#getFaureLemieuxPermutation(int,int[]) getFaureLemieuxPermutation}.
+    * 
+    * @param coordinate the coordinate, starting from 0
+    * 
+    */
+   public RadicalInverseCounter (int coordinate) {
+      this (RadicalInverse.getPrimes (coordinate + 1)[coordinate],
+            faureLemieux (coordinate));
+   }
+
+   private static int[] faureLemieux (int coordinate) {
+      int[] pi = new int[RadicalInverse.getPrimes (coordinate + 1)[coordinate]];
+      RadicalInverse.getFaureLemieuxPermutation (coordinate, pi);
+      return pi;
+   }
+
+
+   /**
+    * Returns the base <SPAN CLASS="MATH"><I>b</I></SPAN>.
+    * 
+    * @return the base
+    * 
+    */
+   public int getBase() {
+      return b;
+   }
+
+
+   /**
+    * Returns the current integer <SPAN CLASS="MATH"><I>i</I></SPAN>.
+    * 
+    * @return the current integer
+    * 
+    */
+   public long getIndex() {
+      return i;
+   }
+
+
+   /**
+    * Sets the current integer to <SPAN CLASS="MATH"><I>i</I></SPAN>, in <SPAN CLASS="MATH"><I>O</I>(log<SUB>b</SUB> <I>i</I>)</SPAN> time.
+    * 
+    * @param i the new current integer
+    * 
+    * @exception IllegalArgumentException if <SPAN CLASS="MATH"><I>i</I> &lt; 0</SPAN>
+    * 
+    */
+   public void setIndex (long i) {
+      if (i < 0)
+         throw new IllegalArgumentException ("i < 0");
+      java.util.Arrays.fill (digits, 0, k, 0);
+      java.util.Arrays.fill (sum, 0, k, 0.0);
+      this.i = i;
+      k = 0;
+      for (long m = i; m > 0; m /= b)
+         digits[k++] = (int) (m % b);
+      for (int r = k - 1; r >= 0; r--)
+         sum[r] = weight[r] * pi[digits[r]] + sum[r + 1];
+   }
+
+
+   /**
+    * Returns the permuted radical inverse of the current integer <SPAN CLASS="MATH"><I>i</I></SPAN>.
+    * 
+    * @return the radical inverse of <SPAN CLASS="MATH"><I>i</I></SPAN>
+    * 
+    */
+   public double getValue() {
+      return sum[0];
+   }
+
+
+   /**
+    * Replaces the current integer <SPAN CLASS="MATH"><I>i</I></SPAN> by <SPAN CLASS="MATH"><I>i</I> + 1</SPAN>, in amortized constant time.
+    * 
+    */
+   public void increment() {
+      if (i == Long.MAX_VALUE)
+         throw new IllegalStateException ("i = Long.MAX_VALUE");
+      i++;
+      int r = 0;
+      while (digits[r] == b - 1)
+         digits[r++] = 0;
+      digits[r]++;
+      if (r == k)
+         k++;
+      for (; r >= 0; r--)
+         sum[r] = weight[r] * pi[digits[r]] + sum[r + 1];
+   }
+
+
+   /**
+    * Stores the permuted radical inverses of <SPAN CLASS="MATH"><I>i</I>, <I>i</I> + 1, ..., <I>i</I> + <I>n</I> - 1</SPAN> in
+    * <TT>u[start]</TT>, <TT>u[start + step]</TT>, ...,
+    * <TT>u[start + (n-1)*step]</TT>, where <SPAN CLASS="MATH"><I>i</I></SPAN> is the current integer,
+    * and sets the current integer to <SPAN CLASS="MATH"><I>i</I> + <I>n</I></SPAN>.  With <TT>step</TT> equal to the
+    * dimension <SPAN CLASS="MATH"><I>s</I></SPAN>, this fills one coordinate of <SPAN CLASS="MATH"><I>n</I></SPAN> successive points stored
+    * in an array, one point after the other.
+    * 
+    * @param u the array to fill
+    * 
+    * @param start the index of the first value in <TT>u</TT>
+    * 
+    * @param n the number of values
+    * 
+    * @param step the distance between successive values in <TT>u</TT>
+    * 
+    * @exception IllegalArgumentException if <SPAN CLASS="MATH"><I>n</I> &lt; 0</SPAN>
+    * 
+    */
+   public void fill (double[] u, int start, int n, int step) {
+      if (n < 0)
+         throw new IllegalArgumentException ("n < 0");
+      if (i > Long.MAX_VALUE - n)
+         throw new IllegalStateException ("i + n > Long.MAX_VALUE");
+      int bm1 = b - 1;
+      double w0 = weight[0];
+      for (int m = 0; m < n; m++, start += step) {
+         u[start] = sum[0];
+         if (digits[0] < bm1) {
+            // No carry: only the first digit changes
+            sum[0] = w0 * pi[++digits[0]] + sum[1];
+            if (k == 0)
+               k = 1;
+         } else {
+            int r = 0;
+            while (digits[r] == bm1)
+               digits[r++] = 0;
+            digits[r]++;
+            if (r == k)
+               k++;
+            for (; r >= 0; r--)
+               sum[r] = weight[r] * pi[digits[r]] + sum[r + 1];
+         }
+      }
+      i += n;
+   }
+
+
+   /**
+    * Returns the permuted radical inverse of <SPAN CLASS="MATH"><I>i</I></SPAN>, computed as
+    * {@link #getValue getValue} would after {@link #setIndex(long) setIndex}<TT>(i)</TT>,
+    * without changing the state of this counter.
+    * 
+    * @param i the integer
+    * 
+    * @return the radical inverse of <SPAN CLASS="MATH"><I>i</I></SPAN>
+    * 
+    * @exception IllegalArgumentException if <SPAN CLASS="MATH"><I>i</I> &lt; 0</SPAN>
+    * 
+    */
+   public double valueOf (long i) {
+      if (i < 0)
+         throw new IllegalArgumentException ("i < 0");
+      int r = 0;
+      while (r + 1 < power.length && power[r + 1] <= i)
+         r++;
+      double x = 0.0;
+      for (; r >= 0; r--)
+         x = weight[r] * pi[(int) (i / power[r] % b)] + x;
+      return i == 0 ? 0.0 : x;
+   }
+}
@@ -47,6 +47,14 @@ import umontreal.iro.lecuyer.rng.RandomStream;
  * These <SPAN CLASS="MATH"><I>n</I></SPAN> points are distinct provided that <SPAN CLASS="MATH"><I>n</I></SPAN> and the <SPAN CLASS="MATH"><I>a</I><SUB>j</SUB></SPAN>'s have
  * no common factor.
  * 
+ * <P>
+ * The method <TT>nextPoints</TT> of the iterators computes the points in
+ * integer arithmetic: the numerators <SPAN CLASS="MATH">(<I>i</I> <I>a</I><SUB>j</SUB>) mod <I>n</I></SPAN> of point <SPAN CLASS="MATH"><I>i</I> + 1</SPAN> are
+ * obtained from those of point <SPAN CLASS="MATH"><I>i</I></SPAN> by one addition modulo <SPAN CLASS="MATH"><I>n</I></SPAN> each,
+ * so the coordinates are exact up to the final division by <SPAN CLASS="MATH"><I>n</I></SPAN>.
+ * Since <TT>nextCoordinate</TT> computes <SPAN CLASS="MATH">(<I>i</I> <I>a</I><SUB>j</SUB> / <I>n</I>) mod 1</SPAN> in floating
+ * point, the two methods may return coordinates that differ in the last bits.
+ * 
  */
 public class Rank1Lattice extends PointSet  {
 
@@ -227,5 +235,70 @@ public class Rank1Lattice extends PointSet  {
          curCoordIndex++;
          return x;
       }
+
+      // Coordinates of the current point times n, i.e., (i*a[j]) mod n,
+      // for nextPoints.
+      private long[] ia = new long[0];
+
+      public int nextPoints (double p[], int n, int d) {
+         startPoints (n, d);
+         int k = 0;
+         for (int i = 0; i < n; i++) {
+            nextRow (p, k, d);
+            k += d;
+         }
+         curPointIndex += n;
+         curCoordIndex = 0;
+         return curPointIndex;
+      }
+
+      public int nextPoints (double p[][], int n, int d) {
+         startPoints (n, d);
+         for (int i = 0; i < n; i++)
+            nextRow (p[i], 0, d);
+         curPointIndex += n;
+         curCoordIndex = 0;
+         return curPointIndex;
+      }
+
+      private void startPoints (int n, int d) {
+         checkPoints (n);
+         if (d > dim || d > genAs.length)
+            outOfBounds();
+         if (shift != null && dimShift < d)   // Extend the shift.
+            addRandomShift (dimShift, d, shiftStream);
+         if (ia.length < d)
+            ia = new long[d];
+         for (int j = 0; j < d; j++)
+            ia[j] = (long) curPointIndex * genAs[j] % numPoints;
+      }
+
+      // Stores the current point in p[k..k+d-1] and advances ia to the
+      // next point, by modular additions.
+      private void nextRow (double[] p, int k, int d) {
+         final long[] ia = this.ia;
+         final int[] a = genAs;
+         final int n = numPoints;
+         if (shift == null) {
+            for (int j = 0; j < d; j++) {
+               long m = ia[j];
+               p[k + j] = m * normFactor;
+               m += a[j];
+               ia[j] = m >= n ? m - n : m;
+            }
+         } else {
+            for (int j = 0; j < d; j++) {
+               long m = ia[j];
+               double x = m * normFactor + shift[j];
+               if (x >= 1.0)
+                  x -= 1.0;
+               if (x <= 0.0)
+                  x = EpsilonHalf;  // avoid x = 0
+               p[k + j] = x;
+               m += a[j];
+               ia[j] = m >= n ? m - n : m;
+            }
+         }
+      }
    }
 }
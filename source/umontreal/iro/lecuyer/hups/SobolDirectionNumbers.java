@@ -0,0 +1,276 @@
+/*
+ * Class:        SobolDirectionNumbers
+ * Description:  Memory-mapped binary file of Sobol' direction numbers
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Université de Montréal
+ * Organization: DIRO, Université de Montréal
+ * @author
+ * @since
+
+ * SSJ is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License (GPL) as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * any later version.
+
+ * SSJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * A copy of the GNU General Public License is available at
+   <a href="http://www.gnu.org/licenses">GPL licence site</a>.
+ */
+
+package umontreal.iro.lecuyer.hups;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+
+/**
+ * This class gives access to the primitive polynomials and initial
+ * direction numbers of a Sobol' sequence stored in a compact binary file,
+ * which is mapped in memory.  Only the parts of the file corresponding to the
+ * dimensions actually used are read, when they are needed, and no array is
+ * allocated on the heap for the direction numbers, so sets with tens of
+ * thousands of dimensions, such as the 21201 dimensions of Joe and Kuo,
+ * can be used by
+ * {@link SobolSequence#SobolSequence(SobolDirectionNumbers,int,int,int) SobolSequence}
+ * without the cost of parsing a text file.
+ * 
+ * <P>
+ * The binary file is created from a text file in the format described in
+ * {@link SobolSequence}, for example the files of Joe and Kuo,
+ * by the method {@link #convert(Reader,File) convert}, which can also be run from
+ * the command line:
+ * <PRE>
+ *    java umontreal.iro.lecuyer.hups.SobolDirectionNumbers input output
+ * </PRE>
+ * The binary file contains, in big-endian order, the integer
+ * <TT>0x534F424C</TT>, a version number, the number of dimensions <SPAN CLASS="MATH"><I>s</I></SPAN>,
+ * then the offsets of the records of dimensions <SPAN CLASS="MATH">2</SPAN> to <SPAN CLASS="MATH"><I>s</I></SPAN>, and these records.
+ * The record of a dimension contains its primitive polynomial of degree <SPAN CLASS="MATH"><I>q</I></SPAN>,
+ * encoded as in {@link SobolSequence}, as an integer, followed by the
+ * direction numbers <SPAN CLASS="MATH"><I>m</I><SUB>1</SUB>, ..., <I>m</I><SUB>q</SUB></SPAN>.  Since <SPAN CLASS="MATH"><I>m</I><SUB>c</SUB> &lt; 2<SUP>c</SUP></SPAN>, each <SPAN CLASS="MATH"><I>m</I><SUB>c</SUB></SPAN> is
+ * stored in <SPAN CLASS="MATH"><I>c</I></SPAN> bits, so a record takes <SPAN CLASS="MATH">4 + &#8968; <I>q</I>(<I>q</I> + 1)/16&#8969;</SPAN> bytes.
+ * 
+ * <P>
+ * The methods of this class may be called from several threads.
+ * 
+ */
+public class SobolDirectionNumbers {
+   private static final int MAGIC = 0x534F424C;   // "SOBL"
+   private static final int VERSION = 1;
+   private static final int HEADER = 12;          // magic, version, s
+   private static final int MAXDEGREE = 30;
+
+   private final ByteBuffer buf;
+   private final int numDims;
+
+
+   /**
+    * Maps in memory the binary direction number file <TT>file</TT>,
+    * created by {@link #convert(Reader,File) convert}.
+    * 
+    * @param file the binary direction number file
+    * 
+    * @exception IOException if the file cannot be read or is not in the
+    * correct format
+    * 
+    */
+   public SobolDirectionNumbers (File file) throws IOException {
+      RandomAccessFile raf = new RandomAccessFile (file, "r");
+      try {
+         FileChannel ch = raf.getChannel();
+         long size = ch.size();
+         if (size < HEADER || size > Integer.MAX_VALUE)
+            throw new IOException ("invalid size for " + file);
+         buf = ch.map (FileChannel.MapMode.READ_ONLY, 0, size)
+                 .order (ByteOrder.BIG_ENDIAN);
+      } finally {
+         // The mapping remains valid after the channel is closed
+         raf.close();
+      }
+      if (buf.getInt (0) != MAGIC)
+         throw new IOException (file + " is not a direction number file");
+      if (buf.getInt (4) != VERSION)
+         throw new IOException ("unsupported version " + buf.getInt (4)
+                                + " in " + file);
+      numDims = buf.getInt (8);
+      if (numDims < 1 || HEADER + 4L*(numDims - 1) > buf.capacity())
+         throw new IOException ("invalid number of dimensions in " + file);
+   }
+
+
+   /**
+    * Returns the number of dimensions <SPAN CLASS="MATH"><I>s</I></SPAN> available in the file, including
+    * the first one, whose generator matrix is the identity.
+    * 
+    */
+   public int getDimension() {
+      return numDims;
+   }
+
+
+   /**
+    * Returns the primitive polynomial of coordinate <SPAN CLASS="MATH"><I>j</I></SPAN>, for
+    * <SPAN CLASS="MATH">1&nbsp;&lt;=&nbsp; <I>j</I> &lt; <I>s</I></SPAN>, encoded as in {@link SobolSequence}: bit <SPAN CLASS="MATH"><I>i</I></SPAN> of the
+    * returned integer is the coefficient of <SPAN CLASS="MATH"><I>x</I><SUP>i</SUP></SPAN>.
+    * 
+    * @param j the coordinate, starting from 0
+    * 
+    * @return the primitive polynomial of coordinate <SPAN CLASS="MATH"><I>j</I></SPAN>
+    * 
+    * @exception IndexOutOfBoundsException if <SPAN CLASS="MATH"><I>j</I></SPAN> is not in <SPAN CLASS="MATH">{1,...,<I>s</I> - 1}</SPAN>
+    * 
+    */
+   public int getPolynomial (int j) {
+      return buf.getInt (record (j));
+   }
+
+
+   /**
+    * Returns the degree <SPAN CLASS="MATH"><I>q</I></SPAN> of the primitive polynomial of coordinate <SPAN CLASS="MATH"><I>j</I></SPAN>,
+    * for <SPAN CLASS="MATH">1&nbsp;&lt;=&nbsp; <I>j</I> &lt; <I>s</I></SPAN>.
+    * 
+    * @param j the coordinate, starting from 0
+    * 
+    * @return the degree of the primitive polynomial of coordinate <SPAN CLASS="MATH"><I>j</I></SPAN>
+    * 
+    */
+   public int getDegree (int j) {
+      return 31 - Integer.numberOfLeadingZeros (getPolynomial (j));
+   }
+
+
+   /**
+    * Returns the initial direction number <SPAN CLASS="MATH"><I>m</I><SUB>c</SUB></SPAN> of coordinate <SPAN CLASS="MATH"><I>j</I></SPAN>, for
+    * <SPAN CLASS="MATH">1&nbsp;&lt;=&nbsp; <I>j</I> &lt; <I>s</I></SPAN> and <SPAN CLASS="MATH">1&nbsp;&lt;=&nbsp; <I>c</I>&nbsp;&lt;=&nbsp; <I>q</I></SPAN>, where <SPAN CLASS="MATH"><I>q</I></SPAN> is the degree returned
+    * by {@link #getDegree(int) getDegree}<TT>(j)</TT>.
+    * 
+    * @param j the coordinate, starting from 0
+    * 
+    * @param c the index of the direction number, starting from 1
+    * 
+    * @return the direction number <SPAN CLASS="MATH"><I>m</I><SUB>c</SUB></SPAN> of coordinate <SPAN CLASS="MATH"><I>j</I></SPAN>
+    * 
+    */
+   public int getDirectionNumber (int j, int c) {
+      int pos = record (j);
+      int q = 31 - Integer.numberOfLeadingZeros (buf.getInt (pos));
+      if (c < 1 || c > q)
+         throw new IndexOutOfBoundsException ("c = " + c);
+      // m_c has c bits and starts at bit c(c-1)/2 of the packed numbers
+      long bit = (long) (pos + 4)*8 + c*(c - 1)/2;
+      int m = 0;
+      for (int i = 0; i < c; i++, bit++)
+         m |= ((buf.get ((int) (bit >> 3)) >> (int) (bit & 7)) & 1) << i;
+      return m;
+   }
+
+   // Position in the file of the record of coordinate j.
+   private int record (int j) {
+      if (j < 1 || j >= numDims)
+         throw new IndexOutOfBoundsException ("j = " + j);
+      return buf.getInt (HEADER + 4*(j - 1));
+   }
+
+
+   /**
+    * Reads direction numbers in the text format described in
+    * {@link SobolSequence} from <TT>in</TT>, writes them in binary
+    * format to the file <TT>out</TT>, and returns the number of dimensions.
+    * The first line of the text is a comment and is skipped.
+    * The degrees of the polynomials must not exceed 30.
+    * 
+    * @param in the text direction numbers
+    * 
+    * @param out the binary file to create
+    * 
+    * @return the number of dimensions in the file
+    * 
+    * @exception IOException if an I/O error occurs, or if the text is not
+    * in the correct format
+    * 
+    */
+   public static int convert (Reader in, File out) throws IOException {
+      BufferedReader reader = new BufferedReader (in);
+      // The records are built in memory, since their offsets come first
+      ByteArrayOutputStream records = new ByteArrayOutputStream();
+      DataOutputStream rec = new DataOutputStream (records);
+      java.util.ArrayList<Integer> offsets = new java.util.ArrayList<Integer>();
+      String line = reader.readLine();     // first line is a comment
+      int d = 1;
+      while ((line = reader.readLine()) != null) {
+         line = line.trim();
+         if (line.length() == 0)
+            continue;
+         String[] tokens = line.split ("[\t ]+");
+         if (tokens.length < 4)
+            throw new IOException ("bad direction number line: " + line);
+         int dd = Integer.parseInt (tokens[0]);
+         int q = Integer.parseInt (tokens[1]);
+         int a = Integer.parseInt (tokens[2]);
+         if (dd != d + 1)
+            throw new IOException ("dimensions must be in increasing order,"
+                                   + " one per line, at dimension " + dd);
+         if (q < 1 || q > MAXDEGREE || q + 3 != tokens.length
+             || a < 0 || a >= 1 << Math.max (q - 1, 0))
+            throw new IOException ("bad direction number line: " + line);
+         d = dd;
+         offsets.add (records.size());
+         rec.writeInt ((1 << q) ^ (a << 1) ^ 1);
+         byte[] bits = new byte[(q*(q + 1)/2 + 7)/8];
+         int bit = 0;
+         for (int c = 1; c <= q; c++) {
+            int m = Integer.parseInt (tokens[c + 2]);
+            if ((m & 1) == 0 || m >= 1 << c)
+               throw new IOException ("direction number m_" + c
+                  + " of dimension " + d + " must be odd and less than 2^" + c);
+            for (int i = 0; i < c; i++, bit++)
+               bits[bit >> 3] |= ((m >> i) & 1) << (bit & 7);
+         }
+         rec.write (bits);
+      }
+      rec.flush();
+      int start = HEADER + 4*offsets.size();
+      DataOutputStream os = new DataOutputStream (new BufferedOutputStream
+                                                  (new FileOutputStream (out)));
+      try {
+         os.writeInt (MAGIC);
+         os.writeInt (VERSION);
+         os.writeInt (d);
+         for (int i = 0; i < offsets.size(); i++)
+            os.writeInt (start + offsets.get (i));
+         records.writeTo (os);
+      } finally {
+         os.close();
+      }
+      return d;
+   }
+
+
+   /**
+    * Converts the text file <TT>args[0]</TT> to the binary file
+    * <TT>args[1]</TT> by calling {@link #convert(Reader,File) convert}.
+    * 
+    */
+   public static void main (String[] args) throws IOException {
+      if (args.length != 2) {
+         System.err.println ("usage: java umontreal.iro.lecuyer.hups."
+                             + "SobolDirectionNumbers input output");
+         System.exit (1);
+      }
+      Reader r = new FileReader (args[0]);
+      int d;
+      try {
+         d = convert (r, new File (args[1]));
+      } finally {
+         r.close();
+      }
+      System.out.println (d + " dimensions written to " + args[1]);
+   }
+}
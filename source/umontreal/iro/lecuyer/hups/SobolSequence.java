@@ -141,6 +141,7 @@ public class SobolSequence extends DigitalSequenceBase2  {
     protected static final int MAXDIM    = 360;
     protected static final int MAXDEGREE = 18;  // Of primitive polynomial
     private String filename = null;
+    private SobolDirectionNumbers dirNums = null;
 
 
 
@@ -165,7 +166,7 @@ public class SobolSequence extends DigitalSequenceBase2  {
    }
 
    private void init (int k, int r, int w, int dim) {
-      if (filename == null)
+      if (filename == null && dirNums == null)
          if ((dim < 1) || (dim > MAXDIM))
             throw new IllegalArgumentException 
                ("Dimension for SobolSequence must be > 0 and <= " + MAXDIM);
@@ -384,6 +385,35 @@ public class SobolSequence extends DigitalSequenceBase2  {
 
       init(k, w, w, dim);
    }
+
+
+   /**
+    * Constructs a new digital net with <SPAN CLASS="MATH"><I>n</I> = 2<SUP>k</SUP></SPAN> points, <SPAN CLASS="MATH"><I>w</I></SPAN> output digits
+    * and dimension <TT>dim</TT>, using the direction numbers of
+    * <TT>dirNums</TT>, which is usually a large set, such as the 21201
+    * dimensions of Joe and Kuo, stored in a binary file.
+    * The direction numbers are read directly from the mapped file when the
+    * generator matrices are computed, so the cost of this constructor
+    * depends only on <TT>dim</TT> and not on the size of the file.
+    * 
+    * @param dirNums the direction numbers
+    * 
+    * @param k number of points is <SPAN CLASS="MATH">2<SUP>k</SUP></SPAN>
+    * 
+    * @param w number of output digits
+    * 
+    * @param dim dimension of the point set
+    * 
+    */
+   public SobolSequence (SobolDirectionNumbers dirNums, int k, int w,
+                         int dim)  {
+      if (dim < 1 || dim > dirNums.getDimension())
+         throw new IllegalArgumentException
+            ("Dimension for SobolSequence must be > 0 and <= " +
+             dirNums.getDimension());
+      this.dirNums = dirNums;
+      init (k, w, w, dim);
+   }
  
 
    public String toString() {
@@ -410,13 +440,13 @@ public class SobolSequence extends DigitalSequenceBase2  {
 
       // the other dimensions j > 0.
       for (j = 1; j < dim; j++) {
+         int polynomial = polynomial (j);
          // find the degree of primitive polynomial f_j
-         for (degree = MAXDEGREE;  ((poly[j] >> degree) & 1) == 0; degree--)
-            ;
+         degree = 31 - Integer.numberOfLeadingZeros (polynomial);
          // Get initial direction numbers m_{j,0},..., m_{j,degree-1}.
          start = j * numCols;
          for (c = 0; (c < degree && c < numCols); c++)
-            genMat[start+c] = minit[j-1][c] << (outDigits-c-1);
+            genMat[start+c] = initNumber (j, c) << (outDigits-c-1);
 
          // Compute the following ones via the recursion.
          for (c = degree; c < numCols; c++) {
@@ -425,7 +455,7 @@ public class SobolSequence extends DigitalSequenceBase2  {
             else {
                nextCol = genMat[start+c-degree] >> degree;
                for (i = 0; i < degree; i++)
-                  if (((poly[j] >> i) & 1) == 1)
+                  if (((polynomial >> i) & 1) == 1)
                      nextCol ^= genMat[start+c-degree+i];
                genMat[start+c] = nextCol;
             }
@@ -445,18 +475,13 @@ public class SobolSequence extends DigitalSequenceBase2  {
 
       // the other dimensions j > 0.
       for (j = 1; j < dim; j++) {
-         // if a direction number file was provided, use it
-         int polynomial = (filename != null ? poly_from_file[j] : poly[j]);
+         int polynomial = polynomial (j);
          // find the degree of primitive polynomial f_j
-         for (degree = MAXDEGREE; ((polynomial >> degree) & 1) == 0; degree--)
-            ;
+         degree = 31 - Integer.numberOfLeadingZeros (polynomial);
          // Get initial direction numbers m_{j,0},..., m_{j,degree-1}.
          start = j * numCols;
-         for (c = 0; (c < degree && c < numCols); c++) {
-             int m_i = (filename != null ? 
-                        minit_from_file[j-1][c] : minit[j-1][c]);
-             genMat[start+c] = m_i << (outDigits-c-1);
-         }
+         for (c = 0; (c < degree && c < numCols); c++)
+             genMat[start+c] = initNumber (j, c) << (outDigits-c-1);
 
          // Compute the following ones via the recursion.
          for (c = degree; c < numCols; c++) {
@@ -468,6 +493,21 @@ public class SobolSequence extends DigitalSequenceBase2  {
          }
       } 
    }
+
+   // Primitive polynomial of coordinate j > 0, from the direction number
+   // file if one was provided.
+   private int polynomial (int j) {
+      if (dirNums != null)
+         return dirNums.getPolynomial (j);
+      return filename != null ? poly_from_file[j] : poly[j];
+   }
+
+   // Initial direction number m_{j,c} of coordinate j > 0.
+   private int initNumber (int j, int c) {
+      if (dirNums != null)
+         return dirNums.getDirectionNumber (j, c + 1);
+      return filename != null ? minit_from_file[j-1][c] : minit[j-1][c];
+   }
     
 /*
    // Initializes the generator matrices for a net.
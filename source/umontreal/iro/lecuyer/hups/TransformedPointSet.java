@@ -0,0 +1,526 @@
+/*
+ * Class:        TransformedPointSet
+ * Description:  Point set with fused subset, padding, shift, baker and
+                 antithetic transformations
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Université de Montréal
+ * Organization: DIRO, Université de Montréal
+ * @author
+ * @since
+
+ * SSJ is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License (GPL) as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * any later version.
+
+ * SSJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * A copy of the GNU General Public License is available at
+   <a href="http://www.gnu.org/licenses">GPL licence site</a>.
+ */
+
+package umontreal.iro.lecuyer.hups;
+
+import umontreal.iro.lecuyer.util.PrintfFormat;
+import umontreal.iro.lecuyer.rng.RandomStream;
+
+
+/**
+ * This class applies, in a single container, the transformations of the
+ * classes {@link SubsetOfPointSet}, {@link PaddedPointSet},
+ * {@link RandShiftedPointSet}, {@link BakerTransformedPointSet} and
+ * {@link AntitheticPointSet} to a point set <SPAN CLASS="MATH"><I>P</I></SPAN>.  Coordinate <SPAN CLASS="MATH"><I>j</I></SPAN> of point <SPAN CLASS="MATH"><I>i</I></SPAN>
+ * is obtained as follows.  The value <SPAN CLASS="MATH"><I>v</I></SPAN> is coordinate <SPAN CLASS="MATH"><I>j</I></SPAN> of point <SPAN CLASS="MATH"><I>i</I></SPAN> of
+ * the selected subset of <SPAN CLASS="MATH"><I>P</I></SPAN>, if <SPAN CLASS="MATH"><I>j</I></SPAN> is smaller than the number of selected
+ * coordinates of <SPAN CLASS="MATH"><I>P</I></SPAN>, otherwise the corresponding coordinate of point <SPAN CLASS="MATH"><I>i</I></SPAN> of
+ * a padded point set.  If a random shift <SPAN CLASS="MATH"><B><I>U</I></B></SPAN> has been added, <SPAN CLASS="MATH"><I>v</I></SPAN> is
+ * replaced by <SPAN CLASS="MATH">(<I>v</I> + <I>U</I><SUB>j</SUB>) mod 1</SPAN>, or by a very small positive value if this
+ * is 0, as in {@link RandShiftedPointSet}.  Then, if the baker
+ * transformation is used, <SPAN CLASS="MATH"><I>v</I></SPAN> is replaced by <SPAN CLASS="MATH">2<I>v</I></SPAN> if <SPAN CLASS="MATH"><I>v</I> &lt; 1/2</SPAN> and by
+ * <SPAN CLASS="MATH">2(1 - <I>v</I>)</SPAN> otherwise, and if the antithetic map is used, <SPAN CLASS="MATH"><I>v</I></SPAN> is replaced by
+ * <SPAN CLASS="MATH">1 - <I>v</I></SPAN>.  The result is the same as that of the corresponding stack of
+ * containers, each one applying its transformation to the output of the
+ * next one, but without the call through each container for each coordinate.
+ * <P>
+ * The iterators of this class fetch the coordinates of blocks of points
+ * from the iterators of <SPAN CLASS="MATH"><I>P</I></SPAN> and of the padded point sets with
+ * {@link PointSetBlockIterator#nextPoints(double[],int,int) nextPoints},
+ * then select and transform them in a few loops over each block.  The method
+ * <TT>nextPoints</TT> thus costs little more than that of the iterator of
+ * <SPAN CLASS="MATH"><I>P</I></SPAN>, and the iterators allocate no memory for each point: they keep
+ * buffers whose size depends only on the dimension.  The source iterators
+ * are moved only when needed, and with
+ * {@link PointSetIterator#resetToNextPoint resetToNextPoint} when the points are
+ * enumerated in order, so <TT>nextCoordinate</TT> is also efficient.
+ * <P>
+ * When the selection of points or coordinates, or the padded point sets,
+ * are changed, existing iterators become invalid.  The random shift can be
+ * changed, for example by a {@link RandomShift} randomization of this point
+ * set, without invalidating the iterators; the contained point sets are
+ * randomized separately.
+ * 
+ */
+public class TransformedPointSet extends PointSet {
+   private static final int CHUNK = 256;   // Points per block
+
+   private PointSet P;                // Source points
+   private int pointFrom;             // Point of P for point 0
+   private int coordFrom;             // Coordinate of P for coordinate 0,
+   private int[] coords;              //    or coordinates of P if not null
+   private int[] coordMax;            // coordMax[j] = max of coords[0..j]
+   private int mainDim;               // Number of coordinates taken from P
+   private PointSet[] padded = new PointSet[0];
+   private int[] padStart = new int[0];   // First coordinate of each padded set
+   private double[] shift;            // Random shift, null if none
+   private boolean baker;
+   private boolean antithetic;
+
+
+   /**
+    * Constructs a point set initially identical to <SPAN CLASS="MATH"><I>P</I></SPAN>, with all its points
+    * and coordinates, and no transformation.
+    * 
+    * @param P the contained point set
+    * 
+    */
+   public TransformedPointSet (PointSet P) {
+      this.P = P;
+      numPoints = P.getNumPoints();
+      dim = mainDim = P.getDimension();
+   }
+
+
+   /**
+    * Returns the contained point set <SPAN CLASS="MATH"><I>P</I></SPAN>.
+    * 
+    * @return the contained point set
+    * 
+    */
+   public PointSet getOriginalPointSet() {
+      return P;
+   }
+
+
+   /**
+    * Selects the points numbered from <TT>from</TT> to <TT>to - 1</TT> of <SPAN CLASS="MATH"><I>P</I></SPAN>,
+    * as in {@link SubsetOfPointSet#selectPointsRange(int,int) selectPointsRange}.
+    * 
+    * @param from index of the point of <SPAN CLASS="MATH"><I>P</I></SPAN> corresponding to point 0
+    * 
+    * @param to index of the point of <SPAN CLASS="MATH"><I>P</I></SPAN> following the last selected point
+    * 
+    * @exception IllegalArgumentException if the range is invalid, or if a
+    * padded point set has fewer than <TT>to - from</TT> points
+    * 
+    */
+   public void selectPointsRange (int from, int to) {
+      if (0 > from || from >= to || to > P.getNumPoints())
+         throw new IllegalArgumentException ("Invalid range for points");
+      for (int k = 0; k < padded.length; k++)
+         if (padded[k].getNumPoints() < to - from)
+            throw new IllegalArgumentException
+               ("A padded point set has too few points");
+      pointFrom = from;
+      numPoints = to - from;
+   }
+
+
+   /**
+    * Selects the coordinates from <TT>from</TT> to <TT>to - 1</TT> of <SPAN CLASS="MATH"><I>P</I></SPAN>,
+    * as in {@link SubsetOfPointSet#selectCoordinatesRange(int,int) selectCoordinatesRange}.
+    * 
+    * @param from index of the coordinate of <SPAN CLASS="MATH"><I>P</I></SPAN> corresponding to coordinate 0
+    * 
+    * @param to index of the coordinate of <SPAN CLASS="MATH"><I>P</I></SPAN> following the last selected one
+    * 
+    * @exception IllegalArgumentException if the range is invalid
+    * 
+    */
+   public void selectCoordinatesRange (int from, int to) {
+      if (0 > from || from >= to || to > P.getDimension())
+         throw new IllegalArgumentException ("Invalid column range");
+      coords = null;
+      coordMax = null;
+      coordFrom = from;
+      setMainDim (to - from);
+   }
+
+
+   /**
+    * Selects the <TT>numCoord</TT> coordinates of <SPAN CLASS="MATH"><I>P</I></SPAN> whose indices are
+    * <TT>coordIndices[0..numCoord-1]</TT>, as in
+    * {@link SubsetOfPointSet#selectCoordinates(int[],int) selectCoordinates}.
+    * The indices are copied.
+    * 
+    * @param coordIndices indices of the selected coordinates of <SPAN CLASS="MATH"><I>P</I></SPAN>
+    * 
+    * @param numCoord number of selected coordinates
+    * 
+    * @exception IllegalArgumentException if <TT>numCoord</TT> is not in
+    * <SPAN CLASS="MATH">{1,...,</SPAN> <TT>coordIndices.length</TT><SPAN CLASS="MATH">}</SPAN> or an index is not a
+    * coordinate of <SPAN CLASS="MATH"><I>P</I></SPAN>
+    * 
+    */
+   public void selectCoordinates (int[] coordIndices, int numCoord) {
+      if (numCoord < 1 || numCoord > coordIndices.length)
+         throw new IllegalArgumentException ("Invalid number of indices");
+      int[] c = new int[numCoord];
+      int[] max = new int[numCoord];
+      for (int j = 0; j < numCoord; j++) {
+         c[j] = coordIndices[j];
+         if (c[j] < 0 || c[j] >= P.getDimension())
+            throw new IllegalArgumentException ("Invalid coordinate index");
+         max[j] = j == 0 ? c[0] : Math.max (max[j - 1], c[j]);
+      }
+      coords = c;
+      coordMax = max;
+      coordFrom = 0;
+      setMainDim (numCoord);
+   }
+
+
+   /**
+    * Appends the coordinates of the point set <SPAN CLASS="MATH"><I>Q</I></SPAN> to those of the points,
+    * as in {@link PaddedPointSet#padPointSet(PointSet) padPointSet}:
+    * the coordinates of point <SPAN CLASS="MATH"><I>i</I></SPAN> that follow those already defined are the
+    * coordinates of point <SPAN CLASS="MATH"><I>i</I></SPAN> of <SPAN CLASS="MATH"><I>Q</I></SPAN>.  The point set <SPAN CLASS="MATH"><I>Q</I></SPAN> must have at least
+    * as many points as this point set, and the dimension of this point set
+    * must be finite.
+    * 
+    * @param Q the padded point set
+    * 
+    * @exception IllegalArgumentException if the dimension is infinite, or
+    * if <SPAN CLASS="MATH"><I>Q</I></SPAN> has too few points
+    * 
+    */
+   public void padPointSet (PointSet Q) {
+      if (dim == Integer.MAX_VALUE)
+         throw new IllegalArgumentException
+            ("Cannot pad more, dimension already infinite");
+      if (Q.getNumPoints() < numPoints)
+         throw new IllegalArgumentException
+            ("Padded points must have at least as many points");
+      int m = padded.length;
+      PointSet[] ps = new PointSet[m + 1];
+      int[] start = new int[m + 1];
+      System.arraycopy (padded, 0, ps, 0, m);
+      System.arraycopy (padStart, 0, start, 0, m);
+      ps[m] = Q;
+      start[m] = dim;
+      padded = ps;
+      padStart = start;
+      dim = Q.getDimension() == Integer.MAX_VALUE ? Integer.MAX_VALUE
+            : dim + Q.getDimension();
+   }
+
+
+   /**
+    * Applies the baker transformation to the coordinates if <TT>baker</TT>
+    * is <TT>true</TT>.
+    * 
+    * @param baker <TT>true</TT> to apply the baker transformation
+    * 
+    */
+   public void setBaker (boolean baker) {
+      this.baker = baker;
+   }
+
+
+   /**
+    * Applies the antithetic map <SPAN CLASS="MATH"><I>v</I> mapsto 1 - <I>v</I></SPAN> to the coordinates if
+    * <TT>antithetic</TT> is <TT>true</TT>.
+    * 
+    * @param antithetic <TT>true</TT> to apply the antithetic map
+    * 
+    */
+   public void setAntithetic (boolean antithetic) {
+      this.antithetic = antithetic;
+   }
+
+
+   /**
+    * Adds a random shift modulo 1 to the points, or replaces the current one,
+    * for coordinates <TT>d1</TT> to <TT>d2 - 1</TT>, using <TT>stream</TT>
+    * to generate the shift.  As in {@link Rank1Lattice}, the shift is extended
+    * with the same stream when more coordinates are used.
+    * 
+    * @param d1 first coordinate of the new shift
+    * 
+    * @param d2 coordinate following the last coordinate of the new shift
+    * 
+    * @param stream the random stream
+    * 
+    */
+   public void addRandomShift (int d1, int d2, RandomStream stream) {
+      if (null == stream)
+         throw new IllegalArgumentException (
+              PrintfFormat.NEWLINE +
+                  "   Calling addRandomShift with null stream");
+      if (0 == d2)
+         d2 = Math.max (1, Math.min (dim, 64));
+      if (shift == null) {
+         shift = new double[d2];
+         capacityShift = d2;
+      } else if (d2 > capacityShift) {
+         int d3 = Math.max (4, capacityShift);
+         while (d2 > d3)
+            d3 *= 2;
+         double[] temp = new double[d3];
+         capacityShift = d3;
+         for (int i = 0; i < d1; i++)
+            temp[i] = shift[i];
+         shift = temp;
+      }
+      dimShift = d2;
+      for (int i = d1; i < d2; i++)
+         shift[i] = stream.nextDouble ();
+      shiftStream = stream;
+   }
+
+
+   /**
+    * Removes the random shift.
+    * 
+    */
+   public void clearRandomShift() {
+      super.clearRandomShift();
+      shift = null;
+   }
+
+
+   public double getCoordinate (int i, int j) {
+      if (i < 0 || i >= numPoints)
+         throw new IllegalArgumentException ("Row out of range");
+      if (j < 0 || j >= dim)
+         throw new IllegalArgumentException ("Column out of range");
+      double u;
+      if (j < mainDim)
+         u = P.getCoordinate (pointFrom + i,
+                              coords == null ? coordFrom + j : coords[j]);
+      else {
+         int k = padSet (j);
+         u = padded[k].getCoordinate (i, j - padStart[k]);
+      }
+      return transform (u, j);
+   }
+
+   public PointSetIterator iterator() {
+      return new TransformedIterator();
+   }
+
+   public String toString() {
+      StringBuffer sb = new StringBuffer ("Transformed point set" +
+                                          PrintfFormat.NEWLINE);
+      sb.append ("Points from " + pointFrom + " to " +
+                 (pointFrom + numPoints - 1) + PrintfFormat.NEWLINE);
+      sb.append ("Number of padded point sets: " + padded.length +
+                 PrintfFormat.NEWLINE);
+      sb.append ("Random shift: " + (shift != null) + ", baker: " + baker +
+                 ", antithetic: " + antithetic + PrintfFormat.NEWLINE);
+      sb.append ("Inner point set information {" + PrintfFormat.NEWLINE);
+      sb.append (P.toString());
+      sb.append (PrintfFormat.NEWLINE + "}");
+      return sb.toString();
+   }
+
+   private void setMainDim (int d) {
+      int pad = dim - mainDim;
+      if (dim == Integer.MAX_VALUE && padded.length > 0)
+         pad = dim;
+      for (int k = 0; k < padded.length; k++)
+         padStart[k] += d - mainDim;
+      mainDim = d;
+      dim = pad == Integer.MAX_VALUE ? pad : d + pad;
+   }
+
+   // Padded set that contains coordinate j >= mainDim.
+   private int padSet (int j) {
+      int k = padded.length - 1;
+      while (padStart[k] > j)
+         k--;
+      return k;
+   }
+
+   // Applies the shift, baker and antithetic transformations to
+   // coordinate j.
+   private double transform (double u, int j) {
+      if (shift != null) {
+         if (j >= dimShift)   // Extend the shift.
+            addRandomShift (dimShift, j + 1, shiftStream);
+         u += shift[j];
+         if (u >= 1.0)
+            u -= 1.0;
+         if (u <= 0.0)
+            u = EpsilonHalf;  // avoid u = 0
+      }
+      if (baker)
+         u = u < 0.5 ? 2.0*u : 2.0*(1.0 - u);
+      if (antithetic)
+         u = 1.0 - u;
+      return u;
+   }
+
+   // Same as transform for the first d coordinates of the m points
+   // stored in p from index off, one after the other.
+   private void transform (double[] p, int off, int m, int d) {
+      if (shift != null) {
+         if (d > dimShift)
+            addRandomShift (dimShift, d, shiftStream);
+         final double[] U = shift;
+         for (int k = off, i = 0; i < m; i++)
+            for (int j = 0; j < d; j++, k++) {
+               double u = p[k] + U[j];
+               if (u >= 1.0)
+                  u -= 1.0;
+               p[k] = u <= 0.0 ? EpsilonHalf : u;
+            }
+      }
+      int end = off + m*d;
+      if (baker)
+         for (int k = off; k < end; k++) {
+            double u = p[k];
+            p[k] = u < 0.5 ? 2.0*u : 2.0*(1.0 - u);
+         }
+      if (antithetic)
+         for (int k = off; k < end; k++)
+            p[k] = 1.0 - p[k];
+   }
+
+
+   // ***********************************************************
+
+   private class TransformedIterator extends DefaultPointSetIterator {
+      // Source iterators: 0 for P, k + 1 for padded set k, with their
+      // current point and coordinate.
+      private PointSetIterator[] its = new PointSetIterator[padded.length + 1];
+      private int[] itPoint = new int[its.length];
+      private int[] itCoord = new int[its.length];
+      private double[] buf = new double[0];    // Source coordinates
+      private double[] rows = new double[0];   // Block for nextPoints (p[][])
+
+      public TransformedIterator() {
+         its[0] = P.iterator();
+         for (int k = 0; k < padded.length; k++)
+            its[k + 1] = padded[k].iterator();
+      }
+
+      public double nextCoordinate() {
+         if (curPointIndex >= numPoints || curCoordIndex >= dim)
+            outOfBounds();
+         int j = curCoordIndex++;
+         double u;
+         if (j < mainDim)
+            u = source (0, pointFrom + curPointIndex,
+                        coords == null ? coordFrom + j : coords[j]);
+         else {
+            int k = padSet (j);
+            u = source (k + 1, curPointIndex, j - padStart[k]);
+         }
+         return transform (u, j);
+      }
+
+      public int nextPoint (double[] p, int d) {
+         if (curPointIndex >= numPoints || d > dim)
+            outOfBounds();
+         block (p, 1, d);
+         return curPointIndex;
+      }
+
+      public int nextPoints (double[] p, int n, int d) {
+         checkPoints (n);
+         if (d > dim)
+            outOfBounds();
+         block (p, n, d);
+         return curPointIndex;
+      }
+
+      public int nextPoints (double[][] p, int n, int d) {
+         checkPoints (n);
+         if (d > dim)
+            outOfBounds();
+         if (rows.length < CHUNK*d)
+            rows = new double[CHUNK*d];
+         for (int i = 0; i < n; i += CHUNK) {
+            int m = Math.min (CHUNK, n - i);
+            block (rows, m, d);
+            for (int t = 0; t < m; t++)
+               System.arraycopy (rows, t*d, p[i + t], 0, d);
+         }
+         return curPointIndex;
+      }
+
+      // Returns coordinate c of point i of source s.
+      private double source (int s, int i, int c) {
+         PointSetIterator it = position (s, i, c);
+         itCoord[s]++;
+         return it.nextCoordinate();
+      }
+
+      // Moves the iterator of source s to coordinate c of point i.
+      private PointSetIterator position (int s, int i, int c) {
+         PointSetIterator it = its[s];
+         if (itPoint[s] != i) {
+            if (itPoint[s] == i - 1)
+               it.resetToNextPoint();
+            else
+               it.setCurPointIndex (i);
+            itPoint[s] = i;
+            itCoord[s] = 0;
+         }
+         if (itCoord[s] != c) {
+            it.setCurCoordIndex (c);
+            itCoord[s] = c;
+         }
+         return it;
+      }
+
+      // Stores the first d coordinates of the next n points in p, one
+      // point after the other, and moves to the point following them.
+      private void block (double[] p, int n, int d) {
+         int dm = Math.min (d, mainDim);
+         for (int i = 0; i < n; i += CHUNK) {
+            int m = Math.min (CHUNK, n - i);
+            int off = i*d;
+            if (dm > 0) {
+               // Coordinates 0 to w - 1 of P contain the selected ones
+               int w = coords == null ? coordFrom + dm : coordMax[dm - 1] + 1;
+               fetch (0, pointFrom + curPointIndex + i, m, w);
+               for (int t = 0; t < m; t++) {
+                  int src = t*w;
+                  int dst = off + t*d;
+                  if (coords == null)
+                     System.arraycopy (buf, src + coordFrom, p, dst, dm);
+                  else
+                     for (int j = 0; j < dm; j++)
+                        p[dst + j] = buf[src + coords[j]];
+               }
+            }
+            for (int k = 0; k < padded.length && padStart[k] < d; k++) {
+               int c0 = padStart[k];
+               int w = Math.min (d, k + 1 < padded.length ? padStart[k + 1]
+                                                          : dim) - c0;
+               fetch (k + 1, curPointIndex + i, m, w);
+               for (int t = 0; t < m; t++)
+                  System.arraycopy (buf, t*w, p, off + t*d + c0, w);
+            }
+            transform (p, off, m, d);
+         }
+         curPointIndex += n;
+         curCoordIndex = 0;
+      }
+
+      // Stores the first w coordinates of the m points of source s from
+      // point i in buf.
+      private void fetch (int s, int i, int m, int w) {
+         if (buf.length < m*w)
+            buf = new double[Math.max (m*w, 2*buf.length)];
+         PointSet.nextPoints (position (s, i, 0), buf, m, w);
+         itPoint[s] = i + m;
+         itCoord[s] = 0;
+      }
+   }
+}
@@ -325,6 +325,8 @@ public class BinomialDist extends DiscreteDistributionInt {
     * Computes <SPAN CLASS="MATH"><I>F</I>(<I>x</I>)</SPAN>, the distribution function of a
     *   binomial
     *   random variable with parameters <SPAN CLASS="MATH"><I>n</I></SPAN> and <SPAN CLASS="MATH"><I>p</I></SPAN>, evaluated at <SPAN CLASS="MATH"><I>x</I></SPAN>.
+    *   If a default {@link DiscreteDistributionIntCache} is set, the tables
+    *   of a cached <TT>BinomialDist</TT> object are used instead.
     * 
     */
    public static double cdf (int n, double p, int x) {
@@ -352,6 +354,10 @@ public class BinomialDist extends DiscreteDistributionInt {
       if (p >= 1.0)
          return 0.0;                 // For any x < n
 
+      BinomialDist dist = DiscreteDistributionIntCache.getBinomial (n, p);
+      if (dist != null)
+         return dist.cdf (x);
+
       if (n < NLIM1) {               // Exact Binomial
          /* Sum RMAX terms to get a few decimals in the lower tail */
          final int RMAX = 20;
@@ -427,6 +433,9 @@ public class BinomialDist extends DiscreteDistributionInt {
     * 
     */
    public static double barF (int n, double p, int x) {
+      BinomialDist dist = DiscreteDistributionIntCache.getBinomial (n, p);
+      if (dist != null)
+         return dist.barF (x);
       return 1.0 - cdf (n, p, x - 1);
    }
 
@@ -443,6 +452,11 @@ public class BinomialDist extends DiscreteDistributionInt {
          return 0;
       if ((u > 1.0 - prob (n, p, n)) || (u >= 1.0))
          return n;
+      if (u > EPS2) {
+         BinomialDist dist = DiscreteDistributionIntCache.getBinomial (n, p);
+         if (dist != null)
+            return dist.inverseFInt (u);
+      }
       final int NLIM1 = 10000;
       int i, mid;
       final double q = 1.0 - p;
@@ -0,0 +1,253 @@
+/*
+ * Class:        DiscreteDistributionIntCache
+ * Description:  cache of precomputed discrete distributions over the integers
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Université de Montréal
+ * Organization: DIRO, Université de Montréal
+ * @author
+ * @since
+
+ * SSJ is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License (GPL) as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * any later version.
+
+ * SSJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * A copy of the GNU General Public License is available at
+   <a href="http://www.gnu.org/licenses">GPL licence site</a>.
+ */
+
+package umontreal.iro.lecuyer.probdist;
+
+import java.util.Map;
+import java.util.LinkedHashMap;
+import java.util.Iterator;
+
+
+/**
+ * A bounded cache of precomputed discrete distributions over the integers,
+ * keyed by their parameters, used by the static methods of
+ * {@link BinomialDist}, {@link PoissonDist} and {@link NegativeBinomialDist}.
+ * These static methods, such as
+ * {@link BinomialDist#cdf(int,double,int) cdf} or
+ * {@link PoissonDist#inverseF(double,double) inverseF},
+ * recompute their sums from scratch on each call.
+ * When a program calls them repeatedly with a small set of recurring
+ * parameters, it is much more efficient to compute the tables of
+ * probabilities and cumulative probabilities once, as done by the
+ * constructors of these classes, and then to look up the tables.
+ * 
+ * When a default cache has been installed with {@link #setDefault(DiscreteDistributionIntCache) setDefault}, the
+ * static methods <TT>cdf</TT>, <TT>barF</TT> and <TT>inverseF</TT> of the three
+ * classes above first look for a distribution object with the same parameters
+ * in the cache, create it if necessary, and use its tables.
+ * A repeated call then costs the same as a call on an instance.
+ * Only distributions whose tables are actually precomputed are kept
+ * (see <TT>BinomialDist.MAXN</TT>, <TT>PoissonDist.MAXLAMBDA</TT>
+ * and <TT>NegativeBinomialDist.MAXN</TT>); for the others, the static methods
+ * behave as if there was no cache.
+ * Note that the values returned through the tables may differ from those
+ * returned without a cache in the last few decimals.
+ * There is no default cache, i.e., caching is disabled, unless
+ * {@link #setDefault(DiscreteDistributionIntCache) setDefault} is called.
+ * 
+ * The cache holds at most a given number of distributions, whose tables
+ * occupy at most a given number of bytes.  When one of these limits is
+ * exceeded, the least recently used distributions are evicted.
+ * All the methods of this class are thread-safe.
+ * 
+ */
+public class DiscreteDistributionIntCache {
+   private static final int BINOMIAL = 0;
+   private static final int POISSON = 1;
+   private static final int NEGATIVEBINOMIAL = 2;
+   private static final int OVERHEAD = 64;  // approx. bytes used by an entry
+
+   private static volatile DiscreteDistributionIntCache defaultCache = null;
+
+   private int maxEntries;
+   private long maxBytes;
+   private long bytes = 0;
+   private LinkedHashMap<Key, DiscreteDistributionInt> map =
+      new LinkedHashMap<Key, DiscreteDistributionInt> (16, 0.75f, true);
+
+   private static final class Key {
+      private final int type;
+      private final double a;
+      private final double b;
+
+      public Key (int type, double a, double b) {
+         this.type = type;
+         this.a = a;
+         this.b = b;
+      }
+
+      public boolean equals (Object o) {
+         if (!(o instanceof Key))
+            return false;
+         Key k = (Key) o;
+         return type == k.type &&
+            Double.doubleToLongBits (a) == Double.doubleToLongBits (k.a) &&
+            Double.doubleToLongBits (b) == Double.doubleToLongBits (k.b);
+      }
+
+      public int hashCode() {
+         long h = 31*Double.doubleToLongBits (a) + Double.doubleToLongBits (b);
+         return type + 31*(int)(h ^ (h >>> 32));
+      }
+   }
+
+
+   /**
+    * Constructs a cache holding at most <TT>maxEntries</TT> distributions
+    * whose tables use at most <TT>maxBytes</TT> bytes of memory.
+    * 
+    * @param maxEntries maximal number of distributions in the cache
+    * 
+    * @param maxBytes maximal memory used by the tables, in bytes
+    * 
+    */
+   public DiscreteDistributionIntCache (int maxEntries, long maxBytes) {
+      if (maxEntries < 1)
+         throw new IllegalArgumentException ("maxEntries < 1");
+      if (maxBytes < 0)
+         throw new IllegalArgumentException ("maxBytes < 0");
+      this.maxEntries = maxEntries;
+      this.maxBytes = maxBytes;
+   }
+
+
+   /**
+    * Sets the cache used by the static methods of {@link BinomialDist},
+    * {@link PoissonDist} and {@link NegativeBinomialDist} to <TT>cache</TT>.
+    * If <TT>cache</TT> is <TT>null</TT>, caching is disabled.
+    * 
+    */
+   public static void setDefault (DiscreteDistributionIntCache cache) {
+      defaultCache = cache;
+   }
+
+
+   /**
+    * Returns the cache used by the static methods, or <TT>null</TT> if
+    * caching is disabled.
+    * 
+    */
+   public static DiscreteDistributionIntCache getDefault() {
+      return defaultCache;
+   }
+
+
+   static BinomialDist getBinomial (int n, double p) {
+      DiscreteDistributionIntCache cache = defaultCache;
+      if (cache == null || n <= 0 || n > BinomialDist.MAXN ||
+          !(p > 0.0 && p < 1.0))
+         return null;
+      Key key = new Key (BINOMIAL, n, p);
+      DiscreteDistributionInt dist = cache.get (key);
+      if (dist == null)
+         dist = cache.put (key, new BinomialDist (n, p));
+      return (BinomialDist) dist;
+   }
+
+   static PoissonDist getPoisson (double lambda) {
+      DiscreteDistributionIntCache cache = defaultCache;
+      if (cache == null || !(lambda > 0.0 && lambda <= PoissonDist.MAXLAMBDA))
+         return null;
+      Key key = new Key (POISSON, lambda, 0.0);
+      DiscreteDistributionInt dist = cache.get (key);
+      if (dist == null)
+         dist = cache.put (key, new PoissonDist (lambda));
+      return (PoissonDist) dist;
+   }
+
+   static NegativeBinomialDist getNegativeBinomial (double n, double p) {
+      DiscreteDistributionIntCache cache = defaultCache;
+      if (cache == null || !(n > 0.0) || !(p > 0.0 && p < 1.0))
+         return null;
+      Key key = new Key (NEGATIVEBINOMIAL, n, p);
+      DiscreteDistributionInt dist = cache.get (key);
+      if (dist == null)
+         dist = cache.put (key, new NegativeBinomialDist (n, p));
+      return (NegativeBinomialDist) dist;
+   }
+
+   private synchronized DiscreteDistributionInt get (Key key) {
+      return map.get (key);
+   }
+
+   private synchronized DiscreteDistributionInt put (Key key,
+                                                     DiscreteDistributionInt dist) {
+      // The tables are built outside the lock; another thread may have
+      // inserted the same distribution in the meantime.
+      DiscreteDistributionInt old = map.get (key);
+      if (old != null)
+         return old;
+      if (dist.cdf == null)
+         return null;            // no precomputed tables, do not keep it
+      long size = sizeOf (dist);
+      if (size > maxBytes)
+         return dist;
+      map.put (key, dist);
+      bytes += size;
+      Iterator<Map.Entry<Key, DiscreteDistributionInt>> it =
+         map.entrySet().iterator();
+      while ((map.size() > maxEntries || bytes > maxBytes) && it.hasNext()) {
+         Map.Entry<Key, DiscreteDistributionInt> e = it.next();
+         if (e.getValue() == dist)
+            continue;
+         bytes -= sizeOf (e.getValue());
+         it.remove();
+      }
+      return dist;
+   }
+
+   private static long sizeOf (DiscreteDistributionInt dist) {
+      long size = OVERHEAD;
+      if (dist.pdf != null)
+         size += 8L*dist.pdf.length;
+      if (dist.cdf != null)
+         size += 8L*dist.cdf.length;
+      return size;
+   }
+
+
+   /**
+    * Returns the number of distributions currently in the cache.
+    * 
+    */
+   public synchronized int size() {
+      return map.size();
+   }
+
+
+   /**
+    * Returns an estimate of the memory used by the tables of the
+    * distributions in the cache, in bytes.
+    * 
+    */
+   public synchronized long getMemoryUsage() {
+      return bytes;
+   }
+
+
+   /**
+    * Removes all the distributions from the cache.
+    * 
+    */
+   public synchronized void clear() {
+      map.clear();
+      bytes = 0;
+   }
+
+
+   public String toString () {
+      return getClass().getSimpleName() + " : size = " + size() +
+             ", memory = " + getMemoryUsage() + " bytes";
+   }
+}
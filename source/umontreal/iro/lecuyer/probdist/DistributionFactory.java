@@ -28,6 +28,8 @@ package umontreal.iro.lecuyer.probdist;
 
 import java.lang.reflect.*;
 import java.util.StringTokenizer;
+import java.util.Map;
+import java.util.LinkedHashMap;
 
 /**
  * This class implements a string API for the package <TT>probdist</TT>.
@@ -70,11 +72,99 @@ import java.util.StringTokenizer;
  * vector of observations, and the constructor estimates the parameters by
  * the maximum likelihood method.
  * 
+ * <P>
+ * Each distinct specification string is parsed only once: the class, the
+ * constructor and the parameter values obtained from it are kept in a cache
+ * and reused by later calls with the same string, which then only have to
+ * invoke the constructor.  The methods {@link #getDistributions(String[]) getDistributions}
+ * and {@link #getContinuousDistributions(String[]) getContinuousDistributions} construct the
+ * distributions for a whole table of specification strings at once.
+ * 
  */
 public class DistributionFactory {
    private DistributionFactory() {}   //  ????   Utile?
 
+   // Maximal number of parsed specification strings kept in the cache
+   private static final int MAXCACHE = 4096;
+
+   // Parsed specification strings, in least-recently used order
+   private static final Map<String, Spec> cache =
+      new LinkedHashMap<String, Spec> (64, 0.75f, true) {
+         protected boolean removeEldestEntry (Map.Entry<String, Spec> eldest) {
+            return size() > MAXCACHE;
+         }
+      };
+
+   // A parsed distribution specification: the constructor to invoke and
+   // its arguments. The arguments are immutable and shared by all the
+   // objects created from the same specification.
+   private static final class Spec {
+      private final Class<?> distClass;
+      private final Constructor<?> distCons; // null for the default constructor
+      private final Object[] instParams;
+
+      public Spec (Class<?> distClass, Constructor<?> distCons,
+                   Object[] instParams) {
+         this.distClass = distClass;
+         this.distCons = distCons;
+         this.instParams = instParams;
+      }
+
+      public Distribution newInstance() {
+         if (distCons == null) {
+            // No parameter is given to the constructor.
+            try {
+               return (Distribution) distClass.getConstructor().newInstance();
+            }
+            catch (NoSuchMethodException e) {
+               throw new IllegalArgumentException
+                                         ("Default parameters not available");
+            }
+            catch (IllegalAccessException e) {
+               throw new IllegalArgumentException
+                                         ("Default parameters not available");
+            }
+            catch (InstantiationException e) {
+               throw new IllegalArgumentException
+                                         ("Default parameters not available");
+            }
+            catch (InvocationTargetException e) {
+               throw new IllegalArgumentException
+                                         ("Default parameters not available");
+            }
+         }
+
+         // Try to instantiate the distribution class.
+         try {
+            return (Distribution) distCons.newInstance (instParams);
+         }
+         catch (IllegalAccessException e) {
+            return null;
+         }
+         catch (InstantiationException e) {
+            return null;
+         }
+         catch (InvocationTargetException e) {
+            return null;
+         }
+      }
+   }
+
    public static Distribution getDistribution (String str) {
+      Spec spec;
+      synchronized (cache) {
+         spec = cache.get (str);
+      }
+      if (spec == null) {
+         spec = compile (str);
+         synchronized (cache) {
+            cache.put (str, spec);
+         }
+      }
+      return spec.newInstance();
+   }
+
+   private static Spec compile (String str) {
       // Extracts the name of the distribution.
       // If there is an open parenthesis, the name contains all the 
       // non-space characters preceeding it.If not,the name is the full string.
@@ -127,20 +217,9 @@ public class DistributionFactory {
                                                 + paramStr);
       }
 
-      if (paramStr.equals ("")) {
+      if (paramStr.equals (""))
          // No parameter is given to the constructor.
-         try {
-            return (Distribution) distClass.newInstance();
-         }
-         catch (IllegalAccessException e) {
-            throw new IllegalArgumentException 
-                                         ("Default parameters not available");
-         }
-         catch (InstantiationException e) {
-            throw new IllegalArgumentException 
-                                         ("Default parameters not available");
-         }
-      }
+         return new Spec (distClass, null, null);
 
       // Find the number of parameters and try to find a matching constructor.
       // Within probdist, there are no constructors with the same
@@ -148,9 +227,9 @@ public class DistributionFactory {
       // This simplifies the constructor selection scheme.
       StringTokenizer paramTok = new StringTokenizer (paramStr, ",");
       int nparams = paramTok.countTokens();
-      Constructor[] cons = distClass.getConstructors();
-      Constructor distCons = null;
-      Class[] paramTypes = null;
+      Constructor<?>[] cons = distClass.getConstructors();
+      Constructor<?> distCons = null;
+      Class<?>[] paramTypes = null;
       // Find a public constructor with the correct number of parameters.
       for (i = 0; i < cons.length; i++) {
          if (Modifier.isPublic (cons[i].getModifiers()) &&
@@ -202,19 +281,7 @@ public class DistributionFactory {
          }
       }
 
-      // Try to instantiate the distribution class.
-      try {
-         return (Distribution) distCons.newInstance (instParams);
-      }
-      catch (IllegalAccessException e) {
-         return null;
-      }
-      catch (InstantiationException e) {
-         return null;
-      }
-      catch (InvocationTargetException e) {
-         return null;
-      }
+      return new Spec (distClass, distCons, instParams);
    }
 
 
@@ -452,21 +519,82 @@ public class DistributionFactory {
 
    /**
     * Same as {@link #getContinuousDistribution getContinuousDistribution}, but for discrete distributions
-    *   over the integers.
+    * over the integers.
     * 
     * @param str string that contains a call to the constructor of a discrete
-    *      distribution
+    * distribution
     * 
-    *    @return a discrete distribution object, or <TT>null</TT> if it could not 
-    *      be instantiated
-    *    @exception IllegalArgumentException if parsing problems occured when 
-    *      reading <TT>str</TT>
+    * @return a discrete distribution object, or <TT>null</TT> if it could not
+    * be instantiated
     * 
-    *    @exception ClassCastException if the distribution string does not represent
-    *      a discrete distribution
+    * @exception IllegalArgumentException if parsing problems occured when
+    * reading <TT>str</TT>
+    * 
+    * @exception ClassCastException if the distribution string does not represent
+    * a discrete distribution
     * 
     */
    public static DiscreteDistributionInt getDiscreteDistributionInt (String str) {
       return (DiscreteDistributionInt)getDistribution (str);
    }
+
+
+   /**
+    * Constructs one distribution object for each specification string
+    * in <TT>table</TT>, as in {@link #getDistribution(String) getDistribution}, and returns
+    * them in an array of the same length.  Each distinct string is parsed
+    * only once, so this is efficient for large configuration tables in which
+    * the same specifications occur many times.
+    * Element <SPAN CLASS="MATH"><I>i</I></SPAN> of the returned array is <TT>null</TT> if the distribution
+    * specified by <TT>table[i]</TT> could not be instantiated.
+    * 
+    * @param table distribution specification strings
+    * 
+    * @return the distribution objects
+    * 
+    * @exception IllegalArgumentException if parsing problems occured when
+    * reading one of the strings
+    * 
+    */
+   public static Distribution[] getDistributions (String[] table) {
+      Distribution[] dists = new Distribution[table.length];
+      for (int i = 0; i < table.length; i++)
+         dists[i] = getDistribution (table[i]);
+      return dists;
+   }
+
+
+   /**
+    * Same as {@link #getDistributions(String[]) getDistributions}, for continuous distributions.
+    * 
+    * @param table strings that contain calls to constructors of continuous
+    * distributions
+    * 
+    * @return the continuous distribution objects
+    * 
+    * @exception IllegalArgumentException if parsing problems occured when
+    * reading one of the strings
+    * 
+    * @exception ClassCastException if one of the strings does not represent
+    * a continuous distribution
+    * 
+    */
+   public static ContinuousDistribution[] getContinuousDistributions
+                    (String[] table) {
+      ContinuousDistribution[] dists = new ContinuousDistribution[table.length];
+      for (int i = 0; i < table.length; i++)
+         dists[i] = (ContinuousDistribution)getDistribution (table[i]);
+      return dists;
+   }
+
+
+   /**
+    * Empties the cache of parsed specification strings.
+    * 
+    */
+   public static void clearCache() {
+      synchronized (cache) {
+         cache.clear();
+      }
+   }
 }
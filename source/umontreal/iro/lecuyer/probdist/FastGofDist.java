@@ -0,0 +1,586 @@
+/*
+ * Class:        FastGofDist
+ * Description:  tabulated distributions of goodness-of-fit statistics
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Université de Montréal
+ * Organization: DIRO, Université de Montréal
+ * @author
+ * @since
+
+ * SSJ is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License (GPL) as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * any later version.
+
+ * SSJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * A copy of the GNU General Public License is available at
+   <a href="http://www.gnu.org/licenses">GPL licence site</a>.
+ */
+
+package umontreal.iro.lecuyer.probdist;
+
+import java.util.HashMap;
+import java.util.Map;
+import umontreal.iro.lecuyer.util.Misc;
+
+
+/**
+ * Tabulated version of the distributions of the goodness-of-fit statistics
+ * {@link KolmogorovSmirnovDist}, {@link AndersonDarlingDist},
+ * {@link CramerVonMisesDist}, {@link WatsonGDist} and {@link WatsonUDist},
+ * for a fixed sample size <SPAN CLASS="MATH"><I>n</I></SPAN>.
+ * The methods <TT>cdf</TT> and <TT>barF</TT> of these classes evaluate
+ * series or recursions whose cost grows with <SPAN CLASS="MATH"><I>n</I></SPAN> and can reach a few
+ * milliseconds per call.  When a very large number of <SPAN CLASS="MATH"><I>p</I></SPAN>-values must
+ * be computed for the same <SPAN CLASS="MATH"><I>n</I></SPAN>, it is much faster to compute the exact
+ * distribution once on a grid, and then to interpolate.
+ * 
+ * For a given statistic and a given <SPAN CLASS="MATH"><I>n</I></SPAN>, the grid covers the interval
+ * <SPAN CLASS="MATH">[<I>x</I><SUB>a</SUB>, <I>x</I><SUB>b</SUB>]</SPAN> where <SPAN CLASS="MATH"><I>F</I>(<I>x</I><SUB>a</SUB>)</SPAN> and <SPAN CLASS="MATH">bar(F)(<I>x</I><SUB>b</SUB>)</SPAN> are approximately
+ * <SPAN CLASS="MATH">10<SUP>-15</SUP></SPAN>, with <TT>NPOINTS</TT> points equidistant on a logarithmic scale.
+ * On the lower half of the distribution, the table keeps <SPAN CLASS="MATH">ln <I>F</I>(<I>x</I>)</SPAN>,
+ * and on the upper half, <SPAN CLASS="MATH">ln bar(F)(<I>x</I>)</SPAN>; these values are interpolated
+ * by cubic polynomials through the four nearest grid points.
+ * For <SPAN CLASS="MATH"><I>x</I></SPAN> outside of <SPAN CLASS="MATH">[<I>x</I><SUB>a</SUB>, <I>x</I><SUB>b</SUB>]</SPAN>, the methods call the exact methods
+ * of the corresponding class.
+ * When the table is built, the interpolation error is estimated at each
+ * odd point of the grid by interpolating from the even points only,
+ * i.e., with a grid twice as coarse, and comparing with the exact value.
+ * On the grid intervals near the points where this estimate of the relative
+ * error on <SPAN CLASS="MATH"><I>F</I>(<I>x</I>)</SPAN> (lower half) or <SPAN CLASS="MATH">bar(F)(<I>x</I>)</SPAN> (upper half) exceeds <SPAN CLASS="MATH">10<SUP>-4</SUP></SPAN>,
+ * or where the tabulated values are not finite,
+ * the table is not used and the exact methods are called instead.
+ * This happens mostly in the far tails, so that <SPAN CLASS="MATH"><I>F</I>(<I>x</I>)</SPAN> and <SPAN CLASS="MATH">bar(F)(<I>x</I>)</SPAN> keep
+ * a small relative error there; on the tests we made with
+ * <SPAN CLASS="MATH">2 &nbsp;&lt;=&nbsp; <I>n</I> &nbsp;&lt;=&nbsp; 100</SPAN>, it was at most about <SPAN CLASS="MATH">2&#215; 10<SUP>-4</SUP></SPAN> for all five
+ * statistics.
+ * The largest of the remaining estimated absolute errors is returned by
+ * {@link #getErrorBound getErrorBound}.  This is an estimate, not a guaranteed bound.
+ * With the default value of <TT>NPOINTS</TT>, the absolute error is of the
+ * order of <SPAN CLASS="MATH">10<SUP>-10</SUP></SPAN> for {@link KolmogorovSmirnovDist} and {@link WatsonUDist}
+ * when <SPAN CLASS="MATH"><I>n</I> &nbsp;&gt;=&nbsp; 100</SPAN>, and {@link #getErrorBound getErrorBound} overestimates it.
+ * It is of the order of <SPAN CLASS="MATH">10<SUP>-6</SUP></SPAN> to <SPAN CLASS="MATH">10<SUP>-5</SUP></SPAN> for the
+ * three other distributions, whose exact methods are themselves piecewise
+ * approximations, with discontinuous derivatives that limit the precision
+ * of the interpolation; for these, the actual error can exceed
+ * the estimate by a factor of up to about 3.
+ * Note that the exact methods of some of these classes lose their relative
+ * precision in the tails (for instance, <TT>KolmogorovSmirnovDist.barF</TT>
+ * computes <SPAN CLASS="MATH">1 - <I>F</I>(<I>x</I>)</SPAN>); the tables cannot be more precise than the
+ * exact methods.
+ * 
+ * The tables are built lazily, the first time an instance is requested
+ * for a given statistic and a given <SPAN CLASS="MATH"><I>n</I></SPAN> by {@link #getInstance(int,int) getInstance},
+ * and they are shared by all the threads.
+ * Building a table costs about <TT>NPOINTS</TT> evaluations of
+ * the exact distribution function, spread over as many threads as there
+ * are available processors.  This is negligible for
+ * {@link AndersonDarlingDist}, {@link CramerVonMisesDist},
+ * {@link WatsonGDist} and {@link WatsonUDist}, but the exact
+ * Kolmogorov-Smirnov distribution becomes expensive as <SPAN CLASS="MATH"><I>n</I></SPAN> grows:
+ * on a single processor, building its table takes about 1 second
+ * for <SPAN CLASS="MATH"><I>n</I> = 100</SPAN> and nearly 2 minutes for <SPAN CLASS="MATH"><I>n</I> = 1000</SPAN>, since each evaluation
+ * in the upper half then takes up to several hundred milliseconds.
+ * Programs that need such a table should call {@link #getInstance(int,int) getInstance}
+ * once at initialization, and use the table only if they compute enough
+ * <SPAN CLASS="MATH"><I>p</I></SPAN>-values to amortize this cost.
+ * 
+ */
+public class FastGofDist extends ContinuousDistribution {
+   private static final double EPS = 1.0e-15;   // tail probability at ends
+   private static final double RELTOL = 1.0e-4; // max estimated rel. error
+   private static final Map<Long, FastGofDist> tables =
+      new HashMap<Long, FastGofDist>();
+
+   private final int type;
+   private final int n;
+   private final ContinuousDistribution dist;   // the exact distribution
+   private final int m;            // number of intervals
+   private double lnxa, h;         // grid: ln x_k = lnxa + k*h
+   private double[] lnF;           // ln F(x_k)
+   private double[] lnBarF;        // ln (1 - F(x_k))
+   private int mid;                // lnF is used for k < mid
+   private boolean[] exact;        // exact[k]: use dist on [x_k, x_{k+1}]
+   private double errorBound;
+
+
+   /**
+    * The Kolmogorov-Smirnov statistic <SPAN CLASS="MATH"><I>D</I><SUB>n</SUB></SPAN> (see {@link KolmogorovSmirnovDist}).
+    * 
+    */
+   public static final int KOLMOGOROV_SMIRNOV = 0;
+
+
+   /**
+    * The Anderson-Darling statistic <SPAN CLASS="MATH"><I>A</I><SUB>n</SUB><SUP>2</SUP></SPAN> (see {@link AndersonDarlingDist}).
+    * 
+    */
+   public static final int ANDERSON_DARLING = 1;
+
+
+   /**
+    * The Cram&#233;r-von Mises statistic <SPAN CLASS="MATH"><I>W</I><SUB>n</SUB><SUP>2</SUP></SPAN> (see {@link CramerVonMisesDist}).
+    * 
+    */
+   public static final int CRAMER_VON_MISES = 2;
+
+
+   /**
+    * The Watson statistic <SPAN CLASS="MATH"><I>G</I><SUB>n</SUB></SPAN> (see {@link WatsonGDist}).
+    * 
+    */
+   public static final int WATSON_G = 3;
+
+
+   /**
+    * The Watson statistic <SPAN CLASS="MATH"><I>U</I><SUB>n</SUB><SUP>2</SUP></SPAN> (see {@link WatsonUDist}).
+    * 
+    */
+   public static final int WATSON_U = 4;
+
+
+   /**
+    * Number of points of the grid used for the tables built afterwards.
+    * Must be odd and at least 9.
+    * 
+    */
+   public static int NPOINTS = 1025;
+
+
+   private FastGofDist (int type, int n) {
+      this.type = type;
+      this.n = n;
+      if (NPOINTS < 9 || NPOINTS % 2 == 0)
+         throw new IllegalArgumentException ("NPOINTS must be odd and >= 9");
+      switch (type) {
+      case KOLMOGOROV_SMIRNOV: dist = new KolmogorovSmirnovDist (n); break;
+      case ANDERSON_DARLING:   dist = new AndersonDarlingDist (n); break;
+      case CRAMER_VON_MISES:   dist = new CramerVonMisesDist (n); break;
+      case WATSON_G:           dist = new WatsonGDist (n); break;
+      case WATSON_U:           dist = new WatsonUDist (n); break;
+      default:
+         throw new IllegalArgumentException ("unknown statistic: " + type);
+      }
+      m = NPOINTS - 1;
+      supportA = dist.getXinf();
+      supportB = dist.getXsup();
+      init();
+   }
+
+   private void init() {
+      // Find x_a with F(x_a) slightly larger than EPS, and x_b with
+      // barF(x_b) slightly larger than EPS, by bisection on ln x.
+      double x0 = 1.0;
+      if (x0 <= supportA || x0 >= supportB)
+         x0 = Math.sqrt (Math.max (supportA, 1.0e-300) * supportB);
+      // x0 may lie in either tail, so search from it in both directions.
+      double a = x0, b = x0;       // F(a) <= EPS < F(b)
+      if (dist.cdf (x0) > EPS) {
+         do {
+            b = a;
+            a /= 2.0;
+         } while (dist.cdf (a) > EPS);
+      } else {
+         do {
+            a = b;
+            b *= 2.0;
+         } while (!(dist.cdf (b) > EPS));
+      }
+      for (int i = 0; i < 20; i++) {
+         double c = Math.sqrt (a*b);
+         if (dist.cdf (c) > EPS) b = c; else a = c;
+      }
+      final double xa = b;
+      a = x0;                      // barF(a) > EPS >= barF(b)
+      b = x0;
+      if (dist.barF (x0) > EPS) {
+         do {
+            a = b;
+            b = Math.min (2.0*b, supportB);
+         } while (b < supportB && dist.barF (b) > EPS);
+      } else {
+         do {
+            b = a;
+            a /= 2.0;
+         } while (!(dist.barF (a) > EPS));
+      }
+      for (int i = 0; i < 20; i++) {
+         double c = Math.sqrt (a*b);
+         if (dist.barF (c) > EPS) a = c; else b = c;
+      }
+      final double xb = a;
+      if (!(xa < xb))
+         throw new IllegalStateException ("cannot build the table");
+
+      // Find mid, the first grid point where F >= 1/2, by bisection
+      lnxa = Math.log (xa);
+      h = (Math.log (xb) - lnxa) / m;
+      int klo = 0, khi = m + 1;
+      while (klo < khi) {
+         int k = (klo + khi) >>> 1;
+         if (k <= m && dist.cdf (gridPoint (k, xa, xb)) < 0.5)
+            klo = k + 1;
+         else
+            khi = k;
+      }
+      mid = klo;
+
+      // Tabulate; evaluate F on the lower half, barF on the upper half.
+      // The points are dealt out in turn, since the cost of the exact
+      // methods varies a lot along the grid.
+      lnF = new double[m + 1];
+      lnBarF = new double[m + 1];
+      final int nt = Math.min (Runtime.getRuntime().availableProcessors(),
+                               m + 1);
+      Runnable[] tasks = new Runnable[nt];
+      for (int i = 0; i < nt; i++) {
+         final int first = i;
+         tasks[i] = new Runnable() {
+            public void run() {
+               for (int k = first; k <= m; k += nt)
+                  tabulate (k, xa, xb);
+            }
+         };
+      }
+      Misc.runInParallel (tasks);
+      if (mid < 2) mid = 2;
+      if (mid > m - 1) mid = m - 1;
+
+      // Estimate the error with a grid twice as coarse.  Where the relative
+      // error on the tail probability is too large, or where a value or the
+      // error is not finite, the exact methods are used on the intervals
+      // whose interpolation depends on that point.
+      exact = new boolean[m];
+      for (int k = 0; k <= m; k++)
+         if (Double.isNaN (lnF[k]) || Double.isInfinite (lnF[k]) ||
+             Double.isNaN (lnBarF[k]) || Double.isInfinite (lnBarF[k]))
+            useExact (k);
+      double err = 0.0;
+      for (int k = 1; k < m; k += 2) {
+         double t = 0.5 * k;
+         int j = Math.min (Math.max ((int) t, 1), m/2 - 2);
+         boolean useF = k < mid;
+         double[] tab = useF ? lnF : lnBarF;
+         double v = cubic (t - j, tab[2*j - 2], tab[2*j], tab[2*j + 2],
+                           tab[2*j + 4]);
+         double e = Math.abs (Math.exp (v) - Math.exp (tab[k]));
+         if (!(e <= RELTOL * Math.exp (tab[k])))
+            useExact (k);
+         else if (e > err)
+            err = e;
+      }
+      errorBound = err;
+   }
+
+   // Marks the intervals whose interpolation may use grid point k
+   private void useExact (int k) {
+      for (int i = Math.max (k - 3, 0); i <= Math.min (k + 2, m - 1); i++)
+         exact[i] = true;
+   }
+
+   private double gridPoint (int k, double xa, double xb) {
+      if (k == 0) return xa;
+      if (k == m) return xb;
+      return Math.exp (lnxa + k*h);
+   }
+
+   private void tabulate (int k, double xa, double xb) {
+      double x = gridPoint (k, xa, xb);
+      if (k < mid) {
+         double p = dist.cdf (x);
+         lnF[k] = Math.log (p);
+         lnBarF[k] = Math.log1p (-p);
+      } else {
+         double q = dist.barF (x);
+         lnBarF[k] = Math.log (q);
+         lnF[k] = Math.log1p (-q);
+      }
+   }
+
+   // Cubic Lagrange interpolation through (-1,p0), (0,p1), (1,p2), (2,p3)
+   private static double cubic (double t, double p0, double p1, double p2,
+                                double p3) {
+      final double tm1 = t - 1.0, tm2 = t - 2.0, tp1 = t + 1.0;
+      return (-t*tm1*tm2*p0 + 3.0*tp1*tm1*tm2*p1 - 3.0*tp1*t*tm2*p2
+              + tp1*t*tm1*p3) / 6.0;
+   }
+
+   // Derivative of cubic with respect to t
+   private static double dcubic (double t, double p0, double p1, double p2,
+                                 double p3) {
+      final double t2 = t*t;
+      return (-(3*t2 - 6*t + 2)*p0 + 3*(3*t2 - 4*t - 1)*p1
+              - 3*(3*t2 - 2*t - 2)*p2 + (3*t2 - 1)*p3) / 6.0;
+   }
+
+   // Returns the interpolation index j, with 1 <= j <= m-2, and puts the
+   // position within the interval in frac[0]; returns -1 if x is outside
+   // the table or, unless anyInterval is true, in an interval where the
+   // exact methods must be used.
+   private int locate (double x, double[] frac, boolean anyInterval) {
+      if (!(x > 0.0))
+         return -1;
+      double t = (Math.log (x) - lnxa) / h;
+      if (t < 0.0 || t > m)
+         return -1;
+      int j = (int) t;
+      if (!anyInterval && exact[Math.min (j, m - 1)])
+         return -1;
+      if (j < 1) j = 1;
+      if (j > m - 2) j = m - 2;
+      frac[0] = t - j;
+      return j;
+   }
+
+   private double interpCdf (int j, double t) {
+      if (j < mid) {
+         double v = cubic (t, lnF[j-1], lnF[j], lnF[j+1], lnF[j+2]);
+         return Math.exp (v);
+      } else {
+         double v = cubic (t, lnBarF[j-1], lnBarF[j], lnBarF[j+1], lnBarF[j+2]);
+         return -Math.expm1 (v);
+      }
+   }
+
+   private double interpBarF (int j, double t) {
+      if (j < mid) {
+         double v = cubic (t, lnF[j-1], lnF[j], lnF[j+1], lnF[j+2]);
+         return -Math.expm1 (v);
+      } else {
+         double v = cubic (t, lnBarF[j-1], lnBarF[j], lnBarF[j+1], lnBarF[j+2]);
+         return Math.exp (v);
+      }
+   }
+
+
+   /**
+    * Returns the tabulated distribution of the statistic <TT>type</TT>
+    * for a sample of size <TT>n</TT>, where <TT>type</TT> is one of the
+    * constants above.  The table is built the first time this method
+    * is called with these parameters, and the same object is
+    * returned afterwards.
+    * 
+    * @param type the statistic
+    * 
+    * @param n the sample size
+    * 
+    * @return the shared tabulated distribution
+    * 
+    */
+   public static FastGofDist getInstance (int type, int n) {
+      if (n < 1)
+         throw new IllegalArgumentException ("n <= 0");
+      Long key = Long.valueOf (((long) type << 32) | n);
+      FastGofDist d;
+      synchronized (tables) {
+         d = tables.get (key);
+      }
+      if (d != null)
+         return d;
+      // Build outside the lock; another thread may build the same table
+      d = new FastGofDist (type, n);
+      synchronized (tables) {
+         FastGofDist old = tables.get (key);
+         if (old != null)
+            return old;
+         tables.put (key, d);
+      }
+      return d;
+   }
+
+
+   /**
+    * Removes all the tables built so far.
+    * 
+    */
+   public static void clearCache() {
+      synchronized (tables) {
+         tables.clear();
+      }
+   }
+
+
+   /**
+    * Returns the approximate distribution function <SPAN CLASS="MATH"><I>F</I>(<I>x</I>)</SPAN> of the statistic
+    * <TT>type</TT> for a sample of size <TT>n</TT>.
+    * 
+    */
+   public static double cdf (int type, int n, double x) {
+      return getInstance (type, n).cdf (x);
+   }
+
+
+   /**
+    * Returns the approximate complementary distribution function
+    * <SPAN CLASS="MATH">bar(F)(<I>x</I>)</SPAN> of the statistic <TT>type</TT> for a sample of
+    * size <TT>n</TT>, i.e., the <SPAN CLASS="MATH"><I>p</I></SPAN>-value of <SPAN CLASS="MATH"><I>x</I></SPAN>.
+    * 
+    */
+   public static double barF (int type, int n, double x) {
+      return getInstance (type, n).barF (x);
+   }
+
+
+   public double density (double x) {
+      double[] frac = new double[1];
+      // The density is interpolated wherever the table has finite values,
+      // since some exact classes do not implement it
+      int j = locate (x, frac, true);
+      if (j < 0)
+         return dist.density (x);
+      double t = frac[0];
+      double[] tab = j < mid ? lnF : lnBarF;
+      double v = cubic (t, tab[j-1], tab[j], tab[j+1], tab[j+2]);
+      double dv = dcubic (t, tab[j-1], tab[j], tab[j+1], tab[j+2]) / (h*x);
+      double f = j < mid ? Math.exp (v) * dv : -Math.exp (v) * dv;
+      if (Double.isNaN (f) || Double.isInfinite (f))
+         return dist.density (x);
+      return f;
+   }
+
+   public double cdf (double x) {
+      double[] frac = new double[1];
+      int j = locate (x, frac, false);
+      if (j < 0)
+         return dist.cdf (x);
+      return interpCdf (j, frac[0]);
+   }
+
+   public double barF (double x) {
+      double[] frac = new double[1];
+      int j = locate (x, frac, false);
+      if (j < 0)
+         return dist.barF (x);
+      return interpBarF (j, frac[0]);
+   }
+
+   public double inverseF (double u) {
+      if (u < 0.0 || u > 1.0)
+         throw new IllegalArgumentException ("u not in [0, 1]");
+      if (u <= Math.exp (lnF[0]) || u >= -Math.expm1 (lnBarF[m]))
+         return dist.inverseF (u);
+      // Find the grid interval containing u
+      int lo = 0, hi = m;
+      while (hi - lo > 1) {
+         int k = (lo + hi) >>> 1;
+         double p = k < mid ? Math.exp (lnF[k]) : -Math.expm1 (lnBarF[k]);
+         if (p <= u) lo = k; else hi = k;
+      }
+      // The relative tolerance on x, RELTOL^2, is well below the
+      // interpolation error on F
+      double x = Math.exp (lnxa + lo*h);
+      return inverseBrent (x, Math.exp (lnxa + hi*h), u, RELTOL*RELTOL*x);
+   }
+
+   public double getMean() {
+      return dist.getMean();
+   }
+
+   public double getVariance() {
+      return dist.getVariance();
+   }
+
+   public double getStandardDeviation() {
+      return dist.getStandardDeviation();
+   }
+
+
+   /**
+    * Computes <SPAN CLASS="MATH"><I>F</I>(<I>x</I><SUB>i</SUB>)</SPAN> for the first <TT>k</TT> values of <TT>x</TT>
+    * and puts them in <TT>p</TT>.
+    * 
+    * @param x the values of the statistic
+    * 
+    * @param p the array receiving the values of the distribution function
+    * 
+    * @param k the number of values
+    * 
+    */
+   public void cdf (double[] x, double[] p, int k) {
+      double[] frac = new double[1];
+      for (int i = 0; i < k; i++) {
+         int j = locate (x[i], frac, false);
+         p[i] = j < 0 ? dist.cdf (x[i]) : interpCdf (j, frac[0]);
+      }
+   }
+
+
+   /**
+    * Computes the <SPAN CLASS="MATH"><I>p</I></SPAN>-values <SPAN CLASS="MATH">bar(F)(<I>x</I><SUB>i</SUB>)</SPAN> for the first <TT>k</TT> values
+    * of <TT>x</TT> and puts them in <TT>p</TT>.
+    * 
+    * @param x the values of the statistic
+    * 
+    * @param p the array receiving the <SPAN CLASS="MATH"><I>p</I></SPAN>-values
+    * 
+    * @param k the number of values
+    * 
+    */
+   public void barF (double[] x, double[] p, int k) {
+      double[] frac = new double[1];
+      for (int i = 0; i < k; i++) {
+         int j = locate (x[i], frac, false);
+         p[i] = j < 0 ? dist.barF (x[i]) : interpBarF (j, frac[0]);
+      }
+   }
+
+
+   /**
+    * Returns the estimate of the maximal absolute interpolation error
+    * on <SPAN CLASS="MATH"><I>F</I>(<I>x</I>)</SPAN> and <SPAN CLASS="MATH">bar(F)(<I>x</I>)</SPAN> computed when the table was built,
+    * for <SPAN CLASS="MATH"><I>x</I></SPAN> in the interval covered by the table.
+    * 
+    */
+   public double getErrorBound() {
+      return errorBound;
+   }
+
+
+   /**
+    * Returns the exact distribution used to build the table.
+    * 
+    */
+   public ContinuousDistribution getExactDistribution() {
+      return dist;
+   }
+
+
+   /**
+    * Returns the parameter <SPAN CLASS="MATH"><I>n</I></SPAN> of this object.
+    * 
+    */
+   public int getN() {
+      return n;
+   }
+
+
+   /**
+    * Returns the statistic of this object.
+    * 
+    */
+   public int getType() {
+      return type;
+   }
+
+
+   /**
+    * Returns an array containing the parameter <SPAN CLASS="MATH"><I>n</I></SPAN> of this object.
+    * 
+    */
+   public double[] getParams () {
+      double[] retour = {n};
+      return retour;
+   }
+
+
+   public String toString () {
+      return getClass().getSimpleName() + " : " + dist.toString() +
+             ", error bound = " + errorBound;
+   }
+
+}
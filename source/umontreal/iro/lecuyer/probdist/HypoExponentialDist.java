@@ -80,10 +80,31 @@ import umontreal.iro.lecuyer.functions.MathFunction;
  * See the class {@link HypoExponentialDistQuick} for alternative formulae
  * for the probabilities.
  * 
+ * <P>
+ * When the rates are distinct and well separated, the matrix <SPAN CLASS="MATH"><B>A</B></SPAN> is
+ * diagonalizable and 
+ * <SPAN CLASS="MATH">bar(F)(<I>x</I>) = &sum;<SUB>j=1</SUB><SUP>k</SUP><I>c</I><SUB>j</SUB><I>e</I><SUP>-<I>&#955;</I><SUB>j</SUB>x</SUP></SPAN>,
+ * where 
+ * <SPAN CLASS="MATH"><I>c</I><SUB>j</SUB> = &prod;<SUB>i!=j</SUB><I>&#955;</I><SUB>i</SUB>/(<I>&#955;</I><SUB>i</SUB> - <I>&#955;</I><SUB>j</SUB>)</SPAN>.
+ * The instance methods compute the coefficients <SPAN CLASS="MATH"><I>c</I><SUB>j</SUB></SPAN> once, when the rates
+ * are set, and then evaluate <SPAN CLASS="MATH">bar(F)</SPAN> and <SPAN CLASS="MATH"><I>f</I></SPAN> by this short sum, and
+ * <SPAN CLASS="MATH"><I>F</I>(<I>x</I>) = &sum;<SUB>j=1</SUB><SUP>k</SUP> <I>c</I><SUB>j</SUB> (1 - <I>e</I><SUP>-&#955;<SUB>j</SUB>x</SUP>)</SPAN> likewise,
+ * without allocating any memory.  When a sum would lose more than about
+ * four decimal digits by cancellation, i.e., when some rates are equal or
+ * very close, in the far right tail for <SPAN CLASS="MATH">bar(F)</SPAN> and <SPAN CLASS="MATH"><I>f</I></SPAN>, or near 0 for <SPAN CLASS="MATH"><I>F</I></SPAN>,
+ * they use the matrix exponential as the static methods.  The short sums
+ * thus have a relative error of the order of <SPAN CLASS="MATH">10<SUP>-12</SUP></SPAN> at most.
+ * 
  */
 public class HypoExponentialDist extends ContinuousDistribution {
    protected double[] m_lambda;
 
+   // If the rates are distinct and well separated,
+   // barF(x) = sum_j m_coef[j] exp(-lambda_j x), otherwise m_coef = null
+   private double[] m_coef;
+   private static final double MAXCOND = 1.0e4;   // max sum_j |m_coef[j]|
+   private static final double CANCEL = 1.0e-4;   // max relative cancellation
+
    protected static void testLambda (double[] lambda) {
       int k = lambda.length;
       for (int j = 0; j < k; ++j) {
@@ -107,6 +128,30 @@ public class HypoExponentialDist extends ContinuousDistribution {
    }
 
 
+   // Computes the coefficients of the exponentials in barF; returns null
+   // if two rates are equal or if the sum would be ill-conditioned.
+   private static double[] computeCoef (double[] lambda) {
+      int k = lambda.length;
+      double[] c = new double[k];
+      double cond = 0.0;
+      for (int j = 0; j < k; j++) {
+         double prod = 1.0;
+         for (int i = 0; i < k; i++) {
+            if (i == j)
+               continue;
+            if (lambda[i] == lambda[j])
+               return null;
+            prod *= lambda[i] / (lambda[i] - lambda[j]);
+         }
+         c[j] = prod;
+         cond += Math.abs (prod);
+      }
+      if (!(cond <= MAXCOND))
+         return null;
+      return c;
+   }
+
+
    private static class myFunc implements MathFunction {
       // For inverseF
       private double[] m_lam;
@@ -139,19 +184,77 @@ public class HypoExponentialDist extends ContinuousDistribution {
 
 
    public double density (double x) {
-      return density (m_lambda, x);
+      if (m_coef == null || x < 0)
+         return density (m_lambda, x);
+      double sum = 0.0, abs = 0.0;
+      for (int j = 0; j < m_coef.length; j++) {
+         double t = m_coef[j] * m_lambda[j] * Math.exp (-m_lambda[j] * x);
+         sum += t;
+         abs += Math.abs (t);
+      }
+      if (sum <= CANCEL * abs)
+         return density (m_lambda, x);
+      return sum;
    }
 
    public double cdf (double x) {
-      return cdf (m_lambda, x);
+      // Since sum_j m_coef[j] = 1, F(x) = -sum_j m_coef[j] expm1(-lambda_j x);
+      // this avoids computing 1 - barF(x) when F(x) is small
+      if (m_coef == null || x <= 0.0 || x >= Double.MAX_VALUE)
+         return Math.max (0.0, cdf (m_lambda, x));
+      double sum = 0.0, abs = 0.0;
+      for (int j = 0; j < m_coef.length; j++) {
+         double t = -m_coef[j] * Math.expm1 (-m_lambda[j] * x);
+         sum += t;
+         abs += Math.abs (t);
+      }
+      if (sum <= CANCEL * abs)
+         return Math.max (0.0, cdf (m_lambda, x));
+      return Math.min (sum, 1.0);
    }
 
    public double barF (double x) {
-      return barF (m_lambda, x);
+      if (m_coef == null || x <= 0.0 || x >= Double.MAX_VALUE)
+         return barF (m_lambda, x);
+      double sum = 0.0, abs = 0.0;
+      for (int j = 0; j < m_coef.length; j++) {
+         double t = m_coef[j] * Math.exp (-m_lambda[j] * x);
+         sum += t;
+         abs += Math.abs (t);
+      }
+      if (sum <= CANCEL * abs)
+         return barF (m_lambda, x);   // too much cancellation in the tail
+      return Math.min (sum, 1.0);
    }
 
    public double inverseF (double u) {
-      return inverseF (m_lambda, u);
+      if (m_coef == null)
+         return inverseF (m_lambda, u);
+      if (u < 0.0 || u > 1.0)
+          throw new IllegalArgumentException ("u not in [0,1]");
+      if (u >= 1.0)
+          return Double.POSITIVE_INFINITY;
+      if (u <= 0.0)
+          return 0.0;
+      final double EPS = 1.0e-12;
+      final double v0 = u;
+      MathFunction fonc = new MathFunction() {
+         public double evaluate (double x) {
+            return v0 - cdf (x);
+         }
+      };
+      double x1 = getMean (m_lambda);
+      double v = cdf (x1);
+      if (u <= v)
+         return RootFinder.brentDekker (0, x1, fonc, EPS);
+      double x2 = 4.0*x1 + 1.0;
+      v = cdf (x2);
+      while (v < u) {
+         x1 = x2;
+         x2 = 4.0*x2;
+         v = cdf (x2);
+      }
+      return RootFinder.brentDekker (x1, x2, fonc, EPS);
    }
 
    public double getMean() {
@@ -369,6 +472,7 @@ public class HypoExponentialDist extends ContinuousDistribution {
       int k = lambda.length;
       m_lambda = new double[k];
       System.arraycopy (lambda, 0, m_lambda, 0, k);
+      m_coef = computeCoef (m_lambda);
       supportA = 0.0;
    }
 
@@ -382,6 +486,56 @@ public class HypoExponentialDist extends ContinuousDistribution {
       return m_lambda;
    }
 
+   /**
+    * Computes the density <SPAN CLASS="MATH"><I>f</I>(<I>x</I><SUB>i</SUB>)</SPAN> for the first <TT>n</TT> values of
+    * <TT>x</TT>, and puts them in <TT>f</TT>.
+    * 
+    * @param x values at which the density is evaluated
+    * 
+    * @param f array receiving the values of the density
+    * 
+    * @param n number of values
+    * 
+    */
+   public void density (double[] x, double[] f, int n) {
+      for (int i = 0; i < n; i++)
+         f[i] = density (x[i]);
+   }
+
+
+   /**
+    * Computes the distribution function <SPAN CLASS="MATH"><I>F</I>(<I>x</I><SUB>i</SUB>)</SPAN> for the first <TT>n</TT>
+    * values of <TT>x</TT>, and puts them in <TT>p</TT>.
+    * 
+    * @param x values at which the distribution is evaluated
+    * 
+    * @param p array receiving the values of the distribution
+    * 
+    * @param n number of values
+    * 
+    */
+   public void cdf (double[] x, double[] p, int n) {
+      for (int i = 0; i < n; i++)
+         p[i] = cdf (x[i]);
+   }
+
+
+   /**
+    * Computes the complementary distribution function <SPAN CLASS="MATH">bar(F)(<I>x</I><SUB>i</SUB>)</SPAN> for the
+    * first <TT>n</TT> values of <TT>x</TT>, and puts them in <TT>p</TT>.
+    * 
+    * @param x values at which the complementary distribution is evaluated
+    * 
+    * @param p array receiving the values of the complementary distribution
+    * 
+    * @param n number of values
+    * 
+    */
+   public void barF (double[] x, double[] p, int n) {
+      for (int i = 0; i < n; i++)
+         p[i] = barF (x[i]);
+   }
+
 
    public String toString () {
       StringBuilder sb = new StringBuilder();
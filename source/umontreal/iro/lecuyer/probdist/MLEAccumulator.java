@@ -0,0 +1,864 @@
+/*
+ * Class:        MLEAccumulator
+ * Description:  maximum likelihood estimation from chunks of observations
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Université de Montréal
+ * Organization: DIRO, Université de Montréal
+ * @author
+ * @since
+
+ * SSJ is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License (GPL) as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * any later version.
+
+ * SSJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * A copy of the GNU General Public License is available at
+   <a href="http://www.gnu.org/licenses">GPL licence site</a>.
+ */
+
+package umontreal.iro.lecuyer.probdist;
+
+import umontreal.iro.lecuyer.util.Misc;
+import umontreal.iro.lecuyer.util.Num;
+import umontreal.iro.lecuyer.util.RootFinder;
+import umontreal.iro.lecuyer.functions.MathFunction;
+
+
+/**
+ * This class computes maximum likelihood estimates of the parameters of a
+ * distribution from observations given in successive chunks, without
+ * keeping the observations in memory.
+ * The methods <TT>getMLE (double[] x, int n)</TT> of the distribution classes,
+ * e.g., {@link NormalDist#getMLE(double[],int) getMLE}, require the whole
+ * sample in a single array.  An accumulator instead updates a small set of
+ * statistics each time some observations are added, and computes the
+ * estimates from these statistics only.
+ * Two accumulators of the same type can also be merged, so the observations
+ * can be split among several threads, each one with its own accumulator, and
+ * the partial results combined at the end; see
+ * {@link #addParallel(double[],int,int) addParallel}.
+ * 
+ * An accumulator is obtained from one of the static <TT>create</TT> methods,
+ * one for each supported family of distributions.
+ * For the normal, lognormal, exponential, gamma, Poisson and binomial
+ * with known <SPAN CLASS="MATH"><I>n</I></SPAN> distributions, the statistics used are sums and
+ * centered sums of squares, and the estimates are the same as those
+ * returned by the <TT>getMLE</TT> methods, up to rounding errors.
+ * For the binomial and negative binomial distributions with both parameters
+ * unknown, the accumulator keeps the frequencies of the observed values,
+ * which are sufficient for these distributions.
+ * The likelihood equations of the Weibull distribution depend on sums of the
+ * form <SPAN CLASS="MATH">&sum;<SUB>i</SUB> <I>x</I><SUB>i</SUB><SUP>&#945;</SUP></SPAN> for the unknown shape parameter <SPAN CLASS="MATH"><I>&#945;</I></SPAN>;
+ * the accumulator keeps such sums for a grid of values of <SPAN CLASS="MATH"><I>&#945;</I></SPAN> from
+ * <SPAN CLASS="MATH">1/16</SPAN> to 32, whose step near <SPAN CLASS="MATH"><I>&#945;</I></SPAN> is at most <SPAN CLASS="MATH"><I>&#945;</I>/16</SPAN>,
+ * and solves the equations by interpolation on this grid.
+ * The relative error on the estimates due to the interpolation is
+ * typically smaller than <SPAN CLASS="MATH">10<SUP>-6</SUP></SPAN>.
+ * 
+ * The methods of this class are not thread-safe: each thread must use
+ * its own accumulator.
+ * 
+ */
+public abstract class MLEAccumulator {
+   private static final double LN_EPS = Num.LN_DBL_MIN - Num.LN2;
+   protected long n = 0;      // number of observations
+
+
+   /**
+    * Returns an accumulator for the parameters <SPAN CLASS="MATH">(<I>&#956;</I>, <I>&#963;</I>)</SPAN> of the
+    * normal distribution, estimated as in
+    * {@link NormalDist#getMLE(double[],int) getMLE}.
+    * 
+    */
+   public static MLEAccumulator createNormal() {
+      return new Moments (Moments.NORMAL);
+   }
+
+
+   /**
+    * Returns an accumulator for the parameters <SPAN CLASS="MATH">(<I>&#956;</I>, <I>&#963;</I>)</SPAN> of the
+    * lognormal distribution, estimated as in
+    * {@link LognormalDist#getMLE(double[],int) getMLE}.
+    * 
+    */
+   public static MLEAccumulator createLognormal() {
+      return new Moments (Moments.LOGNORMAL);
+   }
+
+
+   /**
+    * Returns an accumulator for the parameter <SPAN CLASS="MATH"><I>&#955;</I></SPAN> of the
+    * exponential distribution, estimated as in
+    * {@link ExponentialDist#getMLE(double[],int) getMLE}.
+    * 
+    */
+   public static MLEAccumulator createExponential() {
+      return new Moments (Moments.EXPONENTIAL);
+   }
+
+
+   /**
+    * Returns an accumulator for the parameters <SPAN CLASS="MATH">(<I>&#945;</I>, <I>&#955;</I>)</SPAN> of the
+    * gamma distribution, estimated as in
+    * {@link GammaDist#getMLE(double[],int) getMLE}.
+    * 
+    */
+   public static MLEAccumulator createGamma() {
+      return new Moments (Moments.GAMMA);
+   }
+
+
+   /**
+    * Returns an accumulator for the parameters <SPAN CLASS="MATH">(<I>&#945;</I>, <I>&#955;</I>, 0)</SPAN> of the
+    * Weibull distribution, estimated as in
+    * {@link WeibullDist#getMLE(double[],int) getMLE}, by interpolation
+    * on a grid of values of <SPAN CLASS="MATH"><I>&#945;</I></SPAN> as explained above.
+    * The estimated shape parameter <SPAN CLASS="MATH"><I>&#945;</I></SPAN> must lie between <SPAN CLASS="MATH">1/16</SPAN> and 32.
+    * 
+    */
+   public static MLEAccumulator createWeibull() {
+      return new Weibull();
+   }
+
+
+   /**
+    * Returns an accumulator for the parameter <SPAN CLASS="MATH"><I>&#955;</I></SPAN> of the
+    * Poisson distribution, estimated as in
+    * {@link PoissonDist#getMLE(int[],int) getMLE}.
+    * 
+    */
+   public static MLEAccumulator createPoisson() {
+      return new Sum (Sum.POISSON, 0);
+   }
+
+
+   /**
+    * Returns an accumulator for the parameter <SPAN CLASS="MATH"><I>p</I></SPAN> of the binomial distribution
+    * with known parameter <SPAN CLASS="MATH"><I>n</I></SPAN>, estimated as in
+    * {@link BinomialDist#getMLE(int[],int,int) getMLE}.
+    * 
+    */
+   public static MLEAccumulator createBinomial (int n) {
+      if (n <= 0)
+         throw new IllegalArgumentException ("n <= 0");
+      return new Sum (Sum.BINOMIAL, n);
+   }
+
+
+   /**
+    * Returns an accumulator for the parameters <SPAN CLASS="MATH">(<I>n</I>, <I>p</I>)</SPAN> of the binomial
+    * distribution, estimated as in
+    * {@link BinomialDist#getMLE(int[],int) getMLE}.
+    * 
+    */
+   public static MLEAccumulator createBinomial() {
+      return new Frequencies (Frequencies.BINOMIAL);
+   }
+
+
+   /**
+    * Returns an accumulator for the parameters <SPAN CLASS="MATH">(<I>n</I>, <I>p</I>)</SPAN> of the negative
+    * binomial distribution, estimated as in
+    * {@link NegativeBinomialDist#getMLE(int[],int) getMLE}.
+    * 
+    */
+   public static MLEAccumulator createNegativeBinomial() {
+      return new Frequencies (Frequencies.NEGATIVEBINOMIAL);
+   }
+
+
+   /**
+    * Adds the <SPAN CLASS="MATH"><I>n</I></SPAN> observations <SPAN CLASS="MATH"><I>x</I>[0], ..., <I>x</I>[<I>n</I> - 1]</SPAN> to this accumulator.
+    * 
+    * @param x the observations
+    * 
+    * @param n the number of observations to add
+    * 
+    * @exception UnsupportedOperationException if the accumulator is
+    * for a discrete distribution
+    * 
+    */
+   public void add (double[] x, int n) {
+      add (x, 0, n);
+   }
+
+   protected void add (double[] x, int from, int to) {
+      for (int i = from; i < to; i++)
+         add (x[i]);
+   }
+
+   protected void add (int[] x, int from, int to) {
+      for (int i = from; i < to; i++)
+         add (x[i]);
+   }
+
+
+   /**
+    * Adds the observation <SPAN CLASS="MATH"><I>x</I></SPAN> to this accumulator.
+    * 
+    * @param x the observation
+    * 
+    * @exception UnsupportedOperationException if the accumulator is
+    * for a discrete distribution
+    * 
+    */
+   public void add (double x) {
+      throw new UnsupportedOperationException
+         ("continuous observations for a discrete distribution");
+   }
+
+
+   /**
+    * Adds the <SPAN CLASS="MATH"><I>n</I></SPAN> integer observations <SPAN CLASS="MATH"><I>x</I>[0], ..., <I>x</I>[<I>n</I> - 1]</SPAN> to
+    * this accumulator.
+    * 
+    * @param x the observations
+    * 
+    * @param n the number of observations to add
+    * 
+    * @exception UnsupportedOperationException if the accumulator is
+    * for a continuous distribution
+    * 
+    */
+   public void add (int[] x, int n) {
+      add (x, 0, n);
+   }
+
+
+   /**
+    * Adds the integer observation <SPAN CLASS="MATH"><I>x</I></SPAN> to this accumulator.
+    * 
+    * @param x the observation
+    * 
+    * @exception UnsupportedOperationException if the accumulator is
+    * for a continuous distribution
+    * 
+    */
+   public void add (int x) {
+      throw new UnsupportedOperationException
+         ("integer observations for a continuous distribution");
+   }
+
+
+   /**
+    * Adds the <SPAN CLASS="MATH"><I>n</I></SPAN> observations <SPAN CLASS="MATH"><I>x</I>[0], ..., <I>x</I>[<I>n</I> - 1]</SPAN> to this accumulator,
+    * using <TT>numThreads</TT> threads.  Each thread adds a contiguous
+    * part of the observations to its own accumulator, obtained from
+    * {@link #newInstance newInstance}, and these accumulators
+    * are then merged into this one.
+    * 
+    * @param x the observations
+    * 
+    * @param n the number of observations to add
+    * 
+    * @param numThreads the number of threads
+    * 
+    */
+   public void addParallel (final double[] x, int n, int numThreads) {
+      if (numThreads < 1)
+         throw new IllegalArgumentException ("numThreads < 1");
+      Runnable[] tasks = new Runnable[numThreads];
+      MLEAccumulator[] parts = new MLEAccumulator[numThreads];
+      for (int t = 0; t < numThreads; t++) {
+         final int from = (int)((long) n * t / numThreads);
+         final int to = (int)((long) n * (t + 1) / numThreads);
+         final MLEAccumulator acc = parts[t] = newInstance();
+         tasks[t] = new Runnable() {
+            public void run() {
+               acc.add (x, from, to);
+            }
+         };
+      }
+      Misc.runInParallel (tasks);
+      for (int t = 0; t < numThreads; t++)
+         merge (parts[t]);
+   }
+
+
+   /**
+    * Same as {@link #addParallel(double[],int,int) addParallel}, for integer observations.
+    * 
+    */
+   public void addParallel (final int[] x, int n, int numThreads) {
+      if (numThreads < 1)
+         throw new IllegalArgumentException ("numThreads < 1");
+      Runnable[] tasks = new Runnable[numThreads];
+      MLEAccumulator[] parts = new MLEAccumulator[numThreads];
+      for (int t = 0; t < numThreads; t++) {
+         final int from = (int)((long) n * t / numThreads);
+         final int to = (int)((long) n * (t + 1) / numThreads);
+         final MLEAccumulator acc = parts[t] = newInstance();
+         tasks[t] = new Runnable() {
+            public void run() {
+               acc.add (x, from, to);
+            }
+         };
+      }
+      Misc.runInParallel (tasks);
+      for (int t = 0; t < numThreads; t++)
+         merge (parts[t]);
+   }
+
+
+   /**
+    * Returns a new accumulator, of the same type as this one, that contains
+    * no observation.
+    * 
+    */
+   public abstract MLEAccumulator newInstance();
+
+
+   /**
+    * Adds all the observations of the accumulator <TT>acc</TT> to this
+    * accumulator.  Both accumulators must have been created by the same
+    * <TT>create</TT> method.  The accumulator <TT>acc</TT> is not modified.
+    * 
+    * @param acc the accumulator to merge into this one
+    * 
+    * @exception IllegalArgumentException if <TT>acc</TT> is not of the same
+    * type as this accumulator
+    * 
+    */
+   public abstract void merge (MLEAccumulator acc);
+
+
+   /**
+    * Returns the number of observations added to this accumulator.
+    * 
+    */
+   public long getN() {
+      return n;
+   }
+
+
+   /**
+    * Returns the maximum likelihood estimates of the parameters, from
+    * all the observations added so far, in the same order as the
+    * <TT>getMLE</TT> method of the corresponding distribution.
+    * 
+    * @return the estimated parameters
+    * 
+    */
+   public abstract double[] getMLE();
+
+
+   /**
+    * Returns a new distribution object whose parameters are the
+    * estimates returned by {@link #getMLE getMLE}.
+    * 
+    * @return the distribution with the estimated parameters
+    * 
+    */
+   public abstract Distribution getInstanceFromMLE();
+
+
+   protected void checkType (MLEAccumulator acc) {
+      if (acc.getClass() != getClass())
+         throw new IllegalArgumentException ("incompatible accumulators");
+   }
+
+   protected static double ln (double x) {
+      return x > 0.0 ? Math.log (x) : LN_EPS;
+   }
+
+
+   // Mean and centered sum of squares of x (NORMAL, EXPONENTIAL) or
+   // ln x (LOGNORMAL); for GAMMA, the sum of ln x is also needed.
+   private static class Moments extends MLEAccumulator {
+      static final int NORMAL = 0;
+      static final int LOGNORMAL = 1;
+      static final int EXPONENTIAL = 2;
+      static final int GAMMA = 3;
+
+      private final int type;
+      private double mean = 0.0;
+      private double sumSq = 0.0;      // sum of squared deviations from mean
+      private double sumLn = 0.0;
+
+      public Moments (int type) {
+         this.type = type;
+      }
+
+      public MLEAccumulator newInstance() {
+         return new Moments (type);
+      }
+
+      public void add (double x) {
+         if (type == GAMMA)
+            sumLn += ln (x);
+         if (type == LOGNORMAL)
+            x = ln (x);
+         n++;
+         final double delta = x - mean;
+         mean += delta / n;
+         sumSq += delta * (x - mean);
+      }
+
+      protected void add (double[] x, int from, int to) {
+         // Two passes over the chunk, then merge, as in getMLE.
+         if (to <= from)
+            return;
+         final int m = to - from;
+         double sum = 0.0;
+         double sl = 0.0;
+         for (int i = from; i < to; i++) {
+            if (type == LOGNORMAL)
+               sum += ln (x[i]);
+            else
+               sum += x[i];
+            if (type == GAMMA)
+               sl += ln (x[i]);
+         }
+         final double cmean = sum / m;
+         double csq = 0.0;
+         for (int i = from; i < to; i++) {
+            final double d = (type == LOGNORMAL ? ln (x[i]) : x[i]) - cmean;
+            csq += d * d;
+         }
+         combine (m, cmean, csq, sl);
+      }
+
+      private void combine (long m, double cmean, double csq, double sl) {
+         final long tot = n + m;
+         final double delta = cmean - mean;
+         mean += delta * m / tot;
+         sumSq += csq + delta * delta * ((double) n * m / tot);
+         sumLn += sl;
+         n = tot;
+      }
+
+      public void merge (MLEAccumulator acc) {
+         checkType (acc);
+         Moments a = (Moments) acc;
+         if (a.type != type)
+            throw new IllegalArgumentException ("incompatible accumulators");
+         if (a.n > 0)
+            combine (a.n, a.mean, a.sumSq, a.sumLn);
+      }
+
+      public double[] getMLE() {
+         if (n <= 0)
+            throw new IllegalArgumentException ("n <= 0");
+         switch (type) {
+         case EXPONENTIAL:
+            return new double[] { 1.0 / mean };
+         case GAMMA: {
+            double alphaMME = mean * mean * n / sumSq;
+            double a = alphaMME - 10.0;
+            if (a <= 0)
+               a = 1.0e-5;
+            final double m = mean;
+            final double nn = n;
+            final double sl = sumLn;
+            MathFunction f = new MathFunction() {
+               public double evaluate (double x) {
+                  if (x <= 0.0) return 1.0e200;
+                  return (nn * Math.log (m / x) + nn * Num.digamma (x) - sl);
+               }
+            };
+            double[] parameters = new double[2];
+            parameters[0] = RootFinder.brentDekker (a, alphaMME + 10.0, f, 1e-7);
+            parameters[1] = parameters[0] / mean;
+            return parameters;
+         }
+         default:
+            return new double[] { mean, Math.sqrt (sumSq / n) };
+         }
+      }
+
+      public Distribution getInstanceFromMLE() {
+         double[] par = getMLE();
+         switch (type) {
+         case NORMAL:
+            return new NormalDist (par[0], par[1]);
+         case LOGNORMAL:
+            return new LognormalDist (par[0], par[1]);
+         case EXPONENTIAL:
+            return new ExponentialDist (par[0]);
+         default:
+            return new GammaDist (par[0], par[1]);
+         }
+      }
+   }
+
+
+   /* For the Weibull distribution with shape a, the MLE of a solves
+         g(a) = m(a) - 1/a - (1/n) sum ln x_i = 0,
+      where m(a) = S1(a)/S0(a) and Sk(a) = sum x_i^a (ln x_i)^k. The Sk are
+      kept on a grid of values of a which has 16 equidistant points in each
+      interval [2^j, 2^{j+1}], so that x^a can be updated by a multiplication
+      from one grid point to the next. g is increasing; m(a) is interpolated
+      between grid points by a cubic Hermite polynomial, since its
+      derivative is m'(a) = S2/S0 - (S1/S0)^2. To avoid overflow, the sums
+      use y_i = x_i / c, where ln c is the mean of the logarithms of the first
+      observations added. */
+   private static class Weibull extends MLEAccumulator {
+      private static final int OCTAVES = 9;     // from 1/16 to 32
+      private static final int STEPS = 16;      // grid points per octave
+      private static final int K = 1 + OCTAVES*STEPS;
+      private static final double[] A = new double[K];  // the grid
+      private static final int BLOCK = 512;
+      static {
+         double h = 1.0 / (16*STEPS);
+         A[0] = 1.0 / 16;
+         for (int o = 0, k = 1; o < OCTAVES; o++, h *= 2)
+            for (int j = 0; j < STEPS; j++, k++)
+               A[k] = A[k - 1] + h;
+      }
+
+      private boolean scaled = false;
+      private double lnc = 0.0;
+      private double sumLn = 0.0;
+      private double[] s0 = new double[K];
+      private double[] s1 = new double[K];
+      private double[] s2 = new double[K];
+
+      public MLEAccumulator newInstance() {
+         return new Weibull();
+      }
+
+      public void add (double x) {
+         add (new double[] { x }, 0, 1);
+      }
+
+      protected void add (double[] x, int from, int to) {
+         if (to <= from)
+            return;
+         if (!scaled) {
+            double sum = 0.0;
+            for (int i = from; i < to; i++)
+               sum += ln (x[i]);
+            lnc = sum / (to - from);
+            scaled = true;
+         }
+         final int len = Math.min (BLOCK, to - from);
+         double[] ly = new double[len];
+         double[] step = new double[len];
+         double[] pw = new double[len];
+         for (int start = from; start < to; start += BLOCK) {
+            final int m = Math.min (BLOCK, to - start);
+            for (int i = 0; i < m; i++) {
+               final double xi = x[start + i];
+               sumLn += ln (xi);
+               if (xi > 0.0) {
+                  ly[i] = Math.log (xi) - lnc;
+                  step[i] = Math.exp (ly[i] * (A[1] - A[0]));
+                  double p = step[i];
+                  for (int j = 0; j < 4; j++)   // y^{1/16} = (y^{1/256})^16
+                     p *= p;
+                  pw[i] = p;
+               } else {
+                  ly[i] = 0.0;
+                  step[i] = 0.0;           // x^a = 0 for x = 0
+                  pw[i] = 0.0;
+               }
+            }
+            accumulate (0, m, ly, pw);
+            for (int o = 0, k = 1; o < OCTAVES; o++) {
+               for (int j = 0; j < STEPS; j++, k++) {
+                  for (int i = 0; i < m; i++)
+                     pw[i] *= step[i];
+                  accumulate (k, m, ly, pw);
+               }
+               for (int i = 0; i < m; i++)
+                  step[i] *= step[i];
+            }
+            n += m;
+         }
+      }
+
+      private void accumulate (int k, int m, double[] ly, double[] pw) {
+         double a0 = 0.0, a1 = 0.0, a2 = 0.0;
+         for (int i = 0; i < m; i++) {
+            final double pl = pw[i] * ly[i];
+            a0 += pw[i];
+            a1 += pl;
+            a2 += pl * ly[i];
+         }
+         s0[k] += a0;
+         s1[k] += a1;
+         s2[k] += a2;
+      }
+
+      public void merge (MLEAccumulator acc) {
+         checkType (acc);
+         Weibull w = (Weibull) acc;
+         if (w.n == 0)
+            return;
+         if (!scaled) {
+            lnc = w.lnc;
+            scaled = true;
+         }
+         // Rescale the sums of w from its reference point to ours:
+         // ln y = ln y' + d, y^a = y'^a e^{ad}
+         final double d = w.lnc - lnc;
+         for (int k = 0; k < K; k++) {
+            final double e = Math.exp (A[k] * d);
+            s0[k] += e * w.s0[k];
+            s1[k] += e * (w.s1[k] + d * w.s0[k]);
+            s2[k] += e * (w.s2[k] + 2.0 * d * w.s1[k] + d * d * w.s0[k]);
+         }
+         sumLn += w.sumLn;
+         n += w.n;
+      }
+
+      // m(a) and m'(a) at grid point k
+      private double m (int k) {
+         return s1[k] / s0[k];
+      }
+
+      private double dm (int k) {
+         final double m1 = s1[k] / s0[k];
+         return s2[k] / s0[k] - m1 * m1;
+      }
+
+      private double g (int k) {
+         return m (k) + lnc - 1.0 / A[k] - sumLn / n;
+      }
+
+      public double[] getMLE() {
+         if (n <= 0)
+            throw new IllegalArgumentException ("n <= 0");
+         int k = 0;
+         while (k < K && g (k) < 0.0)
+            k++;
+         if (k == 0 || k == K || Double.isNaN (g (k)))
+            throw new UnsupportedOperationException
+               ("shape parameter outside the interval [1/16, 32]");
+
+         // Hermite interpolation of m on [A[k-1], A[k]], mapped to [0, 1]
+         final double a0 = A[k - 1];
+         final double h = A[k] - a0;
+         final double m0 = m (k - 1), m1 = m (k);
+         final double d0 = h * dm (k - 1), d1 = h * dm (k);
+         final double c = lnc - sumLn / n;
+         MathFunction f = new MathFunction() {
+            public double evaluate (double t) {
+               return hermite (t, m0, m1, d0, d1) + c - 1.0 / (a0 + t * h);
+            }
+         };
+         final double t = RootFinder.brentDekker (0.0, 1.0, f, 1e-12);
+         final double alpha = a0 + t * h;
+
+         // ln S0 at alpha, interpolated with its derivative m
+         final double lnS0 = hermite (t, Math.log (s0[k - 1]),
+                                      Math.log (s0[k]), h * m0, h * m1);
+         double param[] = new double[3];
+         param[0] = alpha;
+         param[1] = Math.exp ((Math.log ((double) n) - lnS0) / alpha - lnc);
+         param[2] = 0.0;
+         return param;
+      }
+
+      private static double hermite (double t, double p0, double p1,
+                                     double m0, double m1) {
+         final double t2 = t * t, t3 = t2 * t;
+         return (2*t3 - 3*t2 + 1) * p0 + (t3 - 2*t2 + t) * m0
+                + (-2*t3 + 3*t2) * p1 + (t3 - t2) * m1;
+      }
+
+      public Distribution getInstanceFromMLE() {
+         double[] par = getMLE();
+         return new WeibullDist (par[0], par[1], par[2]);
+      }
+   }
+
+
+   // Number and sum of integer observations (POISSON, BINOMIAL with known n)
+   private static class Sum extends MLEAccumulator {
+      static final int POISSON = 0;
+      static final int BINOMIAL = 1;
+
+      private final int type;
+      private final int bn;        // the known n of the binomial
+      private double sum = 0.0;
+
+      public Sum (int type, int bn) {
+         this.type = type;
+         this.bn = bn;
+      }
+
+      public MLEAccumulator newInstance() {
+         return new Sum (type, bn);
+      }
+
+      public void add (int x) {
+         sum += x;
+         n++;
+      }
+
+      protected void add (int[] x, int from, int to) {
+         long s = 0;
+         for (int i = from; i < to; i++)
+            s += x[i];
+         sum += s;
+         if (to > from)
+            n += to - from;
+      }
+
+      public void merge (MLEAccumulator acc) {
+         checkType (acc);
+         Sum a = (Sum) acc;
+         if (a.type != type || a.bn != bn)
+            throw new IllegalArgumentException ("incompatible accumulators");
+         sum += a.sum;
+         n += a.n;
+      }
+
+      public double[] getMLE() {
+         if (n <= 0)
+            throw new IllegalArgumentException ("n <= 0");
+         if (type == POISSON)
+            return new double[] { sum / n };
+         return new double[] { sum / n / bn };
+      }
+
+      public Distribution getInstanceFromMLE() {
+         double[] par = getMLE();
+         if (type == POISSON)
+            return new PoissonDist (par[0]);
+         return new BinomialDist (bn, par[0]);
+      }
+   }
+
+
+   // Frequencies of the observed values 0, 1, 2, ...
+   private static class Frequencies extends MLEAccumulator {
+      static final int BINOMIAL = 0;
+      static final int NEGATIVEBINOMIAL = 1;
+
+      private final int type;
+      private long[] freq = new long[16];
+      private int max = -1;           // largest observation
+
+      public Frequencies (int type) {
+         this.type = type;
+      }
+
+      public MLEAccumulator newInstance() {
+         return new Frequencies (type);
+      }
+
+      private void grow (int x) {
+         int len = freq.length;
+         while (len <= x)
+            len = len < Integer.MAX_VALUE / 2 ? 2 * len : x + 1;
+         long[] f = new long[len];
+         System.arraycopy (freq, 0, f, 0, freq.length);
+         freq = f;
+      }
+
+      public void add (int x) {
+         if (x < 0)
+            throw new IllegalArgumentException ("x < 0");
+         if (x >= freq.length)
+            grow (x);
+         freq[x]++;
+         if (x > max)
+            max = x;
+         n++;
+      }
+
+      protected void add (int[] x, int from, int to) {
+         for (int i = from; i < to; i++)
+            add (x[i]);
+      }
+
+      public void merge (MLEAccumulator acc) {
+         checkType (acc);
+         Frequencies a = (Frequencies) acc;
+         if (a.type != type)
+            throw new IllegalArgumentException ("incompatible accumulators");
+         if (a.max >= freq.length)
+            grow (a.max);
+         for (int j = 0; j <= a.max; j++)
+            freq[j] += a.freq[j];
+         if (a.max > max)
+            max = a.max;
+         n += a.n;
+      }
+
+      public double[] getMLE() {
+         if (type == BINOMIAL && n <= 1)
+            throw new UnsupportedOperationException (" m < 2");
+         if (n <= 0)
+            throw new IllegalArgumentException ("m <= 0");
+         double mean = 0.0;
+         for (int j = 0; j <= max; j++)
+            mean += (double) j * freq[j];
+         mean /= n;
+         double var = 0.0;
+         for (int j = 0; j <= max; j++)
+            var += (j - mean) * (j - mean) * freq[j];
+         var /= n;
+
+         // f[j] is the number of observations larger than j
+         final double[] f = new double[Math.max (max, 0)];
+         long above = n;
+         for (int j = 0; j < max; j++) {
+            above -= freq[j];
+            f[j] = above;
+         }
+         final double m = n;
+         final double mu = mean;
+         final int r = max;
+
+         if (type == BINOMIAL) {
+            if (mean <= var)
+               throw new UnsupportedOperationException ("mean <= variance");
+            MathFunction fct = new MathFunction() {
+               public double evaluate (double x) {
+                  if (x < r)
+                     return 1e100;
+                  double sum = 0.0;
+                  for (int j = 0; j < r; j++)
+                     sum += f[j] / (x - (double) j);
+                  return (sum + m * Math.log1p (-mu / x));
+               }
+            };
+            double p = 1.0 - var / mean;
+            double rup = (int) (5 * mean / p);
+            if (rup < 1) rup = 1;
+            double parameters[] = new double[2];
+            parameters[0] = (int) RootFinder.brentDekker (r - 1, rup, fct, 1e-5);
+            if (parameters[0] < r)
+               parameters[0] = r;
+            parameters[1] = mean / parameters[0];
+            return parameters;
+
+         } else {
+            if (mean >= var)
+               throw new UnsupportedOperationException ("mean >= variance");
+            double estimGamma = (mean * mean) / (var - mean);
+            MathFunction fct = new MathFunction() {
+               public double evaluate (double s) {
+                  if (s <= 0) return 1.0e100;
+                  double sum = 0.0;
+                  double p = s / (s + mu);
+                  for (int j = 0; j < r; j++)
+                     sum += f[j] / (s + (double) j);
+                  return sum + m * Math.log (p);
+               }
+            };
+            double parameters[] = new double[2];
+            parameters[0] = RootFinder.brentDekker (estimGamma / 10,
+                                                    estimGamma * 10, fct, 1e-5);
+            parameters[1] = parameters[0] / (parameters[0] + mean);
+            return parameters;
+         }
+      }
+
+      public Distribution getInstanceFromMLE() {
+         double[] par = getMLE();
+         if (type == BINOMIAL)
+            return new BinomialDist ((int) par[0], par[1]);
+         return new NegativeBinomialDist (par[0], par[1]);
+      }
+   }
+}
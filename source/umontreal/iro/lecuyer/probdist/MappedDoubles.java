@@ -0,0 +1,120 @@
+
+
+/*
+ * Class:        MappedDoubles
+ * Description:  read-only array of doubles mapped from a binary file
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Université de Montréal
+ * Organization: DIRO, Université de Montréal
+ * @author
+ * @since
+
+ * SSJ is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License (GPL) as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * any later version.
+
+ * SSJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * A copy of the GNU General Public License is available at
+   <a href="http://www.gnu.org/licenses">GPL licence site</a>.
+ */
+
+package umontreal.iro.lecuyer.probdist;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+
+
+/*
+ * Read-only array of doubles stored in a binary file in big-endian order,
+ * as written by java.io.DataOutputStream.writeDouble, and mapped in memory.
+ * Since a mapping cannot exceed 2^31 bytes, the file is mapped in segments
+ * of 2^SHIFT doubles. Used by MappedEmpiricalDist and
+ * MappedPiecewiseLinearEmpiricalDist.
+ */
+final class MappedDoubles {
+   private static final int SHIFT = 27;         // 1 GiB per segment
+   private static final int MASK = (1 << SHIFT) - 1;
+
+   private final DoubleBuffer[] seg;
+   private final long n;
+
+   MappedDoubles (File file) throws IOException {
+      RandomAccessFile raf = new RandomAccessFile (file, "r");
+      try {
+         FileChannel ch = raf.getChannel();
+         long size = ch.size();
+         if (size % 8 != 0)
+            throw new IllegalArgumentException
+               ("the size of " + file + " is not a multiple of 8 bytes");
+         n = size / 8;
+         int nseg = (int) ((n + MASK) >>> SHIFT);
+         seg = new DoubleBuffer[nseg];
+         for (int s = 0; s < nseg; s++) {
+            long start = (long) s << SHIFT;
+            long len = Math.min (n - start, 1L << SHIFT);
+            seg[s] = ch.map (FileChannel.MapMode.READ_ONLY, 8*start, 8*len)
+                       .order (ByteOrder.BIG_ENDIAN).asDoubleBuffer();
+         }
+      } finally {
+         // The mappings remain valid after the channel is closed
+         raf.close();
+      }
+   }
+
+   long size() {
+      return n;
+   }
+
+   double get (long i) {
+      if (i < 0 || i >= n)
+         throw new IndexOutOfBoundsException ("index " + i);
+      return seg[(int) (i >>> SHIFT)].get ((int) (i & MASK));
+   }
+
+   /*
+    * Returns the number of elements <= x if strict is false,
+    * or the number of elements < x if strict is true, assuming the
+    * elements are sorted in increasing order.
+    */
+   long rank (double x, boolean strict) {
+      long lo = 0, hi = n;
+      while (lo < hi) {
+         long mid = (lo + hi) >>> 1;
+         double v = get (mid);
+         if (v < x || (!strict && v == x))
+            lo = mid + 1;
+         else
+            hi = mid;
+      }
+      return lo;
+   }
+
+   /*
+    * Checks that the elements are sorted and returns their mean and
+    * sample variance, computed in a single pass.
+    */
+   double[] checkAndMoments() {
+      double mean = 0.0, sumSq = 0.0, prev = Double.NEGATIVE_INFINITY;
+      for (long i = 0; i < n; i++) {
+         double x = get (i);
+         if (!(x >= prev))
+            throw new IllegalArgumentException
+               ("observations not sorted in increasing order at index " + i);
+         prev = x;
+         double d = x - mean;
+         mean += d / (i + 1);
+         sumSq += d * (x - mean);
+      }
+      return new double[] { mean, sumSq / (n - 1) };
+   }
+}
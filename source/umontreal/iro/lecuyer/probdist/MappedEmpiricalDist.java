@@ -0,0 +1,256 @@
+/*
+ * Class:        MappedEmpiricalDist
+ * Description:  empirical discrete distribution read from a mapped file
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Université de Montréal
+ * Organization: DIRO, Université de Montréal
+ * @author
+ * @since
+
+ * SSJ is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License (GPL) as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * any later version.
+
+ * SSJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * A copy of the GNU General Public License is available at
+   <a href="http://www.gnu.org/licenses">GPL licence site</a>.
+ */
+
+package umontreal.iro.lecuyer.probdist;
+
+import java.io.File;
+import java.io.IOException;
+
+
+/**
+ * Same as {@link EmpiricalDist}, except that the sorted observations
+ * <SPAN CLASS="MATH"><I>X</I><SUB>(1)</SUB>,...,<I>X</I><SUB>(n)</SUB></SPAN> are not kept in an array, but read directly from
+ * a binary file mapped in memory.
+ * This allows one to use samples that are too large to fit in the
+ * memory of the Java virtual machine: the pages of the file are loaded
+ * by the operating system when they are accessed, and can be shared by
+ * several distribution objects and several processes.
+ * The methods {@link #cdf cdf}, {@link #barF barF}, {@link #inverseF inverseF}
+ * and {@link #getObs getObs} perform a binary search or a direct access
+ * in the mapped file, so each call costs <SPAN CLASS="MATH"><I>O</I>(log <I>n</I>)</SPAN> accesses.
+ * 
+ * The file must contain the observations sorted by increasing order,
+ * stored as consecutive 8-byte values in the format of
+ * <TT>java.io.DataOutputStream.writeDouble</TT>, without any header.
+ * Such a file can be created from unsorted data in binary or text format
+ * with {@link umontreal.iro.lecuyer.util.ExternalSort ExternalSort}.
+ * The number of observations <SPAN CLASS="MATH"><I>n</I></SPAN> may exceed <SPAN CLASS="MATH">2<SUP>31</SUP> - 1</SPAN>.
+ * 
+ */
+public class MappedEmpiricalDist extends DiscreteDistribution {
+   private MappedDoubles obs;
+   private long n;
+   private double sampleMean;
+   private double sampleVariance;
+   private double sampleStandardDeviation;
+
+
+   /**
+    * Constructs a new empirical distribution using the observations
+    * stored in the binary file <TT>file</TT>.
+    * The constructor makes one sequential pass over the file to check that
+    * the observations are sorted in increasing order and to compute the
+    * sample mean and variance.
+    * 
+    * @param file the file containing the sorted observations
+    * 
+    * @exception IOException if the file cannot be read or mapped
+    * 
+    * @exception IllegalArgumentException if the file contains less than two
+    * observations or if they are not sorted
+    * 
+    */
+   public MappedEmpiricalDist (File file) throws IOException {
+      obs = new MappedDoubles (file);
+      n = obs.size();
+      if (n <= 1)
+         throw new IllegalArgumentException
+            ("Two or more observations are needed");
+      double[] mom = obs.checkAndMoments();
+      sampleMean = mom[0];
+      sampleVariance = mom[1];
+      sampleStandardDeviation = Math.sqrt (sampleVariance);
+      supportA = obs.get (0);
+      supportB = obs.get (n - 1);
+      nVal = (int) Math.min (n, Integer.MAX_VALUE);
+      xmin = 0;
+      xmax = nVal - 1;
+   }
+
+
+   public double prob (int i) {
+      if (i >= 0 && i < n)
+         return 1.0 / n;
+      throw new IllegalStateException();
+   }
+
+   public double cdf (double x) {
+      if (x < supportA)
+         return 0;
+      if (x >= supportB)
+         return 1;
+      return (double) obs.rank (x, false) / n;
+   }
+
+   public double barF (double x) {
+      if (x <= supportA)
+         return 1;
+      if (x > supportB)
+         return 0;
+      return (double) (n - obs.rank (x, true)) / n;
+   }
+
+   public double inverseF (double u) {
+      if (u < 0 || u > 1)
+         throw new IllegalArgumentException ("u is not in [0,1]");
+      if (u == 1.0)
+         return supportB;
+      long i = (long) Math.floor (n * u);
+      return obs.get (Math.min (i, n - 1));
+   }
+
+   public double getMean() {
+      return sampleMean;
+   }
+
+   public double getStandardDeviation() {
+      return sampleStandardDeviation;
+   }
+
+   public double getVariance() {
+      return sampleVariance;
+   }
+
+   public double getValue (int i) {
+      return obs.get (i);
+   }
+
+
+   /**
+    * Returns the median, defined as in {@link EmpiricalDist}.
+    * 
+    */
+   public double getMedian () {
+      if ((n % 2) == 0)
+         return (obs.get (n / 2 - 1) + obs.get (n / 2)) / 2.0;
+      else
+         return obs.get ((n - 1) / 2);
+   }
+
+
+   /**
+    * Returns <SPAN CLASS="MATH"><I>n</I></SPAN>, the number of observations.
+    * Throws an <TT>UnsupportedOperationException</TT> if <SPAN CLASS="MATH"><I>n</I> &gt; 2<SUP>31</SUP> - 1</SPAN>.
+    * 
+    */
+   public int getN() {
+      if (n > Integer.MAX_VALUE)
+         throw new UnsupportedOperationException
+            ("n is too large, use getNumObs");
+      return (int) n;
+   }
+
+
+   /**
+    * Returns <SPAN CLASS="MATH"><I>n</I></SPAN>, the number of observations, as a <TT>long</TT>.
+    * 
+    */
+   public long getNumObs() {
+      return n;
+   }
+
+
+   /**
+    * Returns the value of <SPAN CLASS="MATH"><I>X</I><SUB>(i)</SUB></SPAN>, for <SPAN CLASS="MATH"><I>i</I> = 0, 1, ..., <I>n</I> - 1</SPAN>.
+    * 
+    */
+   public double getObs (long i) {
+      return obs.get (i);
+   }
+
+
+   /**
+    * Returns the sample mean of the observations.
+    * 
+    */
+   public double getSampleMean() {
+      return sampleMean;
+   }
+
+
+   /**
+    * Returns the sample variance of the observations.
+    * 
+    */
+   public double getSampleVariance() {
+      return sampleVariance;
+   }
+
+
+   /**
+    * Returns the sample standard deviation of the observations.
+    * 
+    */
+   public double getSampleStandardDeviation() {
+      return sampleStandardDeviation;
+   }
+
+
+   /**
+    * Returns the <SPAN  CLASS="textit">interquartile range</SPAN> of the observations,
+    * defined as the difference between the third and first quartiles.
+    * 
+    */
+   public double getInterQuartileRange() {
+      long j = n/2;
+      double lowerqrt, upperqrt;
+      if (j % 2 == 1) {
+         lowerqrt = obs.get ((j+1)/2-1);
+         upperqrt = obs.get (n-(j+1)/2);
+      }
+      else {
+         lowerqrt = 0.5 * (obs.get (j/2-1) + obs.get (j/2));
+         upperqrt = 0.5 * (obs.get (n-j/2) + obs.get (n-j/2-1));
+      }
+      return upperqrt - lowerqrt;
+   }
+
+
+   /**
+    * Returns an array containing the observations.
+    * This array is allocated on the heap, so this method should be
+    * used only for small samples.
+    * 
+    */
+   public double[] getParams () {
+      if (n > Integer.MAX_VALUE)
+         throw new UnsupportedOperationException
+            ("too many observations to be returned in an array");
+      double[] retour = new double[(int) n];
+      for (int i = 0; i < n; i++)
+         retour[i] = obs.get (i);
+      return retour;
+   }
+
+
+   /**
+    * Returns a <TT>String</TT> containing information about the current distribution.
+    * 
+    */
+   public String toString () {
+      return getClass().getSimpleName() + " : n = " + n +
+             ", mean = " + sampleMean + ", variance = " + sampleVariance;
+   }
+
+}
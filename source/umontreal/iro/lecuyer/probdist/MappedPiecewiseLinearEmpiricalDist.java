@@ -0,0 +1,208 @@
+/*
+ * Class:        MappedPiecewiseLinearEmpiricalDist
+ * Description:  piecewise-linear empirical distribution read from a mapped file
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Université de Montréal
+ * Organization: DIRO, Université de Montréal
+ * @author
+ * @since
+
+ * SSJ is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License (GPL) as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * any later version.
+
+ * SSJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * A copy of the GNU General Public License is available at
+   <a href="http://www.gnu.org/licenses">GPL licence site</a>.
+ */
+
+package umontreal.iro.lecuyer.probdist;
+
+import umontreal.iro.lecuyer.util.Num;
+import java.io.File;
+import java.io.IOException;
+
+
+/**
+ * Same as {@link PiecewiseLinearEmpiricalDist}, except that the sorted
+ * observations <SPAN CLASS="MATH"><I>X</I><SUB>(1)</SUB>,...,<I>X</I><SUB>(n)</SUB></SPAN> are read directly from a binary file
+ * mapped in memory, as in {@link MappedEmpiricalDist}, instead of being
+ * copied into arrays.  The file has the same format as for
+ * {@link MappedEmpiricalDist}.
+ * The methods {@link #density density}, {@link #cdf cdf}, {@link #barF barF}
+ * find the interval <SPAN CLASS="MATH">[<I>X</I><SUB>(i)</SUB>, <I>X</I><SUB>(i+1)</SUB>)</SPAN> containing <SPAN CLASS="MATH"><I>x</I></SPAN> by a binary
+ * search in the mapped file, and {@link #inverseF inverseF} computes <SPAN CLASS="MATH"><I>i</I></SPAN> directly,
+ * so no array of size <SPAN CLASS="MATH"><I>n</I></SPAN> is ever allocated.
+ * 
+ */
+public class MappedPiecewiseLinearEmpiricalDist extends ContinuousDistribution {
+   private MappedDoubles obs;
+   private long n;
+   private double sampleMean;
+   private double sampleVariance;
+   private double sampleStandardDeviation;
+
+
+   /**
+    * Constructs a new piecewise-linear distribution using
+    * the observations stored in the binary file <TT>file</TT>, which must
+    * be sorted in increasing order.
+    * The constructor makes one sequential pass over the file to check the
+    * order and to compute the sample mean and variance.
+    * 
+    * @param file the file containing the sorted observations
+    * 
+    * @exception IOException if the file cannot be read or mapped
+    * 
+    * @exception IllegalArgumentException if the file contains less than two
+    * observations or if they are not sorted
+    * 
+    */
+   public MappedPiecewiseLinearEmpiricalDist (File file) throws IOException {
+      obs = new MappedDoubles (file);
+      n = obs.size();
+      if (n <= 1)
+         throw new IllegalArgumentException
+            ("Two or more observations are needed");
+      double[] mom = obs.checkAndMoments();
+      sampleMean = mom[0];
+      sampleVariance = mom[1];
+      sampleStandardDeviation = Math.sqrt (sampleVariance);
+      supportA = obs.get (0)*(1.0 - Num.DBL_EPSILON);
+      supportB = obs.get (n - 1)*(1.0 + Num.DBL_EPSILON);
+   }
+
+
+   public double density (double x) {
+      if (x < obs.get (0) || x >= obs.get (n - 1))
+         return 0;
+      long i = obs.rank (x, false) - 1;
+      return 1.0 / ((n - 1)*(obs.get (i + 1) - obs.get (i)));
+   }
+
+   public double cdf (double x) {
+      if (x <= obs.get (0))
+         return 0;
+      if (x >= obs.get (n - 1))
+         return 1;
+      long i = obs.rank (x, false) - 1;
+      double xi = obs.get (i);
+      return i/(n-1.0) + (x - xi)/((n-1.0)*(obs.get (i + 1) - xi));
+   }
+
+   public double barF (double x) {
+      if (x <= obs.get (0))
+         return 1;
+      if (x >= obs.get (n - 1))
+         return 0;
+      long i = obs.rank (x, false) - 1;
+      double xi = obs.get (i);
+      return (n-1.0-i)/(n-1.0) - (x - xi)/((n-1.0)*(obs.get (i + 1) - xi));
+   }
+
+   public double inverseF (double u) {
+      if (u < 0 || u > 1)
+         throw new IllegalArgumentException ("u is not in [0,1]");
+      if (u <= 0.0)
+         return obs.get (0);
+      if (u >= 1.0)
+         return obs.get (n - 1);
+      double p = (n - 1)*u;
+      long i = (long) Math.floor (p);
+      if (i >= n - 1)
+         return obs.get (n - 1);
+      double xi = obs.get (i);
+      return xi + (p - i)*(obs.get (i + 1) - xi);
+   }
+
+   public double getMean() {
+      return sampleMean;
+   }
+
+   public double getVariance() {
+      return sampleVariance;
+   }
+
+   public double getStandardDeviation() {
+      return sampleStandardDeviation;
+   }
+
+
+   /**
+    * Returns <SPAN CLASS="MATH"><I>n</I></SPAN>, the number of observations.
+    * 
+    */
+   public long getNumObs() {
+      return n;
+   }
+
+
+   /**
+    * Returns the value of <SPAN CLASS="MATH"><I>X</I><SUB>(i)</SUB></SPAN>, for <SPAN CLASS="MATH"><I>i</I> = 0, 1, ..., <I>n</I> - 1</SPAN>.
+    * 
+    */
+   public double getObs (long i) {
+      return obs.get (i);
+   }
+
+
+   /**
+    * Returns the sample mean of the observations.
+    * 
+    */
+   public double getSampleMean() {
+      return sampleMean;
+   }
+
+
+   /**
+    * Returns the sample variance of the observations.
+    * 
+    */
+   public double getSampleVariance() {
+      return sampleVariance;
+   }
+
+
+   /**
+    * Returns the sample standard deviation of the observations.
+    * 
+    */
+   public double getSampleStandardDeviation() {
+      return sampleStandardDeviation;
+   }
+
+
+   /**
+    * Returns an array containing the observations.
+    * This array is allocated on the heap, so this method should be
+    * used only for small samples.
+    * 
+    */
+   public double[] getParams () {
+      if (n > Integer.MAX_VALUE)
+         throw new UnsupportedOperationException
+            ("too many observations to be returned in an array");
+      double[] retour = new double[(int) n];
+      for (int i = 0; i < n; i++)
+         retour[i] = obs.get (i);
+      return retour;
+   }
+
+
+   /**
+    * Returns a <TT>String</TT> containing information about the current distribution.
+    * 
+    */
+   public String toString () {
+      return getClass().getSimpleName() + " : n = " + n +
+             ", mean = " + sampleMean + ", variance = " + sampleVariance;
+   }
+
+}
@@ -304,6 +304,8 @@ public class NegativeBinomialDist extends DiscreteDistributionInt {
 
    /**
     * Computes the distribution function.
+    *   If a default {@link DiscreteDistributionIntCache} is set, the tables
+    *   of a cached <TT>NegativeBinomialDist</TT> object are used instead.
     * 
     */
    public static double cdf (double n, double p, int x) {
@@ -325,6 +327,12 @@ public class NegativeBinomialDist extends DiscreteDistributionInt {
       if (p <= 0.0)                  // In fact, p == 0
          return 0.0;
 
+      // The object computes cdf (n, p, x) itself for x < xmin
+      NegativeBinomialDist dist =
+         DiscreteDistributionIntCache.getNegativeBinomial (n, p);
+      if (dist != null && x >= dist.xmin)
+         return dist.cdf (x);
+
       // Compute the maximum term
       mode = 1 + (int) Math.floor ((n*q - 1.0)/p);
       if (mode < 0)
@@ -366,6 +374,10 @@ public class NegativeBinomialDist extends DiscreteDistributionInt {
     * 
     */
    public static double barF (double n, double p, int x) {
+      NegativeBinomialDist dist =
+         DiscreteDistributionIntCache.getNegativeBinomial (n, p);
+      if (dist != null)
+         return dist.barF (x);
       return 1.0 - cdf (n, p, x - 1);
    }
 
@@ -389,6 +401,12 @@ public class NegativeBinomialDist extends DiscreteDistributionInt {
          return 0;
       if (u >= 1.0)
          return Integer.MAX_VALUE;
+      if (u > EPS2) {
+         NegativeBinomialDist dist =
+            DiscreteDistributionIntCache.getNegativeBinomial (n, p);
+         if (dist != null)
+            return dist.inverseFInt (u);
+      }
 
       double sum, term, termmode;
       final double q = 1.0 - p;
@@ -218,6 +218,8 @@ public class PoissonDist extends DiscreteDistributionInt {
    /**
     * Computes and returns the value of the Poisson
     *   distribution function <SPAN CLASS="MATH"><I>F</I>(<I>x</I>)</SPAN> for <SPAN CLASS="MATH"><I>&#955;</I> =</SPAN> <TT>lambda</TT>.
+    *   If a default {@link DiscreteDistributionIntCache} is set, the tables
+    *   of a cached <TT>PoissonDist</TT> object are used instead.
     * 
     */
    public static double cdf (double lambda, int x) {
@@ -240,6 +242,10 @@ public class PoissonDist extends DiscreteDistributionInt {
             return 1.0;
       }
 
+      PoissonDist dist = DiscreteDistributionIntCache.getPoisson (lambda);
+      if (dist != null)
+         return dist.cdf (x);
+
       /* If lambda > LAMBDALIM, use the Chi2 distribution according to the
          exact relation, with 2x + 2 degrees of freedom
 
@@ -287,6 +293,11 @@ public class PoissonDist extends DiscreteDistributionInt {
             return 0.0;
       }
 
+      // The object computes barF (lambda, x) itself for x > xmax
+      PoissonDist dist = DiscreteDistributionIntCache.getPoisson (lambda);
+      if (dist != null && x <= dist.xmax)
+         return dist.barF (x);
+
       /* If lambda > LAMBDALIM, we use the Chi2 distribution according to the
          exact relation, with 2x + 2 degrees of freedom
 
@@ -331,6 +342,11 @@ public class PoissonDist extends DiscreteDistributionInt {
          return Integer.MAX_VALUE;
       if (u <= prob (lambda, 0))
          return 0;
+      if (u > EPSILON) {
+         PoissonDist dist = DiscreteDistributionIntCache.getPoisson (lambda);
+         if (dist != null)
+            return dist.inverseFInt (u);
+      }
       int i;
 
       final double LAMBDALIM = 700.0;
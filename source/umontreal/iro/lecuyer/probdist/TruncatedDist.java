@@ -27,6 +27,7 @@
 package umontreal.iro.lecuyer.probdist;
 import umontreal.iro.lecuyer.functions.MathFunctionUtil;
 import umontreal.iro.lecuyer.functions.MathFunction;
+import umontreal.iro.lecuyer.util.Num;
 
 
 /**
@@ -54,6 +55,22 @@ import umontreal.iro.lecuyer.functions.MathFunction;
  * where <SPAN CLASS="MATH"><I>F</I><SUB>0</SUB><SUP>-1</SUP></SPAN> is the inverse distribution function of the
  * original distribution.
  * 
+ * <P>
+ * When the inverse distribution function of the original distribution
+ * has no closed form, each call to {@link #inverseF inverseF} usually requires a
+ * numerical root-finding on <SPAN CLASS="MATH"><I>F</I><SUB>0</SUB></SPAN>, which is slow.
+ * The method {@link #setInversionTable(int) setInversionTable} precomputes the values
+ * <SPAN CLASS="MATH"><I>x</I><SUB>k</SUB> = <I>F</I><SUP>-1</SUP>(<I>k</I>/<I>K</I>)</SPAN>, <SPAN CLASS="MATH"><I>k</I> = 0,...,<I>K</I></SPAN>, with their exact probabilities and
+ * densities.  Afterwards, {@link #inverseF inverseF} finds the interval
+ * <SPAN CLASS="MATH">[<I>x</I><SUB>k</SUB>, <I>x</I><SUB>k+1</SUB>]</SPAN> containing the solution directly,
+ * starts from a cubic Hermite interpolation of <SPAN CLASS="MATH"><I>F</I><SUP>-1</SUP></SPAN> over this interval,
+ * and refines it by a few safeguarded Newton steps on <SPAN CLASS="MATH"><I>F</I></SPAN>, which usually
+ * requires only one or two evaluations of <SPAN CLASS="MATH"><I>F</I><SUB>0</SUB></SPAN> and <SPAN CLASS="MATH"><I>f</I><SUB>0</SUB></SPAN>.
+ * The class
+ * {@link umontreal.iro.lecuyer.randvar.TruncatedGen TruncatedGen} uses this
+ * table, or rejection from a generator of the original distribution when
+ * the truncated mass <SPAN CLASS="MATH"><I>F</I><SUB>0</SUB>(<I>b</I>) - <I>F</I><SUB>0</SUB>(<I>a</I>)</SPAN> is large.
+ * 
  */
 public class TruncatedDist extends ContinuousDistribution {
    public static int NUMINTERVALS = 500;
@@ -69,6 +86,13 @@ public class TruncatedDist extends ContinuousDistribution {
    private double approxVariance;
    private double approxStandardDeviation;
 
+   // Inversion table: tabX[k] = F^{-1}(k/tabN), tabU[k] = F(tabX[k]),
+   // tabF[k] = f(tabX[k]); tabN = 0 if there is no table.
+   private int tabN;
+   private double[] tabX;
+   private double[] tabU;
+   private double[] tabF;
+
 
    /**
     * Constructs a new distribution by truncating distribution <TT>dist</TT>
@@ -109,6 +133,81 @@ public class TruncatedDist extends ContinuousDistribution {
          return a;
       if (u == 1)
          return b;
+      if (tabN > 0)
+         return inverseTable (u);
+      return dist0.inverseF (fa + fbfa * u);
+   }
+
+   private double inverseTable (double u) {
+      if (u < 0 || u > 1)
+         throw new IllegalArgumentException ("u is not in [0,1]");
+      int k = (int) (u * tabN);
+      if (k >= tabN)
+         k = tabN - 1;
+      // The tabulated probabilities are not exactly k/tabN
+      while (k > 0 && u < tabU[k])
+         k--;
+      while (k < tabN - 1 && u >= tabU[k + 1])
+         k++;
+      double x0 = tabX[k];
+      double x1 = tabX[k + 1];
+      if (Double.isInfinite (x0) || Double.isInfinite (x1))
+         return dist0.inverseF (fa + fbfa * u);
+      double u0 = tabU[k];
+      double u1 = tabU[k + 1];
+      double h = u1 - u0;
+      if (h <= 0)
+         return x0;
+
+      // Cubic Hermite interpolation of F^{-1}, whose derivative is 1/f
+      double x;
+      double t = (u - u0) / h;
+      double dx = x1 - x0;
+      if (tabF[k] > 0 && tabF[k + 1] > 0 && !Double.isInfinite (tabF[k])
+          && !Double.isInfinite (tabF[k + 1])) {
+         double m0 = h / tabF[k];
+         double m1 = h / tabF[k + 1];
+         double t2 = t*t;
+         double t3 = t2*t;
+         x = x0 + (t3 - 2*t2 + t)*m0 + (3*t2 - 2*t3)*dx + (t3 - t2)*m1;
+         if (!(x > x0 && x < x1))
+            x = x0 + t*dx;
+      } else
+         x = x0 + t*dx;
+
+      // Safeguarded Newton iterations on F(x) - u, with bracket [x0, x1].
+      // The residual is computed with F or with 1 - F, whichever has the
+      // smaller rounding error, and a point is accepted only when its
+      // residual is below this error, or when x cannot change by more
+      // than a few ulps.
+      final double v = 1.0 - u;
+      final double errLow = u + fa/fbfa;
+      final double errUp = v + barfb/fbfa;
+      final boolean upper = errUp < errLow;
+      final double gtol = 2.0*Num.DBL_EPSILON*Math.min (errLow, errUp);
+      final double xtol = 8.0*Num.DBL_EPSILON;
+      for (int i = 0; i < 20; i++) {
+         double g = upper ? v - barF (x) : cdf (x) - u;
+         if (Math.abs (g) <= gtol)
+            return x;
+         if (g < 0)
+            x0 = x;
+         else
+            x1 = x;
+         double f = density (x);
+         double y = f > 0 ? x - g / f : Double.NaN;
+         if (y > x0 && y < x1) {
+            if (Math.abs (y - x) <= xtol*Math.abs (y))
+               return y;
+         } else {
+            y = 0.5 * (x0 + x1);
+            if (x1 - x0 <= xtol*Math.max (Math.abs (x0), Math.abs (x1)))
+               return y;
+         }
+         x = y;
+      }
+      // No convergence, for example in a tail where f is singular and
+      // the solution is many orders of magnitude smaller than x1.
       return dist0.inverseF (fa + fbfa * u);
    }
 
@@ -207,6 +306,7 @@ public class TruncatedDist extends ContinuousDistribution {
    /**
     * Sets the parameters <TT>dist</TT>, <SPAN CLASS="MATH"><I>a</I></SPAN> and <SPAN CLASS="MATH"><I>b</I></SPAN> for this object. See the
     *   constructor for details.
+    * If an inversion table has been set, it is recomputed for the new parameters.
     * 
     */
    public void setParams (ContinuousDistribution dist, double a, double b) {
@@ -223,6 +323,8 @@ public class TruncatedDist extends ContinuousDistribution {
       fb = dist.cdf (b);
       fbfa = fb - fa;
       barfb = dist.barF (b);
+      if (tabN > 0)
+         setInversionTable (tabN);
 
       if (((a <= dist.getXinf()) && (b >= dist.getXsup())) ||
        ((a == Double.NEGATIVE_INFINITY) && (b == Double.POSITIVE_INFINITY))) {
@@ -244,6 +346,59 @@ public class TruncatedDist extends ContinuousDistribution {
    }
 
 
+   /**
+    * Precomputes a table of <SPAN CLASS="MATH"><I>n</I> + 1</SPAN> quantiles used by {@link #inverseF inverseF} as
+    * described above.  The setup requires <SPAN CLASS="MATH"><I>n</I> - 1</SPAN> calls to the inverse
+    * distribution function of the original distribution.
+    * The Newton iterations stop only when the residual <SPAN CLASS="MATH"><I>F</I>(<I>x</I>) - <I>u</I></SPAN> is at the
+    * level of its rounding error, or when <SPAN CLASS="MATH"><I>x</I></SPAN> is exact up to a few ulps, and
+    * the inverse of the original distribution is used if they do not converge,
+    * so the accuracy is about the same as without the table.
+    * If <SPAN CLASS="MATH"><I>n</I>&nbsp;&lt;=&nbsp; 0</SPAN>, the table is removed and {@link #inverseF inverseF} calls
+    * the inverse of the original distribution directly.
+    * 
+    * @param n number of intervals in the table
+    * 
+    */
+   public void setInversionTable (int n) {
+      if (n <= 0) {
+         tabN = 0;
+         tabX = tabU = tabF = null;
+         return;
+      }
+      double[] x = new double[n + 1];
+      double[] u = new double[n + 1];
+      double[] f = new double[n + 1];
+      x[0] = a;
+      u[0] = 0;
+      f[0] = density (a);
+      for (int k = 1; k < n; k++) {
+         x[k] = dist0.inverseF (fa + fbfa * k / n);
+         if (x[k] < x[k - 1])
+            x[k] = x[k - 1];
+         u[k] = cdf (x[k]);
+         f[k] = density (x[k]);
+      }
+      x[n] = b;
+      u[n] = 1;
+      f[n] = density (b);
+      tabX = x;
+      tabU = u;
+      tabF = f;
+      tabN = n;
+   }
+
+
+   /**
+    * Returns the number of intervals in the inversion table, or 0 if there
+    * is no table.
+    * 
+    */
+   public int getInversionTableSize() {
+      return tabN;
+   }
+
+
    /**
     * Return a table containing the parameters of the current distribution.
     *    This table is put in order: [<SPAN CLASS="MATH"><I>a</I></SPAN>, <SPAN CLASS="MATH"><I>b</I></SPAN>, <SPAN CLASS="MATH"><I>F</I><SUB>0</SUB>(<I>a</I>)</SPAN>, <SPAN CLASS="MATH"><I>F</I><SUB>0</SUB>(<I>b</I>)</SPAN>, 
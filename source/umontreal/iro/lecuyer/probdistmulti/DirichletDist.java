@@ -48,16 +48,16 @@ import optimization.*;
  * 
  */
 public class DirichletDist extends ContinuousDistributionMulti  {
-   private static final double LOGMIN = -709.1;    // Log(MIN_DOUBLE/2)
+   static final double LOGMIN = -709.1;    // Log(MIN_DOUBLE/2)
    protected double[] alpha;
 
    private static class Optim implements Uncmin_methods
    {
       double[] logP;
-      int n;
+      double n;
       int k;
 
-      public Optim (double[] logP, int n) {
+      public Optim (double[] logP, double n) {
          this.n = n;
          this.k = logP.length;
          this.logP = new double[k];
@@ -265,8 +265,17 @@ public class DirichletDist extends ContinuousDistributionMulti  {
             sum += (x[i][j] - mean[j]) * (x[i][j] - mean[j]);
          var[j] = sum / (double) n;
       }
+      return mleFromMoments (logP, mean, var[0], n);
+   }
 
-      double alpha0 = (mean[0] * (1.0 - mean[0])) / var[0] - 1.0;
+   // Maximizes the likelihood given the averages logP of the ln x_j, the
+   // averages mean of the x_j and the variance var0 of x_0, over n
+   // observations.
+   static double[] mleFromMoments (double[] logP, double[] mean, double var0,
+                                   double n) {
+      final int d = logP.length;
+      int i;
+      double alpha0 = (mean[0] * (1.0 - mean[0])) / var0 - 1.0;
       Optim system = new Optim (logP, n);
 
       double[] parameters = new double[d];
@@ -0,0 +1,416 @@
+/*
+ * Class:        MLEAccumulatorMulti
+ * Description:  mergeable accumulators for multivariate maximum likelihood estimation
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Université de Montréal
+ * Organization: DIRO, Université de Montréal
+ * @author
+ * @since
+
+ * SSJ is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License (GPL) as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * any later version.
+
+ * SSJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * A copy of the GNU General Public License is available at
+   <a href="http://www.gnu.org/licenses">GPL licence site</a>.
+ */
+
+package umontreal.iro.lecuyer.probdistmulti;
+
+import umontreal.iro.lecuyer.util.Misc;
+
+
+/**
+ * This class computes maximum likelihood estimates of the parameters of a
+ * multivariate distribution from observations given in successive chunks,
+ * without keeping the observations in memory.
+ * It is the multivariate counterpart of
+ * {@link umontreal.iro.lecuyer.probdist.MLEAccumulator MLEAccumulator}:
+ * an accumulator updates sufficient statistics each time some
+ * observations are added, two accumulators of the same type can be merged,
+ * and {@link #addParallel(double[][],int,int) addParallel} splits the observations
+ * among several threads, each with its own accumulator, and merges the
+ * partial results at the end.
+ * 
+ * <P>
+ * An accumulator is obtained from one of the static <TT>create</TT> methods.
+ * For the Dirichlet distribution, the accumulator keeps the sums of the
+ * logarithms of each component, and the mean and centered sum of squares of
+ * each component, which are the statistics used by
+ * {@link DirichletDist#getMLE(double[][],int,int) getMLE}; the
+ * likelihood is then maximized by the same method.
+ * For the multinormal distribution, it keeps the mean vector and the matrix
+ * of centered sums of cross-products.  The observations given in an array
+ * are processed by blocks: the centered cross-products of a block are
+ * computed with respect to the mean of the block, and then merged into the
+ * current statistics by the update formula of Chan, Golub and LeVeque
+ * (1983), which is also used to merge two accumulators.
+ * This requires a single pass over the data, instead of the two passes of
+ * {@link MultiNormalDist#getMLESigma(double[][],int,int) getMLESigma}.
+ * In both cases, the statistics are the same as those of the static
+ * methods, up to rounding errors; for the Dirichlet distribution, these
+ * differences can be amplified up to the tolerance of the optimizer, about
+ * <SPAN CLASS="MATH">10<SUP>-7</SUP></SPAN> in relative terms.
+ * 
+ * <P>
+ * The methods of this class are not thread-safe: each thread must use
+ * its own accumulator.
+ * 
+ */
+public abstract class MLEAccumulatorMulti {
+   protected int dim;      // dimension of the observations
+   protected long n;       // number of observations
+
+
+   /**
+    * Returns an accumulator for the Dirichlet distribution with
+    * <SPAN CLASS="MATH"><I>d</I></SPAN> components, whose estimates are those of
+    * {@link DirichletDist#getMLE(double[][],int,int) getMLE}.
+    * 
+    */
+   public static MLEAccumulatorMulti createDirichlet (int d) {
+      return new Dirichlet (d);
+   }
+
+
+   /**
+    * Returns an accumulator for the <SPAN CLASS="MATH"><I>d</I></SPAN>-dimensional multinormal
+    * distribution, whose estimates are those of
+    * {@link MultiNormalDist#getMLEMu(double[][],int,int) getMLEMu}
+    * and {@link MultiNormalDist#getMLESigma(double[][],int,int) getMLESigma}.
+    * 
+    */
+   public static MLEAccumulatorMulti createMultiNormal (int d) {
+      return new MultiNormal (d);
+   }
+
+
+   /**
+    * Adds the <SPAN CLASS="MATH"><I>n</I></SPAN> observations <SPAN CLASS="MATH"><I>x</I>[0], ..., <I>x</I>[<I>n</I> - 1]</SPAN> to this accumulator.
+    * Each observation <SPAN CLASS="MATH"><I>x</I>[<I>i</I>]</SPAN> must have <SPAN CLASS="MATH"><I>d</I></SPAN> components.
+    * 
+    * @param x the observations
+    * 
+    * @param n the number of observations to add
+    * 
+    */
+   public void add (double[][] x, int n) {
+      add (x, 0, n);
+   }
+
+   protected void add (double[][] x, int from, int to) {
+      for (int i = from; i < to; i++)
+         add (x[i]);
+   }
+
+
+   /**
+    * Adds the observation <SPAN CLASS="MATH"><I>x</I></SPAN>, with <SPAN CLASS="MATH"><I>d</I></SPAN> components, to this accumulator.
+    * 
+    * @param x the observation
+    * 
+    */
+   public abstract void add (double[] x);
+
+
+   /**
+    * Adds the <SPAN CLASS="MATH"><I>n</I></SPAN> observations <SPAN CLASS="MATH"><I>x</I>[0], ..., <I>x</I>[<I>n</I> - 1]</SPAN> to this accumulator,
+    * using <TT>numThreads</TT> threads.  Each thread adds a contiguous
+    * part of the observations to its own accumulator, obtained from
+    * {@link #newInstance newInstance}, and these accumulators
+    * are then merged into this one.
+    * 
+    * @param x the observations
+    * 
+    * @param n the number of observations to add
+    * 
+    * @param numThreads the number of threads
+    * 
+    */
+   public void addParallel (final double[][] x, int n, int numThreads) {
+      if (numThreads < 1)
+         throw new IllegalArgumentException ("numThreads < 1");
+      Runnable[] tasks = new Runnable[numThreads];
+      MLEAccumulatorMulti[] parts = new MLEAccumulatorMulti[numThreads];
+      for (int t = 0; t < numThreads; t++) {
+         final int from = (int)((long) n * t / numThreads);
+         final int to = (int)((long) n * (t + 1) / numThreads);
+         final MLEAccumulatorMulti acc = parts[t] = newInstance();
+         tasks[t] = new Runnable() {
+            public void run() {
+               acc.add (x, from, to);
+            }
+         };
+      }
+      Misc.runInParallel (tasks);
+      for (int t = 0; t < numThreads; t++)
+         merge (parts[t]);
+   }
+
+
+   /**
+    * Returns a new accumulator, of the same type and dimension as this one,
+    * that contains no observation.
+    * 
+    */
+   public abstract MLEAccumulatorMulti newInstance();
+
+
+   /**
+    * Adds all the observations of the accumulator <TT>acc</TT> to this
+    * accumulator.  Both accumulators must have been created by the same
+    * <TT>create</TT> method, with the same dimension.
+    * The accumulator <TT>acc</TT> is not modified.
+    * 
+    * @param acc the accumulator to merge into this one
+    * 
+    * @exception IllegalArgumentException if <TT>acc</TT> is not of the same
+    * type or dimension as this accumulator
+    * 
+    */
+   public abstract void merge (MLEAccumulatorMulti acc);
+
+
+   /**
+    * Returns the dimension <SPAN CLASS="MATH"><I>d</I></SPAN> of the observations.
+    * 
+    */
+   public int getDimension() {
+      return dim;
+   }
+
+
+   /**
+    * Returns the number of observations added to this accumulator.
+    * 
+    */
+   public long getN() {
+      return n;
+   }
+
+
+   /**
+    * Returns the maximum likelihood estimates of the parameters, from
+    * all the observations added so far.  For the Dirichlet distribution,
+    * these are <SPAN CLASS="MATH"><I>&#945;</I><SUB>1</SUB>,...,<I>&#945;</I><SUB>d</SUB></SPAN>.  For the multinormal
+    * distribution, the array has <SPAN CLASS="MATH"><I>d</I> + <I>d</I><SUP>2</SUP></SPAN> elements: the estimated mean
+    * vector <SPAN CLASS="MATH"><I><B>&#956;</B></I></SPAN>, followed by the rows of the estimated covariance
+    * matrix <SPAN CLASS="MATH"><B><I>&#931;</I></B></SPAN>.
+    * 
+    * @return the estimated parameters
+    * 
+    */
+   public abstract double[] getMLE();
+
+
+   /**
+    * Returns a new distribution object whose parameters are the
+    * estimates returned by {@link #getMLE getMLE}.
+    * 
+    * @return the distribution with the estimated parameters
+    * 
+    */
+   public abstract ContinuousDistributionMulti getInstanceFromMLE();
+
+
+   protected void check (MLEAccumulatorMulti acc) {
+      if (acc.getClass() != getClass() || acc.dim != dim)
+         throw new IllegalArgumentException ("incompatible accumulators");
+   }
+
+   protected void checkNonEmpty() {
+      if (n <= 0)
+         throw new IllegalArgumentException ("n <= 0");
+   }
+
+   protected MLEAccumulatorMulti (int d) {
+      if (d <= 0)
+         throw new IllegalArgumentException ("d <= 0");
+      dim = d;
+   }
+
+
+   // Sums of ln x_j, and means and centered sums of squares of the x_j.
+   private static class Dirichlet extends MLEAccumulatorMulti {
+      private double[] sumLog;
+      private double[] mean;
+      private double[] m2;
+
+      public Dirichlet (int d) {
+         super (d);
+         sumLog = new double[d];
+         mean = new double[d];
+         m2 = new double[d];
+      }
+
+      public MLEAccumulatorMulti newInstance() {
+         return new Dirichlet (dim);
+      }
+
+      public void add (double[] x) {
+         n++;
+         for (int j = 0; j < dim; j++) {
+            double v = x[j];
+            sumLog[j] += v > 0.0 ? Math.log (v) : DirichletDist.LOGMIN;
+            double delta = v - mean[j];
+            mean[j] += delta / n;
+            m2[j] += delta * (v - mean[j]);
+         }
+      }
+
+      public void merge (MLEAccumulatorMulti acc) {
+         check (acc);
+         Dirichlet a = (Dirichlet) acc;
+         if (a.n == 0)
+            return;
+         double nt = n + a.n;
+         for (int j = 0; j < dim; j++) {
+            double delta = a.mean[j] - mean[j];
+            sumLog[j] += a.sumLog[j];
+            mean[j] += delta * a.n / nt;
+            m2[j] += a.m2[j] + delta * delta * n * a.n / nt;
+         }
+         n += a.n;
+      }
+
+      public double[] getMLE() {
+         checkNonEmpty();
+         double[] logP = new double[dim];
+         for (int j = 0; j < dim; j++)
+            logP[j] = sumLog[j] / n;
+         return DirichletDist.mleFromMoments (logP, mean.clone(),
+                                              m2[0] / n, n);
+      }
+
+      public ContinuousDistributionMulti getInstanceFromMLE() {
+         return new DirichletDist (getMLE());
+      }
+   }
+
+
+   // Mean vector and lower triangle of the matrix of centered sums of
+   // cross-products, stored row-major in a d x d array.
+   private static class MultiNormal extends MLEAccumulatorMulti {
+      private static final int BLOCK = 64;
+      private double[] mean;
+      private double[] cross;
+      private double[] delta;
+
+      public MultiNormal (int d) {
+         super (d);
+         mean = new double[d];
+         cross = new double[d*d];
+         delta = new double[d];
+      }
+
+      public MLEAccumulatorMulti newInstance() {
+         return new MultiNormal (dim);
+      }
+
+      public void add (double[] x) {
+         final int d = dim;
+         n++;
+         for (int i = 0; i < d; i++) {
+            delta[i] = x[i] - mean[i];
+            mean[i] += delta[i] / n;
+         }
+         for (int i = 0; i < d; i++) {
+            double ri = x[i] - mean[i];
+            int row = i*d;
+            for (int j = 0; j <= i; j++)
+               cross[row + j] += ri * delta[j];
+         }
+      }
+
+      // Processes the observations by blocks of BLOCK: the block is
+      // centered at its own mean, stored by columns, and its
+      // cross-products are merged into the current statistics.
+      protected void add (double[][] x, int from, int to) {
+         final int d = dim;
+         double[] y = new double[d*BLOCK];
+         double[] bmean = new double[d];
+         for (int b = from; b < to; b += BLOCK) {
+            final int m = Math.min (BLOCK, to - b);
+            for (int i = 0; i < d; i++) {
+               double s = 0;
+               for (int t = 0; t < m; t++)
+                  s += x[b + t][i];
+               bmean[i] = s / m;
+            }
+            for (int t = 0; t < m; t++) {
+               double[] xt = x[b + t];
+               for (int i = 0; i < d; i++)
+                  y[i*BLOCK + t] = xt[i] - bmean[i];
+            }
+            double nt = n + m;
+            double w = (double) n * m / nt;
+            for (int i = 0; i < d; i++) {
+               delta[i] = bmean[i] - mean[i];
+               mean[i] += delta[i] * m / nt;
+            }
+            for (int i = 0; i < d; i++) {
+               int yi = i*BLOCK;
+               int row = i*d;
+               double di = w*delta[i];
+               for (int j = 0; j <= i; j++) {
+                  int yj = j*BLOCK;
+                  double s = 0;
+                  for (int t = 0; t < m; t++)
+                     s += y[yi + t] * y[yj + t];
+                  cross[row + j] += s + di*delta[j];
+               }
+            }
+            n += m;
+         }
+      }
+
+      public void merge (MLEAccumulatorMulti acc) {
+         check (acc);
+         MultiNormal a = (MultiNormal) acc;
+         if (a.n == 0)
+            return;
+         final int d = dim;
+         double nt = n + a.n;
+         double w = (double) n * a.n / nt;
+         for (int i = 0; i < d; i++) {
+            delta[i] = a.mean[i] - mean[i];
+            mean[i] += delta[i] * a.n / nt;
+         }
+         for (int i = 0; i < d; i++) {
+            int row = i*d;
+            for (int j = 0; j <= i; j++)
+               cross[row + j] += a.cross[row + j] + w*delta[i]*delta[j];
+         }
+         n += a.n;
+      }
+
+      public double[] getMLE() {
+         checkNonEmpty();
+         final int d = dim;
+         double[] par = new double[d + d*d];
+         System.arraycopy (mean, 0, par, 0, d);
+         for (int i = 0; i < d; i++)
+            for (int j = 0; j <= i; j++)
+               par[d + i*d + j] = par[d + j*d + i] = cross[i*d + j] / n;
+         return par;
+      }
+
+      public ContinuousDistributionMulti getInstanceFromMLE() {
+         final int d = dim;
+         double[] par = getMLE();
+         double[] mu = new double[d];
+         double[][] sigma = new double[d][d];
+         System.arraycopy (par, 0, mu, 0, d);
+         for (int i = 0; i < d; i++)
+            System.arraycopy (par, d + i*d, sigma[i], 0, d);
+         return new MultiNormalDist (mu, sigma);
+      }
+   }
+}
@@ -54,6 +54,7 @@ public class MultiNormalDist extends ContinuousDistributionMulti  {
    protected double[] mu;
    protected DoubleMatrix2D sigma;
    protected DoubleMatrix2D invSigma;
+   private MultiNormalGenzCdf genz = null;
 
    protected static Algebra algebra = new Algebra();
 
@@ -135,6 +136,46 @@ public class MultiNormalDist extends ContinuousDistributionMulti  {
    }
 
 
+   /**
+    * Returns an estimate of the distribution function
+    * 
+    * <SPAN CLASS="MATH"><I>F</I>(<B>x</B>) = <I>P</I>[<I>X</I><SUB>1</SUB> &lt;= <I>x</I><SUB>1</SUB>,&#8230;, <I>X</I><SUB>d</SUB> &lt;= <I>x</I><SUB>d</SUB>]</SPAN>, computed by
+    *    randomized quasi-Monte Carlo with the default parameters of
+    *    {@link MultiNormalGenzCdf}.  The standard error of this estimate
+    *    is given by <TT>getGenzCdf().getError()</TT>.
+    * 
+    */
+   public double cdf (double[] x) {
+      return getGenzCdf().cdf (x);
+   }
+
+
+   /**
+    * Returns the object used by {@link #cdf(double[]) cdf} to compute the
+    *    distribution function, which can be used to change the point set,
+    *    the number of replications and the number of threads, or to compute
+    *    rectangle probabilities.
+    * 
+    */
+   public MultiNormalGenzCdf getGenzCdf() {
+      if (genz == null)
+         genz = new MultiNormalGenzCdf (mu, sigma.toArray());
+      return genz;
+   }
+
+
+   /**
+    * Returns an estimate of the distribution function of the multinormal
+    *    distribution with parameters <SPAN CLASS="MATH"><I><B>&mu;</B></I> =</SPAN> <TT>mu</TT> and
+    *    <SPAN CLASS="MATH"><I><B>&Sigma;</B></I> =</SPAN> <TT>sigma</TT>, evaluated at <TT>x</TT>
+    *    (see {@link MultiNormalGenzCdf}).
+    * 
+    */
+   public static double cdf (double[] mu, double[][] sigma, double[] x) {
+      return new MultiNormalGenzCdf (mu, sigma).cdf (x);
+   }
+
+
    /**
     * Returns the dimension <SPAN CLASS="MATH"><I>d</I></SPAN> of the distribution.
     * 
@@ -335,6 +376,7 @@ public class MultiNormalDist extends ContinuousDistributionMulti  {
       this.sigma = new DenseDoubleMatrix2D (sigma);
 
       invSigma = null;
+      genz = null;
    }
 
 }
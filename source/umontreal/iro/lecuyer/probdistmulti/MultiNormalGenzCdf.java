@@ -0,0 +1,460 @@
+/*
+ * Class:        MultiNormalGenzCdf
+ * Description:  multinormal rectangle probabilities by Genz's method and RQMC
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Université de Montréal
+ * Organization: DIRO, Université de Montréal
+ * @author
+ * @since
+
+ * SSJ is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License (GPL) as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * any later version.
+
+ * SSJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * A copy of the GNU General Public License is available at
+   <a href="http://www.gnu.org/licenses">GPL licence site</a>.
+ */
+
+package umontreal.iro.lecuyer.probdistmulti;
+
+import umontreal.iro.lecuyer.util.Misc;
+import umontreal.iro.lecuyer.util.Num;
+import umontreal.iro.lecuyer.probdist.NormalDist;
+import umontreal.iro.lecuyer.hups.PointSet;
+import umontreal.iro.lecuyer.hups.PointSetIterator;
+import umontreal.iro.lecuyer.hups.SobolSequence;
+import umontreal.iro.lecuyer.rng.RandomStream;
+import umontreal.iro.lecuyer.rng.CloneableRandomStream;
+import umontreal.iro.lecuyer.rng.MRG32k3a;
+
+
+/**
+ * Computes rectangle probabilities
+ * <SPAN CLASS="MATH"><I>P</I>[<I>a</I><SUB>1</SUB> &lt; <I>X</I><SUB>1</SUB> &nbsp;&lt;=&nbsp; <I>b</I><SUB>1</SUB>, ..., <I>a</I><SUB>d</SUB> &lt; <I>X</I><SUB>d</SUB> &nbsp;&lt;=&nbsp; <I>b</I><SUB>d</SUB>]</SPAN>
+ * for a multinormal random vector <SPAN CLASS="MATH"><B>X</B></SPAN> with mean vector <SPAN CLASS="MATH"><I><B>&#956;</B></I></SPAN> and
+ * covariance matrix <SPAN CLASS="MATH"><B><I>&#931;</I></B></SPAN> (see {@link MultiNormalDist}),
+ * in arbitrary dimension <SPAN CLASS="MATH"><I>d</I></SPAN>, by the separation-of-variables method of Genz
+ * (A.&nbsp;Genz and F.&nbsp;Bretz, <SPAN  CLASS="textit">Computation of Multivariate Normal and t
+ * Probabilities</SPAN>, Springer, 2009), with randomized quasi-Monte Carlo (RQMC) integration.
+ * The limits <SPAN CLASS="MATH"><I>a</I><SUB>i</SUB></SPAN> and <SPAN CLASS="MATH"><I>b</I><SUB>i</SUB></SPAN> may be infinite, so this includes the
+ * distribution function <SPAN CLASS="MATH"><I>F</I>(<B>x</B>)</SPAN> and the orthant probabilities.
+ * 
+ * After a Cholesky factorization <SPAN CLASS="MATH"><B><I>&#931;</I></B> = <B><I>C</I></B><B><I>C</I></B><SUP>T</SUP></SPAN>,
+ * the probability is written as an integral over the unit hypercube of
+ * dimension <SPAN CLASS="MATH"><I>d</I> - 1</SPAN>,
+ * 
+ * <P></P>
+ * <DIV ALIGN="CENTER" CLASS="mathdisplay">
+ * (<I>e</I><SUB>1</SUB> - <I>d</I><SUB>1</SUB>) &int;<SUB>[0,1)<SUP>d-1</SUP></SUB> &prod;<SUB>i=2</SUB><SUP>d</SUP> (<I>e</I><SUB>i</SUB>(<B>w</B>) - <I>d</I><SUB>i</SUB>(<B>w</B>))
+ * &nbsp; <I>d</I><B>w</B>,
+ * </DIV><P></P>
+ * 
+ * where <SPAN CLASS="MATH"><I>d</I><SUB>1</SUB> = <I>&#934;</I>(<I>a</I><SUB>1</SUB>/<I>c</I><SUB>11</SUB>)</SPAN>, <SPAN CLASS="MATH"><I>e</I><SUB>1</SUB> = <I>&#934;</I>(<I>b</I><SUB>1</SUB>/<I>c</I><SUB>11</SUB>)</SPAN>,
+ * <SPAN CLASS="MATH"><I>y</I><SUB>j</SUB> = <I>&#934;</I><SUP>-1</SUP>(<I>d</I><SUB>j</SUB> + <I>w</I><SUB>j</SUB>(<I>e</I><SUB>j</SUB> - <I>d</I><SUB>j</SUB>))</SPAN>,
+ * <SPAN CLASS="MATH"><I>d</I><SUB>i</SUB> = <I>&#934;</I>((<I>a</I><SUB>i</SUB> - &sum;<SUB>j&lt;i</SUB> <I>c</I><SUB>ij</SUB><I>y</I><SUB>j</SUB>)/<I>c</I><SUB>ii</SUB>)</SPAN> and
+ * <SPAN CLASS="MATH"><I>e</I><SUB>i</SUB> = <I>&#934;</I>((<I>b</I><SUB>i</SUB> - &sum;<SUB>j&lt;i</SUB> <I>c</I><SUB>ij</SUB><I>y</I><SUB>j</SUB>)/<I>c</I><SUB>ii</SUB>)</SPAN>,
+ * with <SPAN CLASS="MATH"><I>&#934;</I></SPAN> the standard normal distribution function
+ * (the mean <SPAN CLASS="MATH"><I><B>&#956;</B></I></SPAN> is first subtracted from the limits).
+ * Before the factorization, the variables are reordered as proposed by
+ * Genz and Bretz: at each step, the variable whose interval has the
+ * smallest expected probability, given the previous ones, is chosen next.
+ * This puts most of the variation of the integrand in the first
+ * coordinates, where the QMC point sets are most uniform.
+ * 
+ * The integral is estimated with <TT>m</TT> independent randomizations of
+ * a point set from package <TT>hups</TT>, each obtained by a random shift
+ * modulo 1 followed by the baker transformation.
+ * The returned value is the average of the <TT>m</TT> estimates, and
+ * {@link #getError getError} returns the standard error of this average, estimated
+ * from the variance between the <TT>m</TT> replicates.
+ * If the point set has fewer than <SPAN CLASS="MATH"><I>d</I> - 1</SPAN> dimensions, the remaining coordinates
+ * are generated by Monte Carlo, as in Genz's programs; thanks to the
+ * reordering, these coordinates usually have little importance.
+ * By default, a {@link umontreal.iro.lecuyer.hups.SobolSequence SobolSequence}
+ * with <SPAN CLASS="MATH">2<SUP>12</SUP></SPAN> points is used.
+ * 
+ * The points of each replication are divided into contiguous blocks of
+ * fixed size, which are evaluated in parallel by <TT>numThreads</TT>
+ * threads, each with its own point set iterator.  The Monte Carlo
+ * coordinates of each block are generated by a clone of the random stream
+ * positioned at its own substream, and the sums over the blocks are
+ * added in the same order, so the results do not depend on the number of
+ * threads.
+ * The point set is not modified, but it must not be modified by another
+ * thread while probabilities are computed.
+ * An object of this class should not be used by several threads at the
+ * same time.
+ * 
+ */
+public class MultiNormalGenzCdf {
+   private static final int MAXSOBOLDIM = 360;
+   private static final int BLOCK = 256;   // points per block
+
+   private int dim;
+   private double[] mu;
+   private double[][] sigma;
+   private PointSet points = null;
+   private CloneableRandomStream stream = new MRG32k3a();
+   private int numRep = 8;
+   private int numThreads = Runtime.getRuntime().availableProcessors();
+   private double error = 0.0;
+
+   // Set by prepare() for the current limits, after reordering
+   private double[] lo;
+   private double[] hi;
+   private double[][] chol;     // lower triangular, row i has i+1 entries
+   private double factor1;      // e_1 - d_1
+
+
+   /**
+    * Constructs an object to compute probabilities for the multinormal
+    * distribution with mean vector <TT>mu</TT> and covariance matrix
+    * <TT>sigma</TT>, which must be positive definite.
+    * 
+    * @param mu the mean vector
+    * 
+    * @param sigma the covariance matrix
+    * 
+    */
+   public MultiNormalGenzCdf (double[] mu, double[][] sigma) {
+      if (sigma.length != mu.length)
+         throw new IllegalArgumentException
+            ("mu and sigma must have the same dimension");
+      dim = mu.length;
+      this.mu = mu.clone();
+      this.sigma = new double[dim][];
+      for (int i = 0; i < dim; i++) {
+         if (sigma[i].length != dim)
+            throw new IllegalArgumentException ("sigma must be a square matrix");
+         this.sigma[i] = sigma[i].clone();
+      }
+   }
+
+
+   /**
+    * Sets the point set used for the integration to <TT>p</TT>.
+    * If <TT>p</TT> is <TT>null</TT>, the default point set is used.
+    * 
+    */
+   public void setPointSet (PointSet p) {
+      points = p;
+   }
+
+
+   /**
+    * Returns the point set used for the integration.
+    * 
+    */
+   public PointSet getPointSet() {
+      if (points == null && dim > 1)
+         points = new SobolSequence (12, 31, Math.min (dim - 1, MAXSOBOLDIM));
+      return points;
+   }
+
+
+   /**
+    * Sets the random stream used for the randomizations to <TT>stream</TT>.
+    * For each replication, the random shift is taken from the current
+    * substream of <TT>stream</TT>.  If Monte Carlo coordinates are needed,
+    * block <SPAN CLASS="MATH"><I>c</I> = 0, 1, ...</SPAN> of the points then uses a clone of
+    * <TT>stream</TT> at the beginning of the <SPAN CLASS="MATH">(<I>c</I> + 1)</SPAN>-th following substream,
+    * and <TT>stream</TT> is left at the beginning of the substream that
+    * follows the one of the last block.
+    * 
+    */
+   public void setStream (CloneableRandomStream stream) {
+      this.stream = stream;
+   }
+
+
+   /**
+    * Sets the number of independent randomizations to <TT>m</TT>.
+    * The default value is 8.
+    * 
+    */
+   public void setNumReplications (int m) {
+      if (m < 2)
+         throw new IllegalArgumentException ("m < 2");
+      numRep = m;
+   }
+
+
+   /**
+    * Sets the number of threads used to evaluate the integrand.
+    * The default is the number of available processors.
+    * 
+    */
+   public void setNumThreads (int numThreads) {
+      if (numThreads < 1)
+         throw new IllegalArgumentException ("numThreads < 1");
+      this.numThreads = numThreads;
+   }
+
+
+   /**
+    * Returns an estimate of the probability
+    * <SPAN CLASS="MATH"><I>P</I>[<I>a</I><SUB>1</SUB> &lt; <I>X</I><SUB>1</SUB> &nbsp;&lt;=&nbsp; <I>b</I><SUB>1</SUB>, ..., <I>a</I><SUB>d</SUB> &lt; <I>X</I><SUB>d</SUB> &nbsp;&lt;=&nbsp; <I>b</I><SUB>d</SUB>]</SPAN>.
+    * The components of <TT>a</TT> and <TT>b</TT> may be infinite.
+    * 
+    * @param a the lower limits
+    * 
+    * @param b the upper limits
+    * 
+    * @return the estimated probability
+    * 
+    */
+   public double rectangle (double[] a, double[] b) {
+      if (a.length != dim || b.length != dim)
+         throw new IllegalArgumentException ("a and b must have dimension d");
+      for (int i = 0; i < dim; i++)
+         if (!(a[i] <= b[i]))
+            throw new IllegalArgumentException ("a[" + i + "] > b[" + i + "]");
+      error = 0.0;
+      if (!prepare (a, b))
+         return 0.0;
+      if (dim == 1)
+         return factor1;
+
+      PointSet p = getPointSet();
+      final int n = p.getNumPoints();
+      final int s = Math.min (p.getDimension(), dim - 1);
+      final int nb = (n + BLOCK - 1) / BLOCK;
+      int nt = Math.min (numThreads, nb);
+      double sum = 0.0, sumSq = 0.0;
+      for (int r = 0; r < numRep; r++) {
+         double[] shift = new double[dim - 1];
+         stream.nextArrayOfDouble (shift, 0, dim - 1);
+         // Monte Carlo coordinates, if needed, use one substream per block
+         RandomStream[] mc = new RandomStream[nb];
+         if (s < dim - 1)
+            for (int c = 0; c < nb; c++) {
+               stream.resetNextSubstream();
+               mc[c] = stream.clone();
+            }
+         if (s < dim - 1)
+            stream.resetNextSubstream();
+         double[] partial = new double[nb];
+         Block[] blocks = new Block[nt];
+         for (int t = 0; t < nt; t++) {
+            int c0 = (int) ((long) nb * t / nt);
+            int c1 = (int) ((long) nb * (t + 1) / nt);
+            blocks[t] = new Block (p, s, n, c0, c1, shift, mc, partial);
+         }
+         Misc.runInParallel (blocks);
+         double est = 0.0;
+         for (int c = 0; c < nb; c++)
+            est += partial[c];
+         est *= factor1 / n;
+         sum += est;
+         sumSq += est * est;
+      }
+      double mean = sum / numRep;
+      double var = (sumSq - numRep * mean * mean) / (numRep - 1);
+      error = Math.sqrt (Math.max (var, 0.0) / numRep);
+      return mean;
+   }
+
+   // Computes the reordered limits and Cholesky factor for a, b.
+   // Returns false if the probability is 0.
+   private boolean prepare (double[] a0, double[] b0) {
+      lo = new double[dim];
+      hi = new double[dim];
+      double[][] cov = new double[dim][];
+      for (int i = 0; i < dim; i++) {
+         lo[i] = a0[i] - mu[i];
+         hi[i] = b0[i] - mu[i];
+         cov[i] = sigma[i].clone();
+      }
+      double[][] c = new double[dim][dim];
+      double[] y = new double[dim];
+      for (int i = 0; i < dim; i++) {
+         // Choose the variable with the smallest expected probability
+         int best = i;
+         double bestProb = 2.0;
+         for (int j = i; j < dim; j++) {
+            double sum = 0.0, sq = 0.0;
+            for (int k = 0; k < i; k++) {
+               sum += c[j][k] * y[k];
+               sq += c[j][k] * c[j][k];
+            }
+            double v = cov[j][j] - sq;
+            if (v <= 0.0)
+               continue;
+            double sd = Math.sqrt (v);
+            double prob = NormalDist.cdf01 ((hi[j] - sum) / sd)
+                          - NormalDist.cdf01 ((lo[j] - sum) / sd);
+            if (prob < bestProb) {
+               bestProb = prob;
+               best = j;
+            }
+         }
+         if (best != i) {
+            swap (lo, i, best);
+            swap (hi, i, best);
+            double[] tmp = c[i]; c[i] = c[best]; c[best] = tmp;
+            tmp = cov[i]; cov[i] = cov[best]; cov[best] = tmp;
+            for (int k = 0; k < dim; k++)
+               swap (cov[k], i, best);
+         }
+         double sq = 0.0, sum = 0.0;
+         for (int k = 0; k < i; k++) {
+            sq += c[i][k] * c[i][k];
+            sum += c[i][k] * y[k];
+         }
+         double v = cov[i][i] - sq;
+         if (!(v > 1.0e-12 * cov[i][i]))
+            throw new IllegalArgumentException
+               ("sigma is not positive definite");
+         double cii = Math.sqrt (v);
+         c[i][i] = cii;
+         for (int l = i + 1; l < dim; l++) {
+            double t = cov[l][i];
+            for (int k = 0; k < i; k++)
+               t -= c[l][k] * c[i][k];
+            c[l][i] = t / cii;
+         }
+         // Expected value of the standardized variable i, given the interval
+         double ta = (lo[i] - sum) / cii, tb = (hi[i] - sum) / cii;
+         double pa = NormalDist.cdf01 (ta), pb = NormalDist.cdf01 (tb);
+         if (pb - pa > 1.0e-300)
+            y[i] = (density01 (ta) - density01 (tb)) / (pb - pa);
+         else if (ta > 0.0)
+            y[i] = ta;
+         else if (tb < 0.0)
+            y[i] = tb;
+         else
+            y[i] = 0.0;
+      }
+      chol = new double[dim][];
+      for (int i = 0; i < dim; i++) {
+         chol[i] = new double[i + 1];
+         System.arraycopy (c[i], 0, chol[i], 0, i + 1);
+      }
+      factor1 = NormalDist.cdf01 (hi[0] / chol[0][0])
+                - NormalDist.cdf01 (lo[0] / chol[0][0]);
+      return factor1 > 0.0;
+   }
+
+   private static double density01 (double x) {
+      return Double.isInfinite (x) ? 0.0 : NormalDist.density01 (x);
+   }
+
+   private static void swap (double[] v, int i, int j) {
+      double t = v[i]; v[i] = v[j]; v[j] = t;
+   }
+
+   // The integrand at w, of dimension dim - 1, without the factor e_1 - d_1
+   private double integrand (double[] w, double[] y) {
+      double d = NormalDist.cdf01 (lo[0] / chol[0][0]);
+      double e = NormalDist.cdf01 (hi[0] / chol[0][0]);
+      double f = 1.0;
+      for (int i = 1; i < dim; i++) {
+         double u = d + w[i - 1] * (e - d);
+         if (u <= 0.0)
+            u = Double.MIN_VALUE;
+         else if (u >= 1.0)
+            u = 1.0 - Num.DBL_EPSILON;
+         y[i - 1] = NormalDist.inverseF01 (u);
+         final double[] ci = chol[i];
+         double s = 0.0;
+         for (int j = 0; j < i; j++)
+            s += ci[j] * y[j];
+         d = NormalDist.cdf01 ((lo[i] - s) / ci[i]);
+         e = NormalDist.cdf01 ((hi[i] - s) / ci[i]);
+         f *= e - d;
+         if (f <= 0.0)
+            return 0.0;
+      }
+      return f;
+   }
+
+   // Evaluates the integrand at the points of blocks c0, ..., c1 - 1 of a
+   // replication, and stores the sum for block c in partial[c]
+   private class Block implements Runnable {
+      private final PointSet p;
+      private final int s, n, c0, c1;
+      private final double[] shift, partial;
+      private final RandomStream[] mc;
+
+      Block (PointSet p, int s, int n, int c0, int c1, double[] shift,
+             RandomStream[] mc, double[] partial) {
+         this.p = p;  this.s = s;  this.n = n;  this.c0 = c0;  this.c1 = c1;
+         this.shift = shift;  this.mc = mc;  this.partial = partial;
+      }
+
+      public void run() {
+         final int m = dim - 1;
+         double[] w = new double[m];
+         double[] y = new double[m];
+         PointSetIterator it = p.iterator();
+         it.setCurPointIndex (c0 * BLOCK);
+         for (int c = c0; c < c1; c++)
+            partial[c] = sum (it, c, w, y);
+      }
+
+      private double sum (PointSetIterator it, int c, double[] w,
+                          double[] y) {
+         final int m = dim - 1;
+         final int i1 = Math.min (n, (c + 1) * BLOCK);
+         double sum = 0.0;
+         for (int i = c * BLOCK; i < i1; i++) {
+            it.nextPoint (w, s);
+            if (mc[c] != null)
+               mc[c].nextArrayOfDouble (w, s, m - s);
+            for (int j = 0; j < m; j++) {
+               // random shift modulo 1, then baker transformation
+               double u = w[j] + shift[j];
+               if (u >= 1.0)
+                  u -= 1.0;
+               w[j] = u < 0.5 ? 2.0 * u : 2.0 * (1.0 - u);
+            }
+            sum += integrand (w, y);
+         }
+         return sum;
+      }
+   }
+
+
+   /**
+    * Returns an estimate of the distribution function
+    * <SPAN CLASS="MATH"><I>F</I>(<B>x</B>) = <I>P</I>[<I>X</I><SUB>1</SUB> &nbsp;&lt;=&nbsp; <I>x</I><SUB>1</SUB>, ..., <I>X</I><SUB>d</SUB> &nbsp;&lt;=&nbsp; <I>x</I><SUB>d</SUB>]</SPAN>.
+    * 
+    * @param x the upper limits
+    * 
+    * @return the estimated value of the distribution function
+    * 
+    */
+   public double cdf (double[] x) {
+      double[] a = new double[dim];
+      for (int i = 0; i < dim; i++)
+         a[i] = Double.NEGATIVE_INFINITY;
+      return rectangle (a, x);
+   }
+
+
+   /**
+    * Returns the estimated standard error of the last value returned by
+    * {@link #rectangle(double[],double[]) rectangle} or {@link #cdf(double[]) cdf}.
+    * 
+    */
+   public double getError() {
+      return error;
+   }
+
+
+   /**
+    * Returns the dimension <SPAN CLASS="MATH"><I>d</I></SPAN> of the distribution.
+    * 
+    */
+   public int getDimension() {
+      return dim;
+   }
+
+}
@@ -0,0 +1,190 @@
+/*
+ * Class:        TruncatedGen
+ * Description:  random variate generator for a truncated distribution
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Université de Montréal
+ * Organization: DIRO, Université de Montréal
+ * @author
+ * @since
+
+ * SSJ is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License (GPL) as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * any later version.
+
+ * SSJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * A copy of the GNU General Public License is available at
+   <a href="http://www.gnu.org/licenses">GPL licence site</a>.
+ */
+
+package umontreal.iro.lecuyer.randvar;
+import umontreal.iro.lecuyer.rng.RandomStream;
+import umontreal.iro.lecuyer.probdist.Distribution;
+import umontreal.iro.lecuyer.probdist.ContinuousDistribution;
+import umontreal.iro.lecuyer.probdist.TruncatedDist;
+
+
+/**
+ * This class implements a random variate generator for a distribution
+ * truncated to an interval <SPAN CLASS="MATH">[<I>a</I>,<I>b</I>]</SPAN>, as defined in
+ * {@link umontreal.iro.lecuyer.probdist.TruncatedDist TruncatedDist}.
+ * Two methods are available and the one used is selected at construction,
+ * according to the truncated mass <SPAN CLASS="MATH"><I>p</I> = <I>F</I><SUB>0</SUB>(<I>b</I>) - <I>F</I><SUB>0</SUB>(<I>a</I>)</SPAN> of the original
+ * distribution.
+ * 
+ * <P>
+ * When a generator for the original distribution is given and
+ * <SPAN CLASS="MATH"><I>p</I></SPAN> is at least <TT>REJECTION_AREA</TT>, the variates are generated by
+ * rejection: values are generated from the original distribution until one
+ * falls in <SPAN CLASS="MATH">[<I>a</I>,<I>b</I>]</SPAN>.  The expected number of trials is <SPAN CLASS="MATH">1/<I>p</I></SPAN>, so for wide
+ * truncation windows, this costs only slightly more than one variate from
+ * the original generator, which is usually much faster than inversion when
+ * the original inverse distribution function has no closed form.
+ * 
+ * <P>
+ * Otherwise, the variates are generated by inversion.  If the distribution
+ * has no inversion table, one with <TT>TABLE_SIZE</TT> intervals is
+ * computed by
+ * {@link umontreal.iro.lecuyer.probdist.TruncatedDist#setInversionTable(int) setInversionTable}
+ * when the generator is constructed, so each variate then requires
+ * only a few evaluations of <SPAN CLASS="MATH"><I>F</I><SUB>0</SUB></SPAN> and of the density <SPAN CLASS="MATH"><I>f</I><SUB>0</SUB></SPAN> instead of a
+ * numerical inversion of <SPAN CLASS="MATH"><I>F</I><SUB>0</SUB></SPAN>.  Note that this table is attached to the
+ * distribution object and is thus also used by its
+ * {@link umontreal.iro.lecuyer.probdist.TruncatedDist#inverseF inverseF}
+ * method.
+ * 
+ */
+public class TruncatedGen extends RandomVariateGen {
+   private RandomVariateGen gen0;   // generator of the original distribution
+   private TruncatedDist tdist;
+   private double a;
+   private double b;
+   private boolean rejection;
+
+
+   /**
+    * Rejection is used when the truncated mass <SPAN CLASS="MATH"><I>F</I><SUB>0</SUB>(<I>b</I>) - <I>F</I><SUB>0</SUB>(<I>a</I>)</SPAN> is at least
+    * this value and a generator of the original distribution is available.
+    * 
+    */
+   public static double REJECTION_AREA = 0.5;
+
+
+   /**
+    * Number of intervals of the inversion table computed when inversion is
+    * used.  For distributions whose inverse distribution function is
+    * cheap to compute, such as the normal distribution, the table is slower
+    * than direct inversion, and it can be disabled by setting this value to 0.
+    * 
+    */
+   public static int TABLE_SIZE = 256;
+
+
+   /**
+    * Creates a generator for the truncated distribution <TT>dist</TT>, where
+    * <TT>gen0</TT> generates variates from the original distribution of
+    * <TT>dist</TT>.  The stream of <TT>gen0</TT> is used by this generator.
+    * 
+    * @param gen0 generator of the original distribution
+    * 
+    * @param dist truncated distribution
+    * 
+    */
+   public TruncatedGen (RandomVariateGen gen0, TruncatedDist dist) {
+      super (gen0.getStream(), dist);
+      init (gen0, dist);
+   }
+
+
+   /**
+    * Creates a generator for the distribution of the variates generated by
+    * <TT>gen0</TT>, truncated to the interval <SPAN CLASS="MATH">[<I>a</I>,<I>b</I>]</SPAN>.  The generator
+    * <TT>gen0</TT> must carry its distribution, returned by
+    * {@link RandomVariateGen#getDistribution getDistribution}, which must be
+    * continuous; some generators, such as {@link NormalBoxMullerGen}, do not.
+    * 
+    * @param gen0 generator of the original distribution
+    * 
+    * @param a left endpoint of the interval
+    * 
+    * @param b right endpoint of the interval
+    * 
+    * @exception IllegalArgumentException if <TT>gen0</TT> has no
+    * distribution, or if its distribution is not continuous
+    * 
+    */
+   public TruncatedGen (RandomVariateGen gen0, double a, double b) {
+      this (gen0, new TruncatedDist (originalDist (gen0), a, b));
+   }
+
+
+   /**
+    * Creates a generator for the truncated distribution <TT>dist</TT>, using
+    * stream <TT>s</TT>.  Since no generator is given for the original
+    * distribution, the variates are always generated by inversion.
+    * 
+    * @param s random stream used for generating uniforms
+    * 
+    * @param dist truncated distribution
+    * 
+    */
+   public TruncatedGen (RandomStream s, TruncatedDist dist) {
+      super (s, dist);
+      init (null, dist);
+   }
+
+
+   private static ContinuousDistribution originalDist (RandomVariateGen gen0) {
+      Distribution dist = gen0.getDistribution();
+      if (dist == null)
+         throw new IllegalArgumentException
+            ("gen0 has no distribution, use TruncatedGen(gen0, dist)");
+      if (!(dist instanceof ContinuousDistribution))
+         throw new IllegalArgumentException
+            ("the distribution of gen0 must be continuous");
+      return (ContinuousDistribution) dist;
+   }
+
+   private void init (RandomVariateGen gen0, TruncatedDist dist) {
+      this.gen0 = gen0;
+      this.tdist = dist;
+      a = dist.getA();
+      b = dist.getB();
+      rejection = gen0 != null && dist.getArea() >= REJECTION_AREA;
+      if (!rejection && dist.getInversionTableSize() == 0 && TABLE_SIZE > 0)
+         dist.setInversionTable (TABLE_SIZE);
+   }
+
+   public double nextDouble() {
+      if (rejection) {
+         double x;
+         do {
+            x = gen0.nextDouble();
+         } while (x < a || x > b);
+         return x;
+      }
+      return tdist.inverseF (stream.nextDouble());
+   }
+
+   public void setStream (RandomStream stream) {
+      super.setStream (stream);
+      if (gen0 != null)
+         gen0.setStream (stream);
+   }
+
+
+   /**
+    * Returns <TT>true</TT> if this generator uses rejection, and
+    * <TT>false</TT> if it uses inversion.
+    * 
+    */
+   public boolean isRejection() {
+      return rejection;
+   }
+
+}
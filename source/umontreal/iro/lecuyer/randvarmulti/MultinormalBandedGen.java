@@ -0,0 +1,221 @@
+/*
+ * Class:        MultinormalBandedGen
+ * Description:  multivariate normal generator for a band covariance matrix
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Université de Montréal
+ * Organization: DIRO, Université de Montréal
+ * @author
+ * @since
+
+ * SSJ is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License (GPL) as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * any later version.
+
+ * SSJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * A copy of the GNU General Public License is available at
+   <a href="http://www.gnu.org/licenses">GPL licence site</a>.
+ */
+
+package umontreal.iro.lecuyer.randvarmulti;
+
+import umontreal.iro.lecuyer.probdist.NormalDist;
+import umontreal.iro.lecuyer.randvar.NormalGen;
+
+
+/**
+ * Extends {@link RandomMultivariateGen} for a <SPAN  CLASS="textit">multivariate normal</SPAN>
+ * distribution whose covariance matrix <SPAN CLASS="MATH"><B><I>&#931;</I></B></SPAN> is a <SPAN  CLASS="textit">band matrix</SPAN>
+ * of half-bandwidth <SPAN CLASS="MATH"><I>w</I></SPAN>, i.e., <SPAN CLASS="MATH"><I>&#963;</I><SUB>i,j</SUB> = 0</SPAN> whenever <SPAN CLASS="MATH">|<I>i</I> - <I>j</I>| &gt; <I>w</I></SPAN>.
+ * The lower-triangular matrix <SPAN CLASS="MATH"><B>A</B></SPAN> of the Cholesky decomposition
+ * <SPAN CLASS="MATH"><B><I>&#931;</I></B> = <B>A</B><B>A</B><SUP>t</SUP></SPAN> then has the same band structure,
+ * and the random vector is generated as <SPAN CLASS="MATH"><B>X</B> = <B><I>&#956;</I></B> + <B>A</B><B>Z</B></SPAN>, as in
+ * {@link MultinormalCholeskyGen}.
+ * Here, <SPAN CLASS="MATH"><B><I>&#931;</I></B></SPAN> and <SPAN CLASS="MATH"><B>A</B></SPAN> are stored in band form, so the memory used
+ * is <SPAN CLASS="MATH"><I>O</I>(<I>dw</I>)</SPAN>, the decomposition takes <SPAN CLASS="MATH"><I>O</I>(<I>dw</I><SUP>2</SUP>)</SPAN> operations,
+ * and generating a point takes <SPAN CLASS="MATH"><I>O</I>(<I>dw</I>)</SPAN> operations, instead of
+ * <SPAN CLASS="MATH"><I>O</I>(<I>d</I><SUP>2</SUP>)</SPAN> memory and <SPAN CLASS="MATH"><I>O</I>(<I>d</I><SUP>3</SUP>)</SPAN> and <SPAN CLASS="MATH"><I>O</I>(<I>d</I><SUP>2</SUP>)</SPAN> operations for the dense
+ * Cholesky decomposition.
+ * 
+ * <P>
+ * The band of <SPAN CLASS="MATH"><B><I>&#931;</I></B></SPAN> is given as a <SPAN CLASS="MATH"><I>d</I>&#215;(<I>w</I> + 1)</SPAN> array
+ * <TT>band</TT>, where <TT>band[i][j]</TT> <SPAN CLASS="MATH">= <I>&#963;</I><SUB>i,i-j</SUB></SPAN> for
+ * <SPAN CLASS="MATH"><I>j</I> = 0,...,<I>w</I></SPAN>; that is, <TT>band[i][0]</TT> is the diagonal element of
+ * row <SPAN CLASS="MATH"><I>i</I></SPAN> and <TT>band[i][j]</TT> is the element <SPAN CLASS="MATH"><I>j</I></SPAN> positions to its left.
+ * The elements with <SPAN CLASS="MATH"><I>i</I> - <I>j</I> &lt; 0</SPAN> are ignored.
+ * 
+ */
+public class MultinormalBandedGen extends RandomMultivariateGen {
+   private static final double MYINF = 37.54;
+   private double[] mu;
+   private int w;              // half-bandwidth
+   private double[] chol;      // chol[i*(w+1) + j] = A[i][i-j]
+   private double[] temp;
+
+
+   /**
+    * Constructs a multinormal generator with mean vector <TT>mu</TT>
+    * and band covariance matrix given by <TT>band</TT>, as explained above.
+    * The half-bandwidth <SPAN CLASS="MATH"><I>w</I></SPAN> is <TT>band[0].length - 1</TT>.
+    * The vector <SPAN CLASS="MATH"><B>Z</B></SPAN> is generated by calling <SPAN CLASS="MATH"><I>d</I></SPAN> times the generator
+    * <TT>gen1</TT>, which must be a <SPAN  CLASS="textit">standard normal</SPAN> 1-dimensional
+    * generator.
+    * 
+    * @param gen1 the one-dimensional generator
+    * 
+    * @param mu the mean vector
+    * 
+    * @param band the band of the covariance matrix
+    * 
+    * @exception NullPointerException if any argument is <TT>null</TT>.
+    * 
+    * @exception IllegalArgumentException if the dimensions of the arguments
+    * are incompatible, or if the covariance matrix is not positive-definite.
+    * 
+    */
+   public MultinormalBandedGen (NormalGen gen1, double[] mu,
+                                double[][] band) {
+      if (gen1 == null)
+         throw new NullPointerException ("gen1 is null");
+      NormalDist dist = (NormalDist) gen1.getDistribution();
+      if (dist.getMu() != 0.0)
+         throw new IllegalArgumentException ("mu != 0");
+      if (dist.getSigma() != 1.0)
+         throw new IllegalArgumentException ("sigma != 1");
+      this.gen1 = gen1;
+      dimension = mu.length;
+      this.mu = mu.clone();
+      temp = new double[dimension];
+      setBand (band);
+   }
+
+
+   /**
+    * Sets the covariance matrix of this generator to the band
+    * matrix given by <TT>band</TT>, and recomputes its band Cholesky
+    * decomposition.  The half-bandwidth may differ from the previous one.
+    * 
+    * @param band the band of the covariance matrix
+    * 
+    * @exception IllegalArgumentException if the dimension of <TT>band</TT>
+    * is incorrect, or if the covariance matrix is not positive-definite.
+    * 
+    */
+   public void setBand (double[][] band) {
+      final int d = dimension;
+      if (band.length != d)
+         throw new IllegalArgumentException
+            ("Incompatible mean vector and covariance matrix");
+      final int bw = d > 0 ? band[0].length - 1 : 0;
+      if (bw < 0)
+         throw new IllegalArgumentException ("empty band");
+      final int m = bw + 1;
+      double[] a = new double[d*m];
+      for (int i = 0; i < d; i++) {
+         if (band[i].length != m)
+            throw new IllegalArgumentException
+               ("All rows of band must have the same length");
+         // Row i of A, from column max(0, i - bw) to i
+         for (int j = Math.max (0, i - bw); j <= i; j++) {
+            double s = band[i][i - j];
+            // A[i][c]*A[j][c] for c in the common band of rows i and j
+            for (int c = Math.max (0, i - bw); c < j; c++)
+               s -= a[i*m + i - c]*a[j*m + j - c];
+            if (j < i)
+               a[i*m + i - j] = s / a[j*m];
+            else {
+               if (!(s > 0))
+                  throw new IllegalArgumentException
+                     ("The covariance matrix must be positive-definite");
+               a[i*m] = Math.sqrt (s);
+            }
+         }
+      }
+      w = bw;
+      chol = a;
+   }
+
+
+   /**
+    * Returns the half-bandwidth <SPAN CLASS="MATH"><I>w</I></SPAN> of the covariance matrix.
+    * 
+    */
+   public int getBandwidth() {
+      return w;
+   }
+
+
+   /**
+    * Returns the band of the lower-triangular matrix <SPAN CLASS="MATH"><B>A</B></SPAN> of the
+    * Cholesky decomposition, in the same format as the band of <SPAN CLASS="MATH"><B><I>&#931;</I></B></SPAN>:
+    * element <TT>[i][j]</TT> of the returned array is <SPAN CLASS="MATH"><I>a</I><SUB>i,i-j</SUB></SPAN>.
+    * 
+    */
+   public double[][] getCholeskyBand() {
+      final int m = w + 1;
+      double[][] b = new double[dimension][m];
+      for (int i = 0; i < dimension; i++)
+         System.arraycopy (chol, i*m, b[i], 0, m);
+      return b;
+   }
+
+
+   /**
+    * Returns the mean vector used by this generator.
+    * 
+    */
+   public double[] getMu() {
+      return mu;
+   }
+
+
+   /**
+    * Sets the mean vector to <TT>mu</TT>.
+    * 
+    * @param mu the new mean vector.
+    * 
+    * @exception IllegalArgumentException if the length of <TT>mu</TT>
+    * does not correspond to {@link #getDimension(()) getDimension}.
+    * 
+    */
+   public void setMu (double[] mu) {
+      if (mu.length != this.mu.length)
+         throw new IllegalArgumentException
+            ("Incompatible length of mean vector");
+      this.mu = mu;
+   }
+
+
+   /**
+    * Generates a point from this multinormal distribution.
+    * 
+    * @param p the array to be filled with the generated point
+    * 
+    */
+   public void nextPoint (double[] p) {
+      final int d = dimension;
+      final int m = w + 1;
+      final double[] a = chol;
+      for (int i = 0; i < d; i++) {
+         double x = gen1.nextDouble();
+         if (x == Double.NEGATIVE_INFINITY)
+            x = -MYINF;
+         if (x == Double.POSITIVE_INFINITY)
+            x = MYINF;
+         temp[i] = x;
+      }
+      for (int i = 0; i < d; i++) {
+         double s = mu[i];
+         int ai = i*m + i;
+         for (int c = Math.max (0, i - w); c <= i; c++)
+            s += a[ai - c]*temp[c];
+         p[i] = s;
+      }
+   }
+
+}
@@ -0,0 +1,251 @@
+/*
+ * Class:        MultinormalFactorGen
+ * Description:  multivariate normal generator for a factor model
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Université de Montréal
+ * Organization: DIRO, Université de Montréal
+ * @author
+ * @since
+
+ * SSJ is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License (GPL) as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * any later version.
+
+ * SSJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * A copy of the GNU General Public License is available at
+   <a href="http://www.gnu.org/licenses">GPL licence site</a>.
+ */
+
+package umontreal.iro.lecuyer.randvarmulti;
+
+import umontreal.iro.lecuyer.probdist.NormalDist;
+import umontreal.iro.lecuyer.randvar.NormalGen;
+
+
+/**
+ * Extends {@link RandomMultivariateGen} for a <SPAN  CLASS="textit">multivariate normal</SPAN>
+ * distribution whose covariance matrix has the structure of a
+ * <SPAN  CLASS="textit">factor model</SPAN>:
+ * 
+ * <P></P>
+ * <DIV ALIGN="CENTER" CLASS="mathdisplay">
+ * <B><I>&#931;</I></B> = <B>B</B><B>B</B><SUP>t</SUP> + <B>D</B>,
+ * </DIV><P></P>
+ * 
+ * where <SPAN CLASS="MATH"><B>B</B></SPAN> is a <SPAN CLASS="MATH"><I>d</I>&#215; <I>k</I></SPAN> matrix of factor loadings, usually with
+ * <SPAN CLASS="MATH"><I>k</I> ll <I>d</I></SPAN>, and <SPAN CLASS="MATH"><B>D</B> = diag(<I>&#968;</I><SUB>1</SUB>,...,<I>&#968;</I><SUB>d</SUB>)</SPAN> is the diagonal
+ * matrix of the idiosyncratic (specific) variances.
+ * The random vector <SPAN CLASS="MATH"><B>X</B></SPAN> is generated via
+ * 
+ * <P></P>
+ * <DIV ALIGN="CENTER" CLASS="mathdisplay">
+ * <B>X</B> = <B><I>&#956;</I></B> + <B>B</B><B>Y</B> + <B>D</B><SUP>1/2</SUP><B>Z</B>,
+ * </DIV><P></P>
+ * 
+ * where <SPAN CLASS="MATH"><B>Y</B></SPAN> and <SPAN CLASS="MATH"><B>Z</B></SPAN> are independent vectors of <SPAN CLASS="MATH"><I>k</I></SPAN> and <SPAN CLASS="MATH"><I>d</I></SPAN>
+ * independent standard normal random variates, respectively.
+ * Contrary to {@link MultinormalCholeskyGen} and {@link MultinormalPCAGen},
+ * the <SPAN CLASS="MATH"><I>d</I>&#215; <I>d</I></SPAN> matrix <SPAN CLASS="MATH"><B><I>&#931;</I></B></SPAN> is never formed nor decomposed:
+ * the memory used is <SPAN CLASS="MATH"><I>O</I>(<I>dk</I>)</SPAN> and generating a point takes <SPAN CLASS="MATH"><I>O</I>(<I>dk</I>)</SPAN>
+ * operations, instead of <SPAN CLASS="MATH"><I>O</I>(<I>d</I><SUP>2</SUP>)</SPAN>.
+ * 
+ * <P>
+ * For each point, the <SPAN CLASS="MATH"><I>k</I></SPAN> variates of <SPAN CLASS="MATH"><B>Y</B></SPAN> are generated first, followed
+ * by the <SPAN CLASS="MATH"><I>d</I></SPAN> variates of <SPAN CLASS="MATH"><B>Z</B></SPAN>, all with the one-dimensional generator
+ * <TT>gen1</TT>.
+ * 
+ */
+public class MultinormalFactorGen extends RandomMultivariateGen {
+   private static final double MYINF = 37.54;
+   private double[] mu;
+   private int k;               // number of factors
+   private double[] loadings;   // d x k, row-major
+   private double[] psi;        // idiosyncratic variances
+   private double[] sqrtPsi;
+   private double[] y;          // factor values of the current point
+
+   private static double nextNormal (NormalGen gen1) {
+      double x = gen1.nextDouble();
+      if (x == Double.NEGATIVE_INFINITY)
+         return -MYINF;
+      if (x == Double.POSITIVE_INFINITY)
+         return MYINF;
+      return x;
+   }
+
+
+   /**
+    * Constructs a multinormal generator with mean vector <TT>mu</TT>
+    * and covariance matrix <SPAN CLASS="MATH"><B>B</B><B>B</B><SUP>t</SUP> + <B>D</B></SPAN>, where
+    * <TT>loadings[i][j]</TT> <SPAN CLASS="MATH">= <I>b</I><SUB>i,j</SUB></SPAN> and <TT>psi[i]</TT> <SPAN CLASS="MATH">= <I>&#968;</I><SUB>i+1</SUB></SPAN>.
+    * The number of factors <SPAN CLASS="MATH"><I>k</I></SPAN> is the number of columns of <TT>loadings</TT>.
+    * The vectors <SPAN CLASS="MATH"><B>Y</B></SPAN> and <SPAN CLASS="MATH"><B>Z</B></SPAN> are generated by calling the generator
+    * <TT>gen1</TT>, which must be a <SPAN  CLASS="textit">standard normal</SPAN> 1-dimensional
+    * generator.
+    * 
+    * @param gen1 the one-dimensional generator
+    * 
+    * @param mu the mean vector
+    * 
+    * @param loadings the <SPAN CLASS="MATH"><I>d</I>&#215; <I>k</I></SPAN> matrix of factor loadings
+    * 
+    * @param psi the <SPAN CLASS="MATH"><I>d</I></SPAN> idiosyncratic variances
+    * 
+    * @exception NullPointerException if any argument is <TT>null</TT>.
+    * 
+    * @exception IllegalArgumentException if the dimensions of the arguments
+    * are incompatible, or if a variance <SPAN CLASS="MATH"><I>&#968;</I><SUB>i</SUB></SPAN> is negative.
+    * 
+    */
+   public MultinormalFactorGen (NormalGen gen1, double[] mu,
+                                double[][] loadings, double[] psi) {
+      if (gen1 == null)
+         throw new NullPointerException ("gen1 is null");
+      NormalDist dist = (NormalDist) gen1.getDistribution();
+      if (dist.getMu() != 0.0)
+         throw new IllegalArgumentException ("mu != 0");
+      if (dist.getSigma() != 1.0)
+         throw new IllegalArgumentException ("sigma != 1");
+      this.gen1 = gen1;
+      dimension = mu.length;
+      this.mu = mu.clone();
+      setLoadings (loadings, psi);
+   }
+
+
+   /**
+    * Sets the factor loadings and the idiosyncratic variances
+    * of this generator to <TT>loadings</TT> and <TT>psi</TT>.
+    * The number of factors may differ from the previous one.
+    * 
+    * @param loadings the <SPAN CLASS="MATH"><I>d</I>&#215; <I>k</I></SPAN> matrix of factor loadings
+    * 
+    * @param psi the <SPAN CLASS="MATH"><I>d</I></SPAN> idiosyncratic variances
+    * 
+    * @exception IllegalArgumentException if the dimensions of the arguments
+    * are incompatible, or if a variance <SPAN CLASS="MATH"><I>&#968;</I><SUB>i</SUB></SPAN> is negative.
+    * 
+    */
+   public void setLoadings (double[][] loadings, double[] psi) {
+      int d = dimension;
+      if (loadings.length != d || psi.length != d)
+         throw new IllegalArgumentException
+            ("Incompatible mean vector, loadings and variances");
+      int nf = d > 0 ? loadings[0].length : 0;
+      double[] b = new double[d*nf];
+      double[] s = new double[d];
+      for (int i = 0; i < d; i++) {
+         if (loadings[i].length != nf)
+            throw new IllegalArgumentException
+               ("All rows of loadings must have the same length");
+         if (psi[i] < 0)
+            throw new IllegalArgumentException ("psi[" + i + "] < 0");
+         System.arraycopy (loadings[i], 0, b, i*nf, nf);
+         s[i] = Math.sqrt (psi[i]);
+      }
+      k = nf;
+      this.loadings = b;
+      this.psi = psi.clone();
+      sqrtPsi = s;
+      y = new double[nf];
+   }
+
+
+   /**
+    * Returns the number of factors <SPAN CLASS="MATH"><I>k</I></SPAN>.
+    * 
+    */
+   public int getNumFactors() {
+      return k;
+   }
+
+
+   /**
+    * Returns a copy of the matrix of factor loadings <SPAN CLASS="MATH"><B>B</B></SPAN>.
+    * 
+    */
+   public double[][] getLoadings() {
+      double[][] b = new double[dimension][k];
+      for (int i = 0; i < dimension; i++)
+         System.arraycopy (loadings, i*k, b[i], 0, k);
+      return b;
+   }
+
+
+   /**
+    * Returns a copy of the idiosyncratic variances
+    * <SPAN CLASS="MATH"><I>&#968;</I><SUB>1</SUB>,...,<I>&#968;</I><SUB>d</SUB></SPAN>.
+    * 
+    */
+   public double[] getPsi() {
+      return psi.clone();
+   }
+
+
+   /**
+    * Returns the element <SPAN CLASS="MATH">(<I>i</I>,<I>j</I>)</SPAN> of the covariance matrix
+    * <SPAN CLASS="MATH"><B><I>&#931;</I></B> = <B>B</B><B>B</B><SUP>t</SUP> + <B>D</B></SPAN>, computed in <SPAN CLASS="MATH"><I>O</I>(<I>k</I>)</SPAN> operations.
+    * 
+    */
+   public double getCovariance (int i, int j) {
+      double s = i == j ? psi[i] : 0.0;
+      for (int c = 0; c < k; c++)
+         s += loadings[i*k + c]*loadings[j*k + c];
+      return s;
+   }
+
+
+   /**
+    * Returns the mean vector used by this generator.
+    * 
+    */
+   public double[] getMu() {
+      return mu;
+   }
+
+
+   /**
+    * Sets the mean vector to <TT>mu</TT>.
+    * 
+    * @param mu the new mean vector.
+    * 
+    * @exception IllegalArgumentException if the length of <TT>mu</TT>
+    * does not correspond to {@link #getDimension(()) getDimension}.
+    * 
+    */
+   public void setMu (double[] mu) {
+      if (mu.length != this.mu.length)
+         throw new IllegalArgumentException
+            ("Incompatible length of mean vector");
+      this.mu = mu;
+   }
+
+
+   /**
+    * Generates a point from this multinormal distribution.
+    * 
+    * @param p the array to be filled with the generated point
+    * 
+    */
+   public void nextPoint (double[] p) {
+      NormalGen g = (NormalGen) gen1;
+      final int d = dimension;
+      final double[] b = loadings;
+      for (int c = 0; c < k; c++)
+         y[c] = nextNormal (g);
+      for (int i = 0; i < d; i++) {
+         double s = mu[i];
+         int bi = i*k;
+         for (int c = 0; c < k; c++)
+            s += b[bi + c]*y[c];
+         p[i] = s + sqrtPsi[i]*nextNormal (g);
+      }
+   }
+
+}
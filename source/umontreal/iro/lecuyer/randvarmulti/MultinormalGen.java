@@ -26,6 +26,7 @@
 
 package umontreal.iro.lecuyer.randvarmulti;
 
+import umontreal.iro.lecuyer.util.Misc;
 import umontreal.iro.lecuyer.probdist.NormalDist;
 import umontreal.iro.lecuyer.randvar.NormalGen;
 import umontreal.iro.lecuyer.rng.RandomStream;
@@ -84,6 +85,14 @@ import cern.colt.matrix.impl.DenseDoubleMatrix2D;
  * <SPAN CLASS="MATH"><I>&#963;</I><SUB>2</SUB> &gt; 0</SPAN>, and 
  * <SPAN CLASS="MATH">-1&nbsp;&lt;=&nbsp;<I>&#961;</I>&nbsp;&lt;=&nbsp;1</SPAN>.
  * 
+ * The method {@link #nextArrayOfPoints(double[][],int,int) nextArrayOfPoints} generates
+ * points by blocks: the normal variates of a block of points are generated
+ * first, and the products by <SPAN CLASS="MATH"><B>A</B></SPAN> are then computed from a copy of
+ * <SPAN CLASS="MATH"><B>A</B></SPAN> stored row by row in a primitive array, by tiles small enough to
+ * stay in the cache, and by several threads when the work is large enough.
+ * The points are the same, up to rounding errors, as those obtained by
+ * calling {@link #nextPoint nextPoint} repeatedly.
+ * 
  */
 public class MultinormalGen extends RandomMultivariateGen {
    protected double[] mu;
@@ -92,6 +101,21 @@ public class MultinormalGen extends RandomMultivariateGen {
    protected double[] temp;
    protected static final double MYINF = 37.54;
 
+   // Number of columns of sqrtSigma used to generate the points
+   protected int rank;
+
+   // Row-major copy of the first rank columns of sqrtSigma, built lazily
+   private double[] factor;
+   private DoubleMatrix2D factorSrc;
+   private int factorRank;
+   private boolean lowerTriangular;
+   private int numThreads = Runtime.getRuntime().availableProcessors();
+
+   private static final int ZBLOCK = 1 << 15;   // normals per block
+   private static final int ROWTILE = 32;
+   private static final int COLTILE = 256;
+   private static final int MINWORK = 1 << 20;  // multiply-adds per thread
+
 
    private void initMN (NormalGen gen1, double[] mu, int d) {
       if (gen1 == null)
@@ -113,6 +137,7 @@ public class MultinormalGen extends RandomMultivariateGen {
          this.mu = (double[])mu.clone();
       }
       temp = new double[dimension];
+      rank = dimension;
      }
 
    /**
@@ -292,4 +317,194 @@ public class MultinormalGen extends RandomMultivariateGen {
       }
    }
 
+
+   /**
+    * Generates <SPAN CLASS="MATH"><I>n</I></SPAN> points from this multinormal distribution and stores
+    * them in <TT>v[start]</TT>, ..., <TT>v[start + n - 1]</TT>.
+    * The normal variates are generated in the same order as with
+    * {@link #nextPoint nextPoint}, but the matrix-vector products are computed by
+    * blocks of points, as explained above.
+    * 
+    * @param v array in which the points will be stored
+    * 
+    * @param start starting index, in <TT>v</TT>, of the new points
+    * 
+    * @param n number of points to generate
+    * 
+    */
+   public void nextArrayOfPoints (double[][] v, int start, int n) {
+      if (n <= 0)
+         throw new IllegalArgumentException ("n must be positive.");
+      updateFactor();
+      final int k = factorRank;
+      final int m = Math.max (1, Math.min (n, ZBLOCK / Math.max (1, k)));
+      final double[] z = new double[m*k];
+      for (int i0 = 0; i0 < n; i0 += m) {
+         int mb = Math.min (m, n - i0);
+         for (int j = 0; j < mb*k; j++) {
+            double x = gen1.nextDouble();
+            if (x == Double.NEGATIVE_INFINITY)
+               x = -MYINF;
+            if (x == Double.POSITIVE_INFINITY)
+               x = MYINF;
+            z[j] = x;
+         }
+         multiply (z, mb, v, start + i0);
+      }
+   }
+
+
+   /**
+    * Equivalent to {@link #nextArrayOfPoints(double[][],int,int) nextArrayOfPoints}
+    * <TT>(v, 0, n)</TT>.
+    * 
+    * @param v array in which the points will be stored
+    * 
+    * @param n number of points to generate
+    * 
+    */
+   public void nextPoints (double[][] v, int n) {
+      nextArrayOfPoints (v, 0, n);
+   }
+
+
+   /**
+    * Sets the maximal number of threads used to compute the products in
+    * {@link #nextArrayOfPoints(double[][],int,int) nextArrayOfPoints}.  By default, it is the
+    * number of available processors.  Fewer threads are used when the
+    * dimension or the number of points is small.
+    * 
+    * @param numThreads the maximal number of threads
+    * 
+    */
+   public void setNumThreads (int numThreads) {
+      if (numThreads < 1)
+         throw new IllegalArgumentException ("numThreads < 1");
+      this.numThreads = numThreads;
+   }
+
+
+   // Copies the first rank columns of sqrtSigma, if they have changed
+   private void updateFactor() {
+      if (factor != null && factorSrc == sqrtSigma && factorRank == rank)
+         return;
+      final int d = dimension;
+      final int k = rank;
+      double[] a = new double[d*k];
+      boolean lower = k == d;
+      for (int r = 0; r < d; r++)
+         for (int c = 0; c < k; c++) {
+            a[r*k + c] = sqrtSigma.getQuick (r, c);
+            if (c > r && a[r*k + c] != 0.0)
+               lower = false;
+         }
+      factor = a;
+      factorSrc = sqrtSigma;
+      factorRank = k;
+      lowerTriangular = lower;
+   }
+
+   // Computes v[start + i] = mu + A z_i for the m points of z
+   private void multiply (final double[] z, final int m, final double[][] v,
+                          final int start) {
+      final int d = dimension;
+      double work = lowerTriangular ? 0.5*m*d*(d + 1.0) : (double) m*d*factorRank;
+      int nt = (int) Math.min (numThreads, Math.max (1.0, work / MINWORK));
+      nt = Math.min (nt, d);
+      if (nt == 1) {
+         multiply (z, m, v, start, 0, d);
+         return;
+      }
+      Runnable[] tasks = new Runnable[nt];
+      for (int t = 0; t < nt; t++) {
+         // With a triangular factor, row r costs r + 1 multiply-adds
+         final int r0 = rowSplit (t, nt);
+         final int r1 = rowSplit (t + 1, nt);
+         tasks[t] = new Runnable() {
+            public void run() {
+               multiply (z, m, v, start, r0, r1);
+            }
+         };
+      }
+      Misc.runInParallel (tasks);
+   }
+
+   private int rowSplit (int t, int nt) {
+      if (t >= nt)
+         return dimension;
+      if (lowerTriangular)
+         return (int) (dimension * Math.sqrt ((double) t / nt));
+      return (int) ((long) dimension * t / nt);
+   }
+
+   // Computes coordinates r0 to r1 - 1 of the m points, by tiles of
+   // ROWTILE rows and COLTILE columns of the factor.  Inside a tile,
+   // two rows are multiplied by two points at a time.
+   private void multiply (double[] z, int m, double[][] v, int start,
+                          int r0, int r1) {
+      final int k = factorRank;
+      final double[] a = factor;
+      for (int i = 0; i < m; i++) {
+         double[] p = v[start + i];
+         for (int r = r0; r < r1; r++)
+            p[r] = mu[r];
+      }
+      for (int rb = r0; rb < r1; rb += ROWTILE) {
+         int re = Math.min (rb + ROWTILE, r1);
+         int cmax = lowerTriangular ? Math.min (k, re) : k;
+         for (int cb = 0; cb < cmax; cb += COLTILE) {
+            int ce = Math.min (cb + COLTILE, cmax);
+            for (int i = 0; i < m; i += 2) {
+               final boolean two = i + 1 < m;
+               double[] p0 = v[start + i];
+               double[] p1 = two ? v[start + i + 1] : null;
+               int z0 = i*k;
+               int z1 = z0 + k;
+               for (int r = rb; r < re; r += 2) {
+                  int e0 = lowerTriangular ? Math.min (ce, r + 1) : ce;
+                  int e1 = lowerTriangular ? Math.min (ce, r + 2) : ce;
+                  int a0 = r*k;
+                  int a1 = a0 + k;
+                  double s00 = 0, s01 = 0, s10 = 0, s11 = 0;
+                  if (r + 1 < re && two) {
+                     for (int c = cb; c < e0; c++) {
+                        double x0 = a[a0 + c], x1 = a[a1 + c];
+                        double y0 = z[z0 + c], y1 = z[z1 + c];
+                        s00 += x0*y0;
+                        s01 += x0*y1;
+                        s10 += x1*y0;
+                        s11 += x1*y1;
+                     }
+                     for (int c = Math.max (cb, e0); c < e1; c++) {
+                        s10 += a[a1 + c]*z[z0 + c];
+                        s11 += a[a1 + c]*z[z1 + c];
+                     }
+                     p0[r] += s00;
+                     p1[r] += s01;
+                     p0[r + 1] += s10;
+                     p1[r + 1] += s11;
+                  } else if (r + 1 < re) {
+                     for (int c = cb; c < e0; c++) {
+                        s00 += a[a0 + c]*z[z0 + c];
+                        s10 += a[a1 + c]*z[z0 + c];
+                     }
+                     for (int c = Math.max (cb, e0); c < e1; c++)
+                        s10 += a[a1 + c]*z[z0 + c];
+                     p0[r] += s00;
+                     p0[r + 1] += s10;
+                  } else {
+                     for (int c = cb; c < e0; c++) {
+                        s00 += a[a0 + c]*z[z0 + c];
+                        if (two)
+                           s01 += a[a0 + c]*z[z1 + c];
+                     }
+                     p0[r] += s00;
+                     if (two)
+                        p1[r] += s01;
+                  }
+               }
+            }
+         }
+      }
+   }
 }
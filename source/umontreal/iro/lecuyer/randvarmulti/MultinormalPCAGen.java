@@ -60,6 +60,15 @@ import cern.colt.matrix.impl.DenseDoubleMatrix2D;
  * independent standard normal random variates. The decomposition method
  * uses the <TT>SingularValueDecomposition</TT> class in <TT>colt</TT>.
  * 
+ * When the first eigenvalues account for most of the total variance,
+ * one can use only the first <SPAN CLASS="MATH"><I>k</I> &lt; <I>d</I></SPAN> principal components by calling
+ * {@link #setRank(int) setRank}.  The vector <SPAN CLASS="MATH"><B>X</B></SPAN> is then generated as
+ * <SPAN CLASS="MATH"><B>X</B> = <B><I>&#956;</I></B> + <B>A</B><SUB>k</SUB><B>Z</B><SUB>k</SUB></SPAN>, where <SPAN CLASS="MATH"><B>A</B><SUB>k</SUB></SPAN> contains the first <SPAN CLASS="MATH"><I>k</I></SPAN> columns of
+ * <SPAN CLASS="MATH"><B>A</B></SPAN> and <SPAN CLASS="MATH"><B>Z</B><SUB>k</SUB></SPAN> is a <SPAN CLASS="MATH"><I>k</I></SPAN>-dimensional vector of independent standard
+ * normals, so that only <SPAN CLASS="MATH"><I>k</I></SPAN> normals and <SPAN CLASS="MATH"><I>dk</I></SPAN> multiplications are needed
+ * per point.  The covariance matrix of <SPAN CLASS="MATH"><B>X</B></SPAN> is then the truncation
+ * <SPAN CLASS="MATH"><B>V</B><SUB>k</SUB><B><I>&#923;</I></B><SUB>k</SUB><B>V</B><SUB>k</SUB><SUP>t</SUP></SPAN> of <SPAN CLASS="MATH"><B><I>&#931;</I></B></SPAN>.
+ * 
  */
 public class MultinormalPCAGen extends MultinormalGen {
    private double[] lambda;
@@ -302,7 +311,7 @@ public class MultinormalPCAGen extends MultinormalGen {
     */
    public void nextPoint (double[] p) {
       int n = mu.length;
-      for (int i = 0; i < n; i++) {
+      for (int i = 0; i < rank; i++) {
          temp[i] = gen1.nextDouble();
          if (temp[i] == Double.NEGATIVE_INFINITY)
             temp[i] = -MYINF;
@@ -311,9 +320,52 @@ public class MultinormalPCAGen extends MultinormalGen {
       }
       for (int i = 0; i < n; i++) {
          p[i] = 0;
-         for (int c = 0; c < n; c++)
+         for (int c = 0; c < rank; c++)
             p[i] += sqrtSigma.getQuick (i, c)*temp[c];
          p[i] += mu[i];
       }
    }
+
+
+   /**
+    * Sets to <SPAN CLASS="MATH"><I>k</I></SPAN> the number of principal components used to
+    * generate the points, where <SPAN CLASS="MATH">1&nbsp;&lt;=&nbsp; <I>k</I>&nbsp;&lt;=&nbsp; <I>d</I></SPAN>.  By default, <SPAN CLASS="MATH"><I>k</I> = <I>d</I></SPAN>.
+    * 
+    * @param k the number of principal components
+    * 
+    * @exception IllegalArgumentException if <SPAN CLASS="MATH"><I>k</I></SPAN> is not in <SPAN CLASS="MATH">[1, <I>d</I>]</SPAN>.
+    * 
+    */
+   public void setRank (int k) {
+      if (k < 1 || k > mu.length)
+         throw new IllegalArgumentException ("k must be in [1, d]");
+      rank = k;
+   }
+
+
+   /**
+    * Returns the number of principal components used to
+    * generate the points.
+    * 
+    */
+   public int getRank() {
+      return rank;
+   }
+
+
+   /**
+    * Returns the fraction <SPAN CLASS="MATH">(<I>&#955;</I><SUB>1</SUB> + ... + <I>&#955;</I><SUB>k</SUB>)/(<I>&#955;</I><SUB>1</SUB> + ... + <I>&#955;</I><SUB>d</SUB>)</SPAN>
+    * of the total variance retained by the first <SPAN CLASS="MATH"><I>k</I></SPAN> principal components.
+    * 
+    */
+   public double getVarianceFraction() {
+      double s = 0, sk = 0;
+      for (int i = 0; i < lambda.length; i++) {
+         s += lambda[i];
+         if (i < rank)
+            sk += lambda[i];
+      }
+      return sk / s;
+   }
+
 }
@@ -0,0 +1,332 @@
+/*
+ * Class:        ExternalSort
+ * Description:  external merge sort of large files of doubles
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Université de Montréal
+ * Organization: DIRO, Université de Montréal
+ * @author
+ * @since
+
+ * SSJ is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License (GPL) as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * any later version.
+
+ * SSJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * A copy of the GNU General Public License is available at
+   <a href="http://www.gnu.org/licenses">GPL licence site</a>.
+ */
+
+package umontreal.iro.lecuyer.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Sorts large files of double-precision values which do not fit in memory,
+ * by an external merge sort.  The input is read by blocks of
+ * at most <TT>runSize</TT> values; each block is sorted in memory and written
+ * to a temporary file, and these sorted runs are then merged,
+ * at most <TT>MAXMERGE</TT> at a time, until a single sorted file remains.
+ * The memory used is about <SPAN CLASS="MATH">8&nbsp;</SPAN><TT>runSize</TT> bytes, plus the buffers
+ * of the files being merged.
+ * 
+ * Binary files contain consecutive 8-byte values in the format of
+ * <TT>java.io.DataOutputStream.writeDouble</TT>, without any header.
+ * The sorted output is always written in this format, which is the format
+ * read by the classes
+ * {@link umontreal.iro.lecuyer.probdist.MappedEmpiricalDist MappedEmpiricalDist} and
+ * {@link umontreal.iro.lecuyer.probdist.MappedPiecewiseLinearEmpiricalDist MappedPiecewiseLinearEmpiricalDist}.
+ * Text input is parsed as in
+ * {@link TextDataReader#readDoubleData(Reader) readDoubleData}: one value per line, lines
+ * starting with <TT>#</TT> being skipped.
+ * 
+ * This class can also be used from the command line:
+ * 
+ * java umontreal.iro.lecuyer.util.ExternalSort [-text] input output [runSize]
+ * 
+ * where the option <TT>-text</TT> indicates that the input file is a text file.
+ * 
+ */
+public class ExternalSort {
+   private static final int BUFSIZE = 1 << 16;
+   private ExternalSort() {}
+
+   // Source of values, either binary or text
+   private static interface Source {
+      // Fills a with at most a.length values and returns their number
+      int read (double[] a) throws IOException;
+   }
+
+   private static class BinarySource implements Source {
+      private DataInputStream in;
+      BinarySource (DataInputStream in) { this.in = in; }
+
+      public int read (double[] a) throws IOException {
+         int k = 0;
+         try {
+            while (k < a.length)
+               a[k++] = in.readDouble();
+         } catch (EOFException e) {
+            k--;
+         }
+         return k;
+      }
+   }
+
+   private static class TextSource implements Source {
+      private BufferedReader in;
+      TextSource (Reader in) { this.in = new BufferedReader (in); }
+
+      public int read (double[] a) throws IOException {
+         int k = 0;
+         String li;
+         while (k < a.length && (li = in.readLine()) != null) {
+            li = li.trim();
+            if (li.startsWith ("#"))
+               continue;
+            // look for the first non-digit character on the read line
+            int index = 0;
+            while (index < li.length() &&
+               (li.charAt (index) == '+' || li.charAt (index) == '-' ||
+                li.charAt (index) == 'e' || li.charAt (index) == 'E' ||
+                li.charAt (index) == '.' || Character.isDigit (li.charAt (index))))
+              ++index;
+            li = li.substring (0, index);
+            if (!li.equals ("")) {
+               try {
+                  a[k] = Double.parseDouble (li);
+                  k++;
+               }
+               catch (NumberFormatException nfe) {}
+            }
+         }
+         return k;
+      }
+   }
+
+
+   /**
+    * Maximal number of sorted runs merged at the same time.
+    * 
+    */
+   public static int MAXMERGE = 64;
+
+
+   /**
+    * Sorts the values in the binary file <TT>input</TT> in increasing order
+    * and writes them to the binary file <TT>output</TT>, using runs of
+    * <TT>runSize</TT> values.  Returns the number of values sorted.
+    * The files <TT>input</TT> and <TT>output</TT> must be different.
+    * 
+    * @param input the binary file to sort
+    * 
+    * @param output the sorted binary file
+    * 
+    * @param runSize the number of values sorted in memory at a time
+    * 
+    * @return the number of values
+    * 
+    * @exception IOException if an I/O error occurs
+    * 
+    */
+   public static long sort (File input, File output, int runSize)
+          throws IOException {
+      DataInputStream in = new DataInputStream (new BufferedInputStream
+                             (new FileInputStream (input), BUFSIZE));
+      try {
+         return sort (new BinarySource (in), output, runSize);
+      } finally {
+         in.close();
+      }
+   }
+
+
+   /**
+    * Similar to {@link #sort(File,File,int) sort}, except that the values are
+    * read from the text reader <TT>input</TT>, one value per line.
+    * 
+    * @param input the reader providing the values
+    * 
+    * @param output the sorted binary file
+    * 
+    * @param runSize the number of values sorted in memory at a time
+    * 
+    * @return the number of values
+    * 
+    * @exception IOException if an I/O error occurs
+    * 
+    */
+   public static long sortText (Reader input, File output, int runSize)
+          throws IOException {
+      return sort (new TextSource (input), output, runSize);
+   }
+
+
+   private static long sort (Source src, File output, int runSize)
+          throws IOException {
+      if (runSize < 1)
+         throw new IllegalArgumentException ("runSize < 1");
+      if (MAXMERGE < 2)
+         throw new IllegalArgumentException ("MAXMERGE < 2");
+      File dir = output.getAbsoluteFile().getParentFile();
+      List<File> runs = new ArrayList<File>();
+      long n = 0;
+      try {
+         // Phase 1: sorted runs
+         double[] buf = new double[runSize];
+         int k;
+         while ((k = src.read (buf)) > 0) {
+            Arrays.sort (buf, 0, k);
+            File f = File.createTempFile ("ssjsort", ".run", dir);
+            runs.add (f);
+            DataOutputStream out = openOutput (f);
+            try {
+               for (int i = 0; i < k; i++)
+                  out.writeDouble (buf[i]);
+            } finally {
+               out.close();
+            }
+            n += k;
+            if (k < runSize)
+               break;
+         }
+         buf = null;
+
+         // Phase 2: merge passes
+         while (runs.size() > MAXMERGE) {
+            List<File> next = new ArrayList<File>();
+            for (int i = 0; i < runs.size(); i += MAXMERGE) {
+               List<File> group = runs.subList
+                  (i, Math.min (i + MAXMERGE, runs.size()));
+               File f = File.createTempFile ("ssjsort", ".run", dir);
+               next.add (f);
+               merge (group, f);
+               for (File g : group)
+                  g.delete();
+            }
+            runs = next;
+         }
+         merge (runs, output);
+      } finally {
+         for (File f : runs)
+            f.delete();
+      }
+      return n;
+   }
+
+   private static DataOutputStream openOutput (File f) throws IOException {
+      return new DataOutputStream (new BufferedOutputStream
+                 (new FileOutputStream (f), BUFSIZE));
+   }
+
+   // Merges the sorted runs into output, using a binary heap on the
+   // current head of each run.
+   private static void merge (List<File> runs, File output)
+          throws IOException {
+      final int m = runs.size();
+      DataInputStream[] in = new DataInputStream[m];
+      double[] head = new double[m];
+      int[] heap = new int[m];
+      int size = 0;
+      DataOutputStream out = openOutput (output);
+      try {
+         for (int r = 0; r < m; r++) {
+            in[r] = new DataInputStream (new BufferedInputStream
+                       (new FileInputStream (runs.get (r)), BUFSIZE));
+            try {
+               head[r] = in[r].readDouble();
+               heap[size++] = r;
+            } catch (EOFException e) {}
+         }
+         for (int i = size/2 - 1; i >= 0; i--)
+            siftDown (heap, head, i, size);
+         while (size > 0) {
+            int r = heap[0];
+            out.writeDouble (head[r]);
+            try {
+               head[r] = in[r].readDouble();
+            } catch (EOFException e) {
+               heap[0] = heap[--size];
+            }
+            siftDown (heap, head, 0, size);
+         }
+      } finally {
+         out.close();
+         for (int r = 0; r < m; r++)
+            if (in[r] != null)
+               in[r].close();
+      }
+   }
+
+   private static void siftDown (int[] heap, double[] head, int i, int size) {
+      int r = heap[i];
+      while (true) {
+         int c = 2*i + 1;
+         if (c >= size)
+            break;
+         if (c + 1 < size && Double.compare (head[heap[c + 1]], head[heap[c]]) < 0)
+            c++;
+         if (Double.compare (head[heap[c]], head[r]) >= 0)
+            break;
+         heap[i] = heap[c];
+         i = c;
+      }
+      heap[i] = r;
+   }
+
+
+   /**
+    * Sorts the file given on the command line.  The default run size is
+    * <SPAN CLASS="MATH">2<SUP>22</SUP></SPAN> values, i.e., 32 megabytes.
+    * 
+    */
+   public static void main (String[] args) throws IOException {
+      boolean text = false;
+      int i = 0;
+      if (args.length > 0 && args[0].equals ("-text")) {
+         text = true;
+         i++;
+      }
+      if (args.length - i < 2 || args.length - i > 3) {
+         System.err.println ("usage: java umontreal.iro.lecuyer.util.ExternalSort"
+                             + " [-text] input output [runSize]");
+         System.exit (1);
+      }
+      File input = new File (args[i]);
+      File output = new File (args[i + 1]);
+      int runSize = args.length - i == 3 ? Integer.parseInt (args[i + 2])
+                                        : 1 << 22;
+      long n;
+      if (text) {
+         Reader r = new FileReader (input);
+         try {
+            n = sortText (r, output, runSize);
+         } finally {
+            r.close();
+         }
+      } else
+         n = sort (input, output, runSize);
+      System.out.println (n + " values sorted");
+   }
+
+}
@@ -283,4 +283,53 @@ public class Misc {
       return v;
    }
 
+
+   /**
+    * Runs each of the tasks in <TT>tasks</TT> in its own thread, or
+    * in the calling thread if there is only one, and returns when all of them
+    * have finished.  If a task throws a <TT>RuntimeException</TT> or an
+    * <TT>Error</TT>, it is thrown again by this method after all the threads
+    * have finished; if several tasks throw, only one of them is thrown.
+    * 
+    * @param tasks the tasks to run
+    * 
+    * @exception IllegalStateException if the calling thread is interrupted
+    * while waiting for the tasks
+    * 
+    */
+   public static void runInParallel (Runnable[] tasks) {
+      if (tasks.length == 1) {
+         tasks[0].run();
+         return;
+      }
+      final Throwable[] error = new Throwable[1];
+      Thread[] threads = new Thread[tasks.length];
+      for (int t = 0; t < tasks.length; t++) {
+         final Runnable task = tasks[t];
+         threads[t] = new Thread() {
+            public void run() {
+               try {
+                  task.run();
+               } catch (Throwable e) {
+                  synchronized (error) {
+                     error[0] = e;
+                  }
+               }
+            }
+         };
+         threads[t].start();
+      }
+      try {
+         for (int t = 0; t < tasks.length; t++)
+            threads[t].join();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new IllegalStateException ("interrupted");
+      }
+      if (error[0] instanceof RuntimeException)
+         throw (RuntimeException) error[0];
+      if (error[0] instanceof Error)
+         throw (Error) error[0];
+   }
+
 }